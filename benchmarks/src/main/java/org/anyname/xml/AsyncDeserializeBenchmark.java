@@ -0,0 +1,119 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A batch of documents arriving over slow streams, each delivering 256 bytes per millisecond, deserialized:
+ * <ul>
+ *   <li>{@code BLOCKING} by a fixed pool of request threads calling {@link XMLSerializer#deserialize}, as services
+ *   do without the asynchronous API,</li>
+ *   <li>{@code ASYNC_BOUNDED} with {@link XMLSerializer#deserializeAsync} in a bounded pool of a thread per
+ *   document,</li>
+ *   <li>{@code ASYNC_VIRTUAL} the same in virtual threads, which needs Java 21 (fails the setup otherwise).</li>
+ * </ul>
+ * Sample time of a batch gives its latency percentiles, throughput is {@code documents} per batch time.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncDeserializeBenchmark {
+
+    private static final int REQUEST_THREADS = 32;
+    private static final int BYTES_PER_MILLISECOND = 256;
+
+    @Param({"BLOCKING", "ASYNC_BOUNDED", "ASYNC_VIRTUAL"})
+    public String mode;
+
+    @Param({"256"})
+    public int documents;
+
+    private byte[] xml;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(Payload.PRODUCT.create(13), outputStream);
+        this.xml = outputStream.toByteArray();
+        switch (this.mode) {
+            case "BLOCKING":
+                this.executor = Executors.newFixedThreadPool(REQUEST_THREADS);
+                break;
+            case "ASYNC_BOUNDED":
+                this.executor = XMLSerializerExecutors.newBoundedExecutor(this.documents, this.documents);
+                break;
+            default:
+                this.executor = XMLSerializerExecutors.newVirtualThreadExecutor(this.documents);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int batch() throws InterruptedException, ExecutionException {
+        if ("BLOCKING".equals(this.mode)) {
+            final List<Future<Product>> results = new ArrayList<>();
+            for (int i = 0; i < this.documents; i++) {
+                results.add(this.executor.submit(() -> XMLSerializer.deserialize(Product.class, slowStream())));
+            }
+            for (final Future<Product> result : results) {
+                result.get();
+            }
+        } else {
+            final List<CompletableFuture<Product>> results = new ArrayList<>();
+            for (int i = 0; i < this.documents; i++) {
+                results.add(XMLSerializer.deserializeAsync(Product.class, slowStream(),
+                        DeserializationOptions.DEFAULT, this.executor));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+        }
+        return this.documents;
+    }
+
+    private InputStream slowStream() {
+        return new ByteArrayInputStream(this.xml) {
+            @Override
+            public synchronized int read(final byte[] bytes, final int offset, final int length) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                return super.read(bytes, offset, Math.min(length, BYTES_PER_MILLISECOND));
+            }
+
+            @Override
+            public synchronized int read() {
+                final byte[] single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+            }
+        };
+    }
+}
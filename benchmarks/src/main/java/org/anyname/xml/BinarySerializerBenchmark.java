@@ -0,0 +1,97 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BinarySerializer} compared to the compact output of {@link XMLSerializer}, both deserializing with
+ * validation. Sizes of the encoded payload are reported as the {@link PayloadSize} counters of the serializing
+ * benchmarks, run with {@code -prof gc} to compare allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class BinarySerializerBenchmark {
+
+    private static final SerializationOptions COMPACT = SerializationOptions.DEFAULT.withFormattedOutput(false);
+
+    @Param({"USER", "PRODUCT", "LARGE_PRODUCT"})
+    public Payload payload;
+
+    private XMLObject object;
+    private Class<? extends XMLObject> objectClass;
+    private byte[] xml;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        this.object = this.payload.create(13);
+        this.objectClass = this.object.getClass();
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(this.object, outputStream, COMPACT);
+        this.xml = outputStream.toByteArray();
+        this.binary = BinarySerializer.serialize(this.object);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream serializeXml(final PayloadSize size) throws JAXBException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(this.xml.length);
+        XMLSerializer.serialize(this.object, outputStream, COMPACT);
+        return outputStream;
+    }
+
+    @Benchmark
+    public byte[] serializeBinary(final PayloadSize size) {
+        return BinarySerializer.serialize(this.object);
+    }
+
+    @Benchmark
+    public Object deserializeXml() throws JAXBException {
+        return XMLSerializer.deserialize(this.objectClass, new ByteArrayInputStream(this.xml));
+    }
+
+    @Benchmark
+    public Object deserializeBinary() throws IOException {
+        return BinarySerializer.deserialize(this.objectClass, this.binary);
+    }
+
+    /**
+     * Encoded sizes of the payload, set at the end of each iteration, as JMH clears counters after setting up. JMH
+     * sums event counters over the measurement iterations, the size is the score divided by {@code Cnt}.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadSize {
+
+        public long xmlBytes;
+        public long binaryBytes;
+
+        @TearDown(Level.Iteration)
+        public void record(final BinarySerializerBenchmark benchmark) {
+            this.xmlBytes = benchmark.xml.length;
+            this.binaryBytes = benchmark.binary.length;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Compile time of a {@link SyntheticCodeBase} growing in {@code packages} of 10 classes each, compiled:
+ * <ul>
+ *   <li>{@code JAVAC} by plain javac,</li>
+ *   <li>{@code ERROR_PRONE} by error-prone with its default checks only,</li>
+ *   <li>{@code NULLAWAY} by error-prone with NullAway as configured by the error-prone profile of the library, the
+ *   {@code annotatedPercent} of the packages being in {@code AnnotatedPackages}.</li>
+ * </ul>
+ * All of them are the javac 9 of error-prone (see {@link IsolatedCompiler}), so the difference between them is the
+ * overhead of the checks. The warmup iterations leave out the class loading and JIT compilation of the compiler, as a
+ * long-lived build daemon would, run with {@code -wi 0} for the time of a cold {@code mvn compile}.
+ * <p/>
+ * Memory is reported as {@code peakHeapMegabytes}, the peak heap of the compilations, and by {@code -prof gc} as
+ * the bytes allocated per compilation. Runs on Java 8 only, as the error-prone profile does.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class CompileOverheadBenchmark {
+
+    private static final int CLASSES_PER_PACKAGE = 10;
+
+    @Param({"JAVAC", "ERROR_PRONE", "NULLAWAY"})
+    public String compiler;
+
+    @Param({"10", "50", "200"})
+    public int packages;
+
+    @Param({"25", "100"})
+    public int annotatedPercent;
+
+    @Param({"20"})
+    public int nullablePercent;
+
+    private Path directory;
+    private List<File> sources;
+    private List<String> options;
+    private IsolatedCompiler isolatedCompiler;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (!"1.8".equals(System.getProperty("java.specification.version"))) {
+            // javac 9 can not read the class files of the newer JDKs, the library is built on Java 8 as well
+            throw new IllegalStateException("The javac of error-prone 2.3.2 needs Java 8 to run on");
+        }
+        this.directory = Files.createTempDirectory("compile-overhead");
+        this.sources = new SyntheticCodeBase(this.packages, CLASSES_PER_PACKAGE, this.annotatedPercent,
+                this.nullablePercent).write(this.directory.resolve("src"));
+        this.options = new ArrayList<>(Arrays.asList(
+                "-d", Files.createDirectory(this.directory.resolve("classes")).toString(),
+                "-classpath", IsolatedCompiler.classpath(),
+                "-source", "1.8", "-target", "1.8", "-proc:none"));
+        switch (this.compiler) {
+            case "JAVAC":
+                this.isolatedCompiler = new IsolatedCompiler(IsolatedCompiler.JAVAC);
+                break;
+            case "ERROR_PRONE":
+                // NullAway is a plugin, it is not loaded without the processor path
+                this.isolatedCompiler = new IsolatedCompiler(IsolatedCompiler.ERROR_PRONE);
+                break;
+            default:
+                this.isolatedCompiler = new IsolatedCompiler(IsolatedCompiler.ERROR_PRONE);
+                // the arguments of the error-prone profile in pom.xml, NullAway being found on the processor path
+                this.options.addAll(Arrays.asList(
+                        "-processorpath", IsolatedCompiler.classpath(),
+                        "-XepOpt:NullAway:AnnotatedPackages=" + SyntheticCodeBase.ANNOTATED_PREFIX,
+                        "-Xep:NullAway:ERROR",
+                        "-XepDisableWarningsInGeneratedCode",
+                        "-XepOpt:NullAway:TreatGeneratedAsUnannotated=true"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public int compile(final Memory memory) {
+        final List<String> errors = this.isolatedCompiler.compile(this.options, this.sources);
+        memory.recordPeak();
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException(errors.size() + " compilation errors, the first: " + errors.get(0));
+        }
+        return this.sources.size();
+    }
+
+    /**
+     * Peak heap usage of a compilation, the sum of the peaks of the heap memory pools. JMH sums event counters over
+     * the measurement iterations, the peak of a compilation is the score divided by {@code Cnt}.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Memory {
+
+        public long peakHeapMegabytes;
+
+        @Setup(Level.Invocation)
+        public void resetPeak() {
+            System.gc();
+            for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+        }
+
+        void recordPeak() {
+            long peak = 0;
+            for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            this.peakHeapMegabytes = peak >> 20;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to read a feed file of {@code products} records: {@link XMLSerializer#deserializeAll} streaming it on one
+ * thread, compared to {@link XMLSerializer#ingest} parsing memory-mapped chunks by {@code parallelism} threads, in the
+ * order of the file or not. Scaling is limited by the cores of the machine, a parallelism above them shows the
+ * overhead of chunks.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class IngestBenchmark {
+
+    @Param({"200000"})
+    public int products;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"true", "false"})
+    public boolean ordered;
+
+    private Path feed;
+    private ForkJoinPool pool;
+    private IngestOptions ingestOptions;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.feed = Files.createTempFile("feed", ".xml");
+        try (BufferedWriter writer = Files.newBufferedWriter(this.feed, StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<feed>\n  <products>\n");
+            for (int i = 0; i < this.products; i++) {
+                writer.write("    <product id=\"KS" + i + "\"><description>Ravensburger Krypt Silver</description>"
+                        + "<imageUrl>https://ssl-static-images.ravensburger.de/images/produktseiten/1024/" + i
+                        + "_1.jpg</imageUrl><price>" + (i % 100) + ".99</price><createdBy id=\"" + i % 100
+                        + "\"><name>Jan Kowalski</name><email>jan" + i % 100 + "@kowalski.com</email></createdBy>"
+                        + "</product>\n");
+            }
+            writer.write("  </products>\n</feed>\n");
+        }
+        this.pool = new ForkJoinPool(this.parallelism);
+        this.ingestOptions = IngestOptions.DEFAULT.withOrdered(this.ordered);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.pool.shutdownNow();
+        Files.delete(this.feed);
+    }
+
+    @Benchmark
+    public long ingest() throws IOException, JAXBException {
+        try (Stream<Product> stream = XMLSerializer.ingest(Product.class, this.feed, DeserializationOptions.DEFAULT,
+                this.ingestOptions, this.pool)) {
+            return stream.count();
+        }
+    }
+
+    /**
+     * The single-threaded baseline, the same for any parallelism.
+     */
+    @Benchmark
+    public long deserializeAll() throws IOException, JAXBException {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(this.feed), 64 * 1024);
+             Stream<Product> stream = XMLSerializer.deserializeAll(Product.class, inputStream)) {
+            return stream.count();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link XMLSerializerMetrics} on a round trip of a {@link Product}: without any listener the operations are
+ * not measured at all, with metrics each of them is timed, its bytes counted and its allocation measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class InstrumentationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private final XMLSerializerMetrics listener = new XMLSerializerMetrics();
+    private XMLObject object;
+    private byte[] xml;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        this.object = Payload.PRODUCT.create(13);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(this.object, outputStream);
+        this.xml = outputStream.toByteArray();
+        if (this.metrics) {
+            XMLSerializer.addListener(this.listener);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        XMLSerializer.removeListener(this.listener);
+    }
+
+    @Benchmark
+    public Object roundTrip() throws JAXBException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(this.xml.length);
+        XMLSerializer.serialize(this.object, outputStream);
+        return XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(this.xml));
+    }
+}
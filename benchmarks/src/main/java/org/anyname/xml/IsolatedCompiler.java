@@ -0,0 +1,108 @@
+package org.anyname.xml;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Compiles with the javac 9 which error-prone runs on, loaded from the classpath ahead of the JDK's own compiler
+ * classes, the way {@code plexus-compiler-javac-errorprone} of the error-prone profile does. It makes plain javac
+ * and error-prone the same compiler on any JDK, so the difference between them is the cost of the analysis.
+ */
+final class IsolatedCompiler {
+
+    static final String JAVAC = "com.sun.tools.javac.api.JavacTool";
+    static final String ERROR_PRONE = "com.google.errorprone.ErrorProneJavaCompiler";
+
+    private final ClassLoader classLoader;
+    private final String compiler;
+
+    IsolatedCompiler(final String compiler) {
+        this.classLoader = new ChildFirstClassLoader(urls(), IsolatedCompiler.class.getClassLoader());
+        this.compiler = compiler;
+    }
+
+    /**
+     * @return error diagnostics, empty if the sources compiled
+     */
+    @SuppressWarnings("unchecked")
+    List<String> compile(final List<String> options, final List<File> sources) {
+        try {
+            final BiFunction<List<String>, List<File>, List<String>> task =
+                    (BiFunction<List<String>, List<File>, List<String>>) this.classLoader
+                            .loadClass(IsolatedCompilerTask.class.getName())
+                            .getConstructor(String.class)
+                            .newInstance(this.compiler);
+            return task.apply(options, sources);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Could not create " + this.compiler, ex);
+        }
+    }
+
+    /**
+     * The classpath of this JVM, with the compilers, the null-safety annotations and NullAway, for the compiler
+     * itself, the compiled sources and the annotation processor path.
+     */
+    static String classpath() {
+        return System.getProperty("java.class.path");
+    }
+
+    private static URL[] urls() {
+        final List<URL> urls = new ArrayList<>();
+        for (final String entry : classpath().split(File.pathSeparator)) {
+            try {
+                urls.add(new File(entry).toURI().toURL());
+            } catch (MalformedURLException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+    /**
+     * Loads classes from its own classpath before asking the parent, except the {@code java.*} ones, so the
+     * {@code javax.tools} and {@code javax.lang.model} of javac 9 are used instead of those of the JDK.
+     */
+    private static final class ChildFirstClassLoader extends URLClassLoader {
+
+        static {
+            ClassLoader.registerAsParallelCapable();
+        }
+
+        ChildFirstClassLoader(final URL[] urls, final ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("java.")) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    try {
+                        type = findClass(name);
+                    } catch (ClassNotFoundException ex) {
+                        return super.loadClass(name, resolve);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+
+        @Override
+        public URL getResource(final String name) {
+            final URL resource = findResource(name);
+            return resource != null ? resource : super.getResource(name);
+        }
+    }
+}
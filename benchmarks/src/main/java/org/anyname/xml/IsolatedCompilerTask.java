@@ -0,0 +1,51 @@
+package org.anyname.xml;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiFunction;
+
+/**
+ * A compilation run inside the class loader of an {@link IsolatedCompiler}, where {@code javax.tools} is the one of
+ * the compiler. Only JDK types cross the class loaders.
+ */
+public final class IsolatedCompilerTask implements BiFunction<List<String>, List<File>, List<String>> {
+
+    private final JavaCompiler compiler;
+
+    public IsolatedCompilerTask(final String compiler) throws ReflectiveOperationException {
+        this.compiler = (JavaCompiler) Class.forName(compiler).getConstructor().newInstance();
+    }
+
+    @Override
+    public List<String> apply(final List<String> options, final List<File> sources) {
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager =
+                     this.compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            final boolean compiled = this.compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(sources)).call();
+
+            final List<String> errors = new ArrayList<>();
+            for (final Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    errors.add(diagnostic.toString());
+                }
+            }
+            if (!compiled && errors.isEmpty()) {
+                errors.add("compilation failed");
+            }
+            return errors;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
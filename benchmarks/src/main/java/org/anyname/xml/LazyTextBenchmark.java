@@ -0,0 +1,122 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Heap retained by a batch of products read by {@link XMLSerializer#deserializeAll} from a synthetic feed of
+ * {@code descriptionLength} chars long descriptions, which are kept as {@link LazyText}. With {@code materialized}
+ * the description of each product is read once the batch is, so that the batch holds them as strings, as it would
+ * without lazy text. The time includes deflating the descriptions, and with {@code materialized} inflating them.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseSerialGC"})
+@State(Scope.Benchmark)
+public class LazyTextBenchmark {
+
+    private static final String[] WORDS = {"the", "puzzle", "of", "a", "silver", "crypt", "pieces", "and", "with",
+            "each", "picture", "for", "players", "ages", "ravensburger", "quality", "fit", "perfectly", "to", "glow"};
+
+    @Param({"20000"})
+    public int products;
+
+    @Param({"200", "2000"})
+    public int descriptionLength;
+
+    @Param({"false", "true"})
+    public boolean materialized;
+
+    private byte[] feed;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(13);
+        final StringBuilder feed = new StringBuilder("<?xml version=\"1.0\"?><products>");
+        for (int i = 0; i < this.products; i++) {
+            feed.append("<product id=\"KS").append(i).append("\"><description>");
+            for (int length = 0; length < this.descriptionLength; ) {
+                final String word = WORDS[random.nextInt(WORDS.length)];
+                feed.append(word).append(' ');
+                length += word.length() + 1;
+            }
+            feed.append(i).append("</description><price>").append(i % 100).append(".99</price></product>");
+        }
+        this.feed = feed.append("</products>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int deserializeAll(final Memory memory) throws JAXBException {
+        try (Stream<Product> stream = XMLSerializer.deserializeAll(Product.class,
+                new ByteArrayInputStream(this.feed))) {
+            memory.batch = stream.collect(Collectors.toList());
+        }
+        int length = 0;
+        if (this.materialized) {
+            for (final Product product : memory.batch) {
+                length += product.getDescription().length();
+            }
+        }
+        return memory.batch.size() + length;
+    }
+
+    /**
+     * Heap freed by a full GC once the batch is dropped, measured outside of the timed invocation. JMH sums event
+     * counters over the measurement iterations, the value of a batch is the score divided by {@code Cnt}.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Memory {
+
+        private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+        public long retainedKilobytes;
+
+        List<Product> batch;
+
+        @TearDown(Level.Invocation)
+        public void recordRetained() {
+            final long retaining = usedAfterGc();
+            this.batch = null;
+            this.retainedKilobytes = (retaining - usedAfterGc()) >> 10;
+        }
+
+        private static long usedAfterGc() {
+            long used = Long.MAX_VALUE;
+            for (int i = 0; i < 10; i++) {
+                MEMORY.gc();
+                final long collected = MEMORY.getHeapMemoryUsage().getUsed();
+                if (collected >= used) {
+                    break;
+                }
+                used = collected;
+            }
+            return used;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.agent.NullContractListener;
+import org.anyname.nullsafety.agent.NullContracts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CPU cost of the {@link org.anyname.nullsafety.agent.NullContractAgent} left on in production: the (de)serialization
+ * of a {@link Product}, whose {@code @NonNullApi} classes the agent instruments, and a hot call returning null
+ * contrary to its contract. The agent is given to the forks of {@link Instrumented} by the benchmarks jar, so they
+ * are run from the benchmarks directory, and compared to the same code of this class run without it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class NullContractAgentBenchmark {
+
+    private final Map<String, String> legacyValues = Collections.emptyMap();
+    private Product product;
+    private byte[] xml;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        this.product = (Product) Payload.PRODUCT.create(13);
+        this.outputStream = new ByteArrayOutputStream(4096);
+        XMLSerializer.serialize(this.product, this.outputStream);
+        this.xml = this.outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public Product deserialize() throws JAXBException {
+        return XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(this.xml));
+    }
+
+    @Benchmark
+    public int serialize() throws JAXBException {
+        this.outputStream.reset();
+        XMLSerializer.serialize(this.product, this.outputStream);
+        return this.outputStream.size();
+    }
+
+    @Benchmark
+    public String violating() {
+        return lookup(this.legacyValues, "missing");
+    }
+
+    /**
+     * Declared non-null by the {@code @NonNullApi} package, while the unannotated map returns null.
+     */
+    static String lookup(final Map<String, String> values, final String key) {
+        return values.get(key);
+    }
+
+    /**
+     * The benchmarks run with the agent, violations being counted by a listener at {@code sampling} percent.
+     */
+    @Fork(value = 2, jvmArgsAppend = "-javaagent:target/benchmarks.jar=packages=org.anyname,log=false")
+    public static class Instrumented extends NullContractAgentBenchmark {
+
+        @Param({"0", "1", "100"})
+        public double sampling;
+
+        private final LongAdder reported = new LongAdder();
+        private final NullContractListener listener = violation -> this.reported.increment();
+
+        @Setup
+        public void setUpAgent() {
+            lookup(Collections.emptyMap(), "installed");
+            if (NullContracts.getViolationCounts().isEmpty()) {
+                throw new IllegalStateException("The agent is not installed, run from the benchmarks directory");
+            }
+            NullContracts.setSamplingPercent(this.sampling);
+            NullContracts.addListener(this.listener);
+        }
+
+        @TearDown
+        public void tearDownAgent() {
+            NullContracts.removeListener(this.listener);
+        }
+    }
+}
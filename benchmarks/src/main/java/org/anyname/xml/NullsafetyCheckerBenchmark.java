@@ -0,0 +1,63 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.NullsafetyChecker;
+import org.anyname.nullsafety.NullsafetyValidator;
+import org.anyname.nullsafety.NullsafetyValidators;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Null-safety check of a valid {@link Product}: the runtime {@link NullsafetyChecker}, the validator generated at
+ * build time and Bean Validation. With {@code -prof gc} the first two are expected to allocate nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class NullsafetyCheckerBenchmark {
+
+    private Product product;
+    private NullsafetyChecker checker;
+    private NullsafetyValidator<Product> generated;
+    private Validator beanValidator;
+
+    @Setup
+    public void setUp() {
+        this.product = (Product) Payload.PRODUCT.create(13);
+        this.checker = Objects.requireNonNull(NullsafetyChecker.forClass(Product.class));
+        this.generated = Objects.requireNonNull(NullsafetyValidators.find(Product.class));
+        this.beanValidator = Validation.buildDefaultValidatorFactory().getValidator();
+    }
+
+    @Benchmark
+    public boolean runtimeChecker() {
+        return this.checker.isValid(this.product);
+    }
+
+    @Benchmark
+    public boolean generatedValidator() {
+        return this.generated.isValid(this.product);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<Product>> beanValidation() {
+        return this.beanValidator.validate(this.product);
+    }
+}
@@ -0,0 +1,49 @@
+package org.anyname.xml;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Objects the benchmarks are run with, from a small user up to a product with a text of tens of kilobytes.
+ */
+public enum Payload {
+    USER {
+        @Override
+        XMLObject create(final int id) {
+            return user(id);
+        }
+    },
+    PRODUCT {
+        @Override
+        XMLObject create(final int id) {
+            return product(id, "Ravensburger Krypt Silver");
+        }
+    },
+    LARGE_PRODUCT {
+        @Override
+        XMLObject create(final int id) {
+            return product(id, text(32 * 1024));
+        }
+    };
+
+    abstract XMLObject create(int id);
+
+    static User user(final int id) {
+        return new User((long) id, "Jan Kowalski", "jan" + id + "@kowalski.com");
+    }
+
+    static Product product(final int id, final String description) {
+        return new Product("KS" + id, description,
+                "https://ssl-static-images.ravensburger.de/images/produktseiten/1024/" + id + "_1.jpg",
+                BigDecimal.valueOf(1999 + id, 2), user(id % 100));
+    }
+
+    private static String text(final int length) {
+        final char[] text = new char[length];
+        Arrays.fill(text, 'x');
+        for (int i = 80; i < length; i += 80) {
+            text[i] = ' ';
+        }
+        return new String(text);
+    }
+}
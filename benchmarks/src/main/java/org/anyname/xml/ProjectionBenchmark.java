@@ -0,0 +1,59 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization of products reading only their {@code productId} and {@code price} compared to reading them whole.
+ * Run with {@code -prof gc} to compare allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+    private static final DeserializationOptions PROJECTION = DeserializationOptions.DEFAULT
+            .withProjection(new HashSet<>(Arrays.asList("productId", "price")));
+
+    @Param({"PRODUCT", "LARGE_PRODUCT"})
+    public Payload payload;
+
+    private byte[] xml;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(this.payload.create(13), outputStream,
+                SerializationOptions.DEFAULT.withFormattedOutput(false));
+        this.xml = outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public Object deserialize() throws JAXBException {
+        return XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(this.xml));
+    }
+
+    @Benchmark
+    public Object deserializeProjection() throws JAXBException {
+        return XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(this.xml), PROJECTION);
+    }
+}
@@ -0,0 +1,87 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Time to {@link XMLSerializer#ingest} a feed file of {@code products} records by 4 threads, of which
+ * {@code invalidPermille} lack their price and are passed to a {@link Quarantine} counting their bytes, compared to a
+ * feed of valid records only. Quarantined records cost their violations and a copy of their XML, the ingest goes on
+ * at the speed of the valid ones.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class QuarantineBenchmark {
+
+    @Param({"200000"})
+    public int products;
+
+    @Param({"0", "10", "100"})
+    public int invalidPermille;
+
+    private Path feed;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.feed = Files.createTempFile("feed", ".xml");
+        try (BufferedWriter writer = Files.newBufferedWriter(this.feed, StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<feed>\n  <products>\n");
+            for (int i = 0; i < this.products; i++) {
+                final boolean invalid = i % 1000 < this.invalidPermille;
+                writer.write("    <product id=\"KS" + i + "\"><description>Ravensburger Krypt Silver</description>"
+                        + "<imageUrl>https://ssl-static-images.ravensburger.de/images/produktseiten/1024/" + i
+                        + "_1.jpg</imageUrl>" + (invalid ? "" : "<price>" + (i % 100) + ".99</price>")
+                        + "<createdBy id=\"" + i % 100 + "\"><name>Jan Kowalski</name><email>jan" + i % 100
+                        + "@kowalski.com</email></createdBy></product>\n");
+            }
+            writer.write("  </products>\n</feed>\n");
+        }
+        this.pool = new ForkJoinPool(4);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.pool.shutdownNow();
+        Files.delete(this.feed);
+    }
+
+    @Benchmark
+    public long ingest() throws IOException, JAXBException {
+        final LongAdder quarantinedBytes = new LongAdder();
+        final Quarantine quarantine = new Quarantine(record -> quarantinedBytes.add(record.getXml().length));
+        try (Stream<Product> stream = XMLSerializer.ingest(Product.class, this.feed, DeserializationOptions.DEFAULT,
+                IngestOptions.DEFAULT.withQuarantine(quarantine), this.pool)) {
+            final long ingested = stream.count();
+            if (quarantine.getQuarantinedCount() != this.products / 1000 * this.invalidPermille) {
+                throw new IllegalStateException("Quarantined " + quarantine.getQuarantinedCount());
+            }
+            return ingested + quarantinedBytes.sum();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Export of a catalogue of {@code products}: {@link XMLSerializer#serializeAll} writing products as they are
+ * generated, compared to serializing a wrapper object holding all of them. The streaming export is run with a heap of
+ * 64 MB, whatever the number of products, the wrapped one with a heap large enough for the list. Products are
+ * generated within the timed invocation for both, to a stream discarding the output.
+ * <p/>
+ * The peak of the old generation is reported per invocation, JMH sums event counters over the measurement iterations,
+ * so a score divided by {@code Cnt} is the peak of a single export.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class SerializeAllBenchmark {
+
+    private static final SerializationOptions COMPACT = SerializationOptions.DEFAULT.withFormattedOutput(false);
+
+    @Param({"100000", "1000000"})
+    public int products;
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms64m", "-Xmx64m", "-XX:+UseSerialGC"})
+    public long serializeAll(final Memory memory) throws JAXBException {
+        final OutputStream discarding = new DiscardingOutputStream();
+        return XMLSerializer.serializeAll(IntStream.range(0, this.products).mapToObj(SerializeAllBenchmark::product),
+                "products", discarding, COMPACT);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:+UseSerialGC"})
+    public int serializeWrapped(final Memory memory) throws JAXBException {
+        final Catalogue catalogue = new Catalogue();
+        for (int i = 0; i < this.products; i++) {
+            catalogue.products.add(product(i));
+        }
+        XMLSerializer.serialize(catalogue, new DiscardingOutputStream(), COMPACT);
+        return catalogue.products.size();
+    }
+
+    private static Product product(final int id) {
+        return Payload.product(id, "Ravensburger Krypt Silver");
+    }
+
+    /**
+     * The wrapper an export needs without streaming.
+     */
+    @XmlRootElement(name = "products")
+    @XmlAccessorType(XmlAccessType.FIELD)
+    static class Catalogue implements XMLObject {
+
+        @XmlElement(name = "product")
+        final List<Product> products = new ArrayList<>();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Memory {
+
+        public long peakOldGenMegabytes;
+
+        @Setup(Level.Invocation)
+        public void resetPeak() {
+            for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (isOldGen(pool)) {
+                    // the old generation left over by previous invocations is not counted
+                    ManagementFactory.getMemoryMXBean().gc();
+                    pool.resetPeakUsage();
+                }
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void recordPeak() {
+            for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (isOldGen(pool)) {
+                    this.peakOldGenMegabytes = pool.getPeakUsage().getUsed() >> 20;
+                }
+            }
+        }
+
+        private static boolean isOldGen(final MemoryPoolMXBean pool) {
+            return pool.getType() == MemoryType.HEAP && pool.getName().contains("Tenured");
+        }
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) {
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.NullsafetyValidator;
+import org.anyname.nullsafety.NullsafetyValidators;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link XMLSerializer} (de)serializing with the generated {@link StaxCodec} of the payload compared to a JAXB
+ * marshaller and unmarshaller reused by the thread, deserialized objects checked by the generated null-safety validator
+ * either way. Run with {@code -prof gc} to compare allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class StaxCodecBenchmark {
+
+    private static final SerializationOptions COMPACT = SerializationOptions.DEFAULT.withFormattedOutput(false);
+
+    @Param({"USER", "PRODUCT", "LARGE_PRODUCT"})
+    public Payload payload;
+
+    private XMLObject object;
+    private Class<? extends XMLObject> objectClass;
+    private byte[] xml;
+    private Marshaller marshaller;
+    private Unmarshaller unmarshaller;
+    private NullsafetyValidator<Object> validator;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        this.object = this.payload.create(13);
+        this.objectClass = this.object.getClass();
+        if (!JAXBBinding.of(this.objectClass).hasCodec()) {
+            throw new IllegalStateException("No codec generated for " + this.objectClass);
+        }
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(this.object, outputStream, COMPACT);
+        this.xml = outputStream.toByteArray();
+        this.marshaller = JAXBBinding.of(this.objectClass).context().createMarshaller();
+        this.marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+        this.unmarshaller = JAXBBinding.of(this.objectClass).context().createUnmarshaller();
+        this.validator = Objects.requireNonNull(NullsafetyValidators.find(this.objectClass));
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream serializeCodec() throws JAXBException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(this.xml.length);
+        XMLSerializer.serialize(this.object, outputStream, COMPACT);
+        return outputStream;
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream serializeJaxb() throws JAXBException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(this.xml.length);
+        this.marshaller.marshal(this.object, outputStream);
+        return outputStream;
+    }
+
+    @Benchmark
+    public Object deserializeCodec() throws JAXBException {
+        return XMLSerializer.deserialize(this.objectClass, new ByteArrayInputStream(this.xml));
+    }
+
+    @Benchmark
+    public Object deserializeJaxb() throws JAXBException {
+        final Object object = this.unmarshaller.unmarshal(new ByteArrayInputStream(this.xml));
+        if (!this.validator.isValid(object)) {
+            throw new IllegalStateException("Invalid " + object);
+        }
+        return object;
+    }
+}
@@ -0,0 +1,140 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Heap retained by a batch of products read by {@link XMLSerializer#deserializeAll}, with and without a
+ * {@link StringTable}, from a synthetic feed whose users and image URLs repeat {@code distinctValues} values. A
+ * {@code tableCapacity} of {@code 0} deserializes without a table. With {@code sharedUsers} an {@link ObjectTable}
+ * also replaces users of the same id with a single instance. The time includes the deduplication overhead,
+ * {@code -prof gc} reports the allocation, which the table does not reduce: each value is parsed before it is
+ * looked up.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseSerialGC"})
+@State(Scope.Benchmark)
+public class StringDeduplicationBenchmark {
+
+    private static final String[] CATEGORIES = {"Puzzle", "Board game", "Card game", "Toy", "Book"};
+
+    @Param({"100000"})
+    public int products;
+
+    @Param({"100", "10000"})
+    public int distinctValues;
+
+    @Param({"0", "4096", "65536"})
+    public int tableCapacity;
+
+    @Param({"false", "true"})
+    public boolean sharedUsers;
+
+    private byte[] feed;
+    private DeserializationOptions options;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder feed = new StringBuilder("<?xml version=\"1.0\"?><products>");
+        for (int i = 0; i < this.products; i++) {
+            final int value = i % this.distinctValues;
+            feed.append("<product id=\"KS").append(i).append("\">")
+                    .append("<description>").append(CATEGORIES[i % CATEGORIES.length]).append("</description>")
+                    .append("<imageUrl>https://ssl-static-images.ravensburger.de/images/produktseiten/1024/")
+                    .append(value).append("_1.jpg</imageUrl>")
+                    .append("<price>").append(i % 100).append(".99</price>")
+                    .append("<createdBy id=\"").append(value).append("\"><name>Jan Kowalski ").append(value)
+                    .append("</name><email>jan").append(value).append("@kowalski.com</email></createdBy>")
+                    .append("</product>");
+        }
+        this.feed = feed.append("</products>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpTable() {
+        final DeserializationOptions options = this.tableCapacity == 0 ? DeserializationOptions.DEFAULT
+                : DeserializationOptions.DEFAULT.withStringTable(new StringTable(this.tableCapacity));
+        this.options = this.sharedUsers ? options.withObjectTable(new ObjectTable(4096)) : options;
+    }
+
+    @Benchmark
+    public int deserializeAll(final Memory memory) throws JAXBException {
+        try (Stream<Product> stream = XMLSerializer.deserializeAll(Product.class,
+                new ByteArrayInputStream(this.feed), this.options)) {
+            memory.batch = stream.collect(Collectors.toList());
+        }
+        memory.stringTable = this.options.getStringTable();
+        return memory.batch.size();
+    }
+
+    /**
+     * Heap freed by a full GC once the batch is dropped, measured outside of the timed invocation, and the hit rate of
+     * the table. JMH sums event counters over the measurement iterations, the values of a batch are the scores divided
+     * by {@code Cnt}.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Memory {
+
+        private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+        public long retainedKilobytes;
+        public double hitPercent;
+
+        List<Product> batch;
+        StringTable stringTable;
+
+        @TearDown(Level.Invocation)
+        public void recordRetained() {
+            // a difference of heaps with and without the batch, rather than with a baseline taken before reading it,
+            // so that objects the serializer keeps, e.g. in its pools, are not counted
+            final long retaining = usedAfterGc();
+            this.batch = null;
+            this.retainedKilobytes = (retaining - usedAfterGc()) >> 10;
+            this.hitPercent = this.stringTable != null ? this.stringTable.getHitRate() * 100 : 0;
+            this.stringTable = null;
+        }
+
+        /**
+         * Objects awaiting finalization, and those they reach, outlive the first GC, so it is repeated until the heap
+         * stops shrinking.
+         */
+        private static long usedAfterGc() {
+            long used = Long.MAX_VALUE;
+            for (int i = 0; i < 10; i++) {
+                MEMORY.gc();
+                final long collected = MEMORY.getHeapMemoryUsage().getUsed();
+                if (collected >= used) {
+                    break;
+                }
+                used = collected;
+            }
+            return used;
+        }
+    }
+}
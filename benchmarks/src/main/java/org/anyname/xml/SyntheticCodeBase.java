@@ -0,0 +1,178 @@
+package org.anyname.xml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes a code base of {@code packages} packages of {@code classesPerPackage} classes, shaped like the null-safety
+ * annotated code: value classes with fields, getters and methods passing the values of the previous package along,
+ * null-checking those declared {@code @Nullable}. The code is NullAway clean, so only the cost of the analysis is
+ * measured.
+ * <p/>
+ * The first {@code annotatedPercent} of the packages are under {@link #ANNOTATED_PREFIX}, the package to list in
+ * {@code AnnotatedPackages}, alternately declared {@code @NonNullApi} and {@code @NonNullScope} in their
+ * package-info. The rest are under {@link #LEGACY_PREFIX}, with no package-info, as code which is not rolled out
+ * yet. {@code nullablePercent} of the fields, parameters and return values are {@code @Nullable}.
+ */
+final class SyntheticCodeBase {
+
+    static final String ANNOTATED_PREFIX = "generated.annotated";
+    static final String LEGACY_PREFIX = "generated.legacy";
+
+    private static final int FIELDS = 8;
+
+    private final int packages;
+    private final int classesPerPackage;
+    private final int annotatedPercent;
+    private final int nullablePercent;
+
+    SyntheticCodeBase(final int packages, final int classesPerPackage, final int annotatedPercent,
+                      final int nullablePercent) {
+        this.packages = packages;
+        this.classesPerPackage = classesPerPackage;
+        this.annotatedPercent = annotatedPercent;
+        this.nullablePercent = nullablePercent;
+    }
+
+    /**
+     * Writes the sources under the directory.
+     *
+     * @return the written source files
+     */
+    List<File> write(final Path directory) throws IOException {
+        final List<File> sources = new ArrayList<>();
+        for (int p = 0; p < this.packages; p++) {
+            final String packageName = packageName(p);
+            final Path packageDirectory = directory.resolve(packageName.replace('.', File.separatorChar));
+            Files.createDirectories(packageDirectory);
+            if (isAnnotated(p)) {
+                sources.add(write(packageDirectory.resolve("package-info.java"), packageInfo(p)));
+            }
+            for (int c = 0; c < this.classesPerPackage; c++) {
+                sources.add(write(packageDirectory.resolve(className(c) + ".java"), type(p, c)));
+            }
+        }
+        return Collections.unmodifiableList(sources);
+    }
+
+    private static File write(final Path file, final String source) throws IOException {
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+
+    private boolean isAnnotated(final int p) {
+        return p * 100 < this.annotatedPercent * this.packages;
+    }
+
+    /**
+     * Spreads {@code nullablePercent} evenly over the declarations of a class.
+     */
+    private boolean isNullable(final int declaration) {
+        return (declaration + 1) * this.nullablePercent / 100 > declaration * this.nullablePercent / 100;
+    }
+
+    private String packageName(final int p) {
+        return (isAnnotated(p) ? ANNOTATED_PREFIX : LEGACY_PREFIX) + ".p" + p;
+    }
+
+    private static String className(final int c) {
+        return "Type" + c;
+    }
+
+    private String packageInfo(final int p) {
+        final String annotation = p % 2 == 0 ? "NonNullApi" : "NonNullScope";
+        return "@org.anyname.nullsafety." + annotation + "\n"
+                + "package " + packageName(p) + ";\n";
+    }
+
+    private String type(final int p, final int c) {
+        final String name = className(c);
+        // values of the previous package are passed along, as a layered code base calls into the layer below
+        final String previous = p == 0 ? null : packageName(p - 1) + "." + className(c);
+        final StringBuilder source = new StringBuilder(4096)
+                .append("package ").append(packageName(p)).append(";\n\n")
+                .append("import org.anyname.nullsafety.Nullable;\n\n")
+                .append("public class ").append(name).append(" {\n\n");
+
+        for (int f = 0; f < FIELDS; f++) {
+            source.append(isNullable(f) ? "    @Nullable\n" : "")
+                    .append("    private final String field").append(f).append(";\n");
+        }
+        if (previous != null) {
+            source.append("    @Nullable\n    private final ").append(previous).append(" previous;\n");
+        }
+
+        source.append("\n    public ").append(name).append("(");
+        for (int f = 0; f < FIELDS; f++) {
+            source.append(f == 0 ? "" : ", ").append(isNullable(f) ? "@Nullable " : "")
+                    .append("String field").append(f);
+        }
+        source.append(previous == null ? "" : ", @Nullable " + previous + " previous").append(") {\n");
+        for (int f = 0; f < FIELDS; f++) {
+            source.append("        this.field").append(f).append(" = field").append(f).append(";\n");
+        }
+        source.append(previous == null ? "" : "        this.previous = previous;\n").append("    }\n");
+
+        for (int f = 0; f < FIELDS; f++) {
+            source.append('\n').append(isNullable(f) ? "    @Nullable\n" : "")
+                    .append("    public String getField").append(f).append("() {\n")
+                    .append("        return this.field").append(f).append(";\n")
+                    .append("    }\n");
+        }
+
+        source.append("\n    public String describe(").append(isNullable(FIELDS) ? "@Nullable " : "")
+                .append("String separator) {\n")
+                .append("        final StringBuilder builder = new StringBuilder();\n");
+        for (int f = 0; f < FIELDS; f++) {
+            if (isNullable(f)) {
+                source.append("        final String value").append(f).append(" = this.field").append(f).append(";\n")
+                        .append("        if (value").append(f).append(" != null) {\n")
+                        .append("            builder.append(value").append(f).append(".trim());\n")
+                        .append("        }\n");
+            } else {
+                source.append("        builder.append(this.field").append(f).append(".trim());\n");
+            }
+            source.append(isNullable(FIELDS)
+                    ? "        builder.append(separator == null ? \",\" : separator.trim());\n"
+                    : "        builder.append(separator.trim());\n");
+        }
+        source.append("        return builder.toString();\n")
+                .append("    }\n");
+
+        source.append('\n').append(isNullable(FIELDS + 1) ? "    @Nullable\n" : "")
+                .append("    public String find(final String prefix) {\n");
+        for (int f = 0; f < FIELDS; f++) {
+            source.append(isNullable(f)
+                    ? "        if (this.field" + f + " != null && this.field" + f + ".startsWith(prefix)) {\n"
+                    : "        if (this.field" + f + ".startsWith(prefix)) {\n")
+                    .append("            return this.field").append(f).append(";\n")
+                    .append("        }\n");
+        }
+        source.append(isNullable(FIELDS + 1) ? "        return null;\n" : "        return prefix;\n")
+                .append("    }\n");
+
+        if (previous == null) {
+            source.append("\n    public int weight(final String prefix) {\n")
+                    .append("        return prefix.length();\n")
+                    .append("    }\n");
+        } else {
+            source.append("\n    public int weight(final String prefix) {\n")
+                    .append("        final ").append(previous).append(" previous = this.previous;\n")
+                    .append("        if (previous == null) {\n")
+                    .append("            return 0;\n")
+                    .append("        }\n")
+                    .append("        final String found = previous.find(prefix);\n")
+                    .append(isNullable(FIELDS + 1)
+                            ? "        return found == null ? previous.weight(prefix) : found.length();\n"
+                            : "        return found.length() + previous.weight(prefix);\n")
+                    .append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+}
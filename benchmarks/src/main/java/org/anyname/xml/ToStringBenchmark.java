@@ -0,0 +1,54 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.ToStringRenderer;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a {@link Product} for a log line: reflectively, with the cached {@link ToStringRenderer} and with the
+ * renderer appending to a builder reused across lines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ToStringBenchmark {
+
+    private final StringBuilder line = new StringBuilder(1024);
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        this.product = (Product) Payload.PRODUCT.create(13);
+    }
+
+    @Benchmark
+    public String reflective() {
+        return ToStringBuilder.reflectionToString(this.product, ToStringStyle.JSON_STYLE);
+    }
+
+    @Benchmark
+    public String renderer() {
+        return this.product.toString();
+    }
+
+    @Benchmark
+    public StringBuilder rendererIntoBuilder() {
+        this.line.setLength(0);
+        return ToStringRenderer.renderTo(this.line, this.product);
+    }
+}
@@ -0,0 +1,85 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.validation.ConstraintViolationException;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady-state cost of {@link XMLSerializer#validate}, to be run with {@code -prof gc}: a valid {@link Product} is
+ * checked by its generated validator and should allocate nothing ({@code gc.alloc.rate.norm} of 0 B/op), a valid object
+ * with constraints only Bean Validation checks shows the cost of the engine, and an invalid product the cost of
+ * reporting its violation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ValidateBenchmark {
+
+    private final XMLSerializer<XMLObject> validator = new XMLSerializer<>();
+    private final Product product = Payload.product(13, "Ravensburger Krypt Silver");
+    private final Sized sized = new Sized("Ravensburger Krypt Silver");
+    private final Product invalidProduct = Payload.product(13, "Ravensburger Krypt Silver");
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        final Field price = Product.class.getDeclaredField("price");
+        price.setAccessible(true);
+        price.set(this.invalidProduct, null);
+    }
+
+    @Benchmark
+    public XMLObject validProduct() {
+        this.validator.validate(this.product);
+        return this.product;
+    }
+
+    @Benchmark
+    public XMLObject validBeanValidationObject() {
+        this.validator.validate(this.sized);
+        return this.sized;
+    }
+
+    @Benchmark
+    public Object invalidProduct() {
+        try {
+            this.validator.validate(this.invalidProduct);
+            return this.invalidProduct;
+        } catch (ConstraintViolationException ex) {
+            return ex;
+        }
+    }
+
+    /**
+     * With a constraint the generated validators do not check, so validated by Bean Validation.
+     */
+    static class Sized implements XMLObject {
+
+        @NotNull
+        @Size(max = 64)
+        private final String name;
+
+        @NotNull
+        private final BigDecimal amount = BigDecimal.ONE;
+
+        Sized(final String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.anyname.xml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of {@link XMLSerializer}: serialize (formatted to a stream, compact into a reused buffer), deserialize
+ * (with validation) and validation alone, run by a single thread and by as many threads as there are cores. Run with
+ * {@code -prof gc} to see allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public abstract class XMLSerializerBenchmark {
+
+    @Param({"USER", "PRODUCT", "LARGE_PRODUCT"})
+    public Payload payload;
+
+    private static final SerializationOptions COMPACT = SerializationOptions.DEFAULT.withFormattedOutput(false);
+
+    private final XMLSerializer<XMLObject> validator = new XMLSerializer<>();
+    private XMLObject object;
+    private Class<? extends XMLObject> objectClass;
+    private byte[] xml;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        this.object = this.payload.create(13);
+        this.objectClass = this.object.getClass();
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(this.object, outputStream);
+        this.xml = outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream serialize() throws JAXBException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(this.xml.length);
+        XMLSerializer.serialize(this.object, outputStream);
+        return outputStream;
+    }
+
+    @Benchmark
+    public ByteBuffer serializeCompactIntoBuffer(final ResponseBuffer responseBuffer) throws JAXBException {
+        final ByteBuffer buffer = responseBuffer.buffer;
+        buffer.clear();
+        XMLSerializer.serialize(this.object, buffer, COMPACT);
+        return buffer;
+    }
+
+    @Benchmark
+    public Object deserialize() throws JAXBException {
+        return XMLSerializer.deserialize(this.objectClass, new ByteArrayInputStream(this.xml));
+    }
+
+    @Benchmark
+    public XMLObject validate() {
+        this.validator.validate(this.object);
+        return this.object;
+    }
+
+    /**
+     * Response buffer reused by a thread, as a server would, large enough for any payload.
+     */
+    @State(Scope.Thread)
+    public static class ResponseBuffer {
+        final ByteBuffer buffer = ByteBuffer.allocate(128 * 1024);
+    }
+
+    @Threads(1)
+    @State(Scope.Benchmark)
+    public static class SingleThread extends XMLSerializerBenchmark {
+    }
+
+    @Threads(Threads.MAX)
+    @State(Scope.Benchmark)
+    public static class AllThreads extends XMLSerializerBenchmark {
+    }
+}
@@ -0,0 +1,76 @@
+package org.anyname.nullsafety;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Registry of {@link NullsafetyBoundery} types known at build time, read from the indexes written by
+ * {@link org.anyname.nullsafety.processor.NullsafetyIndexProcessor} into each module of the classpath. It lets all
+ * the types be prepared at startup, rather than by the first request for each of them.
+ * <p/>
+ * Each module has an index at the same {@link #LOCATION}, so a jar merging modules, e.g. shaded, has to append their
+ * indexes, as the {@code AppendingTransformer} of the Maven Shade Plugin does, rather than keep only one of them.
+ */
+public final class NullsafetyBounderyIndex {
+
+    /**
+     * Classpath resource listing binary names of the indexed types, one per line.
+     */
+    public static final String LOCATION = "META-INF/nullsafety/bounderies";
+
+    private NullsafetyBounderyIndex() {
+    }
+
+    /**
+     * Loads, without initializing, the types indexed by all modules visible to the class loader. Types of an index
+     * which are no longer on the classpath are skipped.
+     *
+     * @throws UncheckedIOException if an index can not be read
+     */
+    public static List<Class<? extends NullsafetyBoundery>> load(final ClassLoader classLoader) {
+        final Set<String> names = new LinkedHashSet<>();
+        try {
+            final Enumeration<URL> indexes = classLoader.getResources(LOCATION);
+            while (indexes.hasMoreElements()) {
+                read(indexes.nextElement(), names);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read " + LOCATION, ex);
+        }
+
+        final List<Class<? extends NullsafetyBoundery>> types = new ArrayList<>(names.size());
+        for (final String name : names) {
+            try {
+                final Class<?> type = Class.forName(name, false, classLoader);
+                if (NullsafetyBoundery.class.isAssignableFrom(type)) {
+                    types.add(type.asSubclass(NullsafetyBoundery.class));
+                }
+            } catch (ClassNotFoundException | LinkageError ex) {
+                // stale entry of an index built before the type was removed
+            }
+        }
+        return Collections.unmodifiableList(types);
+    }
+
+    private static void read(final URL index, final Set<String> names) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final String name = line.trim();
+                if (!name.isEmpty() && !name.startsWith("#")) {
+                    names.add(name);
+                }
+            }
+        }
+    }
+}
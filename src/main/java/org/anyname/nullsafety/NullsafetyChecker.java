@@ -0,0 +1,319 @@
+package org.anyname.nullsafety;
+
+import javax.validation.Constraint;
+import javax.validation.GroupSequence;
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Null-safety check of classes without a {@link NullsafetyValidator} generated at build time, e.g. loaded at runtime
+ * as plugins. Field annotations of a class are read once, on its first check, and compiled into a list of
+ * {@link MethodHandle} getters with the checks to apply to their values. Checking an object then involves neither
+ * reflection nor allocation.
+ * <p/>
+ * Fields are checked for their constraints only, the same as Bean Validation checks them: {@link NotNull},
+ * {@link NotEmpty}, {@link NotBlank} and {@link Valid} cascade into a single object are supported. A field without any
+ * may be null, also of a {@link NullsafetyBoundery} type, whose non-null fields have to be annotated for runtime checks.
+ * A class with any other constraint has no checker and is left to Bean Validation, the same as an object deeper than
+ * {@value #MAX_DEPTH} cascades, which may be a cycle.
+ */
+public final class NullsafetyChecker implements NullsafetyValidator<Object> {
+
+    private static final int MAX_DEPTH = 32;
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final Predicate<Object> NOTHING_CHECKED = value -> false;
+
+    private static final ClassValue<NullsafetyChecker> CHECKERS = new ClassValue<NullsafetyChecker>() {
+        @Override
+        protected NullsafetyChecker computeValue(final Class<?> type) {
+            return compile(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final FieldCheck[] checks;
+    private final boolean supported;
+
+    private NullsafetyChecker(final Class<?> type, final FieldCheck[] checks, final boolean supported) {
+        this.type = type;
+        this.checks = checks;
+        this.supported = supported;
+    }
+
+    /**
+     * @return checker of exactly the given type, or {@code null} if it has constraints the checker does not support
+     */
+    @Nullable
+    public static NullsafetyChecker forClass(final Class<?> type) {
+        final NullsafetyChecker checker = CHECKERS.get(type);
+        return checker.supported ? checker : null;
+    }
+
+    @Override
+    public boolean isValid(final Object object) {
+        return check(object, 0, NOTHING_CHECKED);
+    }
+
+    @Override
+    public boolean isValid(final Object object, final Predicate<Object> checked) {
+        return check(object, 0, checked);
+    }
+
+    private boolean check(final Object object, final int depth, final Predicate<Object> checked) {
+        if (!this.supported || depth > MAX_DEPTH) {
+            return false;
+        }
+        for (final FieldCheck check : this.checks) {
+            final Object value = check.get(object);
+            if (value == null) {
+                if (check.notNull) {
+                    return false;
+                }
+                continue;
+            }
+            if (check.notEmpty && isEmpty(value) || check.notBlank && isBlank((CharSequence) value)) {
+                return false;
+            }
+            if (check.cascade && !checked.test(value)
+                    && (isContainer(value) || !CHECKERS.get(value.getClass()).check(value, depth + 1, checked))) {
+                // elements of a container are cascaded into by Bean Validation only
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isContainer(final Object value) {
+        return value instanceof Iterable || value instanceof Map || value.getClass().isArray();
+    }
+
+    private static boolean isEmpty(final Object value) {
+        if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() == 0;
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).isEmpty();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).isEmpty();
+        }
+        return Array.getLength(value) == 0;
+    }
+
+    private static boolean isBlank(final CharSequence value) {
+        // same as Bean Validation's trim().isEmpty(), without creating the trimmed copy
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static NullsafetyChecker compile(final Class<?> type) {
+        final List<FieldCheck> checks = new ArrayList<>();
+        final boolean supported = compileFields(type, checks);
+        return new NullsafetyChecker(type, checks.toArray(new FieldCheck[0]), supported);
+    }
+
+    private static boolean compileFields(final Class<?> type, final List<FieldCheck> checks) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || hasTypeLevelConstraints(type)) {
+            return false;
+        }
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (final Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+                final FieldCheck check = compileField(field);
+                if (check == FieldCheck.UNSUPPORTED) {
+                    return false;
+                }
+                if (check != null) {
+                    checks.add(check);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    private static FieldCheck compileField(final Field field) {
+        boolean notNull = false;
+        boolean notEmpty = false;
+        boolean notBlank = false;
+        for (final Annotation annotation : field.getAnnotations()) {
+            if (!isConstraint(annotation)) {
+                continue;
+            }
+            if (hasGroups(annotation)) {
+                return FieldCheck.UNSUPPORTED;
+            }
+            if (annotation instanceof NotNull) {
+                notNull = true;
+            } else if (annotation instanceof NotEmpty) {
+                notEmpty = true;
+            } else if (annotation instanceof NotBlank) {
+                notBlank = true;
+            } else {
+                return FieldCheck.UNSUPPORTED;
+            }
+        }
+        final Class<?> fieldType = field.getType();
+        final boolean cascade = field.isAnnotationPresent(Valid.class);
+        if (hasContainerElementConstraints(field.getAnnotatedType())
+                || notBlank && !CharSequence.class.isAssignableFrom(fieldType)
+                || notEmpty && !isSizeable(fieldType)
+                || cascade && (fieldType.isPrimitive() || fieldType.isArray() || isContainerType(fieldType))) {
+            return FieldCheck.UNSUPPORTED;
+        }
+        if (fieldType.isPrimitive() || !notNull && !notEmpty && !notBlank && !cascade) {
+            return null;
+        }
+
+        try {
+            field.setAccessible(true);
+            final MethodHandle getter = MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+            return new FieldCheck(field.getName(), getter, notNull || notEmpty || notBlank, notEmpty, notBlank, cascade);
+        } catch (IllegalAccessException | RuntimeException ex) {
+            // e.g. not accessible in a module that is not open for reflection
+            return FieldCheck.UNSUPPORTED;
+        }
+    }
+
+    private static boolean hasTypeLevelConstraints(final Class<?> type) {
+        final Deque<Class<?>> types = new ArrayDeque<>();
+        final Set<Class<?>> visited = new HashSet<>();
+        types.add(type);
+        while (!types.isEmpty()) {
+            final Class<?> current = types.poll();
+            if (current == Object.class || !visited.add(current)) {
+                continue;
+            }
+            if (current.isAnnotationPresent(GroupSequence.class) || hasConstraint(current.getAnnotations())) {
+                return true;
+            }
+            for (final Method method : current.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Valid.class) || hasConstraint(method.getAnnotations())) {
+                    return true;
+                }
+            }
+            final Class<?> superclass = current.getSuperclass();
+            if (superclass != null) {
+                types.add(superclass);
+            }
+            for (final Class<?> implemented : current.getInterfaces()) {
+                types.add(implemented);
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasContainerElementConstraints(final AnnotatedType type) {
+        if (!(type instanceof AnnotatedParameterizedType)) {
+            return false;
+        }
+        for (final AnnotatedType argument : ((AnnotatedParameterizedType) type).getAnnotatedActualTypeArguments()) {
+            if (argument.isAnnotationPresent(Valid.class) || hasConstraint(argument.getAnnotations())
+                    || hasContainerElementConstraints(argument)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasConstraint(final Annotation[] annotations) {
+        for (final Annotation annotation : annotations) {
+            if (isConstraint(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isConstraint(final Annotation annotation) {
+        final Class<? extends Annotation> annotationType = annotation.annotationType();
+        // repeated constraints are wrapped in a List annotation of the constraints package, it is not a constraint
+        return annotationType.isAnnotationPresent(Constraint.class)
+                || annotationType.getName().startsWith("javax.validation.constraints.");
+    }
+
+    private static boolean hasGroups(final Annotation annotation) {
+        try {
+            final Object groups = annotation.annotationType().getMethod("groups").invoke(annotation);
+            return groups instanceof Class[] && ((Class<?>[]) groups).length > 0;
+        } catch (ReflectiveOperationException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether Bean Validation has a {@code @NotEmpty} validator of the type, which it has not of a plain
+     * {@link Iterable}, so that {@link #isEmpty(Object)} is not asked about one
+     */
+    private static boolean isSizeable(final Class<?> type) {
+        return type.isArray() || CharSequence.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)
+                || Map.class.isAssignableFrom(type);
+    }
+
+    private static boolean isContainerType(final Class<?> type) {
+        return Iterable.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public String toString() {
+        return "NullsafetyChecker{" + this.type.getName() + (this.supported ? "" : ", unsupported") + "}";
+    }
+
+    private static final class FieldCheck {
+        static final FieldCheck UNSUPPORTED = new FieldCheck("unsupported", MethodHandles.identity(Object.class),
+                false, false, false, false);
+
+        final String name;
+        final MethodHandle getter;
+        final boolean notNull;
+        final boolean notEmpty;
+        final boolean notBlank;
+        final boolean cascade;
+
+        FieldCheck(final String name, final MethodHandle getter, final boolean notNull, final boolean notEmpty,
+                   final boolean notBlank, final boolean cascade) {
+            this.name = name;
+            this.getter = getter;
+            this.notNull = notNull;
+            this.notEmpty = notEmpty;
+            this.notBlank = notBlank;
+            this.cascade = cascade;
+        }
+
+        @Nullable
+        Object get(final Object object) {
+            try {
+                return (Object) this.getter.invokeExact(object);
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Could not read " + this.name + " of " + object.getClass(), ex);
+            }
+        }
+    }
+}
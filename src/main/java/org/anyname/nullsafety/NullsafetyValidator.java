@@ -0,0 +1,36 @@
+package org.anyname.nullsafety;
+
+import java.util.function.Predicate;
+
+/**
+ * Plain-java null-safety check of a {@link NullsafetyBoundery} type, generated at build time by
+ * {@link org.anyname.nullsafety.processor.NullsafetyValidatorProcessor} or compiled at runtime by
+ * {@link NullsafetyChecker}.
+ * <p/>
+ * It exists only for types whose all constraints it can verify on its own: {@code @NotNull},
+ * {@code @NotEmpty} and {@code @NotBlank} fields and {@code @Valid} cascades into other such types. The runtime checker
+ * additionally expects all not {@code @Nullable} fields to be non-null. For anything else
+ * Bean Validation remains the source of truth, and it is also the one to report violations - this check only answers
+ * whether there are any.
+ *
+ * @param <T> checked type
+ * @see NullsafetyValidators
+ */
+public interface NullsafetyValidator<T> {
+
+    /**
+     * @return {@code true} if the object satisfies all constraints of its type, {@code false} if at least one of them
+     * is violated or the check can not tell (e.g. cascaded value is of a subtype) and Bean Validation has to decide
+     */
+    boolean isValid(T object);
+
+    /**
+     * Checks the object the same as {@link #isValid(Object)}, but does not cascade into values already checked on
+     * their own, e.g. nested objects validated as they were read.
+     *
+     * @param checked whether a value of a {@code @Valid} cascade is known to be valid
+     */
+    default boolean isValid(T object, Predicate<Object> checked) {
+        return isValid(object);
+    }
+}
@@ -0,0 +1,55 @@
+package org.anyname.nullsafety;
+
+/**
+ * Finds {@link NullsafetyValidator}s generated at build time, for classes without one (e.g. loaded at runtime) falls
+ * back to a {@link NullsafetyChecker}. Lookup is done once per class and cached.
+ */
+public final class NullsafetyValidators {
+
+    /**
+     * Suffix appended to the name of a validated type (nested types joined with '_') to name its generated validator.
+     */
+    public static final String VALIDATOR_SUFFIX = "_NullsafetyValidator";
+
+    private static final NullsafetyValidator<Object> NO_VALIDATOR = object -> false;
+
+    private static final ClassValue<NullsafetyValidator<?>> VALIDATORS = new ClassValue<NullsafetyValidator<?>>() {
+        @Override
+        protected NullsafetyValidator<?> computeValue(final Class<?> type) {
+            return load(type);
+        }
+    };
+
+    private NullsafetyValidators() {
+    }
+
+    /**
+     * @return validator of exactly the given type, or {@code null} if there is none and Bean Validation has to be used
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T> NullsafetyValidator<T> find(final Class<? extends T> type) {
+        final NullsafetyValidator<?> validator = VALIDATORS.get(type);
+        return validator == NO_VALIDATOR ? null : (NullsafetyValidator<T>) validator;
+    }
+
+    static String validatorName(final Class<?> type) {
+        final String name = type.getName();
+        final int packageEnd = name.lastIndexOf('.');
+        return name.substring(0, packageEnd + 1) + name.substring(packageEnd + 1).replace('$', '_') + VALIDATOR_SUFFIX;
+    }
+
+    private static NullsafetyValidator<?> load(final Class<?> type) {
+        final ClassLoader classLoader = type.getClassLoader();
+        if (!NullsafetyBoundery.class.isAssignableFrom(type) || classLoader == null) {
+            return NO_VALIDATOR;
+        }
+        try {
+            final Class<?> validatorClass = Class.forName(validatorName(type), true, classLoader);
+            return (NullsafetyValidator<?>) validatorClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError ex) {
+            final NullsafetyChecker checker = NullsafetyChecker.forClass(type);
+            return checker != null ? checker : NO_VALIDATOR;
+        }
+    }
+}
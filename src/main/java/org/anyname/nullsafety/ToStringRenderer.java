@@ -0,0 +1,270 @@
+package org.anyname.nullsafety;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders {@link NullsafetyBoundery} objects the same as
+ * {@code ToStringBuilder.reflectionToString(object, ToStringStyle.JSON_STYLE)} does, without its reflection on every
+ * call. Fields of a class are looked up once, on its first rendering, and compiled into {@link MethodHandle} getters,
+ * primitive ones typed so that their values are appended without boxing.
+ * <p/>
+ * Nested boundary objects are rendered in place rather than through their {@code toString()}, a {@link RenderedText}
+ * by its text, any other value the same way as the JSON style renders it. Objects nested deeper than
+ * {@value #MAX_DEPTH}, which may be a cycle, are rendered as their class and identity hash only.
+ */
+public final class ToStringRenderer {
+
+    private static final int MAX_DEPTH = 32;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static final ClassValue<FieldRenderer[]> RENDERERS = new ClassValue<FieldRenderer[]>() {
+        @Override
+        protected FieldRenderer[] computeValue(final Class<?> type) {
+            return compile(type);
+        }
+    };
+
+    private ToStringRenderer() {
+    }
+
+    /**
+     * Text rendered by {@link #renderedText()} rather than by {@code toString()}, e.g. one which keeps what its
+     * {@code toString()} decodes, so that rendering it does not.
+     */
+    public interface RenderedText extends CharSequence {
+
+        String renderedText();
+    }
+
+    public static String render(final NullsafetyBoundery object) {
+        return renderTo(new StringBuilder(64), object).toString();
+    }
+
+    /**
+     * Appends the rendered object, e.g. to a builder reused for all lines of a log.
+     *
+     * @return the builder
+     */
+    public static StringBuilder renderTo(final StringBuilder builder, final NullsafetyBoundery object) {
+        appendObject(builder, object, 0);
+        return builder;
+    }
+
+    private static void appendObject(final StringBuilder builder, final Object object, final int depth) {
+        if (depth > MAX_DEPTH) {
+            final String identity = object.getClass().getName() + '@' + Integer.toHexString(System.identityHashCode(object));
+            appendString(builder, identity);
+            return;
+        }
+        builder.append('{');
+        final FieldRenderer[] renderers = RENDERERS.get(object.getClass());
+        for (int i = 0; i < renderers.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append('"').append(renderers[i].name).append("\":");
+            renderers[i].append(builder, object, depth);
+        }
+        builder.append('}');
+    }
+
+    private static void appendValue(final StringBuilder builder, @Nullable final Object value, final int depth) {
+        if (value == null) {
+            builder.append("null");
+        } else if (value instanceof RenderedText) {
+            appendString(builder, ((RenderedText) value).renderedText());
+        } else if (value instanceof CharSequence || value instanceof Character) {
+            appendString(builder, value.toString());
+        } else if (value instanceof Long || value instanceof Integer) {
+            // the most common identifiers, appended without their string
+            builder.append(((Number) value).longValue());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            builder.append(value);
+        } else if (value instanceof NullsafetyBoundery) {
+            appendObject(builder, value, depth + 1);
+        } else if (value.getClass().isArray()) {
+            appendArray(builder, value, depth);
+        } else {
+            final String string = value.toString();
+            // the JSON style embeds values which already look like JSON objects or arrays, e.g. collections and maps
+            if (isEnclosedIn(string, '{', '}') || isEnclosedIn(string, '[', ']')) {
+                builder.append(string);
+            } else {
+                appendString(builder, string);
+            }
+        }
+    }
+
+    private static void appendArray(final StringBuilder builder, final Object array, final int depth) {
+        builder.append('[');
+        final int length = Array.getLength(array);
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            appendValue(builder, Array.get(array, i), depth);
+        }
+        builder.append(']');
+    }
+
+    private static boolean isEnclosedIn(final String string, final char start, final char end) {
+        return string.length() > 1 && string.charAt(0) == start && string.charAt(string.length() - 1) == end;
+    }
+
+    /**
+     * Appends the string quoted and escaped the same as {@code StringEscapeUtils.escapeJson} does.
+     */
+    private static void appendString(final StringBuilder builder, final String string) {
+        builder.append('"');
+        // copies runs of characters which need no escaping at once, not char by char
+        int unescaped = 0;
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            if (c < ' ' || c > 0x7e || c == '"' || c == '\\' || c == '/') {
+                builder.append(string, unescaped, i);
+                appendEscaped(builder, c);
+                unescaped = i + 1;
+            }
+        }
+        builder.append(string, unescaped, string.length()).append('"');
+    }
+
+    private static void appendEscaped(final StringBuilder builder, final char c) {
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                builder.append('\\').append(c);
+                break;
+            case '\b':
+                builder.append("\\b");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            case '\f':
+                builder.append("\\f");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            default:
+                if (c < ' ' || c > 0x7f) {
+                    builder.append("\\u").append(HEX_DIGITS[c >> 12]).append(HEX_DIGITS[c >> 8 & 0xf])
+                            .append(HEX_DIGITS[c >> 4 & 0xf]).append(HEX_DIGITS[c & 0xf]);
+                } else {
+                    builder.append(c);
+                }
+        }
+    }
+
+    private static FieldRenderer[] compile(final Class<?> type) {
+        // the same fields in the same order as the reflective builder: declared ones first, then inherited
+        final List<FieldRenderer> renderers = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (final Field field : current.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                // as the reflective builder, skips synthetic fields by their '$', e.g. the outer instance
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+                        || field.getName().indexOf('$') >= 0) {
+                    continue;
+                }
+                renderers.add(compileField(field));
+            }
+        }
+        return renderers.toArray(new FieldRenderer[0]);
+    }
+
+    private static FieldRenderer compileField(final Field field) {
+        final MethodHandle getter;
+        try {
+            field.setAccessible(true);
+            getter = MethodHandles.lookup().unreflectGetter(field);
+        } catch (IllegalAccessException | RuntimeException ex) {
+            throw new IllegalStateException("Could not access " + field, ex);
+        }
+        final Class<?> fieldType = field.getType();
+        final Kind kind;
+        if (fieldType == boolean.class) {
+            kind = Kind.BOOLEAN;
+        } else if (fieldType == char.class) {
+            kind = Kind.CHAR;
+        } else if (fieldType == long.class) {
+            kind = Kind.LONG;
+        } else if (fieldType == float.class) {
+            kind = Kind.FLOAT;
+        } else if (fieldType == double.class) {
+            kind = Kind.DOUBLE;
+        } else if (fieldType.isPrimitive()) {
+            // byte, short and int are all appended as int
+            kind = Kind.INT;
+        } else {
+            kind = Kind.OBJECT;
+        }
+        return new FieldRenderer(field.getName(), getter.asType(kind.getterType), kind);
+    }
+
+    private enum Kind {
+        OBJECT(Object.class), BOOLEAN(boolean.class), CHAR(char.class), INT(int.class), LONG(long.class),
+        FLOAT(float.class), DOUBLE(double.class);
+
+        final MethodType getterType;
+
+        Kind(final Class<?> valueType) {
+            this.getterType = MethodType.methodType(valueType, Object.class);
+        }
+    }
+
+    private static final class FieldRenderer {
+        final String name;
+        final MethodHandle getter;
+        final Kind kind;
+
+        FieldRenderer(final String name, final MethodHandle getter, final Kind kind) {
+            this.name = name;
+            this.getter = getter;
+            this.kind = kind;
+        }
+
+        void append(final StringBuilder builder, final Object object, final int depth) {
+            try {
+                switch (this.kind) {
+                    case BOOLEAN:
+                        builder.append((boolean) this.getter.invokeExact(object));
+                        break;
+                    case CHAR:
+                        builder.append('"');
+                        appendEscaped(builder, (char) this.getter.invokeExact(object));
+                        builder.append('"');
+                        break;
+                    case INT:
+                        builder.append((int) this.getter.invokeExact(object));
+                        break;
+                    case LONG:
+                        builder.append((long) this.getter.invokeExact(object));
+                        break;
+                    case FLOAT:
+                        builder.append((float) this.getter.invokeExact(object));
+                        break;
+                    case DOUBLE:
+                        builder.append((double) this.getter.invokeExact(object));
+                        break;
+                    default:
+                        appendValue(builder, (Object) this.getter.invokeExact(object), depth);
+                }
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Could not read " + this.name + " of " + object.getClass(), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.anyname.nullsafety.agent;
+
+import org.anyname.nullsafety.Nullable;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells whether a class is in a scope declared {@code @NonNullApi} or {@code @NonNullScope}: its own, of a class
+ * enclosing it, or of its package. Scopes are read from the class files, without loading the classes, and those of
+ * packages are cached by class loader.
+ */
+final class NonNullScopes {
+
+    private static final String NON_NULL_API = "Lorg/anyname/nullsafety/NonNullApi;";
+    private static final String NON_NULL_SCOPE = "Lorg/anyname/nullsafety/NonNullScope;";
+    private static final int MAX_ENCLOSING_DEPTH = 16;
+
+    private final Map<ClassLoader, Map<String, Boolean>> packages = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param type the class, read with {@link #read}
+     */
+    boolean isInScope(final ClassLoader classLoader, final String className, final Declaration type) {
+        Declaration declaration = type;
+        for (int depth = 0; depth < MAX_ENCLOSING_DEPTH; depth++) {
+            if (declaration.nonNull) {
+                return true;
+            }
+            final String enclosing = declaration.enclosing;
+            if (enclosing == null) {
+                break;
+            }
+            final Declaration read = read(classLoader, enclosing);
+            if (read == null) {
+                break;
+            }
+            declaration = read;
+        }
+        final int separator = className.lastIndexOf('/');
+        return isPackageInScope(classLoader, separator < 0 ? "" : className.substring(0, separator));
+    }
+
+    private boolean isPackageInScope(final ClassLoader classLoader, final String packageName) {
+        final Map<String, Boolean> scopes = this.packages.computeIfAbsent(classLoader,
+                loader -> new ConcurrentHashMap<>());
+        final Boolean cached = scopes.get(packageName);
+        if (cached != null) {
+            return cached;
+        }
+        // read outside of the map, as reading may load classes and so call the agent again
+        final Declaration packageInfo = read(classLoader,
+                packageName.isEmpty() ? "package-info" : packageName + "/package-info");
+        final boolean inScope = packageInfo != null && packageInfo.nonNull;
+        scopes.putIfAbsent(packageName, inScope);
+        return inScope;
+    }
+
+    @Nullable
+    private static Declaration read(final ClassLoader classLoader, final String className) {
+        try (InputStream classFile = classLoader.getResourceAsStream(className + ".class")) {
+            return classFile == null ? null : read(new ClassReader(classFile));
+        } catch (IOException | RuntimeException ex) {
+            // unreadable class file, not in a scope the agent can tell
+            return null;
+        }
+    }
+
+    static Declaration read(final ClassReader classReader) {
+        final Declaration declaration = new Declaration();
+        classReader.accept(declaration, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return declaration;
+    }
+
+    /**
+     * Null-safety scope declared by a class or package-info.
+     */
+    static final class Declaration extends ClassVisitor {
+
+        boolean nonNull;
+        @Nullable
+        String enclosing;
+        @Nullable
+        private String name;
+
+        Declaration() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visit(final int version, final int access, final String name, @Nullable final String signature,
+                          @Nullable final String superName, @Nullable final String[] interfaces) {
+            this.name = name;
+        }
+
+        @Override
+        public void visitOuterClass(final String owner, @Nullable final String name,
+                                    @Nullable final String descriptor) {
+            // a local or anonymous class
+            this.enclosing = owner;
+        }
+
+        @Override
+        public void visitInnerClass(final String name, @Nullable final String outerName,
+                                    @Nullable final String innerName, final int access) {
+            if (outerName != null && name.equals(this.name)) {
+                this.enclosing = outerName;
+            }
+        }
+
+        @Override
+        @Nullable
+        public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
+            if (NON_NULL_API.equals(descriptor) || NON_NULL_SCOPE.equals(descriptor)) {
+                this.nonNull = true;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.anyname.nullsafety.agent;
+
+import org.anyname.nullsafety.Nullable;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Java agent checking at runtime the null-safety contracts of methods in {@code @NonNullApi} and
+ * {@code @NonNullScope} scopes, which static analysis can not guarantee for values coming from unannotated code:
+ * <pre>
+ * java -javaagent:null-safety.jar=packages=com.acme,sampling=1 -cp asm.jar:...
+ * </pre>
+ * Nulls passed to parameters or returned from methods which are not {@code @Nullable} are counted and reported to
+ * {@link NullContracts#addListener listeners}, by default logged as warnings, and never thrown, so that the agent can
+ * be left on in production. Options, separated by commas:
+ * <ul>
+ *   <li>{@code packages=<package>} limits the instrumented classes to the package and its subpackages, repeated for
+ *   more of them, all classes in a non-null scope are instrumented by default,</li>
+ *   <li>{@code sampling=<percent>} of violations reported, from {@code 0} to {@code 100} (the default), see
+ *   {@link NullContracts#setSamplingPercent},</li>
+ *   <li>{@code log=false} disables the logging.</li>
+ * </ul>
+ * The agent needs ASM, which is an optional dependency of the library, on the classpath.
+ */
+public final class NullContractAgent {
+
+    private static final Logger LOGGER = Logger.getLogger(NullContracts.class.getName());
+
+    private NullContractAgent() {
+    }
+
+    public static void premain(@Nullable final String options, final Instrumentation instrumentation) {
+        install(options, instrumentation, false);
+    }
+
+    /**
+     * Installs the agent into a running JVM, the classes already loaded are instrumented as well.
+     */
+    public static void agentmain(@Nullable final String options, final Instrumentation instrumentation) {
+        install(options, instrumentation, true);
+    }
+
+    private static void install(@Nullable final String options, final Instrumentation instrumentation,
+                                final boolean retransform) {
+        final List<String> packages = new ArrayList<>();
+        boolean log = true;
+        for (final String option : options == null || options.isEmpty() ? new String[0] : options.split(",")) {
+            final int separator = option.indexOf('=');
+            final String key = separator < 0 ? option.trim() : option.substring(0, separator).trim();
+            final String value = separator < 0 ? "" : option.substring(separator + 1).trim();
+            switch (key) {
+                case "packages":
+                    packages.add(value.replace('.', '/') + '/');
+                    break;
+                case "sampling":
+                    NullContracts.setSamplingPercent(Double.parseDouble(value));
+                    break;
+                case "log":
+                    log = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option of the null contracts agent: " + option);
+            }
+        }
+        if (log) {
+            NullContracts.addListener(violation -> LOGGER.log(Level.WARNING, violation.getMessage(), violation));
+        }
+
+        final NullContractTransformer transformer =
+                new NullContractTransformer(Collections.unmodifiableList(packages));
+        instrumentation.addTransformer(transformer, retransform);
+        if (retransform && instrumentation.isRetransformClassesSupported()) {
+            for (final Class<?> type : instrumentation.getAllLoadedClasses()) {
+                if (type.getClassLoader() != null && instrumentation.isModifiableClass(type)
+                        && transformer.isIncluded(type.getName().replace('.', '/'))) {
+                    try {
+                        instrumentation.retransformClasses(type);
+                    } catch (UnmodifiableClassException | LinkageError ex) {
+                        // left as it is, like classes the agent can not read
+                    }
+                }
+            }
+        }
+    }
+}
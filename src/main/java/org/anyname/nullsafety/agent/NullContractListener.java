@@ -0,0 +1,11 @@
+package org.anyname.nullsafety.agent;
+
+/**
+ * Receives the sampled violations of null-safety contracts, once {@link NullContracts#addListener added}. Listeners
+ * are called synchronously by the thread which passed or returned the null, so they have to be thread-safe and fast.
+ */
+@FunctionalInterface
+public interface NullContractListener {
+
+    void onViolation(NullContractViolation violation);
+}
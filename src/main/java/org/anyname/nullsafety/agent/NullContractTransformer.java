@@ -0,0 +1,274 @@
+package org.anyname.nullsafety.agent;
+
+import org.anyname.nullsafety.Nullable;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.TypePath;
+import org.objectweb.asm.TypeReference;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Inserts null checks of parameters and return values, which are not {@code @Nullable}, into methods of classes in a
+ * {@link NonNullScopes non-null scope}. The checks are calls to {@link NullContracts}, without branches in the
+ * instrumented code, so its stack map frames stay valid and no classes have to be loaded to compute them.
+ * <p/>
+ * {@code equals(Object)} is left out, as its contract is defined by {@link Object} with a nullable parameter.
+ */
+final class NullContractTransformer implements ClassFileTransformer {
+
+    private static final String NULL_CONTRACTS = Type.getInternalName(NullContracts.class);
+    private static final String AGENT_PACKAGE = NULL_CONTRACTS.substring(0, NULL_CONTRACTS.lastIndexOf('/') + 1);
+
+    private final List<String> packages;
+    private final NonNullScopes scopes = new NonNullScopes();
+    private final Map<ClassLoader, Boolean> linkable = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param packages prefixes of internal names of the classes to instrument, all classes if it is empty
+     */
+    NullContractTransformer(final List<String> packages) {
+        this.packages = packages;
+    }
+
+    @Override
+    @Nullable
+    public byte[] transform(@Nullable final ClassLoader loader, @Nullable final String className,
+                            @Nullable final Class<?> classBeingRedefined,
+                            @Nullable final ProtectionDomain protectionDomain, final byte[] classfileBuffer) {
+        // classes of the bootstrap class loader can not see NullContracts
+        if (loader == null || className == null || !isIncluded(className) || !isLinkable(loader)) {
+            return null;
+        }
+        try {
+            return instrument(loader, className, classfileBuffer);
+        } catch (RuntimeException ex) {
+            // a class the agent can not read is left as it is, rather than failing to load
+            return null;
+        }
+    }
+
+    boolean isIncluded(final String className) {
+        if (className.startsWith(AGENT_PACKAGE) || className.startsWith("org/objectweb/asm/")) {
+            return false;
+        }
+        if (this.packages.isEmpty()) {
+            return true;
+        }
+        for (final String prefix : this.packages) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether classes of the loader link the calls to {@link NullContracts} to the class the agent reports from, which
+     * they do not in isolated class loaders.
+     */
+    private boolean isLinkable(final ClassLoader loader) {
+        final Boolean cached = this.linkable.get(loader);
+        if (cached != null) {
+            return cached;
+        }
+        boolean linkable;
+        try {
+            linkable = Class.forName(NullContracts.class.getName(), false, loader) == NullContracts.class;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            linkable = false;
+        }
+        this.linkable.put(loader, linkable);
+        return linkable;
+    }
+
+    @Nullable
+    byte[] instrument(final ClassLoader loader, final String className, final byte[] classfile) {
+        final ClassReader reader = new ClassReader(classfile);
+        if ((reader.getAccess() & (Opcodes.ACC_ANNOTATION | Opcodes.ACC_MODULE)) != 0
+                || className.endsWith("package-info")
+                || !this.scopes.isInScope(loader, className, NonNullScopes.read(reader))) {
+            return null;
+        }
+        // the reader lets the writer copy methods which are not instrumented as they are
+        final ClassWriter writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+        final ContractsInstrumenter instrumenter = new ContractsInstrumenter(writer);
+        reader.accept(instrumenter, 0);
+        return instrumenter.instrumented ? writer.toByteArray() : null;
+    }
+
+    static boolean isNullable(final String annotationDescriptor) {
+        // any @Nullable or @CheckForNull, as NullAway recognises them
+        final int start = Math.max(annotationDescriptor.lastIndexOf('/'), annotationDescriptor.lastIndexOf('$')) + 1;
+        final String simpleName = annotationDescriptor.substring(start, annotationDescriptor.length() - 1);
+        return "Nullable".equals(simpleName) || "CheckForNull".equals(simpleName);
+    }
+
+    private static boolean isReference(final Type type) {
+        return type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY;
+    }
+
+    private static final class ContractsInstrumenter extends ClassVisitor {
+
+        boolean instrumented;
+        private String className = "";
+
+        ContractsInstrumenter(final ClassVisitor classVisitor) {
+            super(Opcodes.ASM9, classVisitor);
+        }
+
+        @Override
+        public void visit(final int version, final int access, final String name, @Nullable final String signature,
+                          @Nullable final String superName, @Nullable final String[] interfaces) {
+            this.className = name;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        @Nullable
+        public MethodVisitor visitMethod(final int access, final String name, final String descriptor,
+                                         @Nullable final String signature, @Nullable final String[] exceptions) {
+            final MethodVisitor methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+            final int skipped = Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE | Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE;
+            if (methodVisitor == null || (access & skipped) != 0 || "<clinit>".equals(name)
+                    || "equals".equals(name) && "(Ljava/lang/Object;)Z".equals(descriptor)) {
+                return methodVisitor;
+            }
+            return new ContractChecks(methodVisitor, access, name, descriptor);
+        }
+
+        private final class ContractChecks extends MethodVisitor {
+
+            private final boolean isStatic;
+            private final String name;
+            private final Type[] parameterTypes;
+            private final boolean[] nullableParameters;
+            private boolean nullableReturn;
+            // javac leaves synthetic leading parameters, as those of enum and inner class constructors, out of
+            // the parameter annotations
+            private int visibleParameterOffset;
+            private int invisibleParameterOffset;
+            private int site = -1;
+
+            ContractChecks(final MethodVisitor methodVisitor, final int access, final String name,
+                           final String descriptor) {
+                super(Opcodes.ASM9, methodVisitor);
+                this.isStatic = (access & Opcodes.ACC_STATIC) != 0;
+                this.name = name;
+                this.parameterTypes = Type.getArgumentTypes(descriptor);
+                this.nullableParameters = new boolean[this.parameterTypes.length];
+            }
+
+            @Override
+            @Nullable
+            public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
+                if (isNullable(descriptor)) {
+                    this.nullableReturn = true;
+                }
+                return super.visitAnnotation(descriptor, visible);
+            }
+
+            @Override
+            public void visitAnnotableParameterCount(final int parameterCount, final boolean visible) {
+                final int offset = Math.max(0, this.parameterTypes.length - parameterCount);
+                if (visible) {
+                    this.visibleParameterOffset = offset;
+                } else {
+                    this.invisibleParameterOffset = offset;
+                }
+                super.visitAnnotableParameterCount(parameterCount, visible);
+            }
+
+            @Override
+            @Nullable
+            public AnnotationVisitor visitParameterAnnotation(final int parameter, final String descriptor,
+                                                              final boolean visible) {
+                final int index = parameter + (visible ? this.visibleParameterOffset : this.invisibleParameterOffset);
+                if (isNullable(descriptor) && index < this.nullableParameters.length) {
+                    this.nullableParameters[index] = true;
+                }
+                return super.visitParameterAnnotation(parameter, descriptor, visible);
+            }
+
+            @Override
+            @Nullable
+            public AnnotationVisitor visitTypeAnnotation(final int typeRef, @Nullable final TypePath typePath,
+                                                         final String descriptor, final boolean visible) {
+                // only of the parameter or return type itself, not of its type arguments or array components
+                if (isNullable(descriptor) && typePath == null) {
+                    final TypeReference reference = new TypeReference(typeRef);
+                    if (reference.getSort() == TypeReference.METHOD_RETURN) {
+                        this.nullableReturn = true;
+                    } else if (reference.getSort() == TypeReference.METHOD_FORMAL_PARAMETER
+                            && reference.getFormalParameterIndex() < this.nullableParameters.length) {
+                        this.nullableParameters[reference.getFormalParameterIndex()] = true;
+                    }
+                }
+                return super.visitTypeAnnotation(typeRef, typePath, descriptor, visible);
+            }
+
+            @Override
+            public void visitCode() {
+                super.visitCode();
+                int local = this.isStatic ? 0 : 1;
+                for (int parameter = 0; parameter < this.parameterTypes.length; parameter++) {
+                    final Type type = this.parameterTypes[parameter];
+                    if (isReference(type) && !this.nullableParameters[parameter]) {
+                        super.visitVarInsn(Opcodes.ALOAD, local);
+                        push(site());
+                        push(parameter);
+                        super.visitMethodInsn(Opcodes.INVOKESTATIC, NULL_CONTRACTS, "checkParameter",
+                                "(Ljava/lang/Object;II)V", false);
+                    }
+                    local += type.getSize();
+                }
+            }
+
+            @Override
+            public void visitInsn(final int opcode) {
+                if (opcode == Opcodes.ARETURN && !this.nullableReturn) {
+                    super.visitInsn(Opcodes.DUP);
+                    push(site());
+                    super.visitMethodInsn(Opcodes.INVOKESTATIC, NULL_CONTRACTS, "checkReturnValue",
+                            "(Ljava/lang/Object;I)V", false);
+                }
+                super.visitInsn(opcode);
+            }
+
+            private int site() {
+                if (this.site < 0) {
+                    this.site = NullContracts.register(describe(), this.parameterTypes.length);
+                    ContractsInstrumenter.this.instrumented = true;
+                }
+                return this.site;
+            }
+
+            private String describe() {
+                final StringBuilder method = new StringBuilder(className.replace('/', '.'))
+                        .append('.').append(this.name).append('(');
+                for (int parameter = 0; parameter < this.parameterTypes.length; parameter++) {
+                    method.append(parameter == 0 ? "" : ", ").append(this.parameterTypes[parameter].getClassName());
+                }
+                return method.append(')').toString();
+            }
+
+            private void push(final int value) {
+                if (value <= Short.MAX_VALUE) {
+                    super.visitIntInsn(value <= Byte.MAX_VALUE ? Opcodes.BIPUSH : Opcodes.SIPUSH, value);
+                } else {
+                    super.visitLdcInsn(value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.anyname.nullsafety.agent;
+
+import java.util.Arrays;
+
+/**
+ * A null passed to or returned from a method contrary to its null-safety contract, detected by the
+ * {@link NullContractAgent}. It is reported to {@link NullContractListener}s and never thrown, its stack trace starts
+ * in the method to which the null was passed or from which it was returned.
+ */
+public class NullContractViolation extends NullPointerException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * {@link #getParameter() Parameter} of a violated return value contract.
+     */
+    public static final int RETURN_VALUE = -1;
+
+    private final String method;
+    private final int parameter;
+
+    NullContractViolation(final String method, final int parameter) {
+        super(describe(method, parameter));
+        this.method = method;
+        this.parameter = parameter;
+        // starts at the instrumented method, rather than in the agent
+        final StackTraceElement[] stackTrace = getStackTrace();
+        int start = 0;
+        while (start < stackTrace.length && NullContracts.class.getName().equals(stackTrace[start].getClassName())) {
+            start++;
+        }
+        setStackTrace(Arrays.copyOfRange(stackTrace, start, stackTrace.length));
+    }
+
+    /**
+     * @return the instrumented method, as {@code package.Type.name(parameter types)}
+     */
+    public String getMethod() {
+        return this.method;
+    }
+
+    /**
+     * @return index of the null parameter, or {@link #RETURN_VALUE}
+     */
+    public int getParameter() {
+        return this.parameter;
+    }
+
+    /**
+     * @return description of the violated contract, as {@code method} followed by {@code parameter N} or
+     * {@code return value}
+     */
+    public String getContract() {
+        return describe(this.method, this.parameter);
+    }
+
+    static String describe(final String method, final int parameter) {
+        return method + (parameter == RETURN_VALUE ? " return value" : " parameter " + parameter);
+    }
+}
@@ -0,0 +1,163 @@
+package org.anyname.nullsafety.agent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runtime side of the {@link NullContractAgent}: methods instrumented by the agent pass their non-null parameters and
+ * return values to it, it counts those which are null and reports a sample of them to {@link NullContractListener}s.
+ * <p/>
+ * The test for null is made inline and costs a single branch on every call. Reporting a violation creates its stack
+ * trace and calls listeners, which is what a flood of violations from a hot path would make expensive, so only
+ * {@link #setSamplingPercent(double) sampling percent} of them are reported, while all of them are counted.
+ */
+public final class NullContracts {
+
+    private static final Site[] NO_SITES = new Site[0];
+    private static final NullContractListener[] NONE = new NullContractListener[0];
+
+    // methods instrumented so far, indexed by the id compiled into them
+    private static volatile Site[] sites = NO_SITES;
+    private static volatile int siteCount;
+    // copied on write, as listeners are added rarely and read by every reported violation
+    private static volatile NullContractListener[] listeners = NONE;
+    private static volatile double samplingPercent = 100;
+
+    private NullContracts() {
+    }
+
+    /**
+     * Called by instrumented methods on entry, for each parameter which is not {@code @Nullable}.
+     */
+    public static void checkParameter(final Object value, final int site, final int parameter) {
+        if (value == null) {
+            violated(site, parameter);
+        }
+    }
+
+    /**
+     * Called by instrumented methods, which are not {@code @Nullable}, with the value they return.
+     */
+    public static void checkReturnValue(final Object value, final int site) {
+        if (value == null) {
+            violated(site, NullContractViolation.RETURN_VALUE);
+        }
+    }
+
+    /**
+     * Sets percent of violations reported to listeners, from {@code 0} for none to {@code 100} for all of them.
+     * Violations are counted regardless of it.
+     */
+    public static void setSamplingPercent(final double percent) {
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("Sampling percent must be between 0 and 100: " + percent);
+        }
+        samplingPercent = percent;
+    }
+
+    public static double getSamplingPercent() {
+        return samplingPercent;
+    }
+
+    public static synchronized void addListener(final NullContractListener listener) {
+        final NullContractListener[] current = listeners;
+        final NullContractListener[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = listener;
+        listeners = added;
+    }
+
+    public static synchronized void removeListener(final NullContractListener listener) {
+        listeners = Arrays.stream(listeners).filter(registered -> registered != listener)
+                .toArray(NullContractListener[]::new);
+    }
+
+    /**
+     * @return number of violations so far by method and parameter, as described by
+     * {@link NullContractViolation#getContract()}, only of those violated at least once
+     */
+    public static Map<String, Long> getViolationCounts() {
+        final Site[] current = sites;
+        final int count = siteCount;
+        final Map<String, Long> counts = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            current[i].collectCounts(counts);
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Registers a method instrumented by the agent.
+     *
+     * @return id of the method the instrumented code passes along with values it checks
+     */
+    static synchronized int register(final String method, final int parameters) {
+        Site[] current = sites;
+        final int site = siteCount;
+        if (site == current.length) {
+            current = Arrays.copyOf(current, Math.max(64, site * 2));
+        }
+        current[site] = new Site(method, parameters);
+        sites = current;
+        siteCount = site + 1;
+        return site;
+    }
+
+    private static void violated(final int site, final int parameter) {
+        final Site violated = sites[site];
+        violated.count(parameter);
+
+        final double percent = samplingPercent;
+        if (percent == 0 || percent < 100 && ThreadLocalRandom.current().nextDouble() * 100 >= percent) {
+            return;
+        }
+        final NullContractListener[] current = listeners;
+        if (current.length == 0) {
+            return;
+        }
+        final NullContractViolation violation = new NullContractViolation(violated.method, parameter);
+        for (final NullContractListener listener : current) {
+            try {
+                listener.onViolation(violation);
+            } catch (RuntimeException ex) {
+                // a broken listener must not fail the checked method, it is reported the same as an uncaught
+                // exception would be
+                final Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+            }
+        }
+    }
+
+    private static final class Site {
+
+        final String method;
+        // by parameter index, the return value last
+        final LongAdder[] counts;
+
+        Site(final String method, final int parameters) {
+            this.method = method;
+            this.counts = new LongAdder[parameters + 1];
+            for (int i = 0; i < this.counts.length; i++) {
+                this.counts[i] = new LongAdder();
+            }
+        }
+
+        void count(final int parameter) {
+            this.counts[parameter == NullContractViolation.RETURN_VALUE ? this.counts.length - 1 : parameter]
+                    .increment();
+        }
+
+        void collectCounts(final Map<String, Long> counts) {
+            for (int i = 0; i < this.counts.length; i++) {
+                final long count = this.counts[i].sum();
+                if (count != 0) {
+                    final int parameter = i == this.counts.length - 1 ? NullContractViolation.RETURN_VALUE : i;
+                    counts.merge(NullContractViolation.describe(this.method, parameter), count, Long::sum);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.anyname.nullsafety.processor;
+
+import org.anyname.nullsafety.NullsafetyBounderyIndex;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes the binary names of all concrete classes implementing {@link org.anyname.nullsafety.NullsafetyBoundery},
+ * one per line, into the {@link NullsafetyBounderyIndex#LOCATION index} read at runtime, so that the types are
+ * known without scanning the classpath.
+ * <p/>
+ * The index lists the types of a single compilation, it is meant to be rebuilt with all sources of a module. Indexes
+ * of the modules merged into a single jar have to be appended, see {@link NullsafetyBounderyIndex}.
+ */
+@SupportedAnnotationTypes("*")
+public class NullsafetyIndexProcessor extends AbstractProcessor {
+
+    private static final String BOUNDARY = "org.anyname.nullsafety.NullsafetyBoundery";
+
+    private final Set<String> indexed = new TreeSet<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        final TypeElement boundary = this.processingEnv.getElementUtils().getTypeElement(BOUNDARY);
+        if (boundary == null) {
+            return false;
+        }
+        if (roundEnv.processingOver()) {
+            if (!this.indexed.isEmpty()) {
+                write();
+            }
+            return false;
+        }
+        for (final Element element : roundEnv.getRootElements()) {
+            collect(element, boundary);
+        }
+        // the processor only reads the sources, annotations are left for others to claim
+        return false;
+    }
+
+    private void collect(final Element element, final TypeElement boundary) {
+        if (!element.getKind().isClass() && !element.getKind().isInterface()) {
+            return;
+        }
+        final TypeElement type = (TypeElement) element;
+        final Types types = this.processingEnv.getTypeUtils();
+        if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)
+                && types.isAssignable(types.erasure(type.asType()), types.erasure(boundary.asType()))) {
+            this.indexed.add(this.processingEnv.getElementUtils().getBinaryName(type).toString());
+            this.originatingElements.add(type);
+        }
+        for (final TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            collect(nested, boundary);
+        }
+    }
+
+    private void write() {
+        try {
+            final FileObject index = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    NullsafetyBounderyIndex.LOCATION, this.originatingElements.toArray(new Element[0]));
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (final String type : this.indexed) {
+                    writer.write(type);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException ex) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write " + NullsafetyBounderyIndex.LOCATION + ": " + ex);
+        }
+    }
+}
@@ -0,0 +1,513 @@
+package org.anyname.nullsafety.processor;
+
+import org.anyname.nullsafety.Nullable;
+import org.anyname.nullsafety.NullsafetyValidators;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a {@link org.anyname.nullsafety.NullsafetyValidator} for each class implementing
+ * {@link org.anyname.nullsafety.NullsafetyBoundery}, so that the common null-safety constraints are checked by plain
+ * java code instead of the reflective Bean Validation engine.
+ * <p/>
+ * A validator is generated only when it can check all constraints of the type by itself:
+ * <ul>
+ *   <li>fields annotated with {@code @NotNull}, {@code @NotEmpty} or {@code @NotBlank} (in the default group),</li>
+ *   <li>fields annotated with {@code @Valid} whose type is another such {@code NullsafetyBoundery} type,</li>
+ *   <li>each field is readable directly or through a getter from the type's package.</li>
+ * </ul>
+ * Any other constraint (including class-level or getter constraints) makes the type fall back to Bean Validation
+ * entirely, which is reported as a note during compilation.
+ */
+@SupportedAnnotationTypes("*")
+public class NullsafetyValidatorProcessor extends AbstractProcessor {
+
+    private static final String BOUNDARY = "org.anyname.nullsafety.NullsafetyBoundery";
+    private static final String CONSTRAINT = "javax.validation.Constraint";
+    private static final String CONSTRAINTS_PACKAGE = "javax.validation.constraints.";
+    private static final String NOT_NULL = "javax.validation.constraints.NotNull";
+    private static final String NOT_EMPTY = "javax.validation.constraints.NotEmpty";
+    private static final String NOT_BLANK = "javax.validation.constraints.NotBlank";
+    private static final String VALID = "javax.validation.Valid";
+    private static final List<String> GROUP_SEQUENCES = Arrays.asList(
+            "javax.validation.GroupSequence", "org.hibernate.validator.group.GroupSequenceProvider");
+
+    private final Map<TypeElement, Model> models = new HashMap<>();
+    private final Set<TypeElement> inProgress = new HashSet<>();
+    private final Set<TypeElement> roundTypes = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        final TypeElement boundary = elements().getTypeElement(BOUNDARY);
+        if (boundary == null || roundEnv.processingOver()) {
+            return false;
+        }
+
+        this.roundTypes.clear();
+        for (final Element element : roundEnv.getRootElements()) {
+            collectTypes(element);
+        }
+        for (final TypeElement type : this.roundTypes) {
+            if (isCandidate(type, boundary)) {
+                final Model model = analyze(type);
+                if (model.unsupported == null) {
+                    write(model);
+                } else {
+                    note(type, model.unsupported);
+                }
+            }
+        }
+        // the processor only reads the sources, annotations are left for others to claim
+        return false;
+    }
+
+    private void collectTypes(final Element element) {
+        if (element.getKind().isClass() || element.getKind().isInterface()) {
+            this.roundTypes.add((TypeElement) element);
+            for (final TypeElement nested : ElementFilter.typesIn(element.getEnclosedElements())) {
+                collectTypes(nested);
+            }
+        }
+    }
+
+    private boolean isCandidate(final TypeElement type, final TypeElement boundary) {
+        return type.getKind() == ElementKind.CLASS
+                && !type.getModifiers().contains(Modifier.ABSTRACT)
+                && types().isAssignable(types().erasure(type.asType()), types().erasure(boundary.asType()));
+    }
+
+    private Model analyze(final TypeElement type) {
+        final Model known = this.models.get(type);
+        if (known != null) {
+            return known;
+        }
+        if (!this.inProgress.add(type)) {
+            return Model.unsupported(type, "cyclic @Valid cascade");
+        }
+        try {
+            final Model model = doAnalyze(type);
+            this.models.put(type, model);
+            return model;
+        } finally {
+            this.inProgress.remove(type);
+        }
+    }
+
+    private Model doAnalyze(final TypeElement type) {
+        if (!this.roundTypes.contains(type)) {
+            return Model.unsupported(type, "not compiled together with the validated types");
+        }
+        if (!isReachable(type)) {
+            return Model.unsupported(type, "type is private or generic");
+        }
+
+        final Model model = new Model(type);
+        for (TypeElement current = type; current != null; current = superclass(current)) {
+            if (hasConstraintOrGroupSequence(current.getAnnotationMirrors())) {
+                return Model.unsupported(type, "class-level constraint in " + current);
+            }
+            for (final ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                if (hasConstraintOrValid(method.getAnnotationMirrors())) {
+                    return Model.unsupported(type, "getter constraint on " + current + "." + method);
+                }
+            }
+            for (final VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getModifiers().contains(Modifier.STATIC)) {
+                    continue;
+                }
+                final String unsupported = addField(model, field);
+                if (unsupported != null) {
+                    return Model.unsupported(type, unsupported + " (" + current + "." + field + ")");
+                }
+            }
+        }
+        return model;
+    }
+
+    @Nullable
+    private String addField(final Model model, final VariableElement field) {
+        boolean notNull = false;
+        boolean notEmpty = false;
+        boolean notBlank = false;
+        boolean valid = false;
+        for (final AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            final String name = nameOf(annotation);
+            if (VALID.equals(name)) {
+                valid = true;
+            } else if (isConstraint(annotation)) {
+                if (!hasDefaultGroup(annotation)) {
+                    return "constraint with groups";
+                }
+                if (NOT_NULL.equals(name)) {
+                    notNull = true;
+                } else if (NOT_EMPTY.equals(name)) {
+                    notEmpty = true;
+                } else if (NOT_BLANK.equals(name)) {
+                    notBlank = true;
+                } else {
+                    return "unsupported constraint @" + name;
+                }
+            }
+        }
+        final TypeMirror fieldType = field.asType();
+        if (fieldType instanceof DeclaredType) {
+            for (final TypeMirror argument : ((DeclaredType) fieldType).getTypeArguments()) {
+                if (hasConstraintOrValid(argument.getAnnotationMirrors())) {
+                    return "container element constraint";
+                }
+            }
+        }
+        if (!notNull && !notEmpty && !notBlank && !valid) {
+            return null;
+        }
+        if (fieldType.getKind().isPrimitive()) {
+            return notEmpty || notBlank || valid ? "constraint on a primitive" : null;
+        }
+
+        final String accessor = accessor(model.type, field);
+        if (accessor == null) {
+            return "field is not accessible";
+        }
+        final Check check = new Check(field.getSimpleName().toString(), accessor);
+        check.notNull = notNull || notEmpty || notBlank;
+        if (notBlank) {
+            if (!isSubtype(fieldType, "java.lang.CharSequence")) {
+                return "@NotBlank on a non char sequence";
+            }
+            check.notBlank = true;
+        }
+        if (notEmpty) {
+            if (fieldType.getKind() == TypeKind.ARRAY) {
+                check.notEmpty = "((" + erasure(fieldType) + ") %s).length > 0";
+            } else if (isSubtype(fieldType, "java.lang.CharSequence")) {
+                check.notEmpty = "((java.lang.CharSequence) %s).length() > 0";
+            } else if (isSubtype(fieldType, "java.util.Collection")) {
+                check.notEmpty = "!((java.util.Collection<?>) %s).isEmpty()";
+            } else if (isSubtype(fieldType, "java.util.Map")) {
+                check.notEmpty = "!((java.util.Map<?, ?>) %s).isEmpty()";
+            } else {
+                return "@NotEmpty on an unsupported type";
+            }
+        }
+        if (valid) {
+            final Element cascaded = types().asElement(fieldType);
+            if (!(cascaded instanceof TypeElement) || fieldType.getKind() != TypeKind.DECLARED) {
+                return "@Valid on an unsupported type";
+            }
+            final Model cascadedModel = analyze((TypeElement) cascaded);
+            if (cascadedModel.unsupported != null || !isCandidate(cascadedModel.type, boundaryType())) {
+                return "@Valid cascade into a type without validator";
+            }
+            check.cascade = cascadedModel;
+        }
+        model.checks.add(check);
+        return null;
+    }
+
+    @Nullable
+    private String accessor(final TypeElement owner, final VariableElement field) {
+        if (isAccessible(owner, field)) {
+            return "object." + field.getSimpleName();
+        }
+        final String name = field.getSimpleName().toString();
+        final String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        final List<String> getters = Arrays.asList("get" + capitalized, "is" + capitalized);
+        final Element declaring = field.getEnclosingElement();
+        if (declaring == null) {
+            return null;
+        }
+        for (final ExecutableElement method : ElementFilter.methodsIn(declaring.getEnclosedElements())) {
+            if (getters.contains(method.getSimpleName().toString())
+                    && method.getParameters().isEmpty()
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && types().isSameType(method.getReturnType(), field.asType())
+                    && isAccessible(owner, method)) {
+                return "object." + method.getSimpleName() + "()";
+            }
+        }
+        return null;
+    }
+
+    private boolean isAccessible(final TypeElement owner, final Element member) {
+        final Set<Modifier> modifiers = member.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        // the validator is generated into the owner's package, protected members are visible there as well
+        return modifiers.contains(Modifier.PUBLIC)
+                || elements().getPackageOf(member).equals(elements().getPackageOf(owner));
+    }
+
+    private boolean isReachable(final TypeElement type) {
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            final TypeElement currentType = (TypeElement) current;
+            if (currentType.getModifiers().contains(Modifier.PRIVATE) || !currentType.getTypeParameters().isEmpty()
+                    || currentType.getNestingKind() == NestingKind.LOCAL
+                    || currentType.getNestingKind() == NestingKind.ANONYMOUS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(final Model model) {
+        final String packageName = packageName(model.type);
+        final String validatorName = validatorSimpleName(model.type);
+        final String typeName = model.type.getQualifiedName().toString();
+        final StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        final String generated = generatedAnnotation();
+        if (generated != null) {
+            source.append('@').append(generated).append("(\"").append(getClass().getName()).append("\")\n");
+        }
+        source.append("public final class ").append(validatorName)
+                .append(" implements org.anyname.nullsafety.NullsafetyValidator<").append(typeName).append("> {\n\n")
+                .append("    @Override\n")
+                .append("    public boolean isValid(").append(typeName).append(" object) {\n")
+                .append("        return check(object);\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public boolean isValid(").append(typeName)
+                .append(" object, java.util.function.Predicate<java.lang.Object> checked) {\n")
+                .append("        return check(object, checked);\n")
+                .append("    }\n\n")
+                .append("    public static boolean check(").append(typeName).append(" object) {\n")
+                .append("        return check(object, value -> false);\n")
+                .append("    }\n\n")
+                .append("    public static boolean check(").append(typeName)
+                .append(" object, java.util.function.Predicate<java.lang.Object> checked) {\n");
+        for (int i = 0; i < model.checks.size(); i++) {
+            final Check check = model.checks.get(i);
+            final String value = "value" + i;
+            source.append("        final java.lang.Object ").append(value).append(" = ").append(check.accessor)
+                    .append("; // ").append(check.field).append('\n');
+            final List<String> failures = new ArrayList<>();
+            if (check.notNull) {
+                failures.add(value + " == null");
+            }
+            if (check.notEmpty != null) {
+                failures.add("!(" + String.format(check.notEmpty, value) + ")");
+            }
+            if (check.notBlank) {
+                failures.add("((java.lang.CharSequence) " + value + ").toString().trim().isEmpty()");
+            }
+            final Model cascade = check.cascade;
+            if (cascade != null) {
+                final String cascadeType = cascade.type.getQualifiedName().toString();
+                final String cascadeCheck = qualifiedValidatorName(cascade.type) + ".check((" + cascadeType + ") " + value
+                        + ", checked)";
+                // a subtype may declare more constraints, Bean Validation decides about it
+                final String exactType = cascade.type.getModifiers().contains(Modifier.FINAL)
+                        ? cascadeCheck
+                        : value + ".getClass() == " + cascadeType + ".class && " + cascadeCheck;
+                failures.add((check.notNull ? "" : value + " != null && ") + "!checked.test(" + value + ") && !("
+                        + exactType + ")");
+            }
+            if (!failures.isEmpty()) {
+                source.append("        if (").append(String.join(" || ", failures)).append(") {\n")
+                        .append("            return false;\n")
+                        .append("        }\n");
+            }
+        }
+        source.append("        return true;\n")
+                .append("    }\n")
+                .append("}\n");
+
+        final String qualifiedName = qualifiedValidatorName(model.type);
+        try {
+            final JavaFileObject file = this.processingEnv.getFiler().createSourceFile(qualifiedName, model.type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException ex) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write " + qualifiedName + ": " + ex.getMessage(), model.type);
+        }
+    }
+
+    @Nullable
+    private String generatedAnnotation() {
+        for (final String name : Arrays.asList("javax.annotation.processing.Generated", "javax.annotation.Generated")) {
+            if (elements().getTypeElement(name) != null) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private void note(final TypeElement type, final String reason) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                "No null-safety validator generated for " + type + ", falls back to Bean Validation: " + reason, type);
+    }
+
+    private boolean hasConstraintOrGroupSequence(final List<? extends AnnotationMirror> annotations) {
+        for (final AnnotationMirror annotation : annotations) {
+            if (isConstraint(annotation) || GROUP_SEQUENCES.contains(nameOf(annotation))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasConstraintOrValid(final List<? extends AnnotationMirror> annotations) {
+        for (final AnnotationMirror annotation : annotations) {
+            if (isConstraint(annotation) || VALID.equals(nameOf(annotation))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isConstraint(final AnnotationMirror annotation) {
+        if (nameOf(annotation).startsWith(CONSTRAINTS_PACKAGE)) {
+            return true;
+        }
+        for (final AnnotationMirror meta : annotation.getAnnotationType().asElement().getAnnotationMirrors()) {
+            if (CONSTRAINT.equals(nameOf(meta))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasDefaultGroup(final AnnotationMirror annotation) {
+        for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("groups")
+                    && !((List<?>) entry.getValue().getValue()).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSubtype(final TypeMirror type, final String superType) {
+        final TypeElement superElement = elements().getTypeElement(superType);
+        return superElement != null
+                && types().isAssignable(types().erasure(type), types().erasure(superElement.asType()));
+    }
+
+    private String erasure(final TypeMirror type) {
+        return types().erasure(type).toString();
+    }
+
+    @Nullable
+    private TypeElement superclass(final TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        final TypeElement element = (TypeElement) types().asElement(superclass);
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private TypeElement boundaryType() {
+        final TypeElement boundary = elements().getTypeElement(BOUNDARY);
+        if (boundary == null) {
+            throw new IllegalStateException(BOUNDARY + " is not on the classpath");
+        }
+        return boundary;
+    }
+
+    private static String nameOf(final AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private String packageName(final TypeElement type) {
+        final PackageElement packageElement = elements().getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    private static String validatorSimpleName(final TypeElement type) {
+        final StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element current = type.getEnclosingElement(); current instanceof TypeElement;
+             current = current.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, current.getSimpleName());
+        }
+        return name.append(NullsafetyValidators.VALIDATOR_SUFFIX).toString();
+    }
+
+    private String qualifiedValidatorName(final TypeElement type) {
+        final String packageName = packageName(type);
+        return packageName.isEmpty() ? validatorSimpleName(type) : packageName + "." + validatorSimpleName(type);
+    }
+
+    private Elements elements() {
+        return this.processingEnv.getElementUtils();
+    }
+
+    private Types types() {
+        return this.processingEnv.getTypeUtils();
+    }
+
+    private static final class Model {
+        final TypeElement type;
+        final List<Check> checks = new ArrayList<>();
+        @Nullable
+        String unsupported;
+
+        Model(final TypeElement type) {
+            this.type = type;
+        }
+
+        static Model unsupported(final TypeElement type, final String reason) {
+            final Model model = new Model(type);
+            model.unsupported = reason;
+            return model;
+        }
+    }
+
+    private static final class Check {
+        final String field;
+        final String accessor;
+        boolean notNull;
+        boolean notBlank;
+        @Nullable
+        String notEmpty;
+        @Nullable
+        Model cascade;
+
+        Check(final String field, final String accessor) {
+            this.field = field;
+            this.accessor = accessor;
+        }
+    }
+}
@@ -0,0 +1,962 @@
+package org.anyname.nullsafety.processor;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Generates a {@code StaxCodec} for each class implementing {@code org.anyname.xml.XMLObject}, so that objects of it
+ * are read and written by plain StAX calls instead of the reflective JAXB binding. Values are converted the way JAXB
+ * converts them, and {@code @NotNull} fields are checked as they are read: an object found valid this way is not
+ * validated again.
+ * <p/>
+ * A codec is generated only when it reproduces the JAXB mapping of the type exactly:
+ * <ul>
+ *   <li>the type is a root element, or a plain class, extending no other class and with a no-arg constructor,</li>
+ *   <li>fields are bound by {@code @XmlAttribute}, {@code @XmlElement} or by being public, with default namespaces,</li>
+ *   <li>at most 64 bound fields are of {@code String}, {@code LazyText}, {@code Long}, {@code Integer},
+ *   {@code BigDecimal}, {@code long}, {@code int} or of another such type (elements only),</li>
+ *   <li>there are no other JAXB annotations, on the type, its package, fields or methods, no JAXB callbacks and no
+ *   properties bound by a public getter and setter.</li>
+ * </ul>
+ * Other types are bound by JAXB, which is reported as a note during compilation. Checks are folded into reading only
+ * when the type has no other constraints than {@code @NotNull} and {@code @Valid} on bound fields, other types are
+ * validated after reading as before.
+ */
+@SupportedAnnotationTypes("*")
+public class StaxCodecProcessor extends AbstractProcessor {
+
+    private static final String XML_OBJECT = "org.anyname.xml.XMLObject";
+    /**
+     * Same as {@code org.anyname.xml.StaxCodec.CODEC_SUFFIX}, which is not visible out of its package.
+     */
+    private static final String CODEC_SUFFIX = "_StaxCodec";
+    private static final String BIND_ANNOTATIONS = "javax.xml.bind.annotation.";
+    private static final String XML_ROOT_ELEMENT = "javax.xml.bind.annotation.XmlRootElement";
+    private static final String XML_ELEMENT = "javax.xml.bind.annotation.XmlElement";
+    private static final String XML_ATTRIBUTE = "javax.xml.bind.annotation.XmlAttribute";
+    private static final String XML_TRANSIENT = "javax.xml.bind.annotation.XmlTransient";
+    private static final String DEFAULT_NAME = "##default";
+    /**
+     * {@code XmlElement.defaultValue()} when none is given.
+     */
+    private static final String NO_DEFAULT_VALUE = "\u0000";
+    private static final String CONSTRAINT = "javax.validation.Constraint";
+    private static final String CONSTRAINTS_PACKAGE = "javax.validation.constraints.";
+    private static final String NOT_NULL = "javax.validation.constraints.NotNull";
+    private static final String VALID = "javax.validation.Valid";
+    private static final List<String> GROUP_SEQUENCES = Arrays.asList(
+            "javax.validation.GroupSequence", "org.hibernate.validator.group.GroupSequenceProvider");
+    private static final List<String> CALLBACKS = Arrays.asList(
+            "beforeUnmarshal", "afterUnmarshal", "beforeMarshal", "afterMarshal");
+    /**
+     * Field names JAXB takes as they are for default element and attribute names.
+     */
+    private static final Pattern PLAIN_NAME = Pattern.compile("[a-z][A-Za-z0-9]*");
+
+    private final Map<TypeElement, Model> models = new HashMap<>();
+    private final Set<TypeElement> inProgress = new HashSet<>();
+    private final Set<TypeElement> roundTypes = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        final TypeElement xmlObject = elements().getTypeElement(XML_OBJECT);
+        if (xmlObject == null || roundEnv.processingOver()) {
+            return false;
+        }
+
+        this.roundTypes.clear();
+        for (final Element element : roundEnv.getRootElements()) {
+            collectTypes(element);
+        }
+        for (final TypeElement type : this.roundTypes) {
+            if (isCandidate(type, xmlObject)) {
+                final Model model = analyze(type);
+                if (model.unsupported == null) {
+                    write(model);
+                } else {
+                    note(type, model.unsupported);
+                }
+            }
+        }
+        // the processor only reads the sources, annotations are left for others to claim
+        return false;
+    }
+
+    private void collectTypes(final Element element) {
+        if (element.getKind().isClass() || element.getKind().isInterface()) {
+            this.roundTypes.add((TypeElement) element);
+            for (final TypeElement nested : ElementFilter.typesIn(element.getEnclosedElements())) {
+                collectTypes(nested);
+            }
+        }
+    }
+
+    private boolean isCandidate(final TypeElement type, final TypeElement xmlObject) {
+        return type.getKind() == ElementKind.CLASS
+                && !type.getModifiers().contains(Modifier.ABSTRACT)
+                && types().isAssignable(types().erasure(type.asType()), types().erasure(xmlObject.asType()));
+    }
+
+    private Model analyze(final TypeElement type) {
+        final Model known = this.models.get(type);
+        if (known != null) {
+            return known;
+        }
+        if (!this.inProgress.add(type)) {
+            return Model.unsupported(type, "cyclic nesting");
+        }
+        try {
+            final Model model = doAnalyze(type);
+            this.models.put(type, model);
+            return model;
+        } finally {
+            this.inProgress.remove(type);
+        }
+    }
+
+    private Model doAnalyze(final TypeElement type) {
+        if (!this.roundTypes.contains(type)) {
+            return Model.unsupported(type, "not compiled together with the bound types");
+        }
+        if (!isReachable(type)) {
+            return Model.unsupported(type, "type is private, inner or generic");
+        }
+        if (superclass(type) != null) {
+            return Model.unsupported(type, "extends another class");
+        }
+        if (!hasNoArgConstructor(type)) {
+            return Model.unsupported(type, "no accessible no-arg constructor");
+        }
+        if (hasBindAnnotation(elements().getPackageOf(type).getAnnotationMirrors())) {
+            return Model.unsupported(type, "JAXB annotation on the package");
+        }
+
+        final Model model = new Model(type);
+        for (final AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            final String name = nameOf(annotation);
+            if (XML_ROOT_ELEMENT.equals(name)) {
+                if (!isDefaultNamespace(annotation)) {
+                    return Model.unsupported(type, "root element in a namespace");
+                }
+            } else if (name.startsWith(BIND_ANNOTATIONS)) {
+                return Model.unsupported(type, "unsupported @" + name);
+            } else if (isConstraint(annotation) || GROUP_SEQUENCES.contains(name)) {
+                model.foldable = false;
+            }
+        }
+
+        final String unsupportedMethod = checkMethods(model, type);
+        if (unsupportedMethod != null) {
+            return Model.unsupported(type, unsupportedMethod);
+        }
+        final Set<String> attributeNames = new HashSet<>();
+        final Set<String> elementNames = new HashSet<>();
+        for (final VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            final String unsupported = addField(model, field);
+            if (unsupported != null) {
+                return Model.unsupported(type, unsupported + " (" + type + "." + field + ")");
+            }
+        }
+        if (model.properties.size() > Long.SIZE) {
+            return Model.unsupported(type, "more than " + Long.SIZE + " bound fields");
+        }
+        for (final Property property : model.properties) {
+            if (!(property.attribute ? attributeNames : elementNames).add(property.xmlName)) {
+                return Model.unsupported(type, "two fields bound to " + property.xmlName);
+            }
+        }
+        return model;
+    }
+
+    @Nullable
+    private String checkMethods(final Model model, final TypeElement type) {
+        final Set<String> publicSetters = new HashSet<>();
+        final Set<String> publicGetters = new HashSet<>();
+        for (final ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            final String name = method.getSimpleName().toString();
+            if (hasBindAnnotation(method.getAnnotationMirrors())) {
+                return "JAXB annotation on " + type + "." + method;
+            }
+            if (CALLBACKS.contains(name)) {
+                return "JAXB callback " + type + "." + method;
+            }
+            if (hasConstraintOrValid(method.getAnnotationMirrors())) {
+                model.foldable = false;
+            }
+            final Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.STATIC)) {
+                if (name.startsWith("set") && method.getParameters().size() == 1) {
+                    publicSetters.add(name.substring(3));
+                } else if (name.startsWith("get") && method.getParameters().isEmpty()) {
+                    publicGetters.add(name.substring(3));
+                } else if (name.startsWith("is") && method.getParameters().isEmpty()) {
+                    publicGetters.add(name.substring(2));
+                }
+            }
+        }
+        publicGetters.retainAll(publicSetters);
+        if (!publicGetters.isEmpty()) {
+            return "property " + publicGetters.iterator().next() + " bound by its public getter and setter";
+        }
+        if (hasInterfaceConstraints(type)) {
+            model.foldable = false;
+        }
+        return null;
+    }
+
+    @Nullable
+    private String addField(final Model model, final VariableElement field) {
+        AnnotationMirror binding = null;
+        boolean transientField = field.getModifiers().contains(Modifier.TRANSIENT);
+        boolean notNull = false;
+        boolean valid = false;
+        for (final AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            final String name = nameOf(annotation);
+            if (XML_ELEMENT.equals(name) || XML_ATTRIBUTE.equals(name)) {
+                if (binding != null) {
+                    return "bound twice";
+                }
+                binding = annotation;
+            } else if (XML_TRANSIENT.equals(name)) {
+                transientField = true;
+            } else if (name.startsWith(BIND_ANNOTATIONS) || name.startsWith("javax.xml.bind.")) {
+                return "unsupported @" + name;
+            } else if (VALID.equals(name)) {
+                valid = true;
+            } else if (isConstraint(annotation)) {
+                if (NOT_NULL.equals(name) && hasDefaultGroup(annotation)) {
+                    notNull = true;
+                } else {
+                    model.foldable = false;
+                }
+            }
+        }
+        final TypeMirror fieldType = field.asType();
+        if (fieldType instanceof DeclaredType) {
+            for (final TypeMirror argument : ((DeclaredType) fieldType).getTypeArguments()) {
+                if (hasConstraintOrValid(argument.getAnnotationMirrors())) {
+                    model.foldable = false;
+                }
+            }
+        }
+
+        final boolean bound = binding != null || field.getModifiers().contains(Modifier.PUBLIC) && !transientField;
+        if (!bound) {
+            if (notNull || valid) {
+                // not read, so never known to be set
+                model.foldable = false;
+            }
+            return null;
+        }
+        if (transientField) {
+            return "transient field is bound";
+        }
+        if (field.getModifiers().contains(Modifier.FINAL)) {
+            return "final field is bound";
+        }
+
+        final boolean attribute = binding != null && XML_ATTRIBUTE.equals(nameOf(binding));
+        final String fieldName = field.getSimpleName().toString();
+        String xmlName = binding != null ? stringValue(binding, "name", DEFAULT_NAME) : DEFAULT_NAME;
+        if (DEFAULT_NAME.equals(xmlName)) {
+            if (!PLAIN_NAME.matcher(fieldName).matches()) {
+                return "default name of a field not in plain camel case";
+            }
+            xmlName = fieldName;
+        }
+        if (binding != null) {
+            if (!isDefaultNamespace(binding)) {
+                return "bound in a namespace";
+            }
+            if (!attribute && (Boolean.TRUE.equals(value(binding, "nillable"))
+                    || !NO_DEFAULT_VALUE.equals(stringValue(binding, "defaultValue", NO_DEFAULT_VALUE))
+                    || value(binding, "type") != null)) {
+                return "unsupported @XmlElement attribute";
+            }
+        }
+
+        final Kind kind = kindOf(fieldType);
+        Model nested = null;
+        if (kind == null) {
+            final Element nestedElement = types().asElement(fieldType);
+            final TypeElement xmlObject = elements().getTypeElement(XML_OBJECT);
+            if (attribute || fieldType.getKind() != TypeKind.DECLARED || !(nestedElement instanceof TypeElement)
+                    || xmlObject == null || !isCandidate((TypeElement) nestedElement, xmlObject)) {
+                return "unsupported type " + fieldType;
+            }
+            nested = analyze((TypeElement) nestedElement);
+            if (nested.unsupported != null) {
+                return "nested type without codec";
+            }
+        }
+
+        final Property property = new Property(fieldName, xmlName, attribute, kind, nested,
+                typeName(fieldType), getter(model.type, field), setter(model.type, field));
+        property.required = notNull && !fieldType.getKind().isPrimitive();
+        if (valid) {
+            if (nested != null) {
+                property.cascade = true;
+                model.foldable &= nested.foldable;
+            } else {
+                model.foldable = false;
+            }
+        }
+        model.properties.add(property);
+        return null;
+    }
+
+    @Nullable
+    private static Kind kindOf(final TypeMirror type) {
+        switch (type.getKind()) {
+            case LONG:
+                return Kind.LONG;
+            case INT:
+                return Kind.INT;
+            case DECLARED:
+                break;
+            default:
+                return null;
+        }
+        final String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        switch (name) {
+            case "java.lang.String":
+                return Kind.STRING;
+            case "java.lang.Long":
+                return Kind.BOXED_LONG;
+            case "java.lang.Integer":
+                return Kind.BOXED_INT;
+            case "java.math.BigDecimal":
+                return Kind.DECIMAL;
+            case "org.anyname.xml.LazyText":
+                return Kind.LAZY_TEXT;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return expression reading the field of {@code object}, formatted with the property's index
+     */
+    private String getter(final TypeElement owner, final VariableElement field) {
+        if (isAccessible(owner, field)) {
+            return "object." + field.getSimpleName();
+        }
+        final String capitalized = capitalize(field.getSimpleName().toString());
+        final List<String> getters = Arrays.asList("get" + capitalized, "is" + capitalized);
+        for (final ExecutableElement method : ElementFilter.methodsIn(owner.getEnclosedElements())) {
+            if (getters.contains(method.getSimpleName().toString())
+                    && method.getParameters().isEmpty()
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && types().isSameType(method.getReturnType(), field.asType())
+                    && isAccessible(owner, method)) {
+                return "object." + method.getSimpleName() + "()";
+            }
+        }
+        return "(" + boxed(field.asType()) + ") get(GET_%1$d, object)";
+    }
+
+    /**
+     * @return statement assigning a value to the field of {@code object}, formatted with the property's index and the
+     * value's expression
+     */
+    private String setter(final TypeElement owner, final VariableElement field) {
+        if (isAccessible(owner, field)) {
+            return "object." + field.getSimpleName() + " = %2$s;";
+        }
+        final String setterName = "set" + capitalize(field.getSimpleName().toString());
+        for (final ExecutableElement method : ElementFilter.methodsIn(owner.getEnclosedElements())) {
+            if (method.getSimpleName().contentEquals(setterName)
+                    && method.getParameters().size() == 1
+                    && !method.getModifiers().contains(Modifier.STATIC)
+                    && types().isSameType(method.getParameters().get(0).asType(), field.asType())
+                    && isAccessible(owner, method)) {
+                return "object." + setterName + "(%2$s);";
+            }
+        }
+        return "set(SET_%1$d, object, %2$s);";
+    }
+
+    private boolean hasNoArgConstructor(final TypeElement type) {
+        for (final ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()) {
+                return isAccessible(type, constructor);
+            }
+        }
+        return false;
+    }
+
+    private boolean hasInterfaceConstraints(final TypeElement type) {
+        for (final TypeMirror superInterface : type.getInterfaces()) {
+            final Element element = types().asElement(superInterface);
+            if (element instanceof TypeElement) {
+                for (final ExecutableElement method : ElementFilter.methodsIn(element.getEnclosedElements())) {
+                    if (hasConstraintOrValid(method.getAnnotationMirrors())) {
+                        return true;
+                    }
+                }
+                if (hasConstraintOrGroupSequence(element.getAnnotationMirrors())
+                        || hasInterfaceConstraints((TypeElement) element)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isAccessible(final TypeElement owner, final Element member) {
+        final Set<Modifier> modifiers = member.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        // the codec is generated into the owner's package, protected members are visible there as well
+        return modifiers.contains(Modifier.PUBLIC)
+                || elements().getPackageOf(member).equals(elements().getPackageOf(owner));
+    }
+
+    private boolean isReachable(final TypeElement type) {
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            final TypeElement currentType = (TypeElement) current;
+            if (currentType.getModifiers().contains(Modifier.PRIVATE) || !currentType.getTypeParameters().isEmpty()
+                    || currentType.getNestingKind() == NestingKind.LOCAL
+                    || currentType.getNestingKind() == NestingKind.ANONYMOUS
+                    || currentType.getNestingKind() == NestingKind.MEMBER
+                    && !currentType.getModifiers().contains(Modifier.STATIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(final Model model) {
+        final String packageName = packageName(model.type);
+        final String codecName = codecSimpleName(model.type);
+        final String typeName = model.type.getQualifiedName().toString();
+        final StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        final String generated = generatedAnnotation();
+        if (generated != null) {
+            source.append('@').append(generated).append("(\"").append(getClass().getName()).append("\")\n");
+        }
+        source.append("final class ").append(codecName)
+                .append(" extends org.anyname.xml.StaxCodec<").append(typeName).append("> {\n\n");
+        for (int i = 0; i < model.properties.size(); i++) {
+            final Property property = model.properties.get(i);
+            if (property.getter.contains("GET_%1$d")) {
+                source.append("    private static final java.lang.invoke.MethodHandle GET_").append(i)
+                        .append(" = getter(").append(typeName).append(".class, \"").append(property.field)
+                        .append("\");\n");
+            }
+            if (property.setter.contains("SET_%1$d")) {
+                source.append("    private static final java.lang.invoke.MethodHandle SET_").append(i)
+                        .append(" = setter(").append(typeName).append(".class, \"").append(property.field)
+                        .append("\");\n");
+            }
+        }
+        source.append('\n')
+                .append("    ").append(codecName).append("() {\n")
+                .append("        super(");
+        for (int i = 0; i < model.properties.size(); i++) {
+            source.append(i > 0 ? ", " : "").append('"').append(model.properties.get(i).field).append('"');
+        }
+        source.append(");\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    ").append(typeName).append(" newInstance() {\n")
+                .append("        return new ").append(typeName).append("();\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    boolean read(").append(typeName).append(" object, javax.xml.stream.XMLStreamReader reader,\n")
+                .append("                 javax.xml.bind.Unmarshaller.Listener listener, long fields)\n")
+                .append("            throws javax.xml.stream.XMLStreamException {\n")
+                .append("        return readContent(object, reader, listener, fields);\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    void write(").append(typeName).append(" object, javax.xml.stream.XMLStreamWriter writer)\n")
+                .append("            throws javax.xml.stream.XMLStreamException {\n")
+                .append("        writeContent(object, writer);\n")
+                .append("    }\n\n");
+        writeRead(source, model);
+        source.append('\n');
+        writeWrite(source, model);
+        source.append("}\n");
+
+        final String qualifiedName = qualifiedCodecName(model.type);
+        try {
+            final JavaFileObject file = this.processingEnv.getFiler().createSourceFile(qualifiedName, model.type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException ex) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not write " + qualifiedName + ": " + ex.getMessage(), model.type);
+        }
+    }
+
+    private void writeRead(final StringBuilder source, final Model model) {
+        final String typeName = model.type.getQualifiedName().toString();
+        source.append("    static boolean readContent(").append(typeName)
+                .append(" object, javax.xml.stream.XMLStreamReader reader,\n")
+                .append("                               javax.xml.bind.Unmarshaller.Listener listener, long fields)\n")
+                .append("            throws javax.xml.stream.XMLStreamException {\n");
+        // a field which is not to be read counts as found
+        final List<String> validity = new ArrayList<>();
+        for (int i = 0; i < model.properties.size(); i++) {
+            final Property property = model.properties.get(i);
+            if (model.foldable && property.required) {
+                source.append("        boolean read").append(i).append(" = ").append(isSkipped(i)).append(";\n");
+                validity.add("read" + i);
+            }
+            if (model.foldable && property.cascade) {
+                source.append("        boolean valid").append(i).append(" = ").append(isSkipped(i)).append(";\n");
+                validity.add("(" + getterOf(property, i) + " == null || valid" + i + ")");
+            }
+        }
+
+        final List<Integer> attributes = new ArrayList<>();
+        final List<Integer> elements = new ArrayList<>();
+        for (int i = 0; i < model.properties.size(); i++) {
+            (model.properties.get(i).attribute ? attributes : elements).add(i);
+        }
+        if (!attributes.isEmpty()) {
+            source.append("        for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {\n")
+                    .append("            if (!isUnqualified(reader.getAttributeNamespace(i))) {\n")
+                    .append("                continue;\n")
+                    .append("            }\n")
+                    .append("            switch (reader.getAttributeLocalName(i)) {\n");
+            for (final int i : attributes) {
+                final Property property = model.properties.get(i);
+                source.append("                case \"").append(property.xmlName).append("\": {\n")
+                        .append("                    if (").append(isSkipped(i)).append(") {\n")
+                        .append("                        break;\n")
+                        .append("                    }\n")
+                        .append("                    final java.lang.String text = reader.getAttributeValue(i);\n");
+                // a value which does not parse is thrown, as JAXB throws it
+                appendAssignment(source, model, property, i, "                    ");
+                source.append("                    break;\n")
+                        .append("                }\n");
+            }
+            source.append("                default:\n")
+                    .append("                    break;\n")
+                    .append("            }\n")
+                    .append("        }\n");
+        }
+
+        source.append("        int event;\n")
+                .append("        while ((event = reader.next()) != javax.xml.stream.XMLStreamConstants.END_ELEMENT) {\n")
+                .append("            if (event != javax.xml.stream.XMLStreamConstants.START_ELEMENT) {\n")
+                .append("                continue;\n")
+                .append("            }\n")
+                .append("            if (!isUnqualified(reader.getNamespaceURI())) {\n")
+                .append("                skipElement(reader);\n")
+                .append("                continue;\n")
+                .append("            }\n")
+                .append("            switch (reader.getLocalName()) {\n");
+        for (final int i : elements) {
+            final Property property = model.properties.get(i);
+            source.append("                case \"").append(property.xmlName).append("\": {\n")
+                    .append("                    if (").append(isSkipped(i)).append(") {\n")
+                    .append("                        skipElement(reader);\n")
+                    .append("                        break;\n")
+                    .append("                    }\n");
+            final Model nested = property.nested;
+            if (nested != null) {
+                final String nestedType = nested.type.getQualifiedName().toString();
+                source.append("                    final ").append(nestedType).append(" value = new ")
+                        .append(nestedType).append("();\n")
+                        .append("                    if (listener != null) {\n")
+                        .append("                        listener.beforeUnmarshal(value, object);\n")
+                        .append("                    }\n")
+                        .append("                    ");
+                if (model.foldable && property.cascade) {
+                    source.append("valid").append(i).append(" = ");
+                }
+                source.append(qualifiedCodecName(nested.type)).append(".readContent(value, reader, listener, ALL_FIELDS);\n")
+                        .append("                    if (listener != null) {\n")
+                        .append("                        listener.afterUnmarshal(value, object);\n")
+                        .append("                    }\n")
+                        .append("                    ").append(String.format(property.setter, i, "value")).append('\n');
+                if (model.foldable && property.required) {
+                    source.append("                    read").append(i).append(" = true;\n");
+                }
+            } else if (property.kind == Kind.STRING || property.kind == Kind.LAZY_TEXT) {
+                source.append("                    final java.lang.String text = readText(reader);\n");
+                appendAssignment(source, model, property, i, "                    ");
+            } else {
+                source.append("                    final java.lang.String text = readText(reader);\n")
+                        .append("                    try {\n");
+                appendAssignment(source, model, property, i, "                        ");
+                source.append("                    } catch (java.lang.NumberFormatException ex) {\n")
+                        .append("                        // ignored, as JAXB ignores values of elements it can not parse\n")
+                        .append("                    }\n");
+            }
+            source.append("                    break;\n")
+                    .append("                }\n");
+        }
+        source.append("                default:\n")
+                .append("                    skipElement(reader);\n")
+                .append("                    break;\n")
+                .append("            }\n")
+                .append("        }\n");
+        if (!model.foldable) {
+            source.append("        return false;\n");
+        } else if (validity.isEmpty()) {
+            source.append("        return true;\n");
+        } else {
+            source.append("        return ").append(String.join("\n                && ", validity)).append(";\n");
+        }
+        source.append("    }\n");
+    }
+
+    /**
+     * @return condition of the property {@code index} not being among the {@code fields} to read
+     */
+    private static String isSkipped(final int index) {
+        return "(fields & 0x" + Long.toHexString(1L << index) + "L) == 0";
+    }
+
+    /**
+     * Converts {@code text} to the property's value and assigns it, noting a required property has been read.
+     */
+    private static void appendAssignment(final StringBuilder source, final Model model, final Property property,
+                                         final int index, final String indent) {
+        final Kind kind = property.kind;
+        final String value;
+        if (kind == Kind.STRING) {
+            value = "text";
+        } else if (kind == Kind.LONG) {
+            value = "parseLong(text)";
+        } else if (kind == Kind.BOXED_LONG) {
+            value = "java.lang.Long.valueOf(parseLong(text))";
+        } else if (kind == Kind.INT) {
+            value = "parseInt(text)";
+        } else if (kind == Kind.BOXED_INT) {
+            value = "java.lang.Integer.valueOf(parseInt(text))";
+        } else if (kind == Kind.LAZY_TEXT) {
+            value = "org.anyname.xml.LazyText.of(text)";
+        } else {
+            value = "parseDecimal(text)";
+        }
+        final boolean tracked = model.foldable && property.required;
+        if (kind == Kind.DECIMAL) {
+            // a blank decimal is read as null
+            source.append(indent).append("final java.math.BigDecimal value = ").append(value).append(";\n")
+                    .append(indent).append(String.format(property.setter, index, "value")).append('\n');
+            if (tracked) {
+                source.append(indent).append("read").append(index).append(" = value != null;\n");
+            }
+        } else {
+            source.append(indent).append(String.format(property.setter, index, value)).append('\n');
+            if (tracked) {
+                source.append(indent).append("read").append(index).append(" = true;\n");
+            }
+        }
+    }
+
+    private void writeWrite(final StringBuilder source, final Model model) {
+        final String typeName = model.type.getQualifiedName().toString();
+        source.append("    static void writeContent(").append(typeName)
+                .append(" object, javax.xml.stream.XMLStreamWriter writer)\n")
+                .append("            throws javax.xml.stream.XMLStreamException {\n");
+        // attributes before any child element
+        for (final boolean attributes : new boolean[]{true, false}) {
+            for (int i = 0; i < model.properties.size(); i++) {
+                final Property property = model.properties.get(i);
+                if (property.attribute != attributes) {
+                    continue;
+                }
+                final String value = "value" + i;
+                final boolean primitive = property.kind == Kind.LONG || property.kind == Kind.INT;
+                source.append("        final ").append(property.typeName).append(' ').append(value).append(" = ")
+                        .append(getterOf(property, i)).append(";\n");
+                String indent = "        ";
+                if (!primitive) {
+                    source.append("        if (").append(value).append(" != null) {\n");
+                    indent = "            ";
+                }
+                final Model nested = property.nested;
+                if (property.attribute) {
+                    source.append(indent).append("writer.writeAttribute(\"").append(property.xmlName).append("\", ")
+                            .append(text(property, value)).append(");\n");
+                } else {
+                    source.append(indent).append("writer.writeStartElement(\"").append(property.xmlName)
+                            .append("\");\n");
+                    if (nested != null) {
+                        source.append(indent).append(qualifiedCodecName(nested.type)).append(".writeContent(")
+                                .append(value).append(", writer);\n");
+                    } else {
+                        source.append(indent).append("writer.writeCharacters(").append(text(property, value))
+                                .append(");\n");
+                    }
+                    source.append(indent).append("writer.writeEndElement();\n");
+                }
+                if (!primitive) {
+                    source.append("        }\n");
+                }
+            }
+        }
+        source.append("    }\n");
+    }
+
+    /**
+     * @return the value printed as JAXB prints it
+     */
+    private static String text(final Property property, final String value) {
+        if (property.kind == Kind.STRING) {
+            return value;
+        }
+        if (property.kind == Kind.DECIMAL) {
+            return value + ".toPlainString()";
+        }
+        if (property.kind == Kind.LAZY_TEXT) {
+            // written without keeping the decoded text
+            return value + ".decode()";
+        }
+        return "java.lang.String.valueOf(" + value + ")";
+    }
+
+    private static String getterOf(final Property property, final int index) {
+        return String.format(property.getter, index);
+    }
+
+    @Nullable
+    private String generatedAnnotation() {
+        for (final String name : Arrays.asList("javax.annotation.processing.Generated", "javax.annotation.Generated")) {
+            if (elements().getTypeElement(name) != null) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private void note(final TypeElement type, final String reason) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                "No StAX codec generated for " + type + ", falls back to JAXB: " + reason, type);
+    }
+
+    private static boolean hasBindAnnotation(final List<? extends AnnotationMirror> annotations) {
+        for (final AnnotationMirror annotation : annotations) {
+            if (nameOf(annotation).startsWith("javax.xml.bind.")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasConstraintOrGroupSequence(final List<? extends AnnotationMirror> annotations) {
+        for (final AnnotationMirror annotation : annotations) {
+            if (isConstraint(annotation) || GROUP_SEQUENCES.contains(nameOf(annotation))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasConstraintOrValid(final List<? extends AnnotationMirror> annotations) {
+        for (final AnnotationMirror annotation : annotations) {
+            if (isConstraint(annotation) || VALID.equals(nameOf(annotation))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isConstraint(final AnnotationMirror annotation) {
+        if (nameOf(annotation).startsWith(CONSTRAINTS_PACKAGE)) {
+            return true;
+        }
+        for (final AnnotationMirror meta : annotation.getAnnotationType().asElement().getAnnotationMirrors()) {
+            if (CONSTRAINT.equals(nameOf(meta))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasDefaultGroup(final AnnotationMirror annotation) {
+        final Object groups = value(annotation, "groups");
+        return groups == null || ((List<?>) groups).isEmpty();
+    }
+
+    private boolean isDefaultNamespace(final AnnotationMirror annotation) {
+        final String namespace = stringValue(annotation, "namespace", DEFAULT_NAME);
+        return DEFAULT_NAME.equals(namespace) || namespace.isEmpty();
+    }
+
+    /**
+     * @return value of the annotation's attribute if given explicitly
+     */
+    @Nullable
+    private static Object value(final AnnotationMirror annotation, final String name) {
+        for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String stringValue(final AnnotationMirror annotation, final String name, final String defaultValue) {
+        final Object value = value(annotation, name);
+        return value != null ? value.toString() : defaultValue;
+    }
+
+    private String boxed(final TypeMirror type) {
+        return type.getKind().isPrimitive()
+                ? types().boxedClass(types().getPrimitiveType(type.getKind())).getQualifiedName().toString()
+                : typeName(type);
+    }
+
+    /**
+     * @return name of a primitive or of a declared type, without the type annotations its mirror prints
+     */
+    private String typeName(final TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return types().getPrimitiveType(type.getKind()).toString();
+        }
+        return ((TypeElement) types().asElement(type)).getQualifiedName().toString();
+    }
+
+    @Nullable
+    private TypeElement superclass(final TypeElement type) {
+        final TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        final TypeElement element = (TypeElement) types().asElement(superclass);
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private static String capitalize(final String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String nameOf(final AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private String packageName(final TypeElement type) {
+        final PackageElement packageElement = elements().getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    private static String codecSimpleName(final TypeElement type) {
+        final StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element current = type.getEnclosingElement(); current instanceof TypeElement;
+             current = current.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, current.getSimpleName());
+        }
+        return name.append(CODEC_SUFFIX).toString();
+    }
+
+    private String qualifiedCodecName(final TypeElement type) {
+        final String packageName = packageName(type);
+        return packageName.isEmpty() ? codecSimpleName(type) : packageName + "." + codecSimpleName(type);
+    }
+
+    private Elements elements() {
+        return this.processingEnv.getElementUtils();
+    }
+
+    private Types types() {
+        return this.processingEnv.getTypeUtils();
+    }
+
+    private enum Kind {
+        STRING, LONG, BOXED_LONG, INT, BOXED_INT, DECIMAL, LAZY_TEXT
+    }
+
+    private static final class Model {
+        final TypeElement type;
+        final List<Property> properties = new ArrayList<>();
+        /**
+         * Whether reading the object tells it is valid, with no other constraints than the ones checked while reading.
+         */
+        boolean foldable = true;
+        @Nullable
+        String unsupported;
+
+        Model(final TypeElement type) {
+            this.type = type;
+        }
+
+        static Model unsupported(final TypeElement type, final String reason) {
+            final Model model = new Model(type);
+            model.unsupported = reason;
+            return model;
+        }
+    }
+
+    private static final class Property {
+        final String field;
+        final String xmlName;
+        final boolean attribute;
+        /**
+         * {@code null} for a nested object.
+         */
+        @Nullable
+        final Kind kind;
+        @Nullable
+        final Model nested;
+        final String typeName;
+        final String getter;
+        final String setter;
+        boolean required;
+        boolean cascade;
+
+        Property(final String field, final String xmlName, final boolean attribute, @Nullable final Kind kind,
+                 @Nullable final Model nested, final String typeName, final String getter, final String setter) {
+            this.field = field;
+            this.xmlName = xmlName;
+            this.attribute = attribute;
+            this.kind = kind;
+            this.nested = nested;
+            this.typeName = typeName;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.NullsafetyBoundery;
+
+import javax.validation.ConstraintViolationException;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Encodes fields of a {@link NullsafetyBoundery} type, looked up once per type and compiled into {@link MethodHandle}
+ * getters and setters, primitive ones typed so that their values are not boxed.
+ * <p/>
+ * An object is encoded as a presence bitmap of its {@code @Nullable} fields, a bit each, followed by values of its
+ * fields present, in the order of their names, superclass fields first. Fields which are not {@code @Nullable} are
+ * {@code @NotNull} by the boundary contract, they are always written and take no bit, so that an object without
+ * {@code @Nullable} fields has no bitmap at all. Numbers are written as variable-length integers, strings as UTF-8,
+ * enums by their names and nested boundary objects in place, the same way as the enclosing one.
+ * <p/>
+ * Supported field types are primitives and their wrappers, {@code String}, {@link LazyText}, {@code BigInteger},
+ * {@code BigDecimal}, enums and other concrete boundary types with a no-arg constructor (the one JAXB uses). A type
+ * with a field of any other type can not be encoded.
+ */
+final class BinaryCodec {
+
+    /**
+     * Objects nested deeper are rejected, as they may be a cycle, or a crafted input overflowing the stack.
+     */
+    static final int MAX_DEPTH = 64;
+
+    private static final byte[] NO_BITS = new byte[0];
+
+    private static final ClassValue<BinaryCodec> CODECS = new ClassValue<BinaryCodec>() {
+        @Override
+        protected BinaryCodec computeValue(final Class<?> type) {
+            return new BinaryCodec(type);
+        }
+    };
+
+    private final Class<?> type;
+    private final MethodHandle constructor;
+    private final FieldCodec[] fields;
+    private final int bitmapLength;
+    private final int fingerprint;
+
+    private BinaryCodec(final Class<?> type) {
+        this.type = type;
+        if (!NullsafetyBoundery.class.isAssignableFrom(type) || type.isInterface()
+                || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException(type + " is not a concrete NullsafetyBoundery type");
+        }
+        try {
+            final Constructor<?> noArgConstructor = type.getDeclaredConstructor();
+            noArgConstructor.setAccessible(true);
+            this.constructor = MethodHandles.lookup().unreflectConstructor(noArgConstructor)
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException ex) {
+            throw new IllegalArgumentException(type + " has no accessible no-arg constructor", ex);
+        }
+        final List<FieldCodec> fields = new ArrayList<>();
+        int nullableFields = 0;
+        for (final Field field : fields(type)) {
+            final boolean nullable = !field.getType().isPrimitive() && isNullable(field);
+            fields.add(new FieldCodec(field, nullable ? nullableFields++ : -1));
+        }
+        this.fields = fields.toArray(new FieldCodec[0]);
+        this.bitmapLength = (nullableFields + 7) / 8;
+        this.fingerprint = fingerprint(type);
+    }
+
+    static BinaryCodec of(final Class<?> type) {
+        return CODECS.get(type);
+    }
+
+    /**
+     * @return checksum of the names, types and nullability of fields of the type and of the boundary types nested in
+     * it, which decoding compares, so that types changed since the object was encoded are not decoded wrongly
+     */
+    int fingerprint() {
+        return this.fingerprint;
+    }
+
+    void encode(final Object object, final BinaryOutput output, final int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Objects nested deeper than " + MAX_DEPTH + ", is there a cycle? "
+                    + this.type.getName());
+        }
+        final int bitmap = output.reserve(this.bitmapLength);
+        for (final FieldCodec field : this.fields) {
+            if (field.write(object, output, depth) && field.presenceBit >= 0) {
+                output.setBit(bitmap, field.presenceBit);
+            }
+        }
+    }
+
+    Object decode(final BinaryInput input, final int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Objects nested deeper than " + MAX_DEPTH + ": " + this.type.getName());
+        }
+        final Object object;
+        try {
+            object = (Object) this.constructor.invokeExact();
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Could not instantiate " + this.type, ex);
+        }
+        // the bitmap precedes the fields, the first 64 bits are kept in a long, so that most types need no array
+        long bits = 0;
+        for (int i = 0; i < Math.min(this.bitmapLength, 8); i++) {
+            bits |= (long) input.readByte() << 8 * i;
+        }
+        final byte[] moreBits = this.bitmapLength > 8 ? input.readBytes(this.bitmapLength - 8) : NO_BITS;
+        for (final FieldCodec field : this.fields) {
+            final int bit = field.presenceBit;
+            if (bit < 0 || (bit < 64 ? bits >>> bit & 1 : moreBits[bit - 64 >>> 3] >>> (bit & 7) & 1) != 0) {
+                field.read(object, input, depth);
+            }
+        }
+        return object;
+    }
+
+    private static List<Field> fields(final Class<?> type) {
+        final List<Field> fields = new ArrayList<>();
+        if (type.getSuperclass() != null && type.getSuperclass() != Object.class) {
+            fields.addAll(fields(type.getSuperclass()));
+        }
+        final List<Field> declared = new ArrayList<>();
+        for (final Field field : type.getDeclaredFields()) {
+            final int modifiers = field.getModifiers();
+            // skips synthetic fields by their '$', e.g. the outer instance, as the boundary contract does not
+            // cover them
+            if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)
+                    && field.getName().indexOf('$') < 0) {
+                declared.add(field);
+            }
+        }
+        // names rather than the declaration order, which is not guaranteed to be the same on all JVMs
+        declared.sort(Comparator.comparing(Field::getName));
+        fields.addAll(declared);
+        return fields;
+    }
+
+    private static boolean isNullable(final Field field) {
+        // any @Nullable or @CheckForNull, as NullAway recognises them, on the declaration or on the type
+        return hasNullable(field.getAnnotations()) || hasNullable(field.getAnnotatedType().getAnnotations());
+    }
+
+    private static boolean hasNullable(final Annotation[] annotations) {
+        for (final Annotation annotation : annotations) {
+            final String name = annotation.annotationType().getSimpleName();
+            if ("Nullable".equals(name) || "CheckForNull".equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int fingerprint(final Class<?> type) {
+        final StringBuilder schema = new StringBuilder();
+        describe(type, schema, new HashSet<>());
+        final CRC32 checksum = new CRC32();
+        checksum.update(schema.toString().getBytes(StandardCharsets.UTF_8));
+        return (int) checksum.getValue();
+    }
+
+    private static void describe(final Class<?> type, final StringBuilder schema, final Set<Class<?>> described) {
+        schema.append(type.getName()).append('{');
+        if (described.add(type)) {
+            for (final Field field : fields(type)) {
+                final boolean nullable = !field.getType().isPrimitive() && isNullable(field);
+                schema.append(field.getName()).append(nullable ? "?:" : ":");
+                if (NullsafetyBoundery.class.isAssignableFrom(field.getType())) {
+                    describe(field.getType(), schema, described);
+                } else if (field.getType() == LazyText.class) {
+                    // encoded as the string it holds, data written before a field was made lazy is still read
+                    schema.append(String.class.getName());
+                } else {
+                    schema.append(field.getType().getName());
+                }
+                schema.append(';');
+            }
+        }
+        schema.append('}');
+    }
+
+    private enum Kind {
+        BOOLEAN(boolean.class), INTEGRAL(long.class), FLOAT(float.class), DOUBLE(double.class),
+        STRING(Object.class), BOOLEAN_OBJECT(Object.class), BYTE_OBJECT(Object.class), SHORT_OBJECT(Object.class),
+        CHARACTER_OBJECT(Object.class), INTEGER_OBJECT(Object.class), LONG_OBJECT(Object.class),
+        FLOAT_OBJECT(Object.class), DOUBLE_OBJECT(Object.class), BIG_INTEGER(Object.class),
+        BIG_DECIMAL(Object.class), LAZY_TEXT(Object.class), ENUM(Object.class), BOUNDARY(Object.class);
+
+        final MethodType getterType;
+        final MethodType setterType;
+
+        Kind(final Class<?> valueType) {
+            this.getterType = MethodType.methodType(valueType, Object.class);
+            this.setterType = MethodType.methodType(void.class, Object.class, valueType);
+        }
+
+        static Kind of(final Field field) {
+            final Class<?> type = field.getType();
+            if (type == boolean.class) {
+                return BOOLEAN;
+            } else if (type == float.class) {
+                return FLOAT;
+            } else if (type == double.class) {
+                return DOUBLE;
+            } else if (type.isPrimitive()) {
+                // byte, short, char, int and long are all written as long
+                return INTEGRAL;
+            } else if (type == String.class) {
+                return STRING;
+            } else if (type == Boolean.class) {
+                return BOOLEAN_OBJECT;
+            } else if (type == Byte.class) {
+                return BYTE_OBJECT;
+            } else if (type == Short.class) {
+                return SHORT_OBJECT;
+            } else if (type == Character.class) {
+                return CHARACTER_OBJECT;
+            } else if (type == Integer.class) {
+                return INTEGER_OBJECT;
+            } else if (type == Long.class) {
+                return LONG_OBJECT;
+            } else if (type == Float.class) {
+                return FLOAT_OBJECT;
+            } else if (type == Double.class) {
+                return DOUBLE_OBJECT;
+            } else if (type == BigInteger.class) {
+                return BIG_INTEGER;
+            } else if (type == BigDecimal.class) {
+                return BIG_DECIMAL;
+            } else if (type == LazyText.class) {
+                return LAZY_TEXT;
+            } else if (type.isEnum()) {
+                return ENUM;
+            } else if (NullsafetyBoundery.class.isAssignableFrom(type)) {
+                return BOUNDARY;
+            }
+            throw new IllegalArgumentException("Unsupported type of " + field);
+        }
+    }
+
+    private static final class FieldCodec {
+
+        final Field field;
+        final Kind kind;
+        /**
+         * Index of the field's bit in the presence bitmap, {@code -1} if it is not {@code @Nullable}.
+         */
+        final int presenceBit;
+        final MethodHandle getter;
+        final MethodHandle setter;
+
+        FieldCodec(final Field field, final int presenceBit) {
+            this.field = field;
+            this.kind = Kind.of(field);
+            this.presenceBit = presenceBit;
+            try {
+                field.setAccessible(true);
+                // explicit casts narrow the long of integral fields back to their types
+                this.getter = MethodHandles.explicitCastArguments(MethodHandles.lookup().unreflectGetter(field),
+                        this.kind.getterType);
+                this.setter = MethodHandles.explicitCastArguments(MethodHandles.lookup().unreflectSetter(field),
+                        this.kind.setterType);
+            } catch (IllegalAccessException | RuntimeException ex) {
+                throw new IllegalStateException("Could not access " + field, ex);
+            }
+        }
+
+        /**
+         * @return whether a value was written, {@code false} for {@code null}
+         */
+        boolean write(final Object object, final BinaryOutput output, final int depth) {
+            try {
+                switch (this.kind) {
+                    case BOOLEAN:
+                        output.writeByte((boolean) this.getter.invokeExact(object) ? 1 : 0);
+                        return true;
+                    case INTEGRAL:
+                        output.writeSignedVarLong((long) this.getter.invokeExact(object));
+                        return true;
+                    case FLOAT:
+                        output.writeInt(Float.floatToIntBits((float) this.getter.invokeExact(object)));
+                        return true;
+                    case DOUBLE:
+                        output.writeLong(Double.doubleToLongBits((double) this.getter.invokeExact(object)));
+                        return true;
+                    default:
+                        final Object value = (Object) this.getter.invokeExact(object);
+                        if (value == null) {
+                            if (this.presenceBit < 0) {
+                                throw nullViolation(object);
+                            }
+                            return false;
+                        }
+                        writeValue(value, output, depth);
+                        return true;
+                }
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Could not read " + this.field, ex);
+            }
+        }
+
+        private void writeValue(final Object value, final BinaryOutput output, final int depth) {
+            switch (this.kind) {
+                case STRING:
+                    output.writeString((String) value);
+                    break;
+                case LAZY_TEXT:
+                    output.writeString(((LazyText) value).decode());
+                    break;
+                case BOOLEAN_OBJECT:
+                    output.writeByte((Boolean) value ? 1 : 0);
+                    break;
+                case CHARACTER_OBJECT:
+                    output.writeVarLong((Character) value);
+                    break;
+                case BYTE_OBJECT:
+                case SHORT_OBJECT:
+                case INTEGER_OBJECT:
+                case LONG_OBJECT:
+                    output.writeSignedVarLong(((Number) value).longValue());
+                    break;
+                case FLOAT_OBJECT:
+                    output.writeInt(Float.floatToIntBits((Float) value));
+                    break;
+                case DOUBLE_OBJECT:
+                    output.writeLong(Double.doubleToLongBits((Double) value));
+                    break;
+                case BIG_INTEGER:
+                    output.writeBytes(((BigInteger) value).toByteArray());
+                    break;
+                case BIG_DECIMAL:
+                    final BigDecimal decimal = (BigDecimal) value;
+                    output.writeSignedVarLong(decimal.scale());
+                    // most amounts fit a long, written without the array of a BigInteger
+                    final BigInteger unscaled = decimal.unscaledValue();
+                    if (unscaled.bitLength() < 64) {
+                        output.writeByte(0);
+                        output.writeSignedVarLong(unscaled.longValue());
+                    } else {
+                        output.writeByte(1);
+                        output.writeBytes(unscaled.toByteArray());
+                    }
+                    break;
+                case ENUM:
+                    // by name, so that constants may be added or reordered
+                    output.writeString(((Enum<?>) value).name());
+                    break;
+                case BOUNDARY:
+                    if (value.getClass() != this.field.getType()) {
+                        throw new IllegalArgumentException("Value of " + this.field + " is a subtype, "
+                                + value.getClass().getName() + ", which would be decoded as the field type");
+                    }
+                    of(value.getClass()).encode(value, output, depth + 1);
+                    break;
+                default:
+                    throw new IllegalStateException("Not a reference kind: " + this.kind);
+            }
+        }
+
+        void read(final Object object, final BinaryInput input, final int depth) throws IOException {
+            try {
+                switch (this.kind) {
+                    case BOOLEAN:
+                        this.setter.invokeExact(object, input.readByte() != 0);
+                        break;
+                    case INTEGRAL:
+                        this.setter.invokeExact(object, input.readSignedVarLong());
+                        break;
+                    case FLOAT:
+                        this.setter.invokeExact(object, Float.intBitsToFloat(input.readInt()));
+                        break;
+                    case DOUBLE:
+                        this.setter.invokeExact(object, Double.longBitsToDouble(input.readLong()));
+                        break;
+                    default:
+                        this.setter.invokeExact(object, readValue(input, depth));
+                }
+            } catch (IOException | RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Could not set " + this.field, ex);
+            }
+        }
+
+        private Object readValue(final BinaryInput input, final int depth) throws IOException {
+            switch (this.kind) {
+                case STRING:
+                    return input.readString();
+                case LAZY_TEXT:
+                    return LazyText.of(input.readString());
+                case BOOLEAN_OBJECT:
+                    return input.readByte() != 0;
+                case CHARACTER_OBJECT:
+                    return (char) input.readVarLong();
+                case BYTE_OBJECT:
+                    return (byte) input.readSignedVarLong();
+                case SHORT_OBJECT:
+                    return (short) input.readSignedVarLong();
+                case INTEGER_OBJECT:
+                    return (int) input.readSignedVarLong();
+                case LONG_OBJECT:
+                    return input.readSignedVarLong();
+                case FLOAT_OBJECT:
+                    return Float.intBitsToFloat(input.readInt());
+                case DOUBLE_OBJECT:
+                    return Double.longBitsToDouble(input.readLong());
+                case BIG_INTEGER:
+                    return new BigInteger(readMagnitude(input));
+                case BIG_DECIMAL:
+                    final int scale = (int) input.readSignedVarLong();
+                    return input.readByte() == 0
+                            ? BigDecimal.valueOf(input.readSignedVarLong(), scale)
+                            : new BigDecimal(new BigInteger(readMagnitude(input)), scale);
+                case ENUM:
+                    return enumConstant(input.readString());
+                case BOUNDARY:
+                    return of(this.field.getType()).decode(input, depth + 1);
+                default:
+                    throw new IllegalStateException("Not a reference kind: " + this.kind);
+            }
+        }
+
+        private static byte[] readMagnitude(final BinaryInput input) throws IOException {
+            final byte[] magnitude = input.readBytes();
+            if (magnitude.length == 0) {
+                throw new IOException("Empty big integer");
+            }
+            return magnitude;
+        }
+
+        private Object enumConstant(final String name) throws IOException {
+            for (final Object constant : this.field.getType().getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals(name)) {
+                    return constant;
+                }
+            }
+            throw new IOException("No constant " + name + " of " + this.field.getType().getName());
+        }
+
+        /**
+         * The object can not be encoded, its violations are reported the same way as by validation, if they are
+         * constraints Bean Validation checks.
+         */
+        private RuntimeException nullViolation(final Object object) {
+            try {
+                XMLSerializer.defaultSerializer().validateObject(object);
+            } catch (ConstraintViolationException ex) {
+                return ex;
+            }
+            return new IllegalArgumentException(this.field + " is null, but not @Nullable");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.anyname.xml;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the values {@link BinaryOutput} writes from an encoded object. Any length is checked against the bytes left,
+ * so that corrupted input fails with an {@link IOException} rather than a huge allocation.
+ */
+final class BinaryInput {
+
+    private final byte[] bytes;
+    private final int limit;
+    private int position;
+
+    BinaryInput(final byte[] bytes, final int offset, final int length) {
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    boolean hasRemaining() {
+        return this.position < this.limit;
+    }
+
+    int readByte() throws IOException {
+        require(1);
+        return this.bytes[this.position++] & 0xFF;
+    }
+
+    int readInt() throws IOException {
+        require(4);
+        return (this.bytes[this.position++] & 0xFF) << 24 | (this.bytes[this.position++] & 0xFF) << 16
+                | (this.bytes[this.position++] & 0xFF) << 8 | this.bytes[this.position++] & 0xFF;
+    }
+
+    long readLong() throws IOException {
+        return (long) readInt() << 32 | readInt() & 0xFFFFFFFFL;
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length number at " + this.position);
+    }
+
+    long readSignedVarLong() throws IOException {
+        final long value = readVarLong();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    byte[] readBytes() throws IOException {
+        return readBytes(readLength());
+    }
+
+    byte[] readBytes(final int length) throws IOException {
+        require(length);
+        final byte[] value = new byte[length];
+        System.arraycopy(this.bytes, this.position, value, 0, length);
+        this.position += length;
+        return value;
+    }
+
+    String readString() throws IOException {
+        final int length = readLength();
+        final String value = new String(this.bytes, this.position, length, StandardCharsets.UTF_8);
+        this.position += length;
+        return value;
+    }
+
+    private int readLength() throws IOException {
+        final long length = readVarLong();
+        if (length < 0 || length > this.limit - this.position) {
+            throw new EOFException("Length " + length + " exceeds the " + (this.limit - this.position)
+                    + " bytes left at " + this.position);
+        }
+        return (int) length;
+    }
+
+    private void require(final int length) throws EOFException {
+        if (length > this.limit - this.position) {
+            throw new EOFException("Unexpected end of the encoded object at " + this.position);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.anyname.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable buffer an object is encoded into by {@link BinaryCodec}, so that its presence bitmaps can be filled in
+ * after its fields are written and its length is known before it is copied to a stream.
+ */
+final class BinaryOutput {
+
+    private byte[] bytes;
+    private int position;
+
+    BinaryOutput(final int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    int position() {
+        return this.position;
+    }
+
+    void writeByte(final int value) {
+        ensureCapacity(1);
+        this.bytes[this.position++] = (byte) value;
+    }
+
+    /**
+     * Reserves zeroed bytes, e.g. of a bitmap, which are filled in with {@link #setBit(int, int)} later.
+     *
+     * @return position of the first reserved byte
+     */
+    int reserve(final int length) {
+        ensureCapacity(length);
+        final int start = this.position;
+        Arrays.fill(this.bytes, start, start + length, (byte) 0);
+        this.position += length;
+        return start;
+    }
+
+    void setBit(final int start, final int bit) {
+        this.bytes[start + (bit >>> 3)] |= 1 << (bit & 7);
+    }
+
+    void writeInt(final int value) {
+        ensureCapacity(4);
+        this.bytes[this.position++] = (byte) (value >>> 24);
+        this.bytes[this.position++] = (byte) (value >>> 16);
+        this.bytes[this.position++] = (byte) (value >>> 8);
+        this.bytes[this.position++] = (byte) value;
+    }
+
+    void writeLong(final long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    /**
+     * Writes the value in 7-bit groups, least significant first, so that small values take a byte.
+     */
+    void writeVarLong(final long value) {
+        ensureCapacity(10);
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            this.bytes[this.position++] = (byte) (remaining & 0x7F | 0x80);
+            remaining >>>= 7;
+        }
+        this.bytes[this.position++] = (byte) remaining;
+    }
+
+    /**
+     * Writes a signed value zig-zag encoded, so that small negative values take a byte as well.
+     */
+    void writeSignedVarLong(final long value) {
+        writeVarLong(value << 1 ^ value >> 63);
+    }
+
+    void writeBytes(final byte[] value) {
+        writeVarLong(value.length);
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, this.bytes, this.position, value.length);
+        this.position += value.length;
+    }
+
+    void writeString(final String value) {
+        final int length = value.length();
+        final int start = this.position;
+        // most strings are ASCII, copied in a single pass, without encoding them into an array first
+        writeVarLong(length);
+        ensureCapacity(length);
+        final byte[] bytes = this.bytes;
+        int position = this.position;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x80) {
+                this.position = start;
+                writeBytes(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            bytes[position++] = (byte) c;
+        }
+        this.position = position;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(this.bytes, this.position);
+    }
+
+    void writeTo(final OutputStream outputStream) throws IOException {
+        outputStream.write(this.bytes, 0, this.position);
+    }
+
+    private void ensureCapacity(final int length) {
+        if (this.position + length > this.bytes.length) {
+            // with a margin, so that a large value followed by small ones grows the buffer once
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, (this.position + length) * 3 / 2));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.anyname.xml;
+
+import javax.validation.ConstraintViolationException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compact binary counterpart of {@link XMLSerializer}, for hops between services and caches which do not need XML,
+ * with the same null-safety contract: decoded objects are validated the same way as deserialized ones.
+ * <p/>
+ * An encoded object starts with the format version and a fingerprint of its type, so that objects encoded by another
+ * version of the type are rejected rather than decoded wrongly, followed by its fields as {@link BinaryCodec} writes
+ * them. {@code @Nullable} fields take a bit of a presence bitmap, the other ones are always present, so that a
+ * {@code null} of a {@code @NotNull} field can not be encoded, nor decoded.
+ */
+public final class BinarySerializer {
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_LENGTH = 5;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int READ_CHUNK = 64 * 1024;
+
+    private BinarySerializer() {
+    }
+
+    /**
+     * @throws ConstraintViolationException if a field, which is not {@code @Nullable}, is null
+     * @throws IllegalArgumentException if the type has a field of a type which is not supported
+     */
+    public static <S extends XMLObject> byte[] serialize(S object) throws ConstraintViolationException {
+        return encode(object).toByteArray();
+    }
+
+    /**
+     * Writes the object prefixed with its length, so that any number of objects can be written to the same stream
+     * and read back one by one with {@link #deserialize(Class, InputStream)}. The stream remains open.
+     */
+    public static <S extends XMLObject> void serialize(S object, OutputStream outputStream)
+            throws IOException, ConstraintViolationException {
+        final BinaryOutput output = encode(object);
+        final BinaryOutput length = new BinaryOutput(5);
+        length.writeVarLong(output.position());
+        length.writeTo(outputStream);
+        output.writeTo(outputStream);
+    }
+
+    /**
+     * @throws IOException if the bytes are not an encoded {@code objectClass} object, or are of another version of it
+     * @throws ConstraintViolationException if the decoded object is not valid
+     */
+    public static <S extends XMLObject> S deserialize(Class<S> objectClass, byte[] bytes)
+            throws IOException, ConstraintViolationException {
+        return decode(objectClass, bytes, bytes.length);
+    }
+
+    /**
+     * Reads the next object {@link #serialize(XMLObject, OutputStream)} wrote to the stream, which remains open.
+     *
+     * @throws EOFException if there are no more objects in the stream
+     */
+    public static <S extends XMLObject> S deserialize(Class<S> objectClass, InputStream inputStream)
+            throws IOException, ConstraintViolationException {
+        final long length = readVarLong(inputStream);
+        if (length < HEADER_LENGTH || length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Invalid length of an encoded object: " + length);
+        }
+        // grown as the bytes arrive, so that a corrupted length does not allocate more than the stream holds
+        byte[] bytes = new byte[(int) Math.min(length, READ_CHUNK)];
+        int read = 0;
+        while (read < length) {
+            if (read == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, (long) bytes.length * 2));
+            }
+            final int count = inputStream.read(bytes, read, bytes.length - read);
+            if (count < 0) {
+                throw new EOFException("Stream ended after " + read + " of " + length + " bytes of an object");
+            }
+            read += count;
+        }
+        return decode(objectClass, bytes, read);
+    }
+
+    private static BinaryOutput encode(Object object) {
+        final BinaryCodec codec = BinaryCodec.of(object.getClass());
+        final BinaryOutput output = new BinaryOutput(INITIAL_CAPACITY);
+        output.writeByte(FORMAT_VERSION);
+        output.writeInt(codec.fingerprint());
+        codec.encode(object, output, 0);
+        return output;
+    }
+
+    private static <S extends XMLObject> S decode(Class<S> objectClass, byte[] bytes, int length)
+            throws IOException, ConstraintViolationException {
+        final BinaryCodec codec = BinaryCodec.of(objectClass);
+        final BinaryInput input = new BinaryInput(bytes, 0, length);
+        final int version = input.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported format version " + version + ", expected " + FORMAT_VERSION);
+        }
+        final int fingerprint = input.readInt();
+        if (fingerprint != codec.fingerprint()) {
+            throw new IOException("Encoded object is not of " + objectClass.getName() + ", or of its other version: "
+                    + "fingerprint " + Integer.toHexString(fingerprint) + ", expected "
+                    + Integer.toHexString(codec.fingerprint()));
+        }
+        final S object = objectClass.cast(codec.decode(input, 0));
+        if (input.hasRemaining()) {
+            throw new IOException("Bytes left after the encoded " + objectClass.getName());
+        }
+        XMLSerializer.defaultSerializer().validateObject(object);
+        return object;
+    }
+
+    private static long readVarLong(InputStream inputStream) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = inputStream.read();
+            if (b < 0) {
+                throw new EOFException(shift == 0 ? "No more objects in the stream" : "Stream ended in a length");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed length of an encoded object");
+    }
+}
@@ -0,0 +1,47 @@
+package org.anyname.xml;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a buffer from its position up to its limit, e.g. a record of a memory-mapped file, without copying it into
+ * an array first. The buffer's position is advanced as it is read.
+ */
+final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer source;
+
+    ByteBufferInputStream(final ByteBuffer source) {
+        this.source = source;
+    }
+
+    @Override
+    public int read() {
+        return this.source.hasRemaining() ? this.source.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!this.source.hasRemaining()) {
+            return -1;
+        }
+        final int read = Math.min(length, this.source.remaining());
+        this.source.get(bytes, offset, read);
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) {
+        final int skipped = (int) Math.max(0, Math.min(n, this.source.remaining()));
+        this.source.position(this.source.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return this.source.remaining();
+    }
+}
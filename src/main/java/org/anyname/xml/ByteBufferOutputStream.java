@@ -0,0 +1,45 @@
+package org.anyname.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes encoded output straight into a caller's buffer, from its position up to its limit. Running out of space
+ * fails the write with an {@link IOException} and is remembered as {@link #isOverflowed()}, marshallers wrap the
+ * exception and the caller can tell the reason from the flag.
+ */
+final class ByteBufferOutputStream extends OutputStream {
+
+    private final ByteBuffer target;
+    private boolean overflowed;
+
+    ByteBufferOutputStream(final ByteBuffer target) {
+        this.target = target;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        if (!this.target.hasRemaining()) {
+            throw overflow();
+        }
+        this.target.put((byte) b);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (this.target.remaining() < length) {
+            throw overflow();
+        }
+        this.target.put(bytes, offset, length);
+    }
+
+    boolean isOverflowed() {
+        return this.overflowed;
+    }
+
+    private IOException overflow() {
+        this.overflowed = true;
+        return new IOException("Buffer of " + this.target.capacity() + " bytes is full");
+    }
+}
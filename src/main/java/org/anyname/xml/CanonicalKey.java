@@ -0,0 +1,22 @@
+package org.anyname.xml;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the field identifying objects of its class, e.g. the id of a {@link User}: deserialization with an
+ * {@link ObjectTable} holds one instance of nested objects of equal keys, the first valid one read, and drops the
+ * others of the same values of all fields. An object of an equal key but other values, e.g. missing a required field,
+ * is kept and validated on its own, so that no value is lost nor any invalid one accepted.
+ * <p/>
+ * A class has a single key field, its value is compared with {@link Object#equals(Object)}. Objects with a
+ * {@code null} key are not shared.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface CanonicalKey {
+}
@@ -0,0 +1,93 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Writes encoded output to a channel through a fixed-size buffer, flushed whenever it fills up, so memory used for
+ * a document does not depend on its size. Buffers are direct, which channels write without copying, and pooled
+ * across streams since allocating them is expensive.
+ * <p/>
+ * Closing the stream flushes it and returns the buffer to the pool, the channel remains open.
+ */
+final class ChannelOutputStream extends OutputStream {
+
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final Queue<ByteBuffer> BUFFERS = new ConcurrentLinkedQueue<>();
+
+    private final WritableByteChannel channel;
+    @Nullable
+    private ByteBuffer buffer;
+
+    ChannelOutputStream(final WritableByteChannel channel) {
+        this.channel = channel;
+        final ByteBuffer pooled = BUFFERS.poll();
+        this.buffer = pooled != null ? pooled : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        final ByteBuffer target = buffer();
+        if (!target.hasRemaining()) {
+            drain(target);
+        }
+        target.put((byte) b);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        final ByteBuffer target = buffer();
+        int written = 0;
+        while (written < length) {
+            if (!target.hasRemaining()) {
+                drain(target);
+            }
+            final int chunk = Math.min(length - written, target.remaining());
+            target.put(bytes, offset + written, chunk);
+            written += chunk;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain(buffer());
+    }
+
+    @Override
+    public void close() throws IOException {
+        final ByteBuffer released = this.buffer;
+        if (released == null) {
+            return;
+        }
+        try {
+            drain(released);
+        } finally {
+            this.buffer = null;
+            released.clear();
+            BUFFERS.offer(released);
+        }
+    }
+
+    private ByteBuffer buffer() throws IOException {
+        final ByteBuffer current = this.buffer;
+        if (current == null) {
+            throw new IOException("Stream closed");
+        }
+        return current;
+    }
+
+    private void drain(final ByteBuffer target) throws IOException {
+        target.flip();
+        while (target.hasRemaining()) {
+            this.channel.write(target);
+        }
+        target.clear();
+    }
+}
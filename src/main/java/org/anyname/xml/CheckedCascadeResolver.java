@@ -0,0 +1,54 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.validation.Path;
+import javax.validation.TraversableResolver;
+import java.lang.annotation.ElementType;
+import java.lang.reflect.Field;
+import java.util.function.Predicate;
+
+/**
+ * Lets Bean Validation cascade only into values of {@code @Valid} fields which are not known to be valid, e.g. nested
+ * objects validated as they were read. Cascades of getters, and values which can not be read, are followed as usual.
+ */
+final class CheckedCascadeResolver implements TraversableResolver {
+
+    private final Predicate<Object> checked;
+
+    CheckedCascadeResolver(final Predicate<Object> checked) {
+        this.checked = checked;
+    }
+
+    @Override
+    public boolean isReachable(@Nullable final Object traversableObject, final Path.Node traversableProperty,
+                               final Class<?> rootBeanType, final Path pathToTraversableObject,
+                               final ElementType elementType) {
+        return true;
+    }
+
+    @Override
+    public boolean isCascadable(@Nullable final Object traversableObject, final Path.Node traversableProperty,
+                                final Class<?> rootBeanType, final Path pathToTraversableObject,
+                                final ElementType elementType) {
+        if (traversableObject == null || elementType != ElementType.FIELD) {
+            return true;
+        }
+        for (final Field field : FailFastListener.cascadedFields(traversableObject.getClass())) {
+            if (field.getName().equals(traversableProperty.getName())) {
+                final Object value = get(field, traversableObject);
+                return value == null || !this.checked.test(value);
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    private static Object get(final Field field, final Object object) {
+        try {
+            return field.get(object);
+        } catch (IllegalAccessException ex) {
+            return null;
+        }
+    }
+}
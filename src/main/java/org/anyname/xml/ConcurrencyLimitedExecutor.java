@@ -0,0 +1,70 @@
+package org.anyname.xml;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs tasks on a thread-per-task executor, but no more than a given number of them at a time. Tasks over the limit
+ * are started and wait for a permit in their own threads, which is cheap for virtual threads. It limits concurrency
+ * only, not the number of waiting tasks, which is unbounded as is the queue of a thread pool without a capacity.
+ * <p/>
+ * A task interrupted while waiting, e.g. by {@link #shutdownNow()}, is dropped without being run.
+ */
+final class ConcurrencyLimitedExecutor extends AbstractExecutorService {
+
+    private final ExecutorService threads;
+    private final Semaphore permits;
+
+    ConcurrencyLimitedExecutor(final ExecutorService threads, final int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.threads = threads;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        this.threads.execute(() -> {
+            try {
+                this.permits.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                this.permits.release();
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        this.threads.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return this.threads.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return this.threads.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return this.threads.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return this.threads.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,52 @@
+package org.anyname.xml;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts bytes read through it, for {@link Instrumentation}.
+ */
+final class CountingInputStream extends FilterInputStream {
+
+    private long count;
+
+    CountingInputStream(final InputStream in) {
+        super(in);
+    }
+
+    long count() {
+        return this.count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = this.in.read();
+        if (b >= 0) {
+            this.count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        final int read = this.in.read(bytes, offset, length);
+        if (read > 0) {
+            this.count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long skipped = this.in.skip(n);
+        this.count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        // a reset would make bytes counted twice
+        return false;
+    }
+}
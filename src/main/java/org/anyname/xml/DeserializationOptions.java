@@ -0,0 +1,98 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Opt-in modes of {@link XMLSerializer} deserialization. Immutable, each {@code with...} method returns a copy.
+ */
+public final class DeserializationOptions {
+
+    public static final DeserializationOptions DEFAULT = new DeserializationOptions(false, null, null, null);
+
+    private final boolean failFast;
+    @Nullable
+    private final StringTable stringTable;
+    @Nullable
+    private final ObjectTable objectTable;
+    @Nullable
+    private final Set<String> projection;
+
+    private DeserializationOptions(final boolean failFast, @Nullable final StringTable stringTable,
+                                   @Nullable final ObjectTable objectTable, @Nullable final Set<String> projection) {
+        this.failFast = failFast;
+        this.stringTable = stringTable;
+        this.objectTable = objectTable;
+        this.projection = projection;
+    }
+
+    /**
+     * In fail-fast mode each {@link org.anyname.nullsafety.NullsafetyBoundery} object which would be validated by a
+     * {@code @Valid} cascade from the root is validated as soon as it is unmarshalled, and parsing stops at the first
+     * violation. An invalid document is not read any further than to its first invalid object, which is also the one
+     * violations are reported for (their property paths start from it, not from the root).
+     */
+    public DeserializationOptions withFailFast(final boolean failFast) {
+        return new DeserializationOptions(failFast, this.stringTable, this.objectTable, this.projection);
+    }
+
+    public boolean isFailFast() {
+        return this.failFast;
+    }
+
+    /**
+     * With a string table, values of the {@code String} fields of deserialized objects which are equal to those read
+     * before are replaced with the earlier copies, so that repeated values are held in memory once. The table is
+     * meant to be created for a batch, e.g. a {@link XMLSerializer#deserializeAll stream} of objects, and dropped
+     * with it. Its statistics show whether a batch is worth deduplicating.
+     *
+     * @param stringTable {@code null} for no deduplication, the default
+     */
+    public DeserializationOptions withStringTable(@Nullable final StringTable stringTable) {
+        return new DeserializationOptions(this.failFast, stringTable, this.objectTable, this.projection);
+    }
+
+    @Nullable
+    public StringTable getStringTable() {
+        return this.stringTable;
+    }
+
+    /**
+     * With an object table, nested objects of a class with a {@link CanonicalKey} which are equal by key to a valid
+     * one read before are replaced with it, so that e.g. a user creating many products of a batch is held in memory,
+     * and validated, once. Like a string table, it is meant to be created for a batch and dropped with it.
+     *
+     * @param objectTable {@code null} for no sharing, the default
+     */
+    public DeserializationOptions withObjectTable(@Nullable final ObjectTable objectTable) {
+        return new DeserializationOptions(this.failFast, this.stringTable, objectTable, this.projection);
+    }
+
+    @Nullable
+    public ObjectTable getObjectTable() {
+        return this.objectTable;
+    }
+
+    /**
+     * With a projection, only the named fields of the deserialized objects are read, e.g. {@code productId} and
+     * {@code price} of a product. Types with a generated {@link StaxCodec} skip the attributes and elements of the
+     * other fields without building their values, which are left as the no-arg constructor sets them, types bound by
+     * JAXB are read whole. Either way only the constraints of the named fields, and of objects cascaded from them,
+     * are validated. Nested objects of the named fields are read whole.
+     *
+     * @param fieldNames names of the fields of the deserialized type, {@code null} for all fields, the default
+     * @throws IllegalArgumentException from deserialization, if the type has no field of a name
+     */
+    public DeserializationOptions withProjection(@Nullable final Set<String> fieldNames) {
+        return new DeserializationOptions(this.failFast, this.stringTable, this.objectTable,
+                fieldNames != null ? Collections.unmodifiableSet(new LinkedHashSet<>(fieldNames)) : null);
+    }
+
+    @Nullable
+    public Set<String> getProjection() {
+        return this.projection;
+    }
+}
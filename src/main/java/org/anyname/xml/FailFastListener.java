@@ -0,0 +1,136 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+import org.anyname.nullsafety.NullsafetyBoundery;
+
+import javax.validation.ConstraintViolationException;
+import javax.validation.Valid;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Unmarshaller;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Validates objects as soon as JAXB completes them, children before their parents. Only the root and objects reached
+ * from it by a {@link Valid} cascade are validated, the same ones validation of the root would cover. A parent does
+ * not cascade into children validated already, or known valid otherwise, e.g. shared by an {@link ObjectTable}, so that
+ * each object is validated once. The root of a projection is validated for the fields it was read with.
+ * <p/>
+ * A violation is thrown out of the unmarshaller, which stops parsing. It is also kept as {@link #failure()}, since
+ * unmarshallers are free to wrap exceptions of listeners.
+ */
+final class FailFastListener extends Unmarshaller.Listener {
+
+    private static final ClassValue<List<Field>> CASCADED_FIELDS = new ClassValue<List<Field>>() {
+        @Override
+        protected List<Field> computeValue(final Class<?> type) {
+            final List<Field> cascaded = new ArrayList<>();
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (final Field field : current.getDeclaredFields()) {
+                    if (field.isAnnotationPresent(Valid.class)) {
+                        field.setAccessible(true);
+                        cascaded.add(field);
+                    }
+                }
+            }
+            return cascaded;
+        }
+    };
+
+    private final XMLSerializer<?> validator;
+    @Nullable
+    private final Set<String> projection;
+    private final Set<Object> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Object> validated = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Predicate<Object> isValidated;
+
+    @Nullable
+    private Object root;
+    @Nullable
+    private ConstraintViolationException failure;
+    @Nullable
+    private Object validatedRoot;
+
+    /**
+     * @param checked whether a nested object is known to be valid, without validating it here
+     */
+    FailFastListener(final XMLSerializer<?> validator, @Nullable final Set<String> projection,
+                     final Predicate<Object> checked) {
+        this.validator = validator;
+        this.projection = projection;
+        this.isValidated = value -> this.validated.contains(value) || checked.test(value);
+    }
+
+    @Override
+    public void beforeUnmarshal(final Object target, @Nullable final Object parent) {
+        if (isRoot(parent)) {
+            this.root = target;
+            this.reachable.add(target);
+        } else if (parent != null && this.reachable.contains(parent)
+                && isCascaded(parent.getClass(), target.getClass(), parent == this.root ? this.projection : null)) {
+            this.reachable.add(target);
+        }
+    }
+
+    @Override
+    public void afterUnmarshal(final Object target, @Nullable final Object parent) {
+        if (!this.reachable.remove(target) || !(target instanceof NullsafetyBoundery)) {
+            return;
+        }
+        try {
+            this.validator.validateProjected(target, isRoot(parent) ? this.projection : null, this.isValidated);
+        } catch (ConstraintViolationException ex) {
+            this.failure = ex;
+            throw ex;
+        }
+        if (isRoot(parent)) {
+            this.validatedRoot = target;
+        } else {
+            this.validated.add(target);
+        }
+    }
+
+    @Nullable
+    ConstraintViolationException failure() {
+        return this.failure;
+    }
+
+    /**
+     * @return whether the object was validated as a root of unmarshalled tree
+     */
+    boolean isValidatedRoot(@Nullable final Object object) {
+        return object != null && object == this.validatedRoot;
+    }
+
+    /**
+     * @return accessible {@link Valid} fields of the type and its superclasses
+     */
+    static List<Field> cascadedFields(final Class<?> type) {
+        return CASCADED_FIELDS.get(type);
+    }
+
+    static boolean isRoot(@Nullable final Object parent) {
+        // unmarshalling with a declared type wraps the root in an element, which the reference implementation also
+        // leaks as the parent of the root to subsequent unmarshalling by the same unmarshaller
+        return parent == null || parent instanceof JAXBElement;
+    }
+
+    /**
+     * @param projection fields of the parent to consider, {@code null} for all
+     */
+    static boolean isCascaded(final Class<?> parentClass, final Class<?> targetClass,
+                                      @Nullable final Set<String> projection) {
+        for (final Field cascaded : CASCADED_FIELDS.get(parentClass)) {
+            if (cascaded.getType().isAssignableFrom(targetClass)
+                    && (projection == null || projection.contains(cascaded.getName()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
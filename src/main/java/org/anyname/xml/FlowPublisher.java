@@ -0,0 +1,26 @@
+package org.anyname.xml;
+
+/**
+ * {@code java.util.concurrent.Flow} is available since Java 9, which has its own version of this class in the
+ * multi-release jar, making an {@link XMLPublisher} a {@code Flow.Publisher}.
+ */
+abstract class FlowPublisher<S extends XMLObject> {
+
+    FlowPublisher() {
+        throw new UnsupportedOperationException("Flow publishers require Java 9 or later, running on "
+                + System.getProperty("java.version"));
+    }
+
+    static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * @return {@code false} if there already has been a subscriber
+     */
+    abstract boolean markSubscribed();
+
+    abstract IllegalStateException alreadySubscribed();
+
+    abstract RecordSubscription<S> newSubscription(RecordSubscription.Subscriber<? super S> subscriber);
+}
@@ -0,0 +1,228 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.Arrays;
+
+/**
+ * Indents elements written to the delegate the way formatted JAXB output does, by four spaces a level, as the
+ * marshaller formats output of its own writers only. Elements with text are kept on one line.
+ */
+final class IndentingXMLStreamWriter implements XMLStreamWriter {
+
+    private static final String INDENT = "    ";
+
+    private final XMLStreamWriter delegate;
+    private int depth;
+    /**
+     * Whether each open element has child elements, whose end tag is then indented too.
+     */
+    private boolean[] hasChildren = new boolean[16];
+
+    IndentingXMLStreamWriter(final XMLStreamWriter delegate) {
+        this.delegate = delegate;
+    }
+
+    private void beforeStartElement() throws XMLStreamException {
+        if (this.depth > 0) {
+            this.hasChildren[this.depth - 1] = true;
+        }
+        newLine(this.depth);
+    }
+
+    private void afterStartElement() {
+        if (this.depth == this.hasChildren.length) {
+            this.hasChildren = Arrays.copyOf(this.hasChildren, this.depth * 2);
+        }
+        this.hasChildren[this.depth++] = false;
+    }
+
+    private void newLine(final int level) throws XMLStreamException {
+        this.delegate.writeCharacters("\n");
+        for (int i = 0; i < level; i++) {
+            this.delegate.writeCharacters(INDENT);
+        }
+    }
+
+    @Override
+    public void writeStartElement(final String localName) throws XMLStreamException {
+        beforeStartElement();
+        this.delegate.writeStartElement(localName);
+        afterStartElement();
+    }
+
+    @Override
+    public void writeStartElement(final String namespaceURI, final String localName) throws XMLStreamException {
+        beforeStartElement();
+        this.delegate.writeStartElement(namespaceURI, localName);
+        afterStartElement();
+    }
+
+    @Override
+    public void writeStartElement(final String prefix, final String localName, final String namespaceURI)
+            throws XMLStreamException {
+        beforeStartElement();
+        this.delegate.writeStartElement(prefix, localName, namespaceURI);
+        afterStartElement();
+    }
+
+    @Override
+    public void writeEmptyElement(final String namespaceURI, final String localName) throws XMLStreamException {
+        beforeStartElement();
+        this.delegate.writeEmptyElement(namespaceURI, localName);
+    }
+
+    @Override
+    public void writeEmptyElement(final String prefix, final String localName, final String namespaceURI)
+            throws XMLStreamException {
+        beforeStartElement();
+        this.delegate.writeEmptyElement(prefix, localName, namespaceURI);
+    }
+
+    @Override
+    public void writeEmptyElement(final String localName) throws XMLStreamException {
+        beforeStartElement();
+        this.delegate.writeEmptyElement(localName);
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        this.depth--;
+        if (this.hasChildren[this.depth]) {
+            newLine(this.depth);
+        }
+        this.delegate.writeEndElement();
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        this.delegate.writeEndDocument();
+        this.delegate.writeCharacters("\n");
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        this.delegate.close();
+    }
+
+    @Override
+    public void flush() throws XMLStreamException {
+        this.delegate.flush();
+    }
+
+    @Override
+    public void writeAttribute(final String localName, final String value) throws XMLStreamException {
+        this.delegate.writeAttribute(localName, value);
+    }
+
+    @Override
+    public void writeAttribute(final String prefix, final String namespaceURI, final String localName,
+                               final String value) throws XMLStreamException {
+        this.delegate.writeAttribute(prefix, namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(final String namespaceURI, final String localName, final String value)
+            throws XMLStreamException {
+        this.delegate.writeAttribute(namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeNamespace(final String prefix, final String namespaceURI) throws XMLStreamException {
+        this.delegate.writeNamespace(prefix, namespaceURI);
+    }
+
+    @Override
+    public void writeDefaultNamespace(final String namespaceURI) throws XMLStreamException {
+        this.delegate.writeDefaultNamespace(namespaceURI);
+    }
+
+    @Override
+    public void writeComment(final String data) throws XMLStreamException {
+        this.delegate.writeComment(data);
+    }
+
+    @Override
+    public void writeProcessingInstruction(final String target) throws XMLStreamException {
+        this.delegate.writeProcessingInstruction(target);
+    }
+
+    @Override
+    public void writeProcessingInstruction(final String target, final String data) throws XMLStreamException {
+        this.delegate.writeProcessingInstruction(target, data);
+    }
+
+    @Override
+    public void writeCData(final String data) throws XMLStreamException {
+        this.delegate.writeCData(data);
+    }
+
+    @Override
+    public void writeDTD(final String dtd) throws XMLStreamException {
+        this.delegate.writeDTD(dtd);
+    }
+
+    @Override
+    public void writeEntityRef(final String name) throws XMLStreamException {
+        this.delegate.writeEntityRef(name);
+    }
+
+    @Override
+    public void writeStartDocument() throws XMLStreamException {
+        this.delegate.writeStartDocument();
+    }
+
+    @Override
+    public void writeStartDocument(final String version) throws XMLStreamException {
+        this.delegate.writeStartDocument(version);
+    }
+
+    @Override
+    public void writeStartDocument(final String encoding, final String version) throws XMLStreamException {
+        this.delegate.writeStartDocument(encoding, version);
+    }
+
+    @Override
+    public void writeCharacters(final String text) throws XMLStreamException {
+        this.delegate.writeCharacters(text);
+    }
+
+    @Override
+    public void writeCharacters(final char[] text, final int start, final int len) throws XMLStreamException {
+        this.delegate.writeCharacters(text, start, len);
+    }
+
+    @Override
+    @Nullable
+    public String getPrefix(final String uri) throws XMLStreamException {
+        return this.delegate.getPrefix(uri);
+    }
+
+    @Override
+    public void setPrefix(final String prefix, final String uri) throws XMLStreamException {
+        this.delegate.setPrefix(prefix, uri);
+    }
+
+    @Override
+    public void setDefaultNamespace(final String uri) throws XMLStreamException {
+        this.delegate.setDefaultNamespace(uri);
+    }
+
+    @Override
+    public void setNamespaceContext(final NamespaceContext context) throws XMLStreamException {
+        this.delegate.setNamespaceContext(context);
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return this.delegate.getNamespaceContext();
+    }
+
+    @Override
+    public Object getProperty(final String name) throws IllegalArgumentException {
+        return this.delegate.getProperty(name);
+    }
+}
@@ -0,0 +1,68 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+/**
+ * Modes of the parallel {@link XMLSerializer#ingest ingest} of a feed file. Immutable, each {@code with...} method
+ * returns a copy.
+ */
+public final class IngestOptions {
+
+    public static final IngestOptions DEFAULT = new IngestOptions(true, 1 << 20, null);
+
+    private final boolean ordered;
+    private final int chunkSize;
+    @Nullable
+    private final Quarantine quarantine;
+
+    private IngestOptions(final boolean ordered, final int chunkSize, @Nullable final Quarantine quarantine) {
+        this.ordered = ordered;
+        this.chunkSize = chunkSize;
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Ordered ingest returns objects in the order of the file, unordered one returns the objects of each chunk as soon
+     * as it is parsed, so that a slow chunk does not hold back the ones after it. The default is ordered.
+     */
+    public IngestOptions withOrdered(final boolean ordered) {
+        return new IngestOptions(ordered, this.chunkSize, this.quarantine);
+    }
+
+    public boolean isOrdered() {
+        return this.ordered;
+    }
+
+    /**
+     * The file is split into chunks of about this many bytes, each parsed by a task of the executor. Objects of a few
+     * chunks per thread are held in memory at a time, so the size trades the overhead of tasks for memory. The default
+     * is 1 MiB.
+     *
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public IngestOptions withChunkSize(final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        return new IngestOptions(this.ordered, chunkSize, this.quarantine);
+    }
+
+    public int getChunkSize() {
+        return this.chunkSize;
+    }
+
+    /**
+     * By default the first invalid record ends the ingest. With a quarantine, records which are invalid or can not be
+     * read are passed to it and skipped, until more of them than its error budget have been.
+     *
+     * @param quarantine {@code null} to end the ingest at the first invalid record, the default
+     */
+    public IngestOptions withQuarantine(@Nullable final Quarantine quarantine) {
+        return new IngestOptions(this.ordered, this.chunkSize, quarantine);
+    }
+
+    @Nullable
+    public Quarantine getQuarantine() {
+        return this.quarantine;
+    }
+}
@@ -0,0 +1,91 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.validation.ConstraintViolation;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Dispatches measurements to {@link XMLSerializerListener}s. Instrumented code checks {@link #isEnabled()} first,
+ * which is a single volatile read, and only then starts measuring.
+ */
+final class Instrumentation {
+
+    private static final XMLSerializerListener[] NONE = new XMLSerializerListener[0];
+    @Nullable
+    private static final com.sun.management.ThreadMXBean THREADS = allocationMeasuringThreads();
+
+    // copied on write, as listeners are added rarely and read by every operation
+    private static volatile XMLSerializerListener[] listeners = NONE;
+
+    private Instrumentation() {
+    }
+
+    static boolean isEnabled() {
+        return listeners.length != 0;
+    }
+
+    static synchronized void addListener(final XMLSerializerListener listener) {
+        final XMLSerializerListener[] current = listeners;
+        final XMLSerializerListener[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = listener;
+        listeners = added;
+    }
+
+    static synchronized void removeListener(final XMLSerializerListener listener) {
+        listeners = Arrays.stream(listeners).filter(registered -> registered != listener)
+                .toArray(XMLSerializerListener[]::new);
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, {@code -1} if the JVM does not measure them
+     */
+    static long allocatedBytes() {
+        final com.sun.management.ThreadMXBean threads = THREADS;
+        return threads != null ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    static void record(final Class<?> type, final XMLSerializerListener.Operation operation, final long startNanos,
+                       final long bytes, final long startAllocatedBytes) {
+        final long durationNanos = System.nanoTime() - startNanos;
+        final long allocatedBytes = startAllocatedBytes < 0 ? -1 : allocatedBytes() - startAllocatedBytes;
+        for (final XMLSerializerListener listener : listeners) {
+            try {
+                listener.onOperation(type, operation, durationNanos, bytes, allocatedBytes);
+            } catch (RuntimeException ex) {
+                reportFailure(ex);
+            }
+        }
+    }
+
+    static void recordViolations(final Class<?> type, final Set<? extends ConstraintViolation<?>> violations) {
+        for (final XMLSerializerListener listener : listeners) {
+            try {
+                listener.onViolations(type, violations);
+            } catch (RuntimeException ex) {
+                reportFailure(ex);
+            }
+        }
+    }
+
+    private static void reportFailure(final RuntimeException ex) {
+        // a broken listener must not fail serialization, it is reported the same as an uncaught exception would be
+        final Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+    }
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean allocationMeasuringThreads() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        final com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) threads;
+        return hotspotThreads.isThreadAllocatedMemorySupported() && hotspotThreads.isThreadAllocatedMemoryEnabled()
+                ? hotspotThreads
+                : null;
+    }
+}
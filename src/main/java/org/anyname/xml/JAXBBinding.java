@@ -0,0 +1,456 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+import org.anyname.xml.XMLSerializerListener.Operation;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.MarshalException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.UnmarshalException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.beans.Introspector;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * JAXB binding of a single {@link XMLObject} type. Building a {@link JAXBContext} is expensive, so there is one
+ * context per type, created on the first use and shared afterwards. The context is thread-safe, but marshallers and
+ * unmarshallers created from it are not - they are pooled and lent to one thread at a time.
+ * <p/>
+ * Root types with a {@link StaxCodec} generated at build time are read and written by it instead, the context then
+ * only serves their other uses.
+ */
+final class JAXBBinding {
+
+    private static final ConcurrentMap<Class<?>, JAXBBinding> BINDINGS = new ConcurrentHashMap<>();
+    /**
+     * Property of the JDK's StAX implementation, which then reuses the last closed reader rather than creating one,
+     * and its buffers, for each document.
+     */
+    private static final String REUSE_INSTANCE = "reuse-instance";
+    /**
+     * Factories reusing a reader are not thread-safe, they are pooled as marshallers are.
+     */
+    private static final Queue<XMLInputFactory> INPUT_FACTORIES = new ConcurrentLinkedQueue<>();
+
+    private final Class<?> objectClass;
+    private final JAXBContext context;
+    @Nullable
+    private final String rootElementName;
+    private final Queue<Marshaller> formattedMarshallers = new ConcurrentLinkedQueue<>();
+    private final Queue<Marshaller> compactMarshallers = new ConcurrentLinkedQueue<>();
+    private final Queue<Marshaller> fragmentMarshallers = new ConcurrentLinkedQueue<>();
+    private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<>();
+    @Nullable
+    private final StaxCodec<Object> codec;
+    /**
+     * Fields a projection can name, in the order of the codec's bits.
+     */
+    private final List<String> fieldNames;
+
+    @SuppressWarnings("unchecked")
+    private JAXBBinding(final Class<?> objectClass, final JAXBContext context) {
+        this.objectClass = objectClass;
+        this.context = context;
+        this.rootElementName = rootElementName(objectClass);
+        // JAXB tells what is wrong with marshalling a type which is not a root element
+        this.codec = this.rootElementName != null ? (StaxCodec<Object>) StaxCodec.find(objectClass) : null;
+        this.fieldNames = this.codec != null ? this.codec.fieldNames() : instanceFieldNames(objectClass);
+    }
+
+    static JAXBBinding of(final Class<?> objectClass) throws JAXBException {
+        final JAXBBinding binding = BINDINGS.get(objectClass);
+        if (binding != null) {
+            return binding;
+        }
+        // the context is built outside of the map's lock, if two threads race the first one wins
+        final JAXBBinding created = new JAXBBinding(objectClass, JAXBContext.newInstance(objectClass));
+        final JAXBBinding previous = BINDINGS.putIfAbsent(objectClass, created);
+        return previous != null ? previous : created;
+    }
+
+    JAXBContext context() {
+        return this.context;
+    }
+
+    /**
+     * @return local name of the element the type is bound to with {@link XmlRootElement}
+     * @throws IllegalArgumentException if the type is not a root element
+     */
+    String rootElementName() {
+        if (this.rootElementName == null) {
+            throw new IllegalArgumentException("Not annotated with @XmlRootElement: " + this.context);
+        }
+        return this.rootElementName;
+    }
+
+    void marshal(final Object object, final OutputStream outputStream, final boolean formatted)
+            throws JAXBException {
+        if (!Instrumentation.isEnabled()) {
+            doMarshal(object, outputStream, formatted);
+            return;
+        }
+        final CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+        final long startAllocatedBytes = Instrumentation.allocatedBytes();
+        final long start = System.nanoTime();
+        try {
+            doMarshal(object, countingStream, formatted);
+        } finally {
+            Instrumentation.record(this.objectClass, Operation.MARSHAL, start, countingStream.count(),
+                    startAllocatedBytes);
+        }
+    }
+
+    private void doMarshal(final Object object, final OutputStream outputStream, final boolean formatted)
+            throws JAXBException {
+        // one pool per output mode, so that a borrowed marshaller never needs to be reconfigured
+        final Queue<Marshaller> marshallers = formatted ? this.formattedMarshallers : this.compactMarshallers;
+        if (this.codec != null) {
+            writeDocument(this.codec, object, outputStream, formatted);
+            return;
+        }
+        final Marshaller pooled = marshallers.poll();
+        final Marshaller marshaller = pooled != null ? pooled : createMarshaller(formatted);
+        try {
+            marshaller.marshal(object, outputStream);
+        } finally {
+            marshallers.offer(marshaller);
+        }
+    }
+
+    private void writeDocument(final StaxCodec<Object> codec, final Object object, final OutputStream outputStream,
+                               final boolean formatted) throws JAXBException {
+        final Utf8XMLStreamWriter utf8Writer = new Utf8XMLStreamWriter(outputStream);
+        final XMLStreamWriter writer = formatted ? new IndentingXMLStreamWriter(utf8Writer) : utf8Writer;
+        try {
+            writer.writeStartDocument();
+            writer.writeStartElement(rootElementName());
+            codec.write(object, writer);
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            // as a marshaller, leaves the stream open but flushes what it has written
+            writer.flush();
+        } catch (XMLStreamException ex) {
+            throw new MarshalException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Writes the object as an element of a document the writer is writing, without starting a document of its own.
+     */
+    void marshal(final Object object, final XMLStreamWriter writer) throws JAXBException {
+        final boolean instrumented = Instrumentation.isEnabled();
+        final long startAllocatedBytes = instrumented ? Instrumentation.allocatedBytes() : 0;
+        final long start = instrumented ? System.nanoTime() : 0;
+        final Marshaller marshaller = this.codec != null ? null : borrowFragmentMarshaller();
+        try {
+            if (marshaller != null) {
+                marshaller.marshal(object, writer);
+            } else {
+                writeElement(object, writer);
+            }
+        } finally {
+            if (marshaller != null) {
+                this.fragmentMarshallers.offer(marshaller);
+            }
+            if (instrumented) {
+                // the writer does not tell how many bytes it has written
+                Instrumentation.record(this.objectClass, Operation.MARSHAL, start, -1, startAllocatedBytes);
+            }
+        }
+    }
+
+    private Marshaller borrowFragmentMarshaller() throws JAXBException {
+        final Marshaller pooled = this.fragmentMarshallers.poll();
+        return pooled != null ? pooled : createFragmentMarshaller();
+    }
+
+    private void writeElement(final Object object, final XMLStreamWriter writer) throws JAXBException {
+        try {
+            writer.writeStartElement(rootElementName());
+            codec().write(object, writer);
+            writer.writeEndElement();
+        } catch (XMLStreamException ex) {
+            throw new MarshalException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @return whether objects of the type are read by a generated codec rather than unmarshalled, see
+     * {@link #read(Object, InputStream, Unmarshaller.Listener, long)}
+     */
+    boolean hasCodec() {
+        return this.codec != null;
+    }
+
+    /**
+     * @return a new object for {@link #read(Object, InputStream, Unmarshaller.Listener, long)} to fill
+     * @throws IllegalStateException if the type has no codec
+     */
+    Object newInstance() {
+        return codec().newInstance();
+    }
+
+    /**
+     * @return bit set of the named fields for the codec to read, all fields of a type without a codec, which JAXB
+     * unmarshals whole
+     * @throws IllegalArgumentException if the type has no field of a name
+     */
+    long fields(final Set<String> fieldNames) throws IllegalArgumentException {
+        long fields = 0;
+        for (final String fieldName : fieldNames) {
+            final int index = this.fieldNames.indexOf(fieldName);
+            if (index < 0) {
+                throw new IllegalArgumentException(this.objectClass.getName() + " has no field " + fieldName
+                        + (this.codec != null ? " bound to XML" : ""));
+            }
+            fields |= 1L << index;
+        }
+        return this.codec != null ? fields : StaxCodec.ALL_FIELDS;
+    }
+
+    /**
+     * Reads the document of the stream into the object with the type's codec, the way
+     * {@link #unmarshal(InputStream, Unmarshaller.Listener)} unmarshals it: the document element has to be the type's
+     * root element, the listener is passed the objects from the root down.
+     *
+     * @param fields bit set of the fields to read, see {@link #fields(Set)}
+     * @return whether the object is known to be valid without validating it, see {@link StaxCodec#read}
+     */
+    boolean read(final Object object, final InputStream inputStream, @Nullable final Unmarshaller.Listener listener,
+                 final long fields) throws JAXBException {
+        final StaxCodec<Object> objectCodec = codec();
+        final boolean instrumented = Instrumentation.isEnabled();
+        final CountingInputStream countingStream = instrumented ? new CountingInputStream(inputStream) : null;
+        final long startAllocatedBytes = instrumented ? Instrumentation.allocatedBytes() : 0;
+        final long start = instrumented ? System.nanoTime() : 0;
+        final XMLInputFactory pooledFactory = INPUT_FACTORIES.poll();
+        final XMLInputFactory inputFactory = pooledFactory != null ? pooledFactory : createInputFactory();
+        try {
+            final XMLStreamReader reader = inputFactory.createXMLStreamReader(
+                    countingStream != null ? countingStream : inputStream);
+            try {
+                while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    if (!reader.hasNext()) {
+                        throw new UnmarshalException("Document has no element");
+                    }
+                }
+                final String rootName = rootElementName();
+                if (!StaxCodec.isUnqualified(reader.getNamespaceURI()) || !rootName.equals(reader.getLocalName())) {
+                    final String namespaceURI = reader.getNamespaceURI();
+                    throw new UnmarshalException("unexpected element (uri:\"" + (namespaceURI != null ? namespaceURI : "")
+                            + "\", local:\"" + reader.getLocalName() + "\"). Expected elements are <{}" + rootName + ">");
+                }
+                final boolean valid = readElement(objectCodec, object, reader, listener, fields);
+                // the rest of the document is parsed too, so that it is rejected unless well-formed
+                while (reader.hasNext()) {
+                    reader.next();
+                }
+                return valid;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException ex) {
+            throw new UnmarshalException(ex.getMessage(), ex);
+        } finally {
+            // returned once its reader is closed, so that the next document reuses it
+            INPUT_FACTORIES.offer(inputFactory);
+            if (countingStream != null) {
+                Instrumentation.record(this.objectClass, Operation.UNMARSHAL, start, countingStream.count(),
+                        startAllocatedBytes);
+            }
+        }
+    }
+
+    /**
+     * Reads the element the reader is positioned at into the object with the type's codec and leaves the reader right
+     * after its end, as {@link #unmarshal(XMLStreamReader, Class, Unmarshaller.Listener)} does.
+     *
+     * @param fields bit set of the fields to read, see {@link #fields(Set)}
+     * @return whether the object is known to be valid without validating it, see {@link StaxCodec#read}
+     */
+    boolean read(final Object object, final XMLStreamReader reader, @Nullable final Unmarshaller.Listener listener,
+                 final long fields) throws JAXBException {
+        final StaxCodec<Object> objectCodec = codec();
+        final boolean instrumented = Instrumentation.isEnabled();
+        final long startOffset = instrumented ? reader.getLocation().getCharacterOffset() : 0;
+        final long startAllocatedBytes = instrumented ? Instrumentation.allocatedBytes() : 0;
+        final long start = instrumented ? System.nanoTime() : 0;
+        try {
+            final boolean valid = readElement(objectCodec, object, reader, listener, fields);
+            if (reader.hasNext()) {
+                reader.next();
+            }
+            return valid;
+        } catch (XMLStreamException ex) {
+            throw new UnmarshalException(ex.getMessage(), ex);
+        } finally {
+            if (instrumented) {
+                final long endOffset = reader.getLocation().getCharacterOffset();
+                final long bytes = startOffset >= 0 && endOffset >= startOffset ? endOffset - startOffset : -1;
+                Instrumentation.record(this.objectClass, Operation.UNMARSHAL, start, bytes, startAllocatedBytes);
+            }
+        }
+    }
+
+    private static boolean readElement(final StaxCodec<Object> codec, final Object object, final XMLStreamReader reader,
+                                       @Nullable final Unmarshaller.Listener listener, final long fields)
+            throws XMLStreamException {
+        // a root has no parent, as when unmarshalled from a stream
+        if (listener != null) {
+            listener.beforeUnmarshal(object, null);
+        }
+        final boolean valid = codec.read(object, reader, listener, fields);
+        if (listener != null) {
+            listener.afterUnmarshal(object, null);
+        }
+        return valid;
+    }
+
+    private StaxCodec<Object> codec() {
+        if (this.codec == null) {
+            throw new IllegalStateException("No generated codec of " + this.objectClass.getName());
+        }
+        return this.codec;
+    }
+
+    Object unmarshal(final InputStream inputStream, @Nullable final Unmarshaller.Listener listener)
+            throws JAXBException {
+        final boolean instrumented = Instrumentation.isEnabled();
+        final CountingInputStream countingStream = instrumented ? new CountingInputStream(inputStream) : null;
+        final long startAllocatedBytes = instrumented ? Instrumentation.allocatedBytes() : 0;
+        final long start = instrumented ? System.nanoTime() : 0;
+        final Unmarshaller unmarshaller = borrowUnmarshaller(listener);
+        try {
+            return unmarshaller.unmarshal(countingStream != null ? countingStream : inputStream);
+        } finally {
+            releaseUnmarshaller(unmarshaller, listener);
+            if (countingStream != null) {
+                Instrumentation.record(this.objectClass, Operation.UNMARSHAL, start, countingStream.count(),
+                        startAllocatedBytes);
+            }
+        }
+    }
+
+    /**
+     * Unmarshals the element the reader is positioned at and leaves the reader right after its end.
+     */
+    <S> S unmarshal(final XMLStreamReader reader, final Class<S> objectClass,
+                    @Nullable final Unmarshaller.Listener listener) throws JAXBException {
+        final boolean instrumented = Instrumentation.isEnabled();
+        final long startOffset = instrumented ? reader.getLocation().getCharacterOffset() : 0;
+        final long startAllocatedBytes = instrumented ? Instrumentation.allocatedBytes() : 0;
+        final long start = instrumented ? System.nanoTime() : 0;
+        final Unmarshaller unmarshaller = borrowUnmarshaller(listener);
+        try {
+            return unmarshaller.unmarshal(reader, objectClass).getValue();
+        } finally {
+            releaseUnmarshaller(unmarshaller, listener);
+            if (instrumented) {
+                // offsets of the element within the document, if the reader tracks them
+                final long endOffset = reader.getLocation().getCharacterOffset();
+                final long bytes = startOffset >= 0 && endOffset >= startOffset ? endOffset - startOffset : -1;
+                Instrumentation.record(objectClass, Operation.UNMARSHAL, start, bytes, startAllocatedBytes);
+            }
+        }
+    }
+
+    /**
+     * Fills empty pools with a marshaller for each output mode and an unmarshaller, so that the first use of the
+     * binding does not pay for creating them either.
+     */
+    void warmUp() throws JAXBException {
+        if (this.codec != null) {
+            // loaded with the binding already, it needs neither
+            return;
+        }
+        if (this.formattedMarshallers.isEmpty()) {
+            this.formattedMarshallers.offer(createMarshaller(true));
+        }
+        if (this.compactMarshallers.isEmpty()) {
+            this.compactMarshallers.offer(createMarshaller(false));
+        }
+        if (this.unmarshallers.isEmpty()) {
+            this.unmarshallers.offer(this.context.createUnmarshaller());
+        }
+    }
+
+    private Marshaller createMarshaller(final boolean formatted) throws JAXBException {
+        final Marshaller marshaller = this.context.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+        return marshaller;
+    }
+
+    private Marshaller createFragmentMarshaller() throws JAXBException {
+        final Marshaller marshaller = this.context.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        return marshaller;
+    }
+
+    private Unmarshaller borrowUnmarshaller(@Nullable final Unmarshaller.Listener listener) throws JAXBException {
+        final Unmarshaller pooled = this.unmarshallers.poll();
+        final Unmarshaller unmarshaller = pooled != null ? pooled : this.context.createUnmarshaller();
+        if (listener != null) {
+            unmarshaller.setListener(listener);
+        }
+        return unmarshaller;
+    }
+
+    private void releaseUnmarshaller(final Unmarshaller unmarshaller, @Nullable final Unmarshaller.Listener listener) {
+        if (listener != null) {
+            unmarshaller.setListener(null);
+        }
+        this.unmarshallers.offer(unmarshaller);
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        // text comes as one event, which a reused reader builds in its own buffer, rather than in pieces to be joined
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        if (factory.isPropertySupported(REUSE_INSTANCE)) {
+            factory.setProperty(REUSE_INSTANCE, true);
+        }
+        return factory;
+    }
+
+    private static List<String> instanceFieldNames(final Class<?> objectClass) {
+        final List<String> names = new ArrayList<>();
+        for (Class<?> current = objectClass; current != null; current = current.getSuperclass()) {
+            for (final Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    names.add(field.getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    @Nullable
+    private static String rootElementName(final Class<?> objectClass) {
+        final XmlRootElement rootElement = objectClass.getAnnotation(XmlRootElement.class);
+        if (rootElement == null) {
+            return null;
+        }
+        return "##default".equals(rootElement.name())
+                ? Introspector.decapitalize(objectClass.getSimpleName())
+                : rootElement.name();
+    }
+}
@@ -0,0 +1,194 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+import org.anyname.nullsafety.ToStringRenderer;
+
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Text held as compact bytes until it is first read, for long values most objects never show, e.g. the description
+ * of a {@link Product} in a catalogue. A field is made lazy by its type: a {@code @Nullable LazyText} field is
+ * {@code null} when the element is absent, as a {@code String} one would be, and its getter returns
+ * {@link #toString()} of a present value.
+ * <p/>
+ * The text is kept as UTF-8, deflated when that makes it shorter, and decoded by the first {@link #toString()}, which
+ * keeps the decoded text and drops the bytes. Writing or rendering the text, comparing it or taking its length do not
+ * decode it for good, so that serializing or logging a catalogue does not inflate it. Deflaters and inflaters hold
+ * native memory, they are pooled rather than created for each text.
+ * <p/>
+ * Thread-safe: threads reading the text at the same time may each decode it, all get equal strings.
+ */
+@XmlJavaTypeAdapter(LazyText.Adapter.class)
+public final class LazyText implements ToStringRenderer.RenderedText {
+
+    /**
+     * Shorter texts are not worth deflating, the header and checksum of the stream take most of what it saves.
+     */
+    static final int MIN_DEFLATED_BYTES = 128;
+
+    private static final Queue<Deflater> DEFLATERS = new ConcurrentLinkedQueue<>();
+    private static final Queue<Inflater> INFLATERS = new ConcurrentLinkedQueue<>();
+
+    private final int length;
+    /**
+     * Length of the UTF-8 bytes the deflated ones inflate to, {@code -1} if they are not deflated.
+     */
+    private final int inflatedLength;
+    @Nullable
+    private volatile byte[] bytes;
+    @Nullable
+    private volatile String text;
+
+    private LazyText(final int length, final byte[] bytes, final int inflatedLength) {
+        this.length = length;
+        this.bytes = bytes;
+        this.inflatedLength = inflatedLength;
+    }
+
+    public static LazyText of(final String text) {
+        final byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length < MIN_DEFLATED_BYTES) {
+            return new LazyText(text.length(), utf8, -1);
+        }
+        final Deflater pooled = DEFLATERS.poll();
+        final Deflater deflater = pooled != null ? pooled : new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            // kept deflated only if shorter, so that the output never needs to grow
+            final byte[] deflated = new byte[utf8.length];
+            final int deflatedLength = deflater.deflate(deflated);
+            return deflater.finished()
+                    ? new LazyText(text.length(), Arrays.copyOf(deflated, deflatedLength), utf8.length)
+                    : new LazyText(text.length(), utf8, -1);
+        } finally {
+            deflater.reset();
+            DEFLATERS.offer(deflater);
+        }
+    }
+
+    /**
+     * @return length of the text, in chars, without decoding it
+     */
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * @return the text, decoded on the first call and kept for the next ones
+     */
+    @Override
+    public String toString() {
+        final String decoded = this.text;
+        if (decoded != null) {
+            return decoded;
+        }
+        final byte[] encoded = this.bytes;
+        if (encoded == null) {
+            // dropped right after the text has been kept
+            return String.valueOf(this.text);
+        }
+        final String text = decode(encoded);
+        this.text = text;
+        this.bytes = null;
+        return text;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object other) {
+        return this == other
+                || other instanceof LazyText && this.length == ((LazyText) other).length
+                && decode().equals(((LazyText) other).decode());
+    }
+
+    @Override
+    public int hashCode() {
+        return decode().hashCode();
+    }
+
+    /**
+     * @return the text as {@link #decode()}, so that rendering the object holding it does not keep it decoded
+     */
+    @Override
+    public String renderedText() {
+        return decode();
+    }
+
+    /**
+     * @return the text, decoded anew unless it has been read already, for writing it out without keeping it
+     */
+    String decode() {
+        final String decoded = this.text;
+        if (decoded != null) {
+            return decoded;
+        }
+        final byte[] encoded = this.bytes;
+        return encoded != null ? decode(encoded) : String.valueOf(this.text);
+    }
+
+    private String decode(final byte[] encoded) {
+        if (this.inflatedLength < 0) {
+            return new String(encoded, StandardCharsets.UTF_8);
+        }
+        final Inflater pooled = INFLATERS.poll();
+        final Inflater inflater = pooled != null ? pooled : new Inflater();
+        try {
+            inflater.setInput(encoded);
+            final byte[] utf8 = new byte[this.inflatedLength];
+            int inflated = 0;
+            while (inflated < utf8.length && !inflater.finished()) {
+                inflated += inflater.inflate(utf8, inflated, utf8.length - inflated);
+                if (inflater.needsInput()) {
+                    break;
+                }
+            }
+            if (inflated != utf8.length) {
+                throw new IllegalStateException("Deflated text inflated to " + inflated + " bytes rather than "
+                        + utf8.length);
+            }
+            return new String(utf8, StandardCharsets.UTF_8);
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Deflated text is corrupted", ex);
+        } finally {
+            inflater.reset();
+            INFLATERS.offer(inflater);
+        }
+    }
+
+    /**
+     * Binds lazy text fields as plain text elements and attributes, for types JAXB reads and writes.
+     */
+    public static final class Adapter extends XmlAdapter<String, LazyText> {
+
+        @Nullable
+        @Override
+        public LazyText unmarshal(@Nullable final String text) {
+            return text != null ? of(text) : null;
+        }
+
+        @Nullable
+        @Override
+        public String marshal(@Nullable final LazyText text) {
+            return text != null ? text.decode() : null;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.xml.bind.Unmarshaller;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Shares nested objects of equal {@link CanonicalKey keys} through an {@link ObjectTable}. JAXB completes children
+ * before their parents, so a child is looked up first. A duplicate, of an equal key and equal values of all its
+ * fields, is not passed on to the next listener: it is valid as the object of the table is, so validating it again
+ * would be in vain. Then the parent's fields referring to a duplicate are set to the object of the table, which
+ * validation takes as {@link ObjectTable#contains checked} and does not cascade into.
+ * <p/>
+ * A new object is not validated here, but with its document, the same as without a table. Objects reached from the
+ * root by a {@code @Valid} cascade, the ones that validation covers, are {@link #admitValidated() admitted} once the
+ * document is found valid.
+ * <p/>
+ * An object of an equal key but other values, e.g. a user renamed since, or missing a required field, is not a
+ * duplicate: it is kept and validated as it would be without a table, and does not replace the object of the table.
+ * Fields are compared with {@link Object#equals(Object)}, nested keyed objects already shared are the same instance,
+ * other nested objects without {@code equals} make their parent differ.
+ * <p/>
+ * Only fields declared of a type with a key are replaced, not elements of collections. Roots are not shared.
+ */
+final class ObjectDeduplicatingListener extends Unmarshaller.Listener {
+
+    private static final ClassValue<ReferenceField[]> KEYED_FIELDS = new ClassValue<ReferenceField[]>() {
+        @Override
+        protected ReferenceField[] computeValue(final Class<?> type) {
+            final List<ReferenceField> fields = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                for (final Field field : current.getDeclaredFields()) {
+                    final int modifiers = field.getModifiers();
+                    if (!field.getType().isPrimitive() && ObjectTable.isKeyed(field.getType())
+                            && !Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)) {
+                        fields.add(new ReferenceField(field));
+                    }
+                }
+            }
+            return fields.toArray(new ReferenceField[0]);
+        }
+    };
+
+    private static final ClassValue<MethodHandle[]> INSTANCE_FIELDS = new ClassValue<MethodHandle[]>() {
+        @Override
+        protected MethodHandle[] computeValue(final Class<?> type) {
+            final List<MethodHandle> getters = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                for (final Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        getters.add(getter(field));
+                    }
+                }
+            }
+            return getters.toArray(new MethodHandle[0]);
+        }
+    };
+
+    private final ObjectTable table;
+    @Nullable
+    private final Set<String> projection;
+    @Nullable
+    private final Unmarshaller.Listener next;
+    private final Set<Object> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * New objects reached by validation, admitted if the document is valid.
+     */
+    private final List<Object> candidates = new ArrayList<>();
+    @Nullable
+    private Object root;
+    /**
+     * Duplicates completed, by identity, to the objects of the table their parents refer to instead.
+     */
+    private final Map<Object, Object> duplicates = new IdentityHashMap<>();
+
+    /**
+     * @param projection fields the root is read and validated with, {@code null} for all
+     */
+    ObjectDeduplicatingListener(final ObjectTable table, @Nullable final Set<String> projection,
+                                @Nullable final Unmarshaller.Listener next) {
+        this.table = table;
+        this.projection = projection;
+        this.next = next;
+    }
+
+    @Override
+    public void beforeUnmarshal(final Object target, @Nullable final Object parent) {
+        if (FailFastListener.isRoot(parent)) {
+            this.root = target;
+            this.reachable.add(target);
+        } else if (parent != null && this.reachable.contains(parent) && FailFastListener.isCascaded(
+                parent.getClass(), target.getClass(), parent == this.root ? this.projection : null)) {
+            this.reachable.add(target);
+        }
+        if (this.next != null) {
+            this.next.beforeUnmarshal(target, parent);
+        }
+    }
+
+    @Override
+    public void afterUnmarshal(final Object target, @Nullable final Object parent) {
+        for (final ReferenceField field : KEYED_FIELDS.get(target.getClass())) {
+            field.replace(target, this.duplicates);
+        }
+        final boolean reached = this.reachable.remove(target);
+        if (!FailFastListener.isRoot(parent) && ObjectTable.isKeyed(target.getClass())) {
+            final Object entry = this.table.get(target);
+            final boolean duplicate = entry != null && hasEqualFields(target, entry);
+            this.table.recordLookup(duplicate);
+            if (duplicate) {
+                this.duplicates.put(target, entry);
+                return;
+            }
+            // an entry of other values is kept, the first object read stays shared
+            if (entry == null && reached) {
+                this.candidates.add(target);
+            }
+        }
+        if (this.next != null) {
+            this.next.afterUnmarshal(target, parent);
+        }
+    }
+
+    /**
+     * Admits the new objects of the document, once it has been validated.
+     */
+    void admitValidated() {
+        for (final Object candidate : this.candidates) {
+            this.table.put(candidate);
+        }
+        this.candidates.clear();
+    }
+
+    private static boolean hasEqualFields(final Object object, final Object other) {
+        try {
+            for (final MethodHandle getter : INSTANCE_FIELDS.get(object.getClass())) {
+                if (!Objects.equals((Object) getter.invokeExact(object), (Object) getter.invokeExact(other))) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            // field accessors do not throw checked exceptions
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * @return getter typed generically, so that each call is exact
+     */
+    private static MethodHandle getter(final Field field) {
+        try {
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException | RuntimeException ex) {
+            throw new IllegalStateException("Could not access " + field, ex);
+        }
+    }
+
+    private static final class ReferenceField {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        ReferenceField(final Field field) {
+            this.getter = getter(field);
+            try {
+                this.setter = MethodHandles.lookup().unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            } catch (IllegalAccessException | RuntimeException ex) {
+                throw new IllegalStateException("Could not access " + field, ex);
+            }
+        }
+
+        void replace(final Object target, final Map<Object, Object> duplicates) {
+            try {
+                final Object value = (Object) this.getter.invokeExact(target);
+                final Object canonical = value != null ? duplicates.remove(value) : null;
+                if (canonical != null) {
+                    this.setter.invokeExact(target, canonical);
+                }
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                // field accessors do not throw checked exceptions
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
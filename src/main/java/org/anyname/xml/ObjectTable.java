@@ -0,0 +1,187 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded table of canonical nested objects, which deserialization with
+ * {@link DeserializationOptions#withObjectTable(ObjectTable)} replaces objects of equal {@link CanonicalKey keys}
+ * and values with, so that a batch of products created by the same users holds a single instance of each user, unmarshalled and
+ * validated once. An object is admitted only once validated with the document it was read in, so that an invalid one
+ * is not shared with other objects, and objects of the table are not validated again.
+ * <p/>
+ * The same as {@link StringTable}, it is a cache with a slot for each hash, an object replaces an equal-hash one it
+ * collides with, so its memory stays bounded by the capacity whatever the number of distinct objects.
+ * <p/>
+ * Thread-safe: a table may be shared by threads deserializing the same batch, a race only costs a missed hit. Objects
+ * are published through the table safely, a thread reading one sees all fields set before it was admitted.
+ */
+public final class ObjectTable {
+
+    private static final KeyField NO_KEY = new KeyField(null);
+
+    private static final ClassValue<KeyField> KEY_FIELDS = new ClassValue<KeyField>() {
+        @Override
+        protected KeyField computeValue(final Class<?> type) {
+            Field key = null;
+            for (Class<?> current = type; current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                for (final Field field : current.getDeclaredFields()) {
+                    if (field.isAnnotationPresent(CanonicalKey.class)) {
+                        if (key != null || Modifier.isStatic(field.getModifiers())) {
+                            throw new IllegalStateException("@CanonicalKey must mark a single instance field of "
+                                    + type.getName() + ": " + field);
+                        }
+                        key = field;
+                    }
+                }
+            }
+            return key != null ? new KeyField(key) : NO_KEY;
+        }
+    };
+
+    private final AtomicReferenceArray<Object> entries;
+    private final int mask;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param capacity number of distinct objects held at most, rounded up to a power of two
+     */
+    public ObjectTable(final int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return whether objects of the type have a {@link CanonicalKey}
+     */
+    static boolean isKeyed(final Class<?> type) {
+        return KEY_FIELDS.get(type) != NO_KEY;
+    }
+
+    /**
+     * @return an object of the table of the same class and an equal key, {@code null} if there is none or the object
+     * has no key
+     */
+    @Nullable
+    Object get(final Object object) {
+        final Class<?> type = object.getClass();
+        final KeyField keyField = KEY_FIELDS.get(type);
+        final Object key = keyField.get(object);
+        if (key == null) {
+            return null;
+        }
+        final Object entry = this.entries.get(index(type, key));
+        return entry != null && entry.getClass() == type && key.equals(keyField.get(entry)) ? entry : null;
+    }
+
+    /**
+     * @return whether the object itself is one of the table, and so valid
+     */
+    boolean contains(final Object object) {
+        return get(object) == object;
+    }
+
+    /**
+     * Admits the object in place of an equal-hash one, unless it has no key.
+     */
+    void put(final Object object) {
+        final Class<?> type = object.getClass();
+        final Object key = KEY_FIELDS.get(type).get(object);
+        if (key != null) {
+            this.entries.set(index(type, key), object);
+        }
+    }
+
+    void recordLookup(final boolean hit) {
+        this.lookups.increment();
+        if (hit) {
+            this.hits.increment();
+        }
+    }
+
+    public int getCapacity() {
+        return this.entries.length();
+    }
+
+    /**
+     * @return number of nested objects with a key looked up
+     */
+    public long getLookups() {
+        return this.lookups.sum();
+    }
+
+    /**
+     * @return number of nested objects replaced with one of the table
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return share of hits in lookups, {@code 0} if there were no lookups
+     */
+    public double getHitRate() {
+        final long lookups = getLookups();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectTable{capacity=" + getCapacity() + ", lookups=" + getLookups() + ", hits=" + getHits() + '}';
+    }
+
+    private int index(final Class<?> type, final Object key) {
+        final int hash = 31 * type.hashCode() + key.hashCode();
+        return (hash ^ hash >>> 16) & this.mask;
+    }
+
+    private static final class KeyField {
+
+        @Nullable
+        private final MethodHandle getter;
+
+        KeyField(@Nullable final Field field) {
+            if (field == null) {
+                this.getter = null;
+                return;
+            }
+            try {
+                field.setAccessible(true);
+                // typed generically once, so that each call is exact
+                this.getter = MethodHandles.lookup().unreflectGetter(field)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (IllegalAccessException | RuntimeException ex) {
+                throw new IllegalStateException("Could not access " + field, ex);
+            }
+        }
+
+        @Nullable
+        Object get(final Object object) {
+            final MethodHandle getter = this.getter;
+            if (getter == null) {
+                return null;
+            }
+            try {
+                return (Object) getter.invokeExact(object);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                // field accessors do not throw checked exceptions
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
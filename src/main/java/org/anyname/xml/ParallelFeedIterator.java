@@ -0,0 +1,378 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.validation.ConstraintViolationException;
+import javax.xml.bind.DataBindingException;
+import javax.xml.bind.JAXBException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads {@link XMLObject}s of a feed file in parallel: the file is split into chunks, each memory-mapped and parsed by
+ * a task of the executor, which finds the records - elements of the type - by their tags and deserializes and
+ * validates each of them the same way as {@link XMLSerializer#deserialize(Class, java.io.InputStream)} does.
+ * A record belongs to the chunk its start tag starts in, the task reads past the chunk's end to complete it.
+ * <p/>
+ * Records are found by scanning bytes rather than by parsing the whole document, so a feed has to be encoded in
+ * UTF-8, records must not contain elements of the same name nor be namespace-prefixed, and the record's start tag
+ * must not appear in comments or CDATA sections. Namespaces declared by enclosing elements are not seen by records.
+ * <p/>
+ * Objects of at most two chunks per thread of the executor are held at a time, the next chunks are submitted as the
+ * consumer takes the objects of a completed one. Failures are rethrown when the consumer gets to the chunk they
+ * happened in: reading failures as {@link DataBindingException}, invalid objects as
+ * {@link ConstraintViolationException}, after which the iterator ends. With a {@link Quarantine}, invalid and
+ * unreadable records are passed to it when the consumer gets to their chunk instead, until its error budget is
+ * exceeded.
+ */
+final class ParallelFeedIterator<S extends XMLObject> implements Iterator<S>, Closeable {
+
+    /**
+     * Bytes mapped past the end of a chunk, so that its last record is usually completed without mapping again.
+     */
+    private static final int WINDOW_MARGIN = 64 * 1024;
+    private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([A-Za-z0-9._-]+)[\"']");
+
+    private final Class<S> objectClass;
+    private final XMLSerializer<S> serializer;
+    private final DeserializationOptions options;
+    private final FileChannel channel;
+    private final long size;
+    private final String elementName;
+    private final byte[] startTag;
+    private final byte[] endTag;
+    private final int chunkSize;
+    private final boolean ordered;
+    private final Executor executor;
+    private final int maxChunksInFlight;
+    @Nullable
+    private final Quarantine quarantine;
+    /**
+     * Tasks of the submitted chunks, in the order of the file.
+     */
+    private final List<CompletableFuture<Chunk<S>>> chunks = new ArrayList<>();
+
+    private long nextChunkStart;
+    private Iterator<S> current = Collections.emptyIterator();
+    private boolean finished;
+
+    ParallelFeedIterator(final Class<S> objectClass, final Path file, final XMLSerializer<S> serializer,
+                         final DeserializationOptions options, final IngestOptions ingestOptions,
+                         final Executor executor) throws IOException, JAXBException {
+        this.objectClass = objectClass;
+        this.serializer = serializer;
+        this.options = options;
+        final JAXBBinding binding = JAXBBinding.of(objectClass);
+        final Set<String> projection = options.getProjection();
+        if (projection != null) {
+            // a field the type does not have fails the ingest at once, not each of its records
+            binding.fields(projection);
+        }
+        this.elementName = binding.rootElementName();
+        this.startTag = ('<' + this.elementName).getBytes(StandardCharsets.UTF_8);
+        this.endTag = ("</" + this.elementName).getBytes(StandardCharsets.UTF_8);
+        this.chunkSize = ingestOptions.getChunkSize();
+        this.ordered = ingestOptions.isOrdered();
+        this.executor = executor;
+        this.quarantine = ingestOptions.getQuarantine();
+        final int parallelism = executor instanceof ForkJoinPool
+                ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        // a chunk in progress and one parsed ahead for each thread, so that threads do not wait for the consumer
+        this.maxChunksInFlight = 2 * parallelism;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.size = this.channel.size();
+            checkEncoding();
+        } catch (IOException | RuntimeException ex) {
+            this.channel.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean hasNext() throws DataBindingException, ConstraintViolationException {
+        while (!this.current.hasNext()) {
+            if (this.finished || this.chunks.isEmpty() && this.nextChunkStart >= this.size) {
+                return false;
+            }
+            submitChunks();
+            this.current = takeChunk().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public S next() throws DataBindingException, ConstraintViolationException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.current.next();
+    }
+
+    /**
+     * Cancels chunks not parsed yet and releases the file. Chunks being parsed are left to complete.
+     */
+    @Override
+    public void close() throws UncheckedIOException {
+        this.finished = true;
+        this.current = Collections.emptyIterator();
+        for (final CompletableFuture<Chunk<S>> chunk : this.chunks) {
+            chunk.cancel(false);
+        }
+        this.chunks.clear();
+        try {
+            this.channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void submitChunks() {
+        while (this.chunks.size() < this.maxChunksInFlight && this.nextChunkStart < this.size) {
+            final long start = this.nextChunkStart;
+            final long end = Math.min(this.size, start + this.chunkSize);
+            this.nextChunkStart = end;
+            this.chunks.add(CompletableFuture.supplyAsync(() -> parseChunk(start, end), this.executor));
+        }
+    }
+
+    private List<S> takeChunk() {
+        int index = 0;
+        if (!this.ordered) {
+            // the first completed one, waiting for any of them if none has completed yet
+            index = completedChunk();
+            if (index < 0) {
+                CompletableFuture.anyOf(this.chunks.toArray(new CompletableFuture<?>[0])).exceptionally(ex -> null)
+                        .join();
+                index = Math.max(0, completedChunk());
+            }
+        }
+        final CompletableFuture<Chunk<S>> chunk = this.chunks.remove(index);
+        try {
+            return quarantine(chunk.join());
+        } catch (CompletionException ex) {
+            close();
+            final Throwable cause = ex.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : ex;
+        } catch (RuntimeException ex) {
+            // the error budget exceeded, or a failure of the sink
+            close();
+            throw ex;
+        }
+    }
+
+    private List<S> quarantine(final Chunk<S> chunk) {
+        final Quarantine quarantine = this.quarantine;
+        if (quarantine != null) {
+            for (final QuarantinedRecord record : chunk.quarantined) {
+                quarantine.quarantine(record);
+            }
+            quarantine.ingested(chunk.objects.size());
+        }
+        return chunk.objects;
+    }
+
+    private int completedChunk() {
+        for (int i = 0; i < this.chunks.size(); i++) {
+            if (this.chunks.get(i).isDone()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Chunk<S> parseChunk(final long start, final long end) {
+        final Chunk<S> chunk = new Chunk<>();
+        try {
+            long windowStart = start;
+            ByteBuffer window = map(windowStart, end + WINDOW_MARGIN);
+            int position = 0;
+            while (true) {
+                final int recordStart = indexOfStartTag(window, position);
+                if (recordStart < 0 || windowStart + recordStart >= end) {
+                    return chunk;
+                }
+                final int recordEnd = recordEnd(window, recordStart);
+                if (recordEnd < 0) {
+                    // the record goes on past the window, which is mapped again from the record's start
+                    final long windowEnd = windowStart + window.limit();
+                    windowStart += recordStart;
+                    window = map(windowStart, windowStart + Math.max(2L * window.limit(), this.chunkSize));
+                    if (windowStart + window.limit() <= windowEnd) {
+                        throw new DataBindingException("Unclosed, or larger than 2 GiB, <" + this.elementName
+                                + "> at offset " + windowStart, null);
+                    }
+                    position = 0;
+                    continue;
+                }
+                final ByteBuffer record = window.duplicate();
+                record.limit(recordEnd).position(recordStart);
+                parseRecord(record, windowStart + recordStart, chunk);
+                position = recordEnd;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void parseRecord(final ByteBuffer record, final long offset, final Chunk<S> chunk) {
+        RuntimeException error;
+        try {
+            final S object = this.serializer.unmarshalAndValidate(new ByteBufferInputStream(record.duplicate()),
+                    this.objectClass, this.options);
+            if (object != null) {
+                chunk.objects.add(object);
+            }
+            return;
+        } catch (ConstraintViolationException ex) {
+            error = ex;
+        } catch (JAXBException | IllegalArgumentException ex) {
+            // values the binding fails to convert, e.g. a number attribute, are thrown as NumberFormatException or
+            // IllegalArgumentException, not as JAXBException
+            error = new DataBindingException("Could not read <" + this.elementName + "> at offset " + offset + ": "
+                    + ex.getMessage(), ex);
+        }
+        if (this.quarantine == null) {
+            throw error;
+        }
+        // copied, as the mapping of the chunk is not kept for the records of the sink
+        final byte[] xml = new byte[record.remaining()];
+        record.get(xml);
+        chunk.quarantined.add(new QuarantinedRecord(offset, xml, error));
+    }
+
+    /**
+     * Maps the file from the offset up to the end, to the file's end or to 2 GiB at most.
+     */
+    private ByteBuffer map(final long from, final long to) throws IOException {
+        final long length = Math.min(Math.min(to, this.size) - from, Integer.MAX_VALUE);
+        return this.channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+    }
+
+    /**
+     * @return index of the next start tag of a record, the tag name followed by whitespace, {@code >} or {@code /}
+     */
+    private int indexOfStartTag(final ByteBuffer buffer, final int from) {
+        final int last = buffer.limit() - this.startTag.length - 1;
+        for (int i = from; i <= last; i++) {
+            if (buffer.get(i) == '<' && matches(buffer, i, this.startTag)) {
+                final byte next = buffer.get(i + this.startTag.length);
+                if (isWhitespace(next) || next == '>' || next == '/') {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return index right after the end tag of the record, or after its start tag if it is empty, {@code -1} if the
+     * buffer ends before it
+     */
+    private int recordEnd(final ByteBuffer buffer, final int recordStart) {
+        final int limit = buffer.limit();
+        int i = recordStart + this.startTag.length;
+        // the start tag ends with the first '>' out of the attribute values
+        byte quote = 0;
+        for (; i < limit; i++) {
+            final byte b = buffer.get(i);
+            if (quote != 0) {
+                quote = b == quote ? 0 : quote;
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                break;
+            }
+        }
+        if (i >= limit) {
+            return -1;
+        }
+        if (buffer.get(i - 1) == '/') {
+            return i + 1;
+        }
+        for (i++; i <= limit - this.endTag.length; i++) {
+            if (buffer.get(i) == '<' && matches(buffer, i, this.endTag)) {
+                int j = i + this.endTag.length;
+                while (j < limit && isWhitespace(buffer.get(j))) {
+                    j++;
+                }
+                if (j < limit && buffer.get(j) == '>') {
+                    return j + 1;
+                }
+                if (j >= limit) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(final ByteBuffer buffer, final int index, final byte[] tag) {
+        for (int k = 1; k < tag.length; k++) {
+            if (buffer.get(index + k) != tag[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * Records are parsed without the XML declaration, as UTF-8, which is also right for ASCII feeds only.
+     */
+    private void checkEncoding() throws IOException {
+        final ByteBuffer prolog = map(0, 256);
+        final byte[] bytes = new byte[prolog.remaining()];
+        prolog.get(bytes);
+        if (bytes.length >= 2 && (bytes[0] == (byte) 0xFE && bytes[1] == (byte) 0xFF
+                || bytes[0] == (byte) 0xFF && bytes[1] == (byte) 0xFE)) {
+            throw new IOException("Feeds encoded in UTF-16 are not supported, only UTF-8");
+        }
+        final String declaration = new String(bytes, StandardCharsets.ISO_8859_1);
+        final int declarationEnd = declaration.indexOf("?>");
+        // the declaration may follow the UTF-8 byte order mark
+        if (!declaration.startsWith("<?xml") && !declaration.startsWith("\u00EF\u00BB\u00BF<?xml")
+                || declarationEnd < 0) {
+            return;
+        }
+        final Matcher encoding = ENCODING.matcher(declaration.substring(0, declarationEnd));
+        if (encoding.find()) {
+            final String name = encoding.group(1).toUpperCase(Locale.ROOT);
+            if (!"UTF-8".equals(name) && !"UTF8".equals(name) && !"US-ASCII".equals(name) && !"ASCII".equals(name)) {
+                throw new IOException("Feeds encoded in " + encoding.group(1) + " are not supported, only UTF-8");
+            }
+        }
+    }
+
+    /**
+     * Valid objects of a chunk, and its records to quarantine, in the order of the file.
+     */
+    private static final class Chunk<S> {
+
+        final List<S> objects = new ArrayList<>();
+        final List<QuarantinedRecord> quarantined = new ArrayList<>(0);
+    }
+}
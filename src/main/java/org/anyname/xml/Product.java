@@ -1,8 +1,7 @@
 package org.anyname.xml;
 
 import org.anyname.nullsafety.Nullable;
-import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
+import org.anyname.nullsafety.ToStringRenderer;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
@@ -19,7 +18,7 @@ public class Product implements XMLObject {
     private String productId;
 
     @XmlElement
-    private @Nullable String description;
+    private @Nullable LazyText description;
 
     @XmlElement
     private @Nullable String imageUrl;
@@ -38,14 +37,37 @@ public class Product implements XMLObject {
     public Product(String productId, @Nullable String description, @Nullable String imageUrl,
                    BigDecimal price, @Nullable User createdBy) {
         this.productId = productId;
-        this.description = description;
+        this.description = description != null ? LazyText.of(description) : null;
         this.imageUrl = imageUrl;
         this.price = price;
         this.createdBy = createdBy;
     }
 
+    public String getProductId() {
+        return productId;
+    }
+
+    @Nullable
+    public String getDescription() {
+        return description != null ? description.toString() : null;
+    }
+
+    @Nullable
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    @Nullable
+    public User getCreatedBy() {
+        return createdBy;
+    }
+
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+        return ToStringRenderer.render(this);
     }
 }
\ No newline at end of file
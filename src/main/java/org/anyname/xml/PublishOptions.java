@@ -0,0 +1,39 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.validation.ConstraintViolationException;
+import java.util.function.Consumer;
+
+/**
+ * Modes of publishing the objects of a document to a subscriber by {@link XMLPublisher}, on Java 9 of the
+ * multi-release jar. Immutable, each {@code with...} method returns a copy.
+ */
+public final class PublishOptions {
+
+    public static final PublishOptions DEFAULT = new PublishOptions(null);
+
+    @Nullable
+    private final Consumer<? super ConstraintViolationException> invalidObjectHandler;
+
+    private PublishOptions(@Nullable final Consumer<? super ConstraintViolationException> invalidObjectHandler) {
+        this.invalidObjectHandler = invalidObjectHandler;
+    }
+
+    /**
+     * By default an invalid object ends the stream, the subscriber gets its violations as the error. With a handler,
+     * violations of each invalid object are passed to the handler instead, in the thread publishing the objects, and
+     * the object is skipped without taking any of the subscriber's demand. Reading failures end the stream anyway.
+     *
+     * @param invalidObjectHandler {@code null} to end the stream at the first invalid object, the default
+     */
+    public PublishOptions withInvalidObjectHandler(
+            @Nullable final Consumer<? super ConstraintViolationException> invalidObjectHandler) {
+        return new PublishOptions(invalidObjectHandler);
+    }
+
+    @Nullable
+    public Consumer<? super ConstraintViolationException> getInvalidObjectHandler() {
+        return this.invalidObjectHandler;
+    }
+}
@@ -0,0 +1,89 @@
+package org.anyname.xml;
+
+import javax.validation.ConstraintViolationException;
+import javax.xml.bind.DataBindingException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Sink of the records an {@link XMLSerializer#ingest ingest} with {@link IngestOptions#withQuarantine(Quarantine)}
+ * skips rather than failing at: records which are invalid or can not be read. Each of them is passed to the sink as a
+ * {@link QuarantinedRecord}, with its XML, and counted, while the ingest goes on with the next one. A record beyond
+ * the error budget is not quarantined, the ingest ends with its error instead, as it would have without a quarantine,
+ * so that a broken feed is not read to its end.
+ * <p/>
+ * Records are passed to the sink in the thread consuming the stream, when it gets to the chunk they are in, in the
+ * order of the file for an ordered ingest. Chunks are parsed ahead meanwhile, so a slow sink holds back the stream
+ * but not the parsing. Records are found by their tags before they are parsed, a record without its end tag still
+ * ends the ingest.
+ * <p/>
+ * Thread-safe: counts are of all ingests the quarantine is given to, which may also run at the same time, calling the
+ * sink from their consuming threads.
+ */
+public final class Quarantine {
+
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final Consumer<? super QuarantinedRecord> sink;
+    private final long errorBudget;
+    private final AtomicLong ingested = new AtomicLong();
+    private final AtomicLong quarantined = new AtomicLong();
+
+    /**
+     * A quarantine of any number of records.
+     */
+    public Quarantine(final Consumer<? super QuarantinedRecord> sink) {
+        this(sink, UNLIMITED);
+    }
+
+    /**
+     * @param errorBudget number of records quarantined at most, the next one ends the ingest
+     */
+    public Quarantine(final Consumer<? super QuarantinedRecord> sink, final long errorBudget) {
+        if (errorBudget < 0) {
+            throw new IllegalArgumentException("Error budget must not be negative: " + errorBudget);
+        }
+        this.sink = sink;
+        this.errorBudget = errorBudget;
+    }
+
+    public long getErrorBudget() {
+        return this.errorBudget;
+    }
+
+    /**
+     * @return number of valid records ingested, of the chunks the stream has got to
+     */
+    public long getIngestedCount() {
+        return this.ingested.get();
+    }
+
+    /**
+     * @return number of records passed to the sink
+     */
+    public long getQuarantinedCount() {
+        return this.quarantined.get();
+    }
+
+    void ingested(final int records) {
+        this.ingested.addAndGet(records);
+    }
+
+    /**
+     * @throws ConstraintViolationException if the budget is exceeded by an invalid record
+     * @throws DataBindingException         if the budget is exceeded by a record which could not be read
+     */
+    void quarantine(final QuarantinedRecord record) throws ConstraintViolationException, DataBindingException {
+        if (this.quarantined.incrementAndGet() > this.errorBudget) {
+            this.quarantined.decrementAndGet();
+            final String message = "Error budget of " + this.errorBudget + " quarantined records exceeded at offset "
+                    + record.getOffset() + ": " + record.getError().getMessage();
+            final RuntimeException error = record.getError();
+            throw error instanceof ConstraintViolationException
+                    ? new ConstraintViolationException(message,
+                            ((ConstraintViolationException) error).getConstraintViolations())
+                    : new DataBindingException(message, error);
+        }
+        this.sink.accept(record);
+    }
+}
@@ -0,0 +1,64 @@
+package org.anyname.xml;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A record of a feed which could not be ingested, passed to the sink of a {@link Quarantine}: its XML as it is in the
+ * file, where it starts and why it was rejected, so that it can be fixed and ingested again on its own.
+ */
+public final class QuarantinedRecord {
+
+    private final long offset;
+    private final byte[] xml;
+    private final RuntimeException error;
+
+    QuarantinedRecord(final long offset, final byte[] xml, final RuntimeException error) {
+        this.offset = offset;
+        this.xml = xml;
+        this.error = error;
+    }
+
+    /**
+     * @return offset of the record's start tag in the file, in bytes
+     */
+    public long getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * @return UTF-8 bytes of the record, from its start tag to its end tag, a copy
+     */
+    public byte[] getXml() {
+        return this.xml.clone();
+    }
+
+    public String getXmlString() {
+        return new String(this.xml, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return {@link ConstraintViolationException} with the violations of an invalid record, or
+     * {@link javax.xml.bind.DataBindingException} if the record could not be read
+     */
+    public RuntimeException getError() {
+        return this.error;
+    }
+
+    /**
+     * @return violations of an invalid record, empty if the record could not be read
+     */
+    public Set<ConstraintViolation<?>> getViolations() {
+        return this.error instanceof ConstraintViolationException
+                ? Collections.unmodifiableSet(((ConstraintViolationException) this.error).getConstraintViolations())
+                : Collections.emptySet();
+    }
+
+    @Override
+    public String toString() {
+        return "QuarantinedRecord{offset=" + this.offset + ", error=" + this.error.getMessage() + "}";
+    }
+}
@@ -0,0 +1,202 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.validation.ConstraintViolationException;
+import javax.xml.bind.JAXBException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the objects of a document to a single subscriber as it requests them, the way a
+ * {@code java.util.concurrent.Flow.Subscription} does, which {@link FlowPublisher} adapts it to on Java 9. Objects are
+ * read one by one by an {@link XMLObjectIterator} in a task of the executor, only while there is demand: with none the
+ * task ends and the reader stays where it is, so whatever the size of the document, the memory held is that of the
+ * reader's buffer and of a single object. Signals to the subscriber are never concurrent, and a request from within
+ * {@code onNext} only adds to the demand of the running task.
+ * <p/>
+ * The input stream is closed once the stream of objects completes, fails or is cancelled.
+ */
+final class RecordSubscription<S extends XMLObject> {
+
+    /**
+     * Receiver of the signals, a {@code Flow.Subscriber} on Java 9.
+     */
+    interface Subscriber<S> {
+
+        void onNext(S object);
+
+        void onError(Throwable failure);
+
+        void onComplete();
+    }
+
+    private final Class<S> objectClass;
+    private final InputStream inputStream;
+    private final XMLSerializer<S> serializer;
+    private final DeserializationOptions options;
+    @Nullable
+    private final Consumer<? super ConstraintViolationException> invalidObjectHandler;
+    private final Executor executor;
+    private final Subscriber<? super S> subscriber;
+
+    private final AtomicLong requested = new AtomicLong();
+    /**
+     * Number of times the task has been asked to run, it runs until it sees it has caught up with all of them.
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean cancelled;
+    @Nullable
+    private volatile Throwable invalidRequest;
+
+    // confined to the running task
+    @Nullable
+    private XMLObjectIterator<S> iterator;
+    private boolean done;
+
+    RecordSubscription(final Class<S> objectClass, final InputStream inputStream, final XMLSerializer<S> serializer,
+                       final DeserializationOptions options, final PublishOptions publishOptions,
+                       final Executor executor, final Subscriber<? super S> subscriber) {
+        this.objectClass = objectClass;
+        this.inputStream = inputStream;
+        this.serializer = serializer;
+        this.options = options;
+        this.invalidObjectHandler = publishOptions.getInvalidObjectHandler();
+        this.executor = executor;
+        this.subscriber = subscriber;
+    }
+
+    /**
+     * Adds to the demand, up to {@link Long#MAX_VALUE} which stands for an unbounded one. A request which is not
+     * positive ends the stream with {@link IllegalArgumentException}.
+     */
+    void request(final long count) {
+        if (count <= 0) {
+            this.invalidRequest = new IllegalArgumentException("Number of requested objects must be positive: "
+                    + count);
+        } else {
+            this.requested.getAndUpdate(current -> current + count < 0 ? Long.MAX_VALUE : current + count);
+        }
+        schedule();
+    }
+
+    /**
+     * Stops publishing, the subscriber may still get signals already under way.
+     */
+    void cancel() {
+        this.cancelled = true;
+        // released by the task, which may be reading at the moment
+        schedule();
+    }
+
+    private void schedule() {
+        if (this.pending.getAndIncrement() == 0) {
+            try {
+                this.executor.execute(this::publish);
+            } catch (RejectedExecutionException ex) {
+                // the count is left as it is, so that no task is ever run concurrently with the failure signal
+                fail(ex);
+            }
+        }
+    }
+
+    private void publish() {
+        int missed = 1;
+        do {
+            publishRequested();
+            missed = this.pending.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void publishRequested() {
+        while (!this.done) {
+            final Throwable invalidRequest = this.invalidRequest;
+            if (this.cancelled) {
+                this.done = true;
+                release();
+                return;
+            }
+            if (invalidRequest != null) {
+                fail(invalidRequest);
+                return;
+            }
+            if (this.requested.get() == 0) {
+                return;
+            }
+            final S object;
+            try {
+                final XMLObjectIterator<S> iterator = iterator();
+                if (!iterator.hasNext()) {
+                    this.done = true;
+                    release();
+                    this.subscriber.onComplete();
+                    return;
+                }
+                object = iterator.next();
+            } catch (ConstraintViolationException ex) {
+                if (this.invalidObjectHandler == null) {
+                    fail(ex);
+                    return;
+                }
+                try {
+                    this.invalidObjectHandler.accept(ex);
+                } catch (RuntimeException handlerFailure) {
+                    fail(handlerFailure);
+                    return;
+                }
+                continue;
+            } catch (JAXBException | RuntimeException ex) {
+                fail(ex);
+                return;
+            }
+            if (this.requested.get() != Long.MAX_VALUE) {
+                this.requested.decrementAndGet();
+            }
+            try {
+                this.subscriber.onNext(object);
+            } catch (RuntimeException | Error ex) {
+                // a subscriber may not throw, it is treated as cancelled
+                this.done = true;
+                release();
+                throw ex;
+            }
+        }
+    }
+
+    private XMLObjectIterator<S> iterator() throws JAXBException {
+        XMLObjectIterator<S> iterator = this.iterator;
+        if (iterator == null) {
+            // opened by the task rather than on subscription, so that a failure is signalled as any other
+            iterator = new XMLObjectIterator<>(this.objectClass, this.inputStream, this.serializer, this.options);
+            this.iterator = iterator;
+        }
+        return iterator;
+    }
+
+    private void fail(final Throwable failure) {
+        this.done = true;
+        release();
+        this.subscriber.onError(failure);
+    }
+
+    private void release() {
+        try {
+            if (this.iterator != null) {
+                this.iterator.close();
+            }
+        } catch (RuntimeException ex) {
+            // the stream is closed anyway
+        } finally {
+            try {
+                this.inputStream.close();
+            } catch (IOException ex) {
+                // nothing to be done, the objects have been read
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.anyname.xml;
+
+/**
+ * Output modes of {@link XMLSerializer} serialization. Immutable, each {@code with...} method returns a copy.
+ */
+public final class SerializationOptions {
+
+    public static final SerializationOptions DEFAULT = new SerializationOptions(true, 1000);
+
+    private final boolean formattedOutput;
+    private final int flushInterval;
+
+    private SerializationOptions(final boolean formattedOutput, final int flushInterval) {
+        this.formattedOutput = formattedOutput;
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Formatted output is indented with line breaks, compact output has no whitespace between elements and is
+     * meant for machines, e.g. responses. The default is formatted.
+     */
+    public SerializationOptions withFormattedOutput(final boolean formattedOutput) {
+        return new SerializationOptions(formattedOutput, this.flushInterval);
+    }
+
+    public boolean isFormattedOutput() {
+        return this.formattedOutput;
+    }
+
+    /**
+     * {@link XMLSerializer#serializeAll Serializing many objects} flushes the output stream after each this many
+     * objects, so that e.g. a client receives an export as it is written, rather than each time a buffer fills up.
+     * Fewer flushes mean fewer, larger writes. The default is 1000.
+     *
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public SerializationOptions withFlushInterval(final int flushInterval) {
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive: " + flushInterval);
+        }
+        return new SerializationOptions(this.formattedOutput, flushInterval);
+    }
+
+    public int getFlushInterval() {
+        return this.flushInterval;
+    }
+}
@@ -0,0 +1,265 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads and writes an {@link XMLObject} type with plain StAX calls instead of the reflective JAXB binding. Codecs are
+ * generated at build time by {@link org.anyname.nullsafety.processor.StaxCodecProcessor} for types whose JAXB mapping
+ * they can reproduce exactly, other types are bound by JAXB. Lookup is done once per class and cached.
+ * <p/>
+ * A codec reads and writes the attributes and child elements of the type's element, the caller reads or writes the
+ * element itself, so that the same code serves roots and nested objects. Values are converted the way JAXB converts
+ * them: numbers are trimmed, a number of an element which does not parse is ignored, one of an attribute is thrown.
+ * <p/>
+ * Fields to read are given as a bit set, bit {@code i} for the field {@code i} of {@link #fieldNames()}, so that
+ * a projection skips the attributes and subtrees of the others. Nested objects are read whole.
+ */
+abstract class StaxCodec<S> {
+
+    /**
+     * Suffix appended to the name of a bound type (nested types joined with '_') to name its generated codec.
+     */
+    static final String CODEC_SUFFIX = "_StaxCodec";
+    /**
+     * Bit set of all fields of any codec, which has 64 fields at most.
+     */
+    static final long ALL_FIELDS = -1L;
+
+    private static final StaxCodec<Object> NO_CODEC = new StaxCodec<Object>() {
+        @Override
+        Object newInstance() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        boolean read(final Object object, final XMLStreamReader reader, @Nullable final Unmarshaller.Listener listener,
+                     final long fields) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        void write(final Object object, final XMLStreamWriter writer) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private static final ClassValue<StaxCodec<?>> CODECS = new ClassValue<StaxCodec<?>>() {
+        @Override
+        protected StaxCodec<?> computeValue(final Class<?> type) {
+            return load(type);
+        }
+    };
+
+    private final List<String> fieldNames;
+
+    StaxCodec(final String... fieldNames) {
+        this.fieldNames = Collections.unmodifiableList(Arrays.asList(fieldNames));
+    }
+
+    /**
+     * @return codec of exactly the given type, or {@code null} if there is none and JAXB has to be used
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static <S> StaxCodec<S> find(final Class<S> type) {
+        final StaxCodec<?> codec = CODECS.get(type);
+        return codec == NO_CODEC ? null : (StaxCodec<S>) codec;
+    }
+
+    abstract S newInstance();
+
+    /**
+     * @return names of the bound fields, in the order of their bits
+     */
+    final List<String> fieldNames() {
+        return this.fieldNames;
+    }
+
+    /**
+     * Reads the attributes and child elements of the element the reader is positioned at into the object, leaving
+     * the reader at the element's end. Objects of nested elements are passed to the listener the way JAXB passes them.
+     *
+     * @param fields bit set of the fields to read, the others are skipped
+     * @return whether the object is known to be valid: each {@code @NotNull} field read of it and of its
+     * {@code @Valid} nested objects has been found, and none of them has other constraints. Validation can be skipped
+     * then, otherwise it decides.
+     */
+    abstract boolean read(S object, XMLStreamReader reader, @Nullable Unmarshaller.Listener listener, long fields)
+            throws XMLStreamException;
+
+    /**
+     * Writes the attributes and child elements of the object into the element the writer has just started.
+     */
+    abstract void write(S object, XMLStreamWriter writer) throws XMLStreamException;
+
+    static boolean isUnqualified(@Nullable final String namespaceURI) {
+        return namespaceURI == null || namespaceURI.isEmpty();
+    }
+
+    /**
+     * Reads the text of the element the reader is positioned at, leaving the reader at the element's end. As JAXB,
+     * drops text preceding a child element and the child element itself.
+     */
+    static String readText(final XMLStreamReader reader) throws XMLStreamException {
+        String text = "";
+        StringBuilder builder = null;
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    // usually a single event, which needs no builder
+                    if (text.isEmpty()) {
+                        text = reader.getText();
+                    } else {
+                        if (builder == null) {
+                            builder = new StringBuilder(text);
+                        }
+                        builder.append(reader.getText());
+                    }
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    skipElement(reader);
+                    text = "";
+                    builder = null;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return builder != null ? builder.toString() : text;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Skips the element the reader is positioned at, leaving the reader at the element's end.
+     */
+    static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    static long parseLong(final String text) throws NumberFormatException {
+        return Long.parseLong(trim(text));
+    }
+
+    static int parseInt(final String text) throws NumberFormatException {
+        return Integer.parseInt(trim(text));
+    }
+
+    /**
+     * @return {@code null} for a blank text, which JAXB reads as no decimal rather than an invalid one
+     */
+    @Nullable
+    static BigDecimal parseDecimal(final String text) throws NumberFormatException {
+        final String trimmed = trim(text);
+        return trimmed.isEmpty() ? null : new BigDecimal(trimmed);
+    }
+
+    private static String trim(final String text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return start == 0 && end == text.length() ? text : text.substring(start, end);
+    }
+
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * @return setter of a field the codec can not assign directly, typed generically once, so that each call is exact
+     */
+    static MethodHandle setter(final Class<?> type, final String fieldName) {
+        try {
+            final Field field = type.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            throw new IllegalStateException("Could not access " + type.getName() + "." + fieldName, ex);
+        }
+    }
+
+    /**
+     * @return getter of a field the codec can not read directly, typed generically once, so that each call is exact
+     */
+    static MethodHandle getter(final Class<?> type, final String fieldName) {
+        try {
+            final Field field = type.getDeclaredField(fieldName);
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            throw new IllegalStateException("Could not access " + type.getName() + "." + fieldName, ex);
+        }
+    }
+
+    static void set(final MethodHandle setter, final Object object, @Nullable final Object value) {
+        try {
+            setter.invokeExact(object, value);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            // field accessors do not throw checked exceptions
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Nullable
+    static Object get(final MethodHandle getter, final Object object) {
+        try {
+            return (Object) getter.invokeExact(object);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    static String codecName(final Class<?> type) {
+        final String name = type.getName();
+        final int packageEnd = name.lastIndexOf('.');
+        return name.substring(0, packageEnd + 1) + name.substring(packageEnd + 1).replace('$', '_') + CODEC_SUFFIX;
+    }
+
+    private static StaxCodec<?> load(final Class<?> type) {
+        final ClassLoader classLoader = type.getClassLoader();
+        if (!XMLObject.class.isAssignableFrom(type) || classLoader == null) {
+            return NO_CODEC;
+        }
+        try {
+            final Class<?> codecClass = Class.forName(codecName(type), true, classLoader);
+            return (StaxCodec<?>) codecClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError ex) {
+            return NO_CODEC;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.xml.bind.Unmarshaller;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces values of the {@code String} fields of each object JAXB completes with their
+ * {@link StringTable#canonicalize canonical} copies, before passing the object on to the next listener. Working on
+ * the unmarshalled objects rather than the bound properties, it needs no adapters declared on the model and applies to
+ * types of any package.
+ * <p/>
+ * Fields are looked up once per class and compiled into {@link MethodHandle} getters and setters.
+ */
+final class StringDeduplicatingListener extends Unmarshaller.Listener {
+
+    private static final ClassValue<StringField[]> STRING_FIELDS = new ClassValue<StringField[]>() {
+        @Override
+        protected StringField[] computeValue(final Class<?> type) {
+            final List<StringField> fields = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                for (final Field field : current.getDeclaredFields()) {
+                    final int modifiers = field.getModifiers();
+                    if (field.getType() == String.class && !Modifier.isStatic(modifiers)
+                            && !Modifier.isFinal(modifiers)) {
+                        fields.add(new StringField(field));
+                    }
+                }
+            }
+            return fields.toArray(new StringField[0]);
+        }
+    };
+
+    private final StringTable table;
+    @Nullable
+    private final Unmarshaller.Listener next;
+
+    StringDeduplicatingListener(final StringTable table, @Nullable final Unmarshaller.Listener next) {
+        this.table = table;
+        this.next = next;
+    }
+
+    @Override
+    public void beforeUnmarshal(final Object target, @Nullable final Object parent) {
+        if (this.next != null) {
+            this.next.beforeUnmarshal(target, parent);
+        }
+    }
+
+    @Override
+    public void afterUnmarshal(final Object target, @Nullable final Object parent) {
+        for (final StringField field : STRING_FIELDS.get(target.getClass())) {
+            field.canonicalize(target, this.table);
+        }
+        if (this.next != null) {
+            this.next.afterUnmarshal(target, parent);
+        }
+    }
+
+    private static final class StringField {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        StringField(final Field field) {
+            try {
+                field.setAccessible(true);
+                // typed generically once, so that each call is exact
+                this.getter = MethodHandles.lookup().unreflectGetter(field)
+                        .asType(MethodType.methodType(String.class, Object.class));
+                this.setter = MethodHandles.lookup().unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, String.class));
+            } catch (IllegalAccessException | RuntimeException ex) {
+                throw new IllegalStateException("Could not access " + field, ex);
+            }
+        }
+
+        void canonicalize(final Object target, final StringTable table) {
+            try {
+                final String value = (String) this.getter.invokeExact(target);
+                if (value != null) {
+                    final String canonical = table.canonicalize(value);
+                    if (canonical != value) {
+                        this.setter.invokeExact(target, canonical);
+                    }
+                }
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                // field accessors do not throw checked exceptions
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
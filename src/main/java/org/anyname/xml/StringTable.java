@@ -0,0 +1,109 @@
+package org.anyname.xml;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded table of canonical strings, which deserialization with
+ * {@link DeserializationOptions#withStringTable(StringTable)} replaces equal values with, so that a batch of objects
+ * repeating the same names, e-mails or URLs holds a single copy of each of them. Values which are not repeated are
+ * garbage collected with the table once the batch is deserialized.
+ * <p/>
+ * The table is a cache with a slot for each hash, a value replaces an equal-hash one it collides with, so its memory
+ * stays bounded by the capacity whatever the number of distinct values. Strings longer than the maximum length are
+ * not looked up, as long text is rarely repeated and costly to compare.
+ * <p/>
+ * Thread-safe: a table may be shared by threads deserializing the same batch, a race only costs a missed hit.
+ */
+public final class StringTable {
+
+    public static final int DEFAULT_MAX_LENGTH = 128;
+
+    private final String[] entries;
+    private final int mask;
+    private final int maxLength;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder savedChars = new LongAdder();
+
+    /**
+     * @param capacity number of distinct strings held at most, rounded up to a power of two
+     */
+    public StringTable(final int capacity) {
+        this(capacity, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity number of distinct strings held at most, rounded up to a power of two
+     * @param maxLength length of the longest string looked up
+     */
+    public StringTable(final int capacity, final int maxLength) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.entries = new String[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @return an equal string held by the table, or the given one, held from now on in place of a colliding one
+     */
+    public String canonicalize(final String value) {
+        if (value.length() > this.maxLength) {
+            return value;
+        }
+        this.lookups.increment();
+        final int hash = value.hashCode();
+        // spreads the higher bits, as those of short strings' hashes differ in the lower ones mostly
+        final int index = (hash ^ hash >>> 16) & this.mask;
+        final String entry = this.entries[index];
+        if (entry != null && (entry == value || entry.hashCode() == hash && entry.equals(value))) {
+            this.hits.increment();
+            this.savedChars.add(value.length());
+            return entry;
+        }
+        this.entries[index] = value;
+        return value;
+    }
+
+    public int getCapacity() {
+        return this.entries.length;
+    }
+
+    /**
+     * @return number of strings looked up, the longer than maximum length ones not included
+     */
+    public long getLookups() {
+        return this.lookups.sum();
+    }
+
+    /**
+     * @return number of strings replaced with an equal one of the table
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return share of hits in lookups, {@code 0} if there were no lookups
+     */
+    public double getHitRate() {
+        final long lookups = getLookups();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    /**
+     * @return total length of the strings replaced, a lower bound of memory saved, which is two bytes per char plus
+     * the headers of a {@code String} and of its array
+     */
+    public long getSavedChars() {
+        return this.savedChars.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "StringTable{capacity=" + getCapacity() + ", lookups=" + getLookups() + ", hits=" + getHits()
+                + ", savedChars=" + getSavedChars() + '}';
+    }
+}
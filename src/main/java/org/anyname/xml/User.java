@@ -1,8 +1,7 @@
 package org.anyname.xml;
 
 import org.anyname.nullsafety.Nullable;
-import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.apache.commons.lang3.builder.ToStringStyle;
+import org.anyname.nullsafety.ToStringRenderer;
 
 import javax.validation.constraints.NotNull;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -13,6 +12,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 public class User implements XMLObject {
 
     @NotNull
+    @CanonicalKey
     @XmlAttribute
     private Long id;
 
@@ -26,7 +26,7 @@ public class User implements XMLObject {
     public User() {
     } // for jaxb
 
-    public User(Long id, String name, String email) {
+    public User(Long id, String name, @Nullable String email) {
         this.id = id;
         this.name = name;
         this.email = email;
@@ -47,6 +47,6 @@ public class User implements XMLObject {
 
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+        return ToStringRenderer.render(this);
     }
 }
\ No newline at end of file
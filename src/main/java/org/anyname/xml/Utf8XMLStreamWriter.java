@@ -0,0 +1,380 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes UTF-8 encoded XML the way the JAXB reference implementation's own writer does, so that documents written by
+ * generated {@link StaxCodec}s are byte for byte those of JAXB marshallers: the same declaration, {@code &}, {@code <},
+ * {@code >} and carriage returns escaped everywhere, quotes, tabs and line feeds in attribute values too, and elements
+ * without content closed by {@code />}. The writers of {@link javax.xml.stream.XMLOutputFactory} escape less, which
+ * loses carriage returns and attribute whitespace on the way back.
+ * <p/>
+ * Only unqualified elements and attributes are supported, which is all codecs write. Bytes are buffered until the
+ * writer is flushed or closed, closing it does not close the stream.
+ */
+final class Utf8XMLStreamWriter implements XMLStreamWriter {
+
+    private static final byte[] DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+            .getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Longest bytes a single char is written as, an escape.
+     */
+    private static final int MAX_CHAR_BYTES = 6;
+    /**
+     * As JAXB's writer, small enough to be allocated for each document, which is written to the stream in pieces.
+     */
+    private static final int BUFFER_SIZE = 1024;
+    private static final boolean[] ESCAPED_IN_TEXT = escaped("&<>\r");
+    private static final boolean[] ESCAPED_IN_ATTRIBUTES = escaped("&<>\r\"\t\n");
+
+    private final OutputStream outputStream;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private String[] elements = new String[16];
+    private int depth;
+    private boolean startTagOpen;
+
+    Utf8XMLStreamWriter(final OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    public void writeStartDocument() throws XMLStreamException {
+        writeRaw(DECLARATION);
+    }
+
+    @Override
+    public void writeStartDocument(final String version) throws XMLStreamException {
+        writeStartDocument();
+    }
+
+    @Override
+    public void writeStartDocument(final String encoding, final String version) throws XMLStreamException {
+        if (!"UTF-8".equalsIgnoreCase(encoding)) {
+            throw new XMLStreamException("Only UTF-8 is written, not " + encoding);
+        }
+        writeStartDocument();
+    }
+
+    @Override
+    public void writeStartElement(final String localName) throws XMLStreamException {
+        closeStartTag();
+        if (this.depth == this.elements.length) {
+            this.elements = Arrays.copyOf(this.elements, this.depth * 2);
+        }
+        this.elements[this.depth++] = localName;
+        writeAscii('<');
+        writeName(localName);
+        this.startTagOpen = true;
+    }
+
+    @Override
+    public void writeAttribute(final String localName, final String value) throws XMLStreamException {
+        if (!this.startTagOpen) {
+            throw new XMLStreamException("Attribute " + localName + " written out of a start tag");
+        }
+        writeAscii(' ');
+        writeName(localName);
+        writeAscii('=');
+        writeAscii('"');
+        writeEscaped(value, true);
+        writeAscii('"');
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        if (this.depth == 0) {
+            throw new XMLStreamException("No element to end");
+        }
+        final String localName = this.elements[--this.depth];
+        if (this.startTagOpen) {
+            this.startTagOpen = false;
+            writeAscii('/');
+            writeAscii('>');
+        } else {
+            writeAscii('<');
+            writeAscii('/');
+            writeName(localName);
+            writeAscii('>');
+        }
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        while (this.depth > 0) {
+            writeEndElement();
+        }
+    }
+
+    @Override
+    public void writeCharacters(final String text) throws XMLStreamException {
+        closeStartTag();
+        writeEscaped(text, false);
+    }
+
+    @Override
+    public void writeCharacters(final char[] text, final int start, final int len) throws XMLStreamException {
+        closeStartTag();
+        writeEscaped(new String(text, start, len), false);
+    }
+
+    @Override
+    public void writeComment(final String data) throws XMLStreamException {
+        throw new UnsupportedOperationException("Comments are not written");
+    }
+
+    @Override
+    public void writeCData(final String data) throws XMLStreamException {
+        // as the text it is, escaped rather than in a section
+        writeCharacters(data);
+    }
+
+    @Override
+    public void flush() throws XMLStreamException {
+        try {
+            flushBuffer();
+            this.outputStream.flush();
+        } catch (IOException ex) {
+            throw new XMLStreamException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        try {
+            flushBuffer();
+        } catch (IOException ex) {
+            throw new XMLStreamException(ex);
+        }
+    }
+
+    @Override
+    public void writeStartElement(final String namespaceURI, final String localName) throws XMLStreamException {
+        throw unqualifiedOnly();
+    }
+
+    @Override
+    public void writeStartElement(final String prefix, final String localName, final String namespaceURI)
+            throws XMLStreamException {
+        throw unqualifiedOnly();
+    }
+
+    @Override
+    public void writeEmptyElement(final String namespaceURI, final String localName) throws XMLStreamException {
+        throw unqualifiedOnly();
+    }
+
+    @Override
+    public void writeEmptyElement(final String prefix, final String localName, final String namespaceURI)
+            throws XMLStreamException {
+        throw unqualifiedOnly();
+    }
+
+    @Override
+    public void writeEmptyElement(final String localName) throws XMLStreamException {
+        writeStartElement(localName);
+        writeEndElement();
+    }
+
+    @Override
+    public void writeAttribute(final String prefix, final String namespaceURI, final String localName,
+                               final String value) throws XMLStreamException {
+        throw unqualifiedOnly();
+    }
+
+    @Override
+    public void writeAttribute(final String namespaceURI, final String localName, final String value)
+            throws XMLStreamException {
+        throw unqualifiedOnly();
+    }
+
+    @Override
+    public void writeNamespace(final String prefix, final String namespaceURI) throws XMLStreamException {
+        throw unqualifiedOnly();
+    }
+
+    @Override
+    public void writeDefaultNamespace(final String namespaceURI) throws XMLStreamException {
+        throw unqualifiedOnly();
+    }
+
+    @Override
+    public void writeProcessingInstruction(final String target) throws XMLStreamException {
+        throw new UnsupportedOperationException("Processing instructions are not written");
+    }
+
+    @Override
+    public void writeProcessingInstruction(final String target, final String data) throws XMLStreamException {
+        throw new UnsupportedOperationException("Processing instructions are not written");
+    }
+
+    @Override
+    public void writeDTD(final String dtd) throws XMLStreamException {
+        throw new UnsupportedOperationException("DTDs are not written");
+    }
+
+    @Override
+    public void writeEntityRef(final String name) throws XMLStreamException {
+        throw new UnsupportedOperationException("Entity references are not written");
+    }
+
+    @Nullable
+    @Override
+    public String getPrefix(final String uri) {
+        return null;
+    }
+
+    @Override
+    public void setPrefix(final String prefix, final String uri) {
+        throw unqualifiedOnly();
+    }
+
+    @Override
+    public void setDefaultNamespace(final String uri) {
+        throw unqualifiedOnly();
+    }
+
+    @Override
+    public void setNamespaceContext(final NamespaceContext context) {
+        throw unqualifiedOnly();
+    }
+
+    @Nullable
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(final String name) {
+        throw new IllegalArgumentException("Unsupported property " + name);
+    }
+
+    private static UnsupportedOperationException unqualifiedOnly() {
+        return new UnsupportedOperationException("Only unqualified elements and attributes are written");
+    }
+
+    private void closeStartTag() throws XMLStreamException {
+        if (this.startTagOpen) {
+            this.startTagOpen = false;
+            writeAscii('>');
+        }
+    }
+
+    /**
+     * Names come from the binding and can not hold characters to escape, they only need to be encoded.
+     */
+    private void writeName(final String name) throws XMLStreamException {
+        writeEscaped(name, false);
+    }
+
+    private void writeEscaped(final String text, final boolean attribute) throws XMLStreamException {
+        final boolean[] escaped = attribute ? ESCAPED_IN_ATTRIBUTES : ESCAPED_IN_TEXT;
+        final int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (this.position > this.buffer.length - MAX_CHAR_BYTES) {
+                flushBufferUnchecked();
+            }
+            // as many chars as surely fit, so that the loop does not check the space left for each of them
+            final int end = Math.min(length, i + (this.buffer.length - this.position) / MAX_CHAR_BYTES);
+            while (i < end) {
+                final char c = text.charAt(i++);
+                if (c < 0x80) {
+                    if (escaped[c]) {
+                        putAscii(escape(c));
+                    } else {
+                        this.buffer[this.position++] = (byte) c;
+                    }
+                } else if (c < 0x800) {
+                    this.buffer[this.position++] = (byte) (0xC0 | c >> 6);
+                    this.buffer[this.position++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i < length && Character.isLowSurrogate(text.charAt(i))) {
+                    final int codePoint = Character.toCodePoint(c, text.charAt(i++));
+                    this.buffer[this.position++] = (byte) (0xF0 | codePoint >> 18);
+                    this.buffer[this.position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    this.buffer[this.position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    this.buffer[this.position++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    // unpaired, replaced as String.getBytes replaces it
+                    this.buffer[this.position++] = (byte) '?';
+                } else {
+                    this.buffer[this.position++] = (byte) (0xE0 | c >> 12);
+                    this.buffer[this.position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    this.buffer[this.position++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+    }
+
+    private static String escape(final char c) {
+        switch (c) {
+            case '&':
+                return "&amp;";
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '\r':
+                return "&#xD;";
+            case '"':
+                return "&quot;";
+            case '\t':
+                return "&#x9;";
+            default:
+                return "&#xA;";
+        }
+    }
+
+    private static boolean[] escaped(final String chars) {
+        final boolean[] escaped = new boolean[0x80];
+        for (int i = 0; i < chars.length(); i++) {
+            escaped[chars.charAt(i)] = true;
+        }
+        return escaped;
+    }
+
+    private void putAscii(final String escape) {
+        for (int i = 0; i < escape.length(); i++) {
+            this.buffer[this.position++] = (byte) escape.charAt(i);
+        }
+    }
+
+    private void writeAscii(final char c) throws XMLStreamException {
+        if (this.position == this.buffer.length) {
+            flushBufferUnchecked();
+        }
+        this.buffer[this.position++] = (byte) c;
+    }
+
+    private void writeRaw(final byte[] bytes) throws XMLStreamException {
+        if (this.position > this.buffer.length - bytes.length) {
+            flushBufferUnchecked();
+        }
+        System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+        this.position += bytes.length;
+    }
+
+    private void flushBufferUnchecked() throws XMLStreamException {
+        try {
+            flushBuffer();
+        } catch (IOException ex) {
+            throw new XMLStreamException(ex);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (this.position > 0) {
+            this.outputStream.write(this.buffer, 0, this.position);
+            this.position = 0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.anyname.xml;
+
+import javax.validation.ConstraintViolation;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Result of validating a batch of objects, violations are reported per index of the object in the batch.
+ *
+ * @see XMLSerializer#validateAll(java.util.List)
+ */
+public final class ValidationReport<T> {
+
+    private final int size;
+    private final SortedMap<Integer, Set<ConstraintViolation<T>>> violations;
+
+    ValidationReport(final int size, final Map<Integer, Set<ConstraintViolation<T>>> violations) {
+        this.size = size;
+        this.violations = Collections.unmodifiableSortedMap(new TreeMap<>(violations));
+    }
+
+    /**
+     * @return number of validated objects
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isValid() {
+        return this.violations.isEmpty();
+    }
+
+    /**
+     * @return number of objects with at least one violation
+     */
+    public int invalidCount() {
+        return this.violations.size();
+    }
+
+    /**
+     * @return violations of the object at the given index, empty if it is valid
+     */
+    public Set<ConstraintViolation<T>> getViolations(final int index) {
+        final Set<ConstraintViolation<T>> indexViolations = this.violations.get(index);
+        return indexViolations != null ? indexViolations : Collections.emptySet();
+    }
+
+    /**
+     * @return violations of invalid objects only, by their index in ascending order
+     */
+    public SortedMap<Integer, Set<ConstraintViolation<T>>> getViolations() {
+        return this.violations;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationReport{size=" + this.size + ", invalid=" + this.violations.keySet() + "}";
+    }
+}
@@ -0,0 +1,21 @@
+package org.anyname.xml;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Virtual threads are available since Java 21, which has its own version of this class in the multi-release jar.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        return false;
+    }
+
+    static ExecutorService newExecutor(final String namePrefix, final int maxConcurrency) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on "
+                + System.getProperty("java.version"));
+    }
+}
@@ -0,0 +1,106 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+
+import javax.validation.ConstraintViolationException;
+import javax.xml.bind.DataBindingException;
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a document with many {@link XMLObject}s of the same type, one element at a time. Elements of the type can be
+ * wrapped in any other elements, only one of them is held in memory at a time. Each of them is validated the same way
+ * as {@link XMLSerializer#deserialize(Class, InputStream)} does before it is returned.
+ * <p/>
+ * Checked exceptions of the reader and the unmarshaller are rethrown as {@link DataBindingException}.
+ */
+class XMLObjectIterator<S extends XMLObject> implements Iterator<S>, Closeable {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private final Class<S> objectClass;
+    private final XMLSerializer<S> serializer;
+    private final String elementName;
+    private final XMLStreamReader reader;
+    private final DeserializationOptions options;
+
+    @Nullable
+    private S next;
+    private boolean finished;
+
+    XMLObjectIterator(final Class<S> objectClass, final InputStream inputStream, final XMLSerializer<S> serializer,
+                      final DeserializationOptions options) throws JAXBException {
+        this.objectClass = objectClass;
+        this.serializer = serializer;
+        this.options = options;
+        this.elementName = JAXBBinding.of(objectClass).rootElementName();
+        try {
+            this.reader = INPUT_FACTORY.createXMLStreamReader(inputStream);
+        } catch (XMLStreamException ex) {
+            throw new JAXBException(ex);
+        }
+    }
+
+    @Override
+    public boolean hasNext() throws DataBindingException, ConstraintViolationException {
+        if (this.next == null && !this.finished) {
+            this.next = readNext();
+        }
+        return this.next != null;
+    }
+
+    @Override
+    public S next() throws DataBindingException, ConstraintViolationException {
+        final S current = hasNext() ? this.next : null;
+        if (current == null) {
+            throw new NoSuchElementException();
+        }
+        this.next = null;
+        return current;
+    }
+
+    @Nullable
+    private S readNext() {
+        try {
+            while (this.reader.hasNext()) {
+                // unmarshalling moves the reader past the element, so no explicit next() after it
+                if (this.reader.isStartElement() && this.elementName.equals(this.reader.getLocalName())) {
+                    return this.serializer.unmarshalAndValidate(this.reader, this.objectClass, this.options);
+                }
+                this.reader.next();
+            }
+            this.finished = true;
+            return null;
+        } catch (XMLStreamException | JAXBException ex) {
+            this.finished = true;
+            throw new DataBindingException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Releases the reader, the underlying input stream is left open to be closed by whoever opened it.
+     */
+    @Override
+    public void close() throws DataBindingException {
+        this.finished = true;
+        this.next = null;
+        try {
+            this.reader.close();
+        } catch (XMLStreamException ex) {
+            throw new DataBindingException(ex.getMessage(), ex);
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
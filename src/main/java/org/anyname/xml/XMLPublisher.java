@@ -0,0 +1,60 @@
+package org.anyname.xml;
+
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the objects of a document, e.g. a feed, to a {@code java.util.concurrent.Flow.Subscriber} as it requests
+ * them, so that a subscriber slower than parsing, e.g. writing to a database, is neither flooded nor blocks a thread:
+ * the document is read only while there is demand, and no further than the requested objects. Each object is
+ * validated the same way as {@link XMLSerializer#deserializeAll} does, invalid ones either end the stream or are
+ * reported and skipped, see {@link PublishOptions#withInvalidObjectHandler}.
+ * <p/>
+ * On Java 9 or later the publisher is a {@code Flow.Publisher<S>}, by the Java 9 version of its {@link FlowPublisher}
+ * superclass in the multi-release jar, so that it can be given to reactive libraries as is:
+ * <pre>{@code
+ * Flow.Publisher<Product> publisher = XMLSerializer.publish(Product.class, inputStream);
+ * }</pre>
+ * The library is built for Java 8, which has no {@code Flow}: before Java 9, or from a jar built without a JDK 21,
+ * {@link XMLSerializer#publish(Class, InputStream)} throws {@link UnsupportedOperationException}.
+ * <p/>
+ * The input stream can be read once, so the publisher accepts a single subscriber, others get an
+ * {@link IllegalStateException}. The stream is closed once the objects are published, the publishing fails or is
+ * cancelled.
+ */
+public final class XMLPublisher<S extends XMLObject> extends FlowPublisher<S> {
+
+    private final Class<S> objectClass;
+    private final InputStream inputStream;
+    private final DeserializationOptions options;
+    private final PublishOptions publishOptions;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    XMLPublisher(final Class<S> objectClass, final InputStream inputStream, final DeserializationOptions options,
+                 final PublishOptions publishOptions, final Executor executor) {
+        this.objectClass = objectClass;
+        this.inputStream = inputStream;
+        this.options = options;
+        this.publishOptions = publishOptions;
+        this.executor = executor;
+    }
+
+    @Override
+    boolean markSubscribed() {
+        return this.subscribed.compareAndSet(false, true);
+    }
+
+    @Override
+    IllegalStateException alreadySubscribed() {
+        return new IllegalStateException("The document of " + this.objectClass.getName()
+                + " objects has already been subscribed to");
+    }
+
+    @Override
+    RecordSubscription<S> newSubscription(final RecordSubscription.Subscriber<? super S> subscriber) {
+        return new RecordSubscription<>(this.objectClass, this.inputStream, XMLSerializer.defaultSerializer(),
+                this.options, this.publishOptions, this.executor, subscriber);
+    }
+}
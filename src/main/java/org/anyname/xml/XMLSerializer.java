@@ -1,22 +1,63 @@
 package org.anyname.xml;
 
 import org.anyname.nullsafety.Nullable;
+import org.anyname.nullsafety.NullsafetyBoundery;
+import org.anyname.nullsafety.NullsafetyBounderyIndex;
+import org.anyname.nullsafety.NullsafetyValidator;
+import org.anyname.nullsafety.NullsafetyValidators;
+import org.anyname.xml.XMLSerializerListener.Operation;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.Validation;
+import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class XMLSerializer<T extends XMLObject> {
 
     private static final ValidatorFactory DEFAULT_VALIDATOR_FACTORY = Validation.buildDefaultValidatorFactory();
+    private static final XMLSerializer<?> DEFAULT_SERIALIZER = new XMLSerializer<>();
+    private static final int MIN_BATCH_CHUNK = 256;
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final Predicate<Object> NOTHING_CHECKED = value -> false;
+
+    /**
+     * Thread-safe, so one instance serves all validations rather than one taken from the factory for each of them.
+     */
+    private final Validator validator;
     private final ValidatorFactory validatorFactory;
 
     XMLSerializer() {
@@ -24,45 +65,604 @@ public class XMLSerializer<T extends XMLObject> {
     }
 
     XMLSerializer(ValidatorFactory validatorFactory) {
+        this.validator = validatorFactory.getValidator();
         this.validatorFactory = validatorFactory;
     }
 
     public static <S extends XMLObject> void serialize(S object, OutputStream outputStream)
             throws JAXBException {
-        JAXBContext jaxbContext = JAXBContext.newInstance(Product.class);
-        Marshaller marshaller = jaxbContext.createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-        marshaller.marshal(object, outputStream);
+        serialize(object, outputStream, SerializationOptions.DEFAULT);
+    }
+
+    public static <S extends XMLObject> void serialize(S object, OutputStream outputStream,
+                                                       SerializationOptions options)
+            throws JAXBException {
+        JAXBBinding.of(object.getClass()).marshal(object, outputStream, options.isFormattedOutput());
+    }
+
+    /**
+     * Writes the document to the channel through a pooled buffer of a fixed size, however large the document is.
+     * The channel remains open.
+     */
+    public static <S extends XMLObject> void serialize(S object, WritableByteChannel channel,
+                                                       SerializationOptions options)
+            throws JAXBException, IOException {
+        final JAXBBinding binding = JAXBBinding.of(object.getClass());
+        try (ChannelOutputStream outputStream = new ChannelOutputStream(channel)) {
+            binding.marshal(object, outputStream, options.isFormattedOutput());
+        }
+    }
+
+    /**
+     * Writes the document into the buffer, starting at its position, which is then advanced past the document.
+     * The buffer can be reused for any number of documents, e.g. by clearing it after each one is sent.
+     *
+     * @return number of bytes written
+     * @throws BufferOverflowException if the document does not fit between the position and the limit, in which case
+     * the position is left unchanged
+     */
+    public static <S extends XMLObject> int serialize(S object, ByteBuffer buffer, SerializationOptions options)
+            throws JAXBException, BufferOverflowException {
+        final JAXBBinding binding = JAXBBinding.of(object.getClass());
+        final int start = buffer.position();
+        final ByteBufferOutputStream outputStream = new ByteBufferOutputStream(buffer);
+        try {
+            binding.marshal(object, outputStream, options.isFormattedOutput());
+        } catch (JAXBException | RuntimeException ex) {
+            buffer.position(start);
+            if (outputStream.isOverflowed()) {
+                throw new BufferOverflowException();
+            }
+            throw ex;
+        }
+        return buffer.position() - start;
+    }
+
+    /**
+     * Serializes a stream of objects, the same way as an iterator.
+     *
+     * @see #serializeAll(Iterator, String, OutputStream, SerializationOptions)
+     */
+    public static <S extends XMLObject> long serializeAll(Stream<? extends S> objects, String rootElementName,
+                                                          OutputStream outputStream, SerializationOptions options)
+            throws JAXBException {
+        return serializeAll(objects.iterator(), rootElementName, outputStream, options);
+    }
+
+    /**
+     * Writes a document of the objects wrapped in a root element of the given name, e.g. an export of a catalogue,
+     * without a wrapper object holding all of them: each object is marshalled as soon as the iterator returns it, as
+     * an element of the document, and then is no longer referenced. Whatever the number of objects, the memory held
+     * is that of a single one and of the writer's buffers. The output is flushed after each
+     * {@link SerializationOptions#withFlushInterval interval} of objects. The output stream remains open.
+     *
+     * @return number of objects written
+     */
+    public static <S extends XMLObject> long serializeAll(Iterator<? extends S> objects, String rootElementName,
+                                                          OutputStream outputStream, SerializationOptions options)
+            throws JAXBException {
+        final int flushInterval = options.getFlushInterval();
+        try {
+            final XMLStreamWriter streamWriter = OUTPUT_FACTORY.createXMLStreamWriter(outputStream, "UTF-8");
+            final XMLStreamWriter writer = options.isFormattedOutput()
+                    ? new IndentingXMLStreamWriter(streamWriter) : streamWriter;
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement(rootElementName);
+            long count = 0;
+            Class<?> boundClass = null;
+            JAXBBinding binding = null;
+            while (objects.hasNext()) {
+                final S object = objects.next();
+                if (binding == null || object.getClass() != boundClass) {
+                    boundClass = object.getClass();
+                    binding = JAXBBinding.of(boundClass);
+                }
+                binding.marshal(object, writer);
+                if (++count % flushInterval == 0) {
+                    writer.flush();
+                }
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+            // leaves the output stream open
+            writer.close();
+            return count;
+        } catch (XMLStreamException ex) {
+            throw new JAXBException(ex.getMessage(), ex);
+        }
     }
 
     @Nullable
     public static <S extends XMLObject> S deserialize(Class<S> objectClass, InputStream inputStream)
             throws JAXBException, ConstraintViolationException {
-        XMLSerializer<S> deserializer = new XMLSerializer<>();
+        return deserialize(objectClass, inputStream, DeserializationOptions.DEFAULT);
+    }
 
-        S xmlObject = deserializer.unmarshal(inputStream, objectClass);
-        deserializer.validate(xmlObject);
-        return xmlObject;
+    @Nullable
+    public static <S extends XMLObject> S deserialize(Class<S> objectClass, InputStream inputStream,
+                                                      DeserializationOptions options)
+            throws JAXBException, ConstraintViolationException {
+        XMLSerializer<S> deserializer = defaultSerializer();
+
+        return deserializer.unmarshalAndValidate(inputStream, objectClass, options);
+    }
+
+    /**
+     * Lazily deserializes all {@code objectClass} elements of a document, wherever they are nested in it. Only one
+     * element is held in memory at a time, so documents of any size can be read. Each object is validated the same
+     * way as in {@link #deserialize(Class, InputStream)} when the stream gets to it.
+     * <p/>
+     * The stream should be closed to release the underlying reader, the input stream remains open though.
+     * Reading failures are reported with {@link javax.xml.bind.DataBindingException}, invalid objects with
+     * {@link ConstraintViolationException}.
+     */
+    public static <S extends XMLObject> Stream<S> deserializeAll(Class<S> objectClass, InputStream inputStream)
+            throws JAXBException {
+        return deserializeAll(objectClass, inputStream, DeserializationOptions.DEFAULT);
+    }
+
+    public static <S extends XMLObject> Stream<S> deserializeAll(Class<S> objectClass, InputStream inputStream,
+                                                               DeserializationOptions options)
+            throws JAXBException {
+        XMLObjectIterator<S> iterator = new XMLObjectIterator<>(objectClass, inputStream, defaultSerializer(), options);
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Ingests a feed file in parallel in the {@link ForkJoinPool#commonPool() common pool}.
+     *
+     * @see #ingest(Class, Path, DeserializationOptions, IngestOptions, Executor)
+     */
+    public static <S extends XMLObject> Stream<S> ingest(Class<S> objectClass, Path file)
+            throws IOException, JAXBException {
+        return ingest(objectClass, file, DeserializationOptions.DEFAULT, IngestOptions.DEFAULT,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Deserializes all {@code objectClass} elements of a feed file, e.g. of many gigabytes, the same way as
+     * {@link #deserializeAll(Class, InputStream, DeserializationOptions)}, but parsing chunks of the memory-mapped
+     * file in parallel by the executor, in the order of the file or as chunks complete. Records are found by their
+     * tags, so the feed has to be UTF-8 and records must not nest elements of their own name, as
+     * {@link ParallelFeedIterator} details.
+     * <p/>
+     * The stream should be closed to release the file. Reading failures are reported with
+     * {@link javax.xml.bind.DataBindingException}, invalid objects with {@link ConstraintViolationException}, unless
+     * the ingest options have a {@link Quarantine}, which invalid and unreadable records are passed to within its
+     * error budget.
+     *
+     * @throws IOException if the file can not be opened, or is not UTF-8
+     */
+    public static <S extends XMLObject> Stream<S> ingest(Class<S> objectClass, Path file,
+                                                       DeserializationOptions options, IngestOptions ingestOptions,
+                                                       Executor executor)
+            throws IOException, JAXBException {
+        ParallelFeedIterator<S> iterator = new ParallelFeedIterator<>(objectClass, file, defaultSerializer(), options,
+                ingestOptions, executor);
+
+        final int characteristics = ingestOptions.isOrdered()
+                ? Spliterator.ORDERED | Spliterator.NONNULL
+                : Spliterator.NONNULL;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Publishes the objects in the {@link XMLSerializerExecutors#defaultExecutor() default executor}.
+     *
+     * @see #publish(Class, InputStream, DeserializationOptions, PublishOptions, Executor)
+     */
+    public static <S extends XMLObject> XMLPublisher<S> publish(Class<S> objectClass, InputStream inputStream) {
+        return publish(objectClass, inputStream, DeserializationOptions.DEFAULT, PublishOptions.DEFAULT,
+                XMLSerializerExecutors.defaultExecutor());
+    }
+
+    /**
+     * Publishes all {@code objectClass} elements of a document to a {@code Flow.Subscriber} on Java 9 as it requests
+     * them, nothing is read until it does, see {@link XMLPublisher}.
+     *
+     * @param executor runs the task reading objects while there is demand, which blocks on the input stream
+     * @throws UnsupportedOperationException before Java 9, or if the jar is not multi-release
+     */
+    public static <S extends XMLObject> XMLPublisher<S> publish(Class<S> objectClass, InputStream inputStream,
+                                                                DeserializationOptions options,
+                                                                PublishOptions publishOptions, Executor executor) {
+        return new XMLPublisher<>(objectClass, inputStream, options, publishOptions, executor);
+    }
+
+    /**
+     * Deserializes the same as {@link #deserialize(Class, InputStream)}, but in the
+     * {@link XMLSerializerExecutors#defaultExecutor() default executor}, so that the calling thread does not wait for a
+     * slow stream.
+     */
+    public static <S extends XMLObject> CompletableFuture<S> deserializeAsync(Class<S> objectClass,
+                                                                            InputStream inputStream) {
+        return deserializeAsync(objectClass, inputStream, DeserializationOptions.DEFAULT,
+                XMLSerializerExecutors.defaultExecutor());
+    }
+
+    /**
+     * Deserializes in the executor, e.g. one of {@link XMLSerializerExecutors}. The future completes exceptionally
+     * with the exception {@link #deserialize(Class, InputStream, DeserializationOptions)} would throw, or with
+     * {@link java.util.concurrent.RejectedExecutionException} if the executor does not take the task.
+     */
+    public static <S extends XMLObject> CompletableFuture<S> deserializeAsync(Class<S> objectClass,
+                                                                            InputStream inputStream,
+                                                                            DeserializationOptions options,
+                                                                            Executor executor) {
+        return runAsync(() -> deserialize(objectClass, inputStream, options), executor);
+    }
+
+    public static <S extends XMLObject> CompletableFuture<Void> serializeAsync(S object, OutputStream outputStream) {
+        return serializeAsync(object, outputStream, SerializationOptions.DEFAULT,
+                XMLSerializerExecutors.defaultExecutor());
+    }
+
+    /**
+     * Serializes in the executor, completing the same way as
+     * {@link #deserializeAsync(Class, InputStream, DeserializationOptions, Executor)}.
+     */
+    public static <S extends XMLObject> CompletableFuture<Void> serializeAsync(S object, OutputStream outputStream,
+                                                                             SerializationOptions options,
+                                                                             Executor executor) {
+        return runAsync(() -> {
+            serialize(object, outputStream, options);
+            return null;
+        }, executor);
+    }
+
+    private static <R> CompletableFuture<R> runAsync(Callable<R> task, Executor executor) {
+        // unlike supplyAsync, completes with checked exceptions as they are and reports rejection by the future
+        final CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Prepares all {@link XMLObject} types of the {@link NullsafetyBounderyIndex index} visible to the context class
+     * loader, so that the first request for each of them is as fast as the later ones: builds its JAXB context, pools
+     * its marshallers and unmarshaller, finds its null-safety validator and has Bean Validation read its constraints.
+     *
+     * @return the prepared types
+     */
+    public static List<Class<?>> warmUp() throws JAXBException {
+        XMLSerializer<XMLObject> serializer = defaultSerializer();
+        List<Class<?>> types = indexedTypes();
+        for (Class<?> type : types) {
+            serializer.warmUp(type);
+        }
+        return types;
+    }
+
+    /**
+     * Prepares the same types as {@link #warmUp()} in the background, each of them by a separate task of the executor,
+     * e.g. while the rest of the application starts.
+     */
+    public static CompletableFuture<List<Class<?>>> warmUpAsync(Executor executor) {
+        XMLSerializer<XMLObject> serializer = defaultSerializer();
+        return CompletableFuture.supplyAsync(XMLSerializer::indexedTypes, executor).thenCompose(types -> {
+            final CompletableFuture<?>[] tasks = new CompletableFuture<?>[types.size()];
+            for (int i = 0; i < tasks.length; i++) {
+                final Class<?> type = types.get(i);
+                tasks[i] = CompletableFuture.runAsync(() -> {
+                    try {
+                        serializer.warmUp(type);
+                    } catch (JAXBException ex) {
+                        throw new CompletionException(ex);
+                    }
+                }, executor);
+            }
+            return CompletableFuture.allOf(tasks).thenApply(ignored -> types);
+        });
+    }
+
+    private static List<Class<?>> indexedTypes() {
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        final ClassLoader classLoader = contextClassLoader != null
+                ? contextClassLoader
+                : XMLSerializer.class.getClassLoader();
+        final List<Class<?>> types = new ArrayList<>();
+        for (Class<? extends NullsafetyBoundery> type : NullsafetyBounderyIndex.load(classLoader)) {
+            if (XMLObject.class.isAssignableFrom(type)) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    void warmUp(Class<?> type) throws JAXBException {
+        JAXBBinding.of(type).warmUp();
+        NullsafetyValidators.find(type);
+        // otherwise Bean Validation reads constraints of the type on its first validation
+        this.validator.getConstraintsForClass(type);
+    }
+
+    /**
+     * Adds a listener to measurements of all operations, e.g. {@link XMLSerializerMetrics}. Operations are measured
+     * only while there is at least one listener.
+     */
+    public static void addListener(XMLSerializerListener listener) {
+        Instrumentation.addListener(listener);
+    }
+
+    public static void removeListener(XMLSerializerListener listener) {
+        Instrumentation.removeListener(listener);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <S extends XMLObject> XMLSerializer<S> defaultSerializer() {
+        // stateless apart from the thread-safe validator factory, so one instance serves all types
+        return (XMLSerializer<S>) DEFAULT_SERIALIZER;
     }
 
+    /**
+     * Unmarshals and validates the document of the stream, or of a record of a feed.
+     */
     @Nullable
-    private T unmarshal(InputStream inputStream, Class<T> objectClass) throws JAXBException {
-        final JAXBContext context = JAXBContext.newInstance(objectClass);
-        final Unmarshaller m = context.createUnmarshaller();
+    T unmarshalAndValidate(InputStream inputStream, Class<T> objectClass, DeserializationOptions options)
+            throws JAXBException, ConstraintViolationException {
+        final Set<String> projection = options.getProjection();
+        final ObjectTable objectTable = options.getObjectTable();
+        final Predicate<Object> checked = objectTable != null ? objectTable::contains : NOTHING_CHECKED;
+        final FailFastListener failFastListener = options.isFailFast()
+                ? new FailFastListener(this, projection, checked) : null;
+        final ObjectDeduplicatingListener deduplicatingListener = objectTable != null
+                ? new ObjectDeduplicatingListener(objectTable, projection, failFastListener) : null;
+        final Unmarshaller.Listener listener = unmarshallerListener(
+                deduplicatingListener != null ? deduplicatingListener : failFastListener, options);
+        final JAXBBinding binding = JAXBBinding.of(objectClass);
+        final long fields = projection != null ? binding.fields(projection) : StaxCodec.ALL_FIELDS;
+        final T xmlObject;
+        boolean knownValid = false;
+        try {
+            if (binding.hasCodec()) {
+                xmlObject = objectClass.cast(binding.newInstance());
+                knownValid = binding.read(xmlObject, inputStream, listener, fields);
+            } else {
+                xmlObject = objectClass.cast(binding.unmarshal(inputStream, listener));
+            }
+        } catch (JAXBException | RuntimeException ex) {
+            rethrowFailure(failFastListener);
+            throw ex;
+        }
+        validateUnlessKnown(xmlObject, knownValid, failFastListener, projection, checked);
+        if (deduplicatingListener != null) {
+            deduplicatingListener.admitValidated();
+        }
+        return xmlObject;
+    }
 
-        return (T) m.unmarshal(inputStream);
+    /**
+     * Unmarshals and validates the element the reader is positioned at.
+     */
+    T unmarshalAndValidate(XMLStreamReader reader, Class<T> objectClass, DeserializationOptions options)
+            throws JAXBException, ConstraintViolationException {
+        final Set<String> projection = options.getProjection();
+        final ObjectTable objectTable = options.getObjectTable();
+        final Predicate<Object> checked = objectTable != null ? objectTable::contains : NOTHING_CHECKED;
+        final FailFastListener failFastListener = options.isFailFast()
+                ? new FailFastListener(this, projection, checked) : null;
+        final ObjectDeduplicatingListener deduplicatingListener = objectTable != null
+                ? new ObjectDeduplicatingListener(objectTable, projection, failFastListener) : null;
+        final Unmarshaller.Listener listener = unmarshallerListener(
+                deduplicatingListener != null ? deduplicatingListener : failFastListener, options);
+        final JAXBBinding binding = JAXBBinding.of(objectClass);
+        final long fields = projection != null ? binding.fields(projection) : StaxCodec.ALL_FIELDS;
+        final T xmlObject;
+        boolean knownValid = false;
+        try {
+            if (binding.hasCodec()) {
+                xmlObject = objectClass.cast(binding.newInstance());
+                knownValid = binding.read(xmlObject, reader, listener, fields);
+            } else {
+                xmlObject = binding.unmarshal(reader, objectClass, listener);
+            }
+        } catch (JAXBException | RuntimeException ex) {
+            rethrowFailure(failFastListener);
+            throw ex;
+        }
+        validateUnlessKnown(xmlObject, knownValid, failFastListener, projection, checked);
+        if (deduplicatingListener != null) {
+            deduplicatingListener.admitValidated();
+        }
+        return xmlObject;
     }
 
-    void validate(@Nullable T xmlObject) throws ConstraintViolationException {
-        if (xmlObject == null) {
+    /**
+     * Skips validation of an object its generated codec has found valid while reading it, unless the validation is
+     * instrumented, so that the statistics still count each object.
+     */
+    private void validateUnlessKnown(@Nullable T xmlObject, boolean knownValid, @Nullable FailFastListener listener,
+                                     @Nullable Set<String> projection, Predicate<Object> checked)
+            throws ConstraintViolationException {
+        if ((knownValid && !Instrumentation.isEnabled()) || (listener != null && listener.isValidatedRoot(xmlObject))) {
             return;
         }
+        validateProjected(xmlObject, projection, checked);
+    }
+
+    @Nullable
+    private static Unmarshaller.Listener unmarshallerListener(@Nullable Unmarshaller.Listener listener,
+                                                              DeserializationOptions options) {
+        final StringTable stringTable = options.getStringTable();
+        // strings are deduplicated before objects are validated, fail-fast validation sees the canonical values, and
+        // before objects are shared, so that those of the table hold them too
+        return stringTable != null ? new StringDeduplicatingListener(stringTable, listener) : listener;
+    }
+
+    private static void rethrowFailure(@Nullable FailFastListener listener) throws ConstraintViolationException {
+        // the unmarshaller may have wrapped the violation thrown by the listener
+        final ConstraintViolationException failure = listener != null ? listener.failure() : null;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Validates all objects of the batch in the {@link ForkJoinPool#commonPool() common pool}.
+     *
+     * @see #validateAll(List, Executor)
+     */
+    public static <S extends XMLObject> ValidationReport<S> validateAll(List<? extends S> objects) {
+        return validateAll(objects, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Validates all objects of the batch the same way as {@link #deserialize(Class, InputStream)} does, but instead of
+     * throwing on the first invalid one, reports violations of each of them. The batch is split into chunks validated
+     * in parallel by the executor, small batches are validated by the calling thread.
+     */
+    public static <S extends XMLObject> ValidationReport<S> validateAll(List<? extends S> objects, Executor executor) {
+        XMLSerializer<S> validator = defaultSerializer();
+        return validator.validateBatch(objects, executor);
+    }
+
+    ValidationReport<T> validateBatch(List<? extends T> objects, Executor executor) {
+        final List<? extends T> batch = objects instanceof RandomAccess ? objects : new ArrayList<>(objects);
+        final int parallelism = executor instanceof ForkJoinPool
+                ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        // a few chunks per thread to even out uneven objects, but not so small that scheduling outweighs validation
+        final int chunkSize = Math.max(MIN_BATCH_CHUNK, (batch.size() + 4 * parallelism - 1) / (4 * parallelism));
+
+        if (batch.size() <= chunkSize) {
+            return new ValidationReport<>(batch.size(), validateChunk(batch, 0, batch.size()));
+        }
+
+        final List<CompletableFuture<Map<Integer, Set<ConstraintViolation<T>>>>> chunks = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += chunkSize) {
+            final int chunkFrom = from;
+            final int chunkTo = Math.min(from + chunkSize, batch.size());
+            chunks.add(CompletableFuture.supplyAsync(() -> validateChunk(batch, chunkFrom, chunkTo), executor));
+        }
+
+        final Map<Integer, Set<ConstraintViolation<T>>> violations = new HashMap<>();
+        try {
+            for (CompletableFuture<Map<Integer, Set<ConstraintViolation<T>>>> chunk : chunks) {
+                violations.putAll(chunk.join());
+            }
+        } catch (CompletionException ex) {
+            final Throwable cause = ex.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : ex;
+        }
+        return new ValidationReport<>(batch.size(), violations);
+    }
+
+    private Map<Integer, Set<ConstraintViolation<T>>> validateChunk(List<? extends T> batch, int from, int to) {
+        final Map<Integer, Set<ConstraintViolation<T>>> violations = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            final Set<ConstraintViolation<T>> objectViolations = violations(batch.get(i));
+            if (!objectViolations.isEmpty()) {
+                violations.put(i, objectViolations);
+            }
+        }
+        return violations;
+    }
+
+    void validate(@Nullable T xmlObject) throws ConstraintViolationException {
+        validateObject(xmlObject);
+    }
 
-        final Set<ConstraintViolation<T>> violations = this.validatorFactory.getValidator()
-                .validate(xmlObject);
+    /**
+     * Validates any object the same way as an {@link XMLObject}, e.g. one nested in it.
+     */
+    <V> void validateObject(@Nullable V object) throws ConstraintViolationException {
+        validateProjected(object, null);
+    }
+
+    /**
+     * Validates an object read with a projection for the fields it was read with: violations of the other fields and
+     * of the object as a whole, which could not hold as they were not read, are left out.
+     *
+     * @param projection {@code null} for all fields, as {@link #validateObject(Object)}
+     */
+    <V> void validateProjected(@Nullable V object, @Nullable Set<String> projection)
+            throws ConstraintViolationException {
+        validateProjected(object, projection, NOTHING_CHECKED);
+    }
+
+    /**
+     * Validates an object without cascading into values already checked on their own, e.g. nested objects validated
+     * as they were read, which would be validated again in vain.
+     *
+     * @param checked whether a value of a {@code @Valid} cascade is known to be valid
+     */
+    <V> void validateProjected(@Nullable V object, @Nullable Set<String> projection, Predicate<Object> checked)
+            throws ConstraintViolationException {
+        final Set<ConstraintViolation<V>> violations = violations(object, projection, checked);
 
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(violations);
         }
     }
-}
\ No newline at end of file
+
+    private <V> Set<ConstraintViolation<V>> violations(@Nullable V xmlObject) {
+        return violations(xmlObject, null, NOTHING_CHECKED);
+    }
+
+    private <V> Set<ConstraintViolation<V>> violations(@Nullable V xmlObject, @Nullable Set<String> projection,
+                                                       Predicate<Object> checked) {
+        if (xmlObject == null) {
+            return Collections.emptySet();
+        }
+        if (!Instrumentation.isEnabled()) {
+            return projected(uninstrumentedViolations(xmlObject, checked), projection);
+        }
+
+        final long startAllocatedBytes = Instrumentation.allocatedBytes();
+        final long start = System.nanoTime();
+        final Set<ConstraintViolation<V>> violations = projected(uninstrumentedViolations(xmlObject, checked),
+                projection);
+        Instrumentation.record(xmlObject.getClass(), Operation.VALIDATE, start, 0, startAllocatedBytes);
+        if (!violations.isEmpty()) {
+            Instrumentation.recordViolations(xmlObject.getClass(), violations);
+        }
+        return violations;
+    }
+
+    private static <V> Set<ConstraintViolation<V>> projected(Set<ConstraintViolation<V>> violations,
+                                                             @Nullable Set<String> projection) {
+        if (projection == null || violations.isEmpty()) {
+            return violations;
+        }
+        final Set<ConstraintViolation<V>> projected = new HashSet<>();
+        for (final ConstraintViolation<V> violation : violations) {
+            final Iterator<javax.validation.Path.Node> path = violation.getPropertyPath().iterator();
+            if (path.hasNext() && projection.contains(path.next().getName())) {
+                projected.add(violation);
+            }
+        }
+        return projected.isEmpty() ? Collections.emptySet() : projected;
+    }
+
+    private <V> Set<ConstraintViolation<V>> uninstrumentedViolations(V xmlObject, Predicate<Object> checked) {
+
+        // generated at build time for types with null-safety constraints only, no need for the reflective engine,
+        // so that nothing is allocated for a valid object
+        final NullsafetyValidator<Object> generated = NullsafetyValidators.find(xmlObject.getClass());
+        if (generated != null && generated.isValid(xmlObject, checked)) {
+            return Collections.emptySet();
+        }
+
+        final Validator validator = checked == NOTHING_CHECKED ? this.validator
+                : this.validatorFactory.usingContext().traversableResolver(new CheckedCascadeResolver(checked))
+                .getValidator();
+        final Set<ConstraintViolation<V>> violations = validator.validate(xmlObject);
+        // valid objects share the empty result, whichever way they were validated
+        return violations.isEmpty() ? Collections.emptySet() : violations;
+    }
+}
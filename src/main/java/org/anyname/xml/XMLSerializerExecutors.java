@@ -0,0 +1,77 @@
+package org.anyname.xml;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for the asynchronous {@link XMLSerializer} methods, which block their threads on reading and writing
+ * streams. Both kinds are bounded: a pool of platform threads with a queue of limited capacity, or virtual threads
+ * of which only a limited number run at a time.
+ */
+public final class XMLSerializerExecutors {
+
+    private static final String THREAD_NAME_PREFIX = "xml-serializer-";
+
+    private XMLSerializerExecutors() {
+    }
+
+    /**
+     * Creates a pool of daemon threads, idle ones are stopped after a minute. Tasks submitted while all threads are
+     * busy and the queue is full are rejected, which the asynchronous methods report by completing exceptionally with
+     * {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    public static ExecutorService newBoundedExecutor(final int threads, final int queueCapacity) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(queueCapacity), new DaemonThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @return whether {@link #newVirtualThreadExecutor(int)} can be used, i.e. the JVM is Java 21 or later
+     */
+    public static boolean supportsVirtualThreads() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * Creates an executor starting a virtual thread for each task, at most {@code maxConcurrency} of which run at a
+     * time while the others wait for them. Blocked reads then cost no platform thread, so the limit can be as high as
+     * the number of documents the memory allows to be processed at once. The number of waiting tasks is not bounded,
+     * unlike the queue of {@link #newBoundedExecutor}, so the caller has to bound what it submits; waiting tasks are
+     * dropped by {@link ExecutorService#shutdownNow()}.
+     *
+     * @throws UnsupportedOperationException before Java 21
+     */
+    public static ExecutorService newVirtualThreadExecutor(final int maxConcurrency) {
+        return VirtualThreads.newExecutor(THREAD_NAME_PREFIX + "virtual-", maxConcurrency);
+    }
+
+    /**
+     * Executor used by the asynchronous methods without one, a {@link #newBoundedExecutor bounded pool} of four
+     * threads per processor, as they mostly wait for streams, with a queue of 1024 tasks.
+     */
+    static ExecutorService defaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    private static final class DefaultExecutorHolder {
+        static final ExecutorService EXECUTOR =
+                newBoundedExecutor(4 * Runtime.getRuntime().availableProcessors(), 1024);
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable task) {
+            final Thread thread = new Thread(task, THREAD_NAME_PREFIX + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
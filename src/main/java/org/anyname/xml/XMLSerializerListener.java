@@ -0,0 +1,36 @@
+package org.anyname.xml;
+
+import javax.validation.ConstraintViolation;
+import java.util.Set;
+
+/**
+ * Receives measurements of {@link XMLSerializer} operations, once {@link XMLSerializer#addListener added}. Listeners
+ * are called synchronously by the thread which performed the operation, so they have to be thread-safe and fast.
+ * While there are none, operations are not measured at all.
+ *
+ * @see XMLSerializerMetrics
+ */
+public interface XMLSerializerListener {
+
+    enum Operation {
+        UNMARSHAL, VALIDATE, MARSHAL
+    }
+
+    /**
+     * Called after each operation on a single object, whether it succeeded or not. Validation of an object is
+     * reported separately from its unmarshalling, for each object validated, including the nested ones validated
+     * in {@link DeserializationOptions#withFailFast(boolean) fail-fast} mode.
+     *
+     * @param type class of the unmarshalled, validated or marshalled object
+     * @param bytes size of the document read or written, {@code 0} for validation, {@code -1} if it is not known
+     * @param allocatedBytes bytes allocated by the calling thread during the operation, {@code -1} if the JVM does not
+     * measure them
+     */
+    void onOperation(Class<?> type, Operation operation, long durationNanos, long bytes, long allocatedBytes);
+
+    /**
+     * Called after validation of an object found violations, in addition to {@link #onOperation}.
+     */
+    default void onViolations(Class<?> type, Set<? extends ConstraintViolation<?>> violations) {
+    }
+}
@@ -0,0 +1,222 @@
+package org.anyname.xml;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.validation.ConstraintViolation;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in {@link XMLSerializerListener} collecting statistics per {@link XMLObject} class: latency histograms of
+ * unmarshalling, validation and marshalling, bytes read and written, bytes allocated per call and violations by
+ * property path. Recording is lock-free. Statistics are exposed as an MXBean once {@link #register registered}.
+ * <pre>
+ * XMLSerializerMetrics metrics = new XMLSerializerMetrics();
+ * XMLSerializer.addListener(metrics);
+ * metrics.register(ManagementFactory.getPlatformMBeanServer());
+ * </pre>
+ */
+public final class XMLSerializerMetrics implements XMLSerializerListener, XMLSerializerMetricsMXBean {
+
+    public static final String OBJECT_NAME = "org.anyname.xml:type=XMLSerializerMetrics";
+
+    private final ConcurrentMap<Class<?>, TypeMetrics> types = new ConcurrentHashMap<>();
+
+    @Override
+    public void onOperation(final Class<?> type, final Operation operation, final long durationNanos,
+                            final long bytes, final long allocatedBytes) {
+        typeMetrics(type).operations[operation.ordinal()].record(durationNanos, bytes, allocatedBytes);
+    }
+
+    @Override
+    public void onViolations(final Class<?> type, final Set<? extends ConstraintViolation<?>> violations) {
+        final TypeMetrics metrics = typeMetrics(type);
+        for (final ConstraintViolation<?> violation : violations) {
+            metrics.violations.computeIfAbsent(violation.getPropertyPath().toString(), path -> new LongAdder())
+                    .increment();
+        }
+    }
+
+    @Override
+    public Map<String, TypeStatistics> getTypes() {
+        final Map<String, TypeStatistics> statistics = new TreeMap<>();
+        this.types.forEach((type, metrics) -> statistics.put(type.getName(), metrics.statistics()));
+        return statistics;
+    }
+
+    @Override
+    public void reset() {
+        this.types.clear();
+    }
+
+    /**
+     * Registers the metrics under {@value #OBJECT_NAME}.
+     */
+    public ObjectName register(final MBeanServer server) throws JMException {
+        final ObjectName name = new ObjectName(OBJECT_NAME);
+        server.registerMBean(this, name);
+        return name;
+    }
+
+    private TypeMetrics typeMetrics(final Class<?> type) {
+        final TypeMetrics metrics = this.types.get(type);
+        return metrics != null ? metrics : this.types.computeIfAbsent(type, ignored -> new TypeMetrics());
+    }
+
+    private static final class TypeMetrics {
+        // indexed by operation's ordinal
+        final OperationMetrics[] operations = new OperationMetrics[Operation.values().length];
+        final ConcurrentMap<String, LongAdder> violations = new ConcurrentHashMap<>();
+
+        TypeMetrics() {
+            for (int i = 0; i < this.operations.length; i++) {
+                this.operations[i] = new OperationMetrics();
+            }
+        }
+
+        TypeStatistics statistics() {
+            final Map<String, Long> violationCounts = new TreeMap<>();
+            this.violations.forEach((path, count) -> violationCounts.put(path, count.sum()));
+            return new TypeStatistics(this.operations[Operation.UNMARSHAL.ordinal()].statistics(),
+                    this.operations[Operation.VALIDATE.ordinal()].statistics(),
+                    this.operations[Operation.MARSHAL.ordinal()].statistics(),
+                    Collections.unmodifiableMap(violationCounts));
+        }
+    }
+
+    private static final class OperationMetrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+        final LongAdder allocationSamples = new LongAdder();
+
+        void record(final long durationNanos, final long bytes, final long allocatedBytes) {
+            this.latency.record(durationNanos);
+            if (bytes > 0) {
+                this.bytes.add(bytes);
+            }
+            if (allocatedBytes >= 0) {
+                this.allocatedBytes.add(allocatedBytes);
+                this.allocationSamples.increment();
+            }
+        }
+
+        OperationStatistics statistics() {
+            final long count = this.latency.count();
+            final long samples = this.allocationSamples.sum();
+            return new OperationStatistics(count, count > 0 ? this.latency.totalNanos() / count : 0,
+                    this.latency.percentileNanos(50), this.latency.percentileNanos(90),
+                    this.latency.percentileNanos(99), this.latency.maxNanos(), this.bytes.sum(),
+                    samples > 0 ? this.allocatedBytes.sum() / samples : -1);
+        }
+    }
+
+    /**
+     * Snapshot of statistics of a single type.
+     */
+    public static final class TypeStatistics {
+        private final OperationStatistics unmarshal;
+        private final OperationStatistics validate;
+        private final OperationStatistics marshal;
+        private final Map<String, Long> violations;
+
+        TypeStatistics(final OperationStatistics unmarshal, final OperationStatistics validate,
+                       final OperationStatistics marshal, final Map<String, Long> violations) {
+            this.unmarshal = unmarshal;
+            this.validate = validate;
+            this.marshal = marshal;
+            this.violations = violations;
+        }
+
+        public OperationStatistics getUnmarshal() {
+            return this.unmarshal;
+        }
+
+        public OperationStatistics getValidate() {
+            return this.validate;
+        }
+
+        public OperationStatistics getMarshal() {
+            return this.marshal;
+        }
+
+        /**
+         * @return number of violations by property path, relative to the validated object
+         */
+        public Map<String, Long> getViolations() {
+            return this.violations;
+        }
+    }
+
+    /**
+     * Snapshot of statistics of a single operation on a type. Percentiles are upper bounds of histogram buckets,
+     * at most 25% above the actual values.
+     */
+    public static final class OperationStatistics {
+        private final long count;
+        private final long meanNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+        private final long bytes;
+        private final long allocatedBytesPerCall;
+
+        OperationStatistics(final long count, final long meanNanos, final long p50Nanos, final long p90Nanos,
+                            final long p99Nanos, final long maxNanos, final long bytes,
+                            final long allocatedBytesPerCall) {
+            this.count = count;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+            this.bytes = bytes;
+            this.allocatedBytesPerCall = allocatedBytesPerCall;
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public long getMeanNanos() {
+            return this.meanNanos;
+        }
+
+        public long getP50Nanos() {
+            return this.p50Nanos;
+        }
+
+        public long getP90Nanos() {
+            return this.p90Nanos;
+        }
+
+        public long getP99Nanos() {
+            return this.p99Nanos;
+        }
+
+        public long getMaxNanos() {
+            return this.maxNanos;
+        }
+
+        /**
+         * @return total size of documents read or written
+         */
+        public long getBytes() {
+            return this.bytes;
+        }
+
+        /**
+         * @return mean bytes allocated by a call, {@code -1} if the JVM does not measure allocation
+         */
+        public long getAllocatedBytesPerCall() {
+            return this.allocatedBytesPerCall;
+        }
+    }
+}
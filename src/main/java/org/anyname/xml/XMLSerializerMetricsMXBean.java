@@ -0,0 +1,16 @@
+package org.anyname.xml;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link XMLSerializerMetrics}.
+ */
+public interface XMLSerializerMetricsMXBean {
+
+    /**
+     * @return statistics of each type seen so far, by its class name
+     */
+    Map<String, XMLSerializerMetrics.TypeStatistics> getTypes();
+
+    void reset();
+}
@@ -0,0 +1,23 @@
+package org.anyname.xml;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21 version of the class, packaged into {@code META-INF/versions/21} of the multi-release jar.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        return true;
+    }
+
+    static ExecutorService newExecutor(final String namePrefix, final int maxConcurrency) {
+        final ExecutorService threads = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name(namePrefix, 1).factory());
+        return new ConcurrencyLimitedExecutor(threads, maxConcurrency);
+    }
+}
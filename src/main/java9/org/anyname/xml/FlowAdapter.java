@@ -0,0 +1,60 @@
+package org.anyname.xml;
+
+import java.util.Objects;
+import java.util.concurrent.Flow;
+
+/**
+ * Makes a {@link FlowPublisher} a {@code Flow.Publisher}, packaged into {@code META-INF/versions/9} of the
+ * multi-release jar only. The subscribing is a default method of an interface, as a versioned class must have the
+ * public methods of its Java 8 version, which cannot name {@code Flow}.
+ */
+interface FlowAdapter<S extends XMLObject> extends Flow.Publisher<S> {
+
+    Flow.Subscription NO_SUBSCRIPTION = new Flow.Subscription() {
+        @Override
+        public void request(final long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    @Override
+    default void subscribe(final Flow.Subscriber<? super S> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        final FlowPublisher<S> publisher = (FlowPublisher<S>) this;
+        if (!publisher.markSubscribed()) {
+            subscriber.onSubscribe(NO_SUBSCRIPTION);
+            subscriber.onError(publisher.alreadySubscribed());
+            return;
+        }
+        final RecordSubscription<S> subscription = publisher.newSubscription(new RecordSubscription.Subscriber<S>() {
+            @Override
+            public void onNext(final S object) {
+                subscriber.onNext(object);
+            }
+
+            @Override
+            public void onError(final Throwable failure) {
+                subscriber.onError(failure);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(final long n) {
+                subscription.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                subscription.cancel();
+            }
+        });
+    }
+}
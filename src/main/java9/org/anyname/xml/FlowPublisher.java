@@ -0,0 +1,24 @@
+package org.anyname.xml;
+
+/**
+ * Java 9 version of the class, packaged into {@code META-INF/versions/9} of the multi-release jar, a
+ * {@code Flow.Publisher} by {@link FlowAdapter}.
+ */
+abstract class FlowPublisher<S extends XMLObject> implements FlowAdapter<S> {
+
+    FlowPublisher() {
+    }
+
+    static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * @return {@code false} if there already has been a subscriber
+     */
+    abstract boolean markSubscribed();
+
+    abstract IllegalStateException alreadySubscribed();
+
+    abstract RecordSubscription<S> newSubscription(RecordSubscription.Subscriber<? super S> subscriber);
+}
@@ -24,7 +24,8 @@ public class NullsafetyBounderyTest {
             Arrays.asList(NotNull.class, NotEmpty.class, NotBlank.class);
 
     private static final List<String> excludedPackages = Collections.emptyList();
-    private static final List<Class<?>> excludedClasses = Collections.emptyList();
+    private static final List<Class<?>> excludedClasses =
+            Collections.singletonList(NullsafetyCheckerTest.Unannotated.class);
 
     @Rule
     public final JUnitSoftAssertions softly = new JUnitSoftAssertions();
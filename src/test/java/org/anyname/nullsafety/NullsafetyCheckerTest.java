@@ -0,0 +1,126 @@
+package org.anyname.nullsafety;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import javax.validation.Valid;
+import javax.validation.Validation;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+public class NullsafetyCheckerTest {
+
+    @Test
+    public void nonNullableFields_areRequired() {
+        final NullsafetyChecker checker = checker(Owner.class);
+
+        Assertions.assertThat(checker.isValid(new Owner("Jan", Collections.singletonList("tag"), null))).isTrue();
+        Assertions.assertThat(checker.isValid(new Owner(" ", Collections.singletonList("tag"), null))).isFalse();
+        Assertions.assertThat(checker.isValid(new Owner("Jan", Collections.emptyList(), null))).isFalse();
+    }
+
+    @Test
+    public void unannotatedFields_mayBeNull() throws Exception {
+        final NullsafetyChecker checker = checker(Unannotated.class);
+        final Unannotated unannotated = new Unannotated();
+        Assertions.assertThat(checker.isValid(unannotated)).isTrue();
+
+        // NullAway won't allow to assign null, so we cheat it
+        Unannotated.class.getDeclaredField("field").set(unannotated, null);
+        // Bean Validation finds it valid too, an invalid result would only make it validate again
+        Assertions.assertThat(checker.isValid(unannotated)).isTrue();
+        Assertions.assertThat(Validation.buildDefaultValidatorFactory().getValidator().validate(unannotated)).isEmpty();
+    }
+
+    @Test
+    public void validFields_areCascaded() {
+        final NullsafetyChecker checker = checker(Item.class);
+
+        Assertions.assertThat(checker.isValid(new Item(null))).isTrue();
+        Assertions.assertThat(checker.isValid(new Item(new Owner("Jan", Collections.singletonList("tag"), null))))
+                .isTrue();
+        Assertions.assertThat(checker.isValid(new Item(new Owner("", Collections.singletonList("tag"), null))))
+                .isFalse();
+    }
+
+    @Test
+    public void validFields_checkedAlready_areNotCascaded() {
+        final Owner invalid = new Owner("", Collections.singletonList("tag"), null);
+
+        Assertions.assertThat(checker(Item.class).isValid(new Item(invalid), value -> value == invalid)).isTrue();
+        Assertions.assertThat(checker(Item.class).isValid(new Item(invalid), value -> false)).isFalse();
+    }
+
+    @Test
+    public void cyclicGraph_isLeftToBeanValidation() {
+        final Owner owner = new Owner("Jan", Collections.singletonList("tag"), null);
+        final Item item = new Item(owner);
+        owner.item = item;
+
+        Assertions.assertThat(checker(Item.class).isValid(item)).isFalse();
+    }
+
+    @Test
+    public void otherConstraints_haveNoChecker() {
+        Assertions.assertThat(NullsafetyChecker.forClass(Sized.class)).isNull();
+    }
+
+    @Test
+    public void notEmptyIterable_hasNoChecker() {
+        // Bean Validation has no @NotEmpty validator of a plain Iterable, it reports such a field itself
+        Assertions.assertThat(NullsafetyChecker.forClass(Names.class)).isNull();
+    }
+
+    private static NullsafetyChecker checker(final Class<?> type) {
+        return Objects.requireNonNull(NullsafetyChecker.forClass(type));
+    }
+
+    private static class Owner implements NullsafetyBoundery {
+        @NotBlank
+        String name;
+        @NotEmpty
+        List<String> tags;
+        @Nullable
+        @Valid
+        Item item;
+
+        Owner(final String name, final List<String> tags, @Nullable final Item item) {
+            this.name = name;
+            this.tags = tags;
+            this.item = item;
+        }
+    }
+
+    private static class Item implements NullsafetyBoundery {
+        @Nullable
+        @Valid
+        Owner owner;
+
+        Item(@Nullable final Owner owner) {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Excluded from {@link NullsafetyBounderyTest}, its field has no constraint to check at runtime.
+     */
+    static class Unannotated implements NullsafetyBoundery {
+        Object field = new Object();
+    }
+
+    private static class Names implements NullsafetyBoundery {
+        @NotEmpty
+        Iterable<String> names = Collections.singletonList("Jan");
+    }
+
+    private static class Sized implements NullsafetyBoundery {
+        @NotNull
+        @Size(max = 3)
+        String name = "Jan";
+    }
+}
@@ -0,0 +1,117 @@
+package org.anyname.nullsafety;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class ToStringRendererTest {
+
+    @Test
+    public void render_matchesReflectiveJsonStyle() {
+        final Fields fields = new Fields(new Nested("{not json}"));
+
+        Assertions.assertThat(ToStringRenderer.render(fields))
+                .isEqualTo(ToStringBuilder.reflectionToString(fields, ToStringStyle.JSON_STYLE));
+    }
+
+    @Test
+    public void render_escapesStrings() {
+        final Nested nested = new Nested("q\"u\\o/te\n\t\u0001 ż 😀");
+
+        Assertions.assertThat(ToStringRenderer.render(nested))
+                .isEqualTo(ToStringBuilder.reflectionToString(nested, ToStringStyle.JSON_STYLE))
+                .isEqualTo("{\"text\":\"q\\\"u\\\\o\\/te\\n\\t\\u0001 \\u017C \\uD83D\\uDE00\"}");
+    }
+
+    @Test
+    public void renderTo_appendsToBuilder() {
+        final StringBuilder builder = new StringBuilder("nested=");
+
+        Assertions.assertThat(ToStringRenderer.renderTo(builder, new Nested("a"))).isSameAs(builder);
+        Assertions.assertThat(builder.toString()).isEqualTo("nested={\"text\":\"a\"}");
+    }
+
+    @Test
+    public void render_stopsAtMaxDepth() {
+        final Cycle cycle = new Cycle();
+        cycle.next = cycle;
+
+        Assertions.assertThat(ToStringRenderer.render(cycle)).contains("\"next\":\"" + Cycle.class.getName() + "@");
+    }
+
+    static class Base implements NullsafetyBoundery {
+        @NotNull
+        String inherited = "base";
+    }
+
+    static class Fields extends Base {
+        @NotNull
+        boolean flag = true;
+        @NotNull
+        char letter = 'é';
+        @NotNull
+        byte small = -1;
+        @NotNull
+        int count = 42;
+        @NotNull
+        long big = Long.MAX_VALUE;
+        @NotNull
+        float ratio = 0.5f;
+        @NotNull
+        double amount = 1e-9;
+        @NotNull
+        BigDecimal price = new BigDecimal("19.90");
+        @Nullable
+        Integer missing;
+        @NotNull
+        Nested nested;
+        @NotNull
+        int[] numbers = {1, 2};
+        @NotNull
+        String[] texts = {"x", null};
+        @NotNull
+        List<String> tags = Arrays.asList("a", "b");
+        @NotNull
+        Map<String, Integer> counts = Collections.singletonMap("k", 1);
+        @NotNull
+        Object plain = new StringBuilder("plain");
+        @Nullable
+        transient String cached = "skipped";
+
+        Fields(final Nested nested) {
+            this.nested = nested;
+        }
+
+        @Override
+        public String toString() {
+            return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+        }
+    }
+
+    static class Nested implements NullsafetyBoundery {
+        @NotNull
+        String text;
+
+        Nested(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String toString() {
+            return ToStringBuilder.reflectionToString(this, ToStringStyle.JSON_STYLE);
+        }
+    }
+
+    static class Cycle implements NullsafetyBoundery {
+        @Nullable
+        Cycle next;
+    }
+}
@@ -0,0 +1,161 @@
+package org.anyname.nullsafety.agent;
+
+import org.anyname.nullsafety.Nullable;
+import org.anyname.nullsafety.contracts.Contracts;
+import org.anyname.nullsafety.contracts.legacy.Legacy;
+import org.anyname.nullsafety.contracts.legacy.Scoped;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class NullContractAgentTest {
+
+    private static final String JOIN =
+            Contracts.class.getName() + ".join(java.lang.String, java.lang.String, long)";
+    private static final String LOOKUP =
+            Contracts.class.getName() + ".lookup(java.util.Map, java.lang.String)";
+
+    private final NullContractTransformer transformer = new NullContractTransformer(Collections.emptyList());
+    private final InstrumentingClassLoader classLoader = new InstrumentingClassLoader();
+    private final List<NullContractViolation> violations = Collections.synchronizedList(new ArrayList<>());
+    private final NullContractListener listener = this.violations::add;
+
+    @Before
+    public void addListener() {
+        NullContracts.addListener(this.listener);
+    }
+
+    @After
+    public void removeListener() {
+        NullContracts.removeListener(this.listener);
+        NullContracts.setSamplingPercent(100);
+    }
+
+    @Test
+    public void reportsNullParametersAndReturnValues() throws Exception {
+        final Class<?> type = this.classLoader.loadClass(Contracts.class.getName());
+        final Object contracts = type.getConstructor(String.class).newInstance("contracts");
+
+        Assertions.assertThat(type.getMethod("join", String.class, String.class, long.class)
+                .invoke(contracts, null, null, 1L)).isEqualTo("contractsnullnull1");
+        Assertions.assertThat(type.getMethod("lookup", Map.class, String.class)
+                .invoke(contracts, Collections.emptyMap(), "key")).isNull();
+
+        Assertions.assertThat(this.violations).extracting(NullContractViolation::getContract)
+                .containsExactly(JOIN + " parameter 0", LOOKUP + " return value");
+        Assertions.assertThat(this.violations.get(1).getStackTrace()[0].getMethodName()).isEqualTo("lookup");
+    }
+
+    @Test
+    public void leavesNullableAndEqualsUnchecked() throws Exception {
+        final Class<?> type = this.classLoader.loadClass(Contracts.class.getName());
+        final Object contracts = type.getConstructor(String.class).newInstance("contracts");
+
+        Assertions.assertThat(type.getMethod("optional").invoke(contracts)).isNull();
+        Assertions.assertThat(contracts.equals(null)).isFalse();
+
+        Assertions.assertThat(this.violations).isEmpty();
+    }
+
+    @Test
+    public void checksConstructors() throws Exception {
+        final Class<?> type = this.classLoader.loadClass(Contracts.class.getName());
+        type.getConstructor(String.class).newInstance((Object) null);
+
+        Assertions.assertThat(this.violations).extracting(NullContractViolation::getContract)
+                .containsExactly(Contracts.class.getName() + ".<init>(java.lang.String) parameter 0");
+    }
+
+    @Test
+    public void sampling_countsAllReportsSome() throws Exception {
+        NullContracts.setSamplingPercent(0);
+        final Class<?> type = this.classLoader.loadClass(Contracts.class.getName());
+        final Object contracts = type.getConstructor(String.class).newInstance("contracts");
+        for (int i = 0; i < 10; i++) {
+            type.getMethod("lookup", Map.class, String.class).invoke(contracts, Collections.emptyMap(), "key");
+        }
+
+        Assertions.assertThat(this.violations).isEmpty();
+        // counts of all the tests, as each of them instruments the class anew
+        Assertions.assertThat(NullContracts.getViolationCounts().get(LOOKUP + " return value"))
+                .isGreaterThanOrEqualTo(10L);
+        Assertions.assertThatThrownBy(() -> NullContracts.setSamplingPercent(101))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void instrumentsOnlyNonNullScopes() {
+        Assertions.assertThat(instrument(Legacy.class)).isNull();
+        Assertions.assertThat(instrument(Scoped.Nested.class)).isNotNull();
+        Assertions.assertThat(instrument(Contracts.class)).isNotNull();
+    }
+
+    @Test
+    public void packages_limitInstrumentedClasses() {
+        final NullContractTransformer limited =
+                new NullContractTransformer(Collections.singletonList("org/anyname/nullsafety/contracts/legacy/"));
+
+        Assertions.assertThat(limited.isIncluded("org/anyname/nullsafety/contracts/legacy/Scoped")).isTrue();
+        Assertions.assertThat(limited.isIncluded("org/anyname/nullsafety/contracts/Contracts")).isFalse();
+        Assertions.assertThat(limited.isIncluded(NullContracts.class.getName().replace('.', '/'))).isFalse();
+    }
+
+    @Nullable
+    private byte[] instrument(final Class<?> type) {
+        final String name = type.getName().replace('.', '/');
+        return this.transformer.transform(getClass().getClassLoader(), name, null, null, classFile(name));
+    }
+
+    private static byte[] classFile(final String name) {
+        try (InputStream classFile = Objects.requireNonNull(
+                NullContractAgentTest.class.getClassLoader().getResourceAsStream(name + ".class"), name)) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            for (int read = classFile.read(buffer); read >= 0; read = classFile.read(buffer)) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Defines the test contracts classes, transformed as the agent would.
+     */
+    private final class InstrumentingClassLoader extends ClassLoader {
+
+        InstrumentingClassLoader() {
+            super(NullContractAgentTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(Contracts.class.getPackage().getName() + '.')) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    final byte[] original = classFile(name.replace('.', '/'));
+                    final byte[] instrumented = NullContractAgentTest.this.transformer.transform(this,
+                            name.replace('.', '/'), null, null, original);
+                    final byte[] classFile = instrumented != null ? instrumented : original;
+                    type = defineClass(name, classFile, 0, classFile.length);
+                }
+                return type;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.anyname.nullsafety.contracts;
+
+import org.anyname.nullsafety.Nullable;
+
+import java.util.Map;
+
+public class Contracts {
+
+    private final String name;
+
+    public Contracts(final String name) {
+        this.name = name;
+    }
+
+    public String join(final String first, @Nullable final String second, final long count) {
+        return this.name + first + second + count;
+    }
+
+    @SuppressWarnings("NullAway")
+    public String lookup(final Map<String, String> values, final String key) {
+        // a null from unannotated code, which static analysis is asked to trust
+        return values.get(key);
+    }
+
+    @Nullable
+    public String optional() {
+        return null;
+    }
+
+    @Override
+    public boolean equals(@Nullable final Object other) {
+        return other instanceof Contracts && ((Contracts) other).name.equals(this.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.name.hashCode();
+    }
+}
@@ -0,0 +1,8 @@
+package org.anyname.nullsafety.contracts.legacy;
+
+public class Legacy {
+
+    public String echo(final String value) {
+        return value;
+    }
+}
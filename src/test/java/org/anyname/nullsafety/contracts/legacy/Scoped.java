@@ -0,0 +1,14 @@
+package org.anyname.nullsafety.contracts.legacy;
+
+import org.anyname.nullsafety.NonNullScope;
+
+@NonNullScope
+public class Scoped {
+
+    public static class Nested {
+
+        public String echo(final String value) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Classes instrumented by the null contracts agent in its tests.
+ */
+@NonNullApi
+package org.anyname.nullsafety.contracts;
+
+import org.anyname.nullsafety.NonNullApi;
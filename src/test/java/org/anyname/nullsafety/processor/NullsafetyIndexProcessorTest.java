@@ -0,0 +1,94 @@
+package org.anyname.nullsafety.processor;
+
+import org.anyname.nullsafety.NullsafetyBoundery;
+import org.anyname.nullsafety.NullsafetyBounderyIndex;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class NullsafetyIndexProcessorTest {
+
+    @Rule
+    public final TemporaryFolder output = new TemporaryFolder();
+
+    @Test
+    public void indexesConcreteBounderyTypes() throws Exception {
+        compile(source("sample.Owner",
+                "package sample;",
+                "public class Owner implements org.anyname.nullsafety.NullsafetyBoundery {",
+                "    public static class Address implements org.anyname.nullsafety.NullsafetyBoundery {}",
+                "}"),
+                source("sample.Base",
+                "package sample;",
+                "public abstract class Base implements org.anyname.nullsafety.NullsafetyBoundery {}"),
+                source("sample.Item",
+                "package sample;",
+                "public class Item extends Base {}"),
+                source("sample.Plain",
+                "package sample;",
+                "public class Plain {}"));
+
+        final File index = new File(this.output.getRoot(), NullsafetyBounderyIndex.LOCATION);
+        Assertions.assertThat(Files.readAllLines(index.toPath(), StandardCharsets.UTF_8))
+                .containsExactly("sample.Item", "sample.Owner", "sample.Owner$Address");
+    }
+
+    @Test
+    public void load_skipsTypesNoLongerOnClasspath() throws Exception {
+        compile(source("sample.Owner",
+                "package sample;",
+                "public class Owner implements org.anyname.nullsafety.NullsafetyBoundery {}"));
+        final File index = new File(this.output.getRoot(), NullsafetyBounderyIndex.LOCATION);
+        Files.write(index.toPath(), Collections.singletonList("sample.Removed"), StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{this.output.getRoot().toURI().toURL()},
+                getClass().getClassLoader())) {
+            final List<Class<? extends NullsafetyBoundery>> types = NullsafetyBounderyIndex.load(classLoader);
+
+            Assertions.assertThat(types).extracting(Class::getName).contains("sample.Owner")
+                    .doesNotContain("sample.Removed");
+        }
+    }
+
+    private void compile(final JavaFileObject... sources) throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(this.output.getRoot()));
+            final List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"));
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+                    Arrays.asList(sources));
+            task.setProcessors(Collections.singletonList(new NullsafetyIndexProcessor()));
+
+            Assertions.assertThat(task.call()).as("compilation succeeded").isTrue();
+        }
+    }
+
+    private static JavaFileObject source(final String className, final String... lines) {
+        final URI uri = URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                return String.join("\n", lines);
+            }
+        };
+    }
+}
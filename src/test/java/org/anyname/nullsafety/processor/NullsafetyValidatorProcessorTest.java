@@ -0,0 +1,115 @@
+package org.anyname.nullsafety.processor;
+
+import org.anyname.nullsafety.NullsafetyValidator;
+import org.anyname.nullsafety.NullsafetyValidators;
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+public class NullsafetyValidatorProcessorTest {
+
+    @Rule
+    public final TemporaryFolder output = new TemporaryFolder();
+
+    @Test
+    public void generatesValidator_forNullsafetyConstraintsOnly() throws Exception {
+        compile(source("sample.Owner",
+                "package sample;",
+                "public class Owner implements org.anyname.nullsafety.NullsafetyBoundery {",
+                "    @javax.validation.constraints.NotBlank public String name;",
+                "    @javax.validation.constraints.NotEmpty java.util.List<String> tags;",
+                "}"),
+                source("sample.Item",
+                "package sample;",
+                "public class Item implements org.anyname.nullsafety.NullsafetyBoundery {",
+                "    @javax.validation.constraints.NotNull private String id;",
+                "    @org.anyname.nullsafety.Nullable @javax.validation.Valid Owner owner;",
+                "    public String getId() { return id; }",
+                "}"),
+                source("sample.Sized",
+                "package sample;",
+                "public class Sized implements org.anyname.nullsafety.NullsafetyBoundery {",
+                "    @javax.validation.constraints.Size(max = 3) String name;",
+                "}"));
+
+        Assertions.assertThat(new File(this.output.getRoot(), "sample/Owner_NullsafetyValidator.class")).exists();
+        Assertions.assertThat(new File(this.output.getRoot(), "sample/Item_NullsafetyValidator.class")).exists();
+        Assertions.assertThat(new File(this.output.getRoot(), "sample/Sized_NullsafetyValidator.class")).doesNotExist();
+    }
+
+    @Test
+    public void generatedValidator_checksFieldsAndCascades() throws Exception {
+        compile(source("sample.Owner",
+                "package sample;",
+                "public class Owner implements org.anyname.nullsafety.NullsafetyBoundery {",
+                "    @javax.validation.constraints.NotBlank public String name = \" \";",
+                "}"),
+                source("sample.Item",
+                "package sample;",
+                "public class Item implements org.anyname.nullsafety.NullsafetyBoundery {",
+                "    @javax.validation.constraints.NotNull public String id;",
+                "    @org.anyname.nullsafety.Nullable @javax.validation.Valid public Owner owner;",
+                "}"));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{this.output.getRoot().toURI().toURL()},
+                getClass().getClassLoader())) {
+            final Class<?> itemClass = classLoader.loadClass("sample.Item");
+            final Object item = itemClass.getDeclaredConstructor().newInstance();
+            final NullsafetyValidator<Object> validator = Objects.requireNonNull(NullsafetyValidators.find(itemClass));
+
+            Assertions.assertThat(validator.isValid(item)).as("null id").isFalse();
+
+            itemClass.getField("id").set(item, "id");
+            Assertions.assertThat(validator.isValid(item)).as("null owner").isTrue();
+
+            final Object owner = classLoader.loadClass("sample.Owner").getDeclaredConstructor().newInstance();
+            itemClass.getField("owner").set(item, owner);
+            Assertions.assertThat(validator.isValid(item)).as("blank owner's name").isFalse();
+
+            Assertions.assertThat(validator.isValid(item, value -> value == owner)).as("owner checked already").isTrue();
+
+            owner.getClass().getField("name").set(owner, "Jan");
+            Assertions.assertThat(validator.isValid(item)).isTrue();
+        }
+    }
+
+    private void compile(final JavaFileObject... sources) throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(this.output.getRoot()));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(this.output.getRoot()));
+            final List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"));
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+                    Arrays.asList(sources));
+            task.setProcessors(Collections.singletonList(new NullsafetyValidatorProcessor()));
+
+            Assertions.assertThat(task.call()).as("compilation succeeded").isTrue();
+        }
+    }
+
+    private static JavaFileObject source(final String className, final String... lines) {
+        final URI uri = URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                return String.join("\n", lines);
+            }
+        };
+    }
+}
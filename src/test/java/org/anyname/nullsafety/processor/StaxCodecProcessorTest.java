@@ -0,0 +1,93 @@
+package org.anyname.nullsafety.processor;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class StaxCodecProcessorTest {
+
+    @Rule
+    public final TemporaryFolder output = new TemporaryFolder();
+
+    @Test
+    public void generatesCodecsOfSupportedTypesOnly() throws Exception {
+        compile(source("org.anyname.xml.Order",
+                "package org.anyname.xml;",
+                "@javax.xml.bind.annotation.XmlRootElement",
+                "public class Order implements XMLObject {",
+                "    @javax.xml.bind.annotation.XmlAttribute @javax.validation.constraints.NotNull public Long id;",
+                "    @javax.validation.constraints.NotNull public String name;",
+                "    public int quantity;",
+                "    @javax.xml.bind.annotation.XmlElement private java.math.BigDecimal price;",
+                "    @javax.validation.Valid public Line line;",
+                "    public static class Line implements XMLObject { public String sku; }",
+                "}"),
+                source("org.anyname.xml.Listed",
+                "package org.anyname.xml;",
+                "public class Listed implements XMLObject { public java.util.List<String> names; }"),
+                source("org.anyname.xml.Adapted",
+                "package org.anyname.xml;",
+                "public class Adapted implements XMLObject {",
+                "    @javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter("
+                        + "javax.xml.bind.annotation.adapters.CollapsedStringAdapter.class) public String name;",
+                "}"),
+                source("org.anyname.xml.Property",
+                "package org.anyname.xml;",
+                "public class Property implements XMLObject {",
+                "    private String name;",
+                "    public String getName() { return name; }",
+                "    public void setName(String name) { this.name = name; }",
+                "}"),
+                source("org.anyname.xml.Nesting",
+                "package org.anyname.xml;",
+                "public class Nesting implements XMLObject { public Listed listed; }"));
+
+        Assertions.assertThat(codec("Order")).exists();
+        Assertions.assertThat(codec("Order_Line")).exists();
+        Assertions.assertThat(codec("Listed")).doesNotExist();
+        Assertions.assertThat(codec("Adapted")).doesNotExist();
+        Assertions.assertThat(codec("Property")).doesNotExist();
+        Assertions.assertThat(codec("Nesting")).doesNotExist();
+    }
+
+    private File codec(final String simpleName) {
+        return new File(this.output.getRoot(), "org/anyname/xml/" + simpleName + "_StaxCodec.class");
+    }
+
+    private void compile(final JavaFileObject... sources) throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(this.output.getRoot()));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(this.output.getRoot()));
+            final List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"));
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null,
+                    Arrays.asList(sources));
+            task.setProcessors(Collections.singletonList(new StaxCodecProcessor()));
+
+            Assertions.assertThat(task.call()).as("compilation succeeded").isTrue();
+        }
+    }
+
+    private static JavaFileObject source(final String className, final String... lines) {
+        final URI uri = URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                return String.join("\n", lines);
+            }
+        };
+    }
+}
@@ -0,0 +1,162 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import javax.validation.ConstraintViolationException;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class BinarySerializerTest {
+
+    @Test
+    public void serializeDeserialize() throws Exception {
+        User user = new User(13L, "Jan", "jan@kowalski.com");
+        Product orginalProduct = new Product("KS1024", "Ravensburger Krypt Silver", "https://ssl-static-images.ravensburger.de/images/produktseiten/1024/15964_1.jpg", BigDecimal.valueOf(19.99), user);
+
+        byte[] bytes = BinarySerializer.serialize(orginalProduct);
+        Product readProduct = BinarySerializer.deserialize(Product.class, bytes);
+
+        Assertions.assertThat(readProduct).isEqualToComparingFieldByFieldRecursively(orginalProduct);
+
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        XMLSerializer.serialize(orginalProduct, xml, SerializationOptions.DEFAULT.withFormattedOutput(false));
+        Assertions.assertThat(bytes.length).isLessThan(xml.size() / 2);
+    }
+
+    @Test
+    public void serializeDeserialize_absentNullableFields() throws Exception {
+        Product orginalProduct = new Product("KS1024", null, null, new BigDecimal("-1E+40"), null);
+
+        byte[] bytes = BinarySerializer.serialize(orginalProduct);
+
+        // version, fingerprint, bitmap of 3 @Nullable fields, id, price (scale, long marker, unscaled value)
+        Assertions.assertThat(bytes).hasSize(1 + 4 + 1 + 7 + 3);
+        Assertions.assertThat(BinarySerializer.deserialize(Product.class, bytes))
+                .isEqualToComparingFieldByFieldRecursively(orginalProduct);
+    }
+
+    @Test
+    public void serializeDeserialize_allSupportedTypes() throws Exception {
+        Sample original = new Sample();
+        original.flag = true;
+        original.small = -7;
+        original.letter = 'ł';
+        original.count = Integer.MIN_VALUE;
+        original.total = Long.MAX_VALUE;
+        original.ratio = 0.25f;
+        original.amount = -Math.PI;
+        original.optionalCount = 42;
+        original.size = Size.LARGE;
+        original.big = BigInteger.ONE.shiftLeft(100).negate();
+        original.precise = new BigDecimal(BigInteger.TEN.pow(30), -3);
+        original.name = "Zażółć gęślą jaźń";
+
+        Sample read = BinarySerializer.deserialize(Sample.class, BinarySerializer.serialize(original));
+
+        Assertions.assertThat(read).isEqualToComparingFieldByFieldRecursively(original);
+        Assertions.assertThat(read.optionalSize).isNull();
+        Assertions.assertThat(read.user).isNull();
+    }
+
+    @Test
+    public void serializeDeserialize_streamOfObjects() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (int i = 0; i < 3; i++) {
+            BinarySerializer.serialize(new User((long) i, "Jan" + i, null), outputStream);
+        }
+
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThat(BinarySerializer.deserialize(User.class, inputStream).getName()).isEqualTo("Jan" + i);
+        }
+        Assertions.assertThatThrownBy(() -> BinarySerializer.deserialize(User.class, inputStream))
+                .isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    public void serialize_rejectsNullNotNullField() throws Exception {
+        Product product = new Product("KS1024", null, null, BigDecimal.ONE, null);
+        Field price = Product.class.getDeclaredField("price");
+        price.setAccessible(true);
+        price.set(product, null);
+
+        Assertions.assertThatThrownBy(() -> BinarySerializer.serialize(product))
+                .isInstanceOf(ConstraintViolationException.class);
+    }
+
+    @Test
+    public void deserialize_validatesDecodedObject() throws Exception {
+        Sample sample = new Sample();
+        sample.name = "";
+
+        byte[] bytes = BinarySerializer.serialize(sample);
+
+        try {
+            BinarySerializer.deserialize(Sample.class, bytes);
+            Assertions.fail("Empty name should have failed validation");
+        } catch (final ConstraintViolationException ex) {
+            Assertions.assertThat(ex.getConstraintViolations()).hasSize(1);
+            Assertions.assertThat(ex.getConstraintViolations().iterator().next().getPropertyPath().toString())
+                    .isEqualTo("name");
+        }
+    }
+
+    @Test
+    public void deserialize_rejectsOtherTypesAndCorruptedBytes() throws Exception {
+        byte[] bytes = BinarySerializer.serialize(new User(13L, "Jan", "jan@kowalski.com"));
+
+        Assertions.assertThatThrownBy(() -> BinarySerializer.deserialize(Product.class, bytes))
+                .isInstanceOf(IOException.class).hasMessageContaining("fingerprint");
+        Assertions.assertThatThrownBy(() -> BinarySerializer.deserialize(User.class,
+                Arrays.copyOf(bytes, bytes.length - 1))).isInstanceOf(EOFException.class);
+        Assertions.assertThatThrownBy(() -> BinarySerializer.deserialize(User.class,
+                Arrays.copyOf(bytes, bytes.length + 1))).isInstanceOf(IOException.class);
+    }
+
+    private enum Size {
+        SMALL, LARGE
+    }
+
+    @XmlRootElement
+    private static class Sample implements XMLObject {
+        @NotNull
+        boolean flag;
+        @NotNull
+        short small;
+        @NotNull
+        char letter;
+        @NotNull
+        int count;
+        @NotNull
+        long total;
+        @NotNull
+        float ratio;
+        @NotNull
+        double amount;
+        @Nullable
+        Integer optionalCount;
+        @NotNull
+        Size size = Size.SMALL;
+        @Nullable
+        Size optionalSize;
+        @NotNull
+        BigInteger big = BigInteger.ZERO;
+        @NotNull
+        BigDecimal precise = BigDecimal.ZERO;
+        @NotEmpty
+        String name = "sample";
+        @Nullable
+        User user;
+    }
+}
@@ -0,0 +1,88 @@
+package org.anyname.xml;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class LazyTextTest {
+
+    private static final String LONG = repeat("Ravensburger Krypt Silver, a 654 piece puzzle é😀 <&> ", 40);
+
+    @Test
+    public void of_keepsShortAndLongText() {
+        for (String text : new String[]{"", "Krypt", LONG}) {
+            final LazyText lazy = LazyText.of(text);
+
+            Assertions.assertThat(lazy.length()).isEqualTo(text.length());
+            Assertions.assertThat(lazy.decode()).isEqualTo(text);
+            Assertions.assertThat(lazy.toString()).isEqualTo(text);
+            Assertions.assertThat(lazy.subSequence(0, text.length() / 2)).isEqualTo(text.substring(0, text.length() / 2));
+        }
+    }
+
+    @Test
+    public void toString_keepsDecodedText() {
+        final LazyText lazy = LazyText.of(LONG);
+
+        Assertions.assertThat(lazy.decode()).isNotSameAs(lazy.decode());
+        final String text = lazy.toString();
+        Assertions.assertThat(lazy.toString()).isSameAs(text);
+        Assertions.assertThat(lazy.decode()).isSameAs(text);
+    }
+
+    @Test
+    public void toString_ofProduct_keepsTextDeflated() throws Exception {
+        final Product product = new Product("KS1024", LONG, null, BigDecimal.ONE, null);
+        final Field field = Product.class.getDeclaredField("description");
+        field.setAccessible(true);
+        final LazyText lazy = (LazyText) field.get(product);
+
+        Assertions.assertThat(product.toString()).contains("\"description\":\"Ravensburger Krypt Silver");
+        Assertions.assertThat(lazy.decode()).isNotSameAs(lazy.decode());
+    }
+
+    @Test
+    public void equals_comparesText() {
+        final LazyText decoded = LazyText.of(LONG);
+        decoded.toString();
+
+        Assertions.assertThat(LazyText.of(LONG)).isEqualTo(decoded).hasSameHashCodeAs(decoded);
+        Assertions.assertThat(LazyText.of(LONG + ".")).isNotEqualTo(decoded);
+        Assertions.assertThat(LazyText.of("Krypt")).isNotEqualTo("Krypt");
+    }
+
+    @Test
+    public void serialize_writesLazyTextAsText() throws Exception {
+        final Product product = new Product("KS1024", LONG, null, BigDecimal.ONE, new User(13L, "Jan", null));
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(product, outputStream, SerializationOptions.DEFAULT.withFormattedOutput(false));
+        final ByteArrayOutputStream jaxbOutputStream = new ByteArrayOutputStream();
+        final Marshaller marshaller = JAXBBinding.of(Product.class).context().createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+        marshaller.marshal(product, jaxbOutputStream);
+
+        Assertions.assertThat(outputStream.toString("UTF-8"))
+                .contains("<description>" + LONG.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;"))
+                .isEqualTo(jaxbOutputStream.toString("UTF-8"));
+        final Product read = Objects.requireNonNull(XMLSerializer.deserialize(Product.class,
+                new ByteArrayInputStream(outputStream.toByteArray())));
+        final Product jaxbRead = (Product) JAXBBinding.of(Product.class).context().createUnmarshaller()
+                .unmarshal(new ByteArrayInputStream(outputStream.toByteArray()));
+        Assertions.assertThat(read.getDescription()).isEqualTo(LONG);
+        Assertions.assertThat(jaxbRead.getDescription()).isEqualTo(LONG);
+    }
+
+    private static String repeat(final String text, final int times) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text).append(i);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package org.anyname.xml;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+public class ObjectTableTest {
+
+    @Test
+    public void get_findsObjectOfEqualKey() {
+        final ObjectTable table = new ObjectTable(16);
+        final User first = new User(13L, "Jan", null);
+
+        Assertions.assertThat(table.get(first)).isNull();
+        table.put(first);
+
+        Assertions.assertThat(table.get(new User(13L, "Jan", null))).isSameAs(first);
+        Assertions.assertThat(table.get(new User(14L, "Jan", null))).isNull();
+        Assertions.assertThat(table.get(new Product("KS13", null, null, BigDecimal.ONE, null))).isNull();
+    }
+
+    @Test
+    public void contains_onlyObjectsOfTable() {
+        final ObjectTable table = new ObjectTable(16);
+        final User first = new User(13L, "Jan", null);
+        table.put(first);
+
+        Assertions.assertThat(table.contains(first)).isTrue();
+        Assertions.assertThat(table.contains(new User(13L, "Jan", null))).isFalse();
+        Assertions.assertThat(table.contains(new Product("KS13", null, null, BigDecimal.ONE, first))).isFalse();
+    }
+
+    @Test
+    public void capacity_isBoundedPowerOfTwo() {
+        final ObjectTable table = new ObjectTable(100);
+        for (long i = 0; i < 10_000; i++) {
+            table.put(new User(i, "Jan", null));
+        }
+
+        Assertions.assertThat(table.getCapacity()).isEqualTo(128);
+        Assertions.assertThat(table.get(new User(9_999L, "Jan", null))).isNotNull();
+    }
+
+    @Test
+    public void keyField_mustBeSingle() {
+        Assertions.assertThat(ObjectTable.isKeyed(User.class)).isTrue();
+        Assertions.assertThat(ObjectTable.isKeyed(Product.class)).isFalse();
+        Assertions.assertThatThrownBy(() -> ObjectTable.isKeyed(TwoKeys.class))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("single");
+    }
+
+    private static class TwoKeys {
+        @CanonicalKey
+        long id;
+        @CanonicalKey
+        long otherId;
+    }
+}
@@ -0,0 +1,215 @@
+package org.anyname.xml;
+
+import org.anyname.nullsafety.Nullable;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import javax.validation.ConstraintViolationException;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+public class RecordSubscriptionTest {
+
+    private static final Executor SAME_THREAD = Runnable::run;
+
+    @Test
+    public void request_readsNoFurtherThanDemand() {
+        final TrackedInputStream inputStream = new TrackedInputStream(feed(10_000, -1));
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final RecordSubscription<Product> subscription = subscribe(inputStream, PublishOptions.DEFAULT,
+                SAME_THREAD, subscriber);
+
+        subscription.request(2);
+
+        Assertions.assertThat(subscriber.objects).extracting(Product::getProductId).containsExactly("KS0", "KS1");
+        // the reader's buffer at most, of a feed of over a megabyte
+        Assertions.assertThat(inputStream.count).isLessThan(64 * 1024);
+        Assertions.assertThat(subscriber.completed).isFalse();
+
+        subscription.request(Long.MAX_VALUE);
+        subscription.request(Long.MAX_VALUE);
+
+        Assertions.assertThat(subscriber.objects).hasSize(10_000);
+        Assertions.assertThat(subscriber.completed).isTrue();
+        Assertions.assertThat(inputStream.closed).isTrue();
+    }
+
+    @Test
+    public void request_fromOnNext_doesNotRecurse() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final List<RecordSubscription<Product>> subscription = new ArrayList<>();
+        subscriber.onNext = object -> {
+            Assertions.assertThat(Thread.currentThread().getStackTrace().length).isLessThan(200);
+            subscription.get(0).request(1);
+        };
+        subscription.add(subscribe(feed(1_000, -1), PublishOptions.DEFAULT, SAME_THREAD, subscriber));
+
+        subscription.get(0).request(1);
+
+        Assertions.assertThat(subscriber.objects).hasSize(1_000);
+        Assertions.assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    public void invalidObject_endsStream() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final TrackedInputStream inputStream = new TrackedInputStream(feed(10, 3));
+
+        subscribe(inputStream, PublishOptions.DEFAULT, SAME_THREAD, subscriber).request(Long.MAX_VALUE);
+
+        Assertions.assertThat(subscriber.objects).hasSize(3);
+        Assertions.assertThat(subscriber.failure).isInstanceOf(ConstraintViolationException.class);
+        Assertions.assertThat(subscriber.completed).isFalse();
+        Assertions.assertThat(inputStream.closed).isTrue();
+    }
+
+    @Test
+    public void invalidObject_withHandler_isSkipped() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final List<ConstraintViolationException> invalid = new ArrayList<>();
+        final RecordSubscription<Product> subscription = subscribe(feed(10, 3),
+                PublishOptions.DEFAULT.withInvalidObjectHandler(invalid::add), SAME_THREAD, subscriber);
+
+        subscription.request(4);
+
+        Assertions.assertThat(subscriber.objects).extracting(Product::getProductId)
+                .containsExactly("KS0", "KS1", "KS2", "KS4");
+        Assertions.assertThat(invalid).hasSize(1);
+
+        subscription.request(10);
+
+        Assertions.assertThat(subscriber.objects).hasSize(9);
+        Assertions.assertThat(subscriber.failure).isNull();
+        Assertions.assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    public void cancel_stopsAndClosesStream() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final TrackedInputStream inputStream = new TrackedInputStream(feed(10, -1));
+        final RecordSubscription<Product> subscription = subscribe(inputStream, PublishOptions.DEFAULT, SAME_THREAD,
+                subscriber);
+        subscription.request(1);
+
+        subscription.cancel();
+        subscription.request(5);
+
+        Assertions.assertThat(subscriber.objects).hasSize(1);
+        Assertions.assertThat(subscriber.completed).isFalse();
+        Assertions.assertThat(subscriber.failure).isNull();
+        Assertions.assertThat(inputStream.closed).isTrue();
+    }
+
+    @Test
+    public void request_ofNonPositive_failsStream() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        subscribe(feed(10, -1), PublishOptions.DEFAULT, SAME_THREAD, subscriber).request(0);
+
+        Assertions.assertThat(subscriber.failure).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void request_rejectedByExecutor_failsStream() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        final RecordSubscription<Product> subscription = subscribe(feed(10, -1), PublishOptions.DEFAULT,
+                task -> {
+                    throw new RejectedExecutionException("Full");
+                }, subscriber);
+
+        subscription.request(1);
+        subscription.request(1);
+
+        Assertions.assertThat(subscriber.failure).isInstanceOf(RejectedExecutionException.class);
+        Assertions.assertThat(subscriber.signals).isEqualTo(1);
+    }
+
+    private static RecordSubscription<Product> subscribe(final InputStream inputStream,
+                                                         final PublishOptions options, final Executor executor,
+                                                         final RecordingSubscriber subscriber) {
+        return new RecordSubscription<>(Product.class, inputStream, XMLSerializer.defaultSerializer(),
+                DeserializationOptions.DEFAULT, options, executor, subscriber);
+    }
+
+    /**
+     * @param invalid index of the product without a price, {@code -1} for none
+     */
+    private static InputStream feed(final int products, final int invalid) {
+        final StringBuilder feed = new StringBuilder("<?xml version=\"1.0\"?><feed><products>");
+        for (int i = 0; i < products; i++) {
+            feed.append("<product id=\"KS").append(i).append("\"><description>Ravensburger Krypt Silver")
+                    .append("</description>").append(i == invalid ? "" : "<price>19.99</price>")
+                    .append("<createdBy id=\"13\"><name>Jan</name></createdBy></product>");
+        }
+        feed.append("</products></feed>");
+        return new ByteArrayInputStream(feed.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class TrackedInputStream extends FilterInputStream {
+
+        long count;
+        boolean closed;
+
+        TrackedInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            this.count += b >= 0 ? 1 : 0;
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            final int read = super.read(bytes, offset, length);
+            this.count += Math.max(read, 0);
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.closed = true;
+            super.close();
+        }
+    }
+
+    private static final class RecordingSubscriber implements RecordSubscription.Subscriber<Product> {
+
+        final List<Product> objects = new ArrayList<>();
+        Consumer<Product> onNext = object -> {
+        };
+        @Nullable
+        Throwable failure;
+        boolean completed;
+        int signals;
+
+        @Override
+        public void onNext(final Product object) {
+            this.objects.add(object);
+            this.signals++;
+            this.onNext.accept(object);
+        }
+
+        @Override
+        public void onError(final Throwable failure) {
+            this.failure = failure;
+            this.signals++;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+            this.signals++;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.anyname.xml;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class StringTableTest {
+
+    @Test
+    public void canonicalize_returnsFirstEqualValue() {
+        final StringTable table = new StringTable(16);
+        final String first = new String("Jan");
+        final String second = new String("Jan");
+
+        Assertions.assertThat(table.canonicalize(first)).isSameAs(first);
+        Assertions.assertThat(table.canonicalize(second)).isSameAs(first);
+        Assertions.assertThat(table.canonicalize("Ola")).isEqualTo("Ola");
+        Assertions.assertThat(table.getHits()).isEqualTo(1);
+        Assertions.assertThat(table.getLookups()).isEqualTo(3);
+        Assertions.assertThat(table.getHitRate()).isEqualTo(1.0 / 3);
+        Assertions.assertThat(table.getSavedChars()).isEqualTo(3);
+    }
+
+    @Test
+    public void canonicalize_leavesLongValuesOut() {
+        final StringTable table = new StringTable(16, 4);
+        final String first = new String("Kowalski");
+
+        table.canonicalize(first);
+
+        Assertions.assertThat(table.canonicalize(new String("Kowalski"))).isNotSameAs(first);
+        Assertions.assertThat(table.getLookups()).isZero();
+        Assertions.assertThat(table.getHitRate()).isZero();
+    }
+
+    @Test
+    public void capacity_isBoundedPowerOfTwo() {
+        final StringTable table = new StringTable(100);
+        for (int i = 0; i < 10_000; i++) {
+            table.canonicalize("value" + i);
+        }
+
+        Assertions.assertThat(table.getCapacity()).isEqualTo(128);
+        Assertions.assertThat(new StringTable(1).getCapacity()).isEqualTo(1);
+        Assertions.assertThatThrownBy(() -> new StringTable(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,125 @@
+package org.anyname.xml;
+
+import org.anyname.xml.XMLSerializerMetrics.OperationStatistics;
+import org.anyname.xml.XMLSerializerMetrics.TypeStatistics;
+import org.assertj.core.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import javax.validation.ConstraintViolationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public class XMLSerializerMetricsTest {
+
+    private final XMLSerializerMetrics metrics = new XMLSerializerMetrics();
+
+    @Before
+    public void addMetrics() {
+        XMLSerializer.addListener(this.metrics);
+    }
+
+    @After
+    public void removeMetrics() {
+        XMLSerializer.removeListener(this.metrics);
+    }
+
+    @Test
+    public void recordsOperationsPerType() throws Exception {
+        final Product product = new Product("KS1024", null, null, BigDecimal.ONE, new User(13L, "Jan", null));
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(product, outputStream);
+        XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(outputStream.toByteArray()));
+
+        final TypeStatistics statistics = statistics(Product.class);
+        final OperationStatistics marshal = statistics.getMarshal();
+        Assertions.assertThat(marshal.getCount()).isEqualTo(1);
+        Assertions.assertThat(marshal.getBytes()).isEqualTo(outputStream.size());
+        Assertions.assertThat(marshal.getMaxNanos()).isPositive().isGreaterThanOrEqualTo(marshal.getP99Nanos());
+        Assertions.assertThat(statistics.getUnmarshal().getCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getUnmarshal().getBytes()).isEqualTo(outputStream.size());
+        Assertions.assertThat(statistics.getValidate().getCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getViolations()).isEmpty();
+    }
+
+    @Test
+    public void countsViolationsByField() throws Exception {
+        final String xml = "<product id=\"KS1024\"><createdBy id=\"13\"></createdBy></product>";
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertThatThrownBy(() -> XMLSerializer.deserialize(Product.class,
+                    new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))))
+                    .isInstanceOf(ConstraintViolationException.class);
+        }
+
+        Assertions.assertThat(statistics(Product.class).getViolations())
+                .containsEntry("price", 2L).containsEntry("createdBy.name", 2L);
+    }
+
+    @Test
+    public void validateAll_recordsEachObject() {
+        final List<User> users = new ArrayList<>();
+        for (long i = 0; i < 1000; i++) {
+            users.add(new User(i, "Jan", null));
+        }
+        XMLSerializer.validateAll(users);
+
+        Assertions.assertThat(statistics(User.class).getValidate().getCount())
+                .isEqualTo(1000);
+    }
+
+    @Test
+    public void removedListener_isNotCalled() throws Exception {
+        XMLSerializer.removeListener(this.metrics);
+        XMLSerializer.serialize(new User(7L, "Jan", null), new ByteArrayOutputStream());
+
+        Assertions.assertThat(Instrumentation.isEnabled()).isFalse();
+        Assertions.assertThat(this.metrics.getTypes()).isEmpty();
+    }
+
+    @Test
+    public void exposesStatisticsAsMXBean() throws Exception {
+        XMLSerializer.serialize(new User(7L, "Jan", null), new ByteArrayOutputStream());
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName name = this.metrics.register(server);
+
+        final TabularData types = (TabularData) server.getAttribute(name, "Types");
+        final CompositeData user = types.get(new Object[]{User.class.getName()});
+        final CompositeData marshal = (CompositeData) ((CompositeData) user.get("value")).get("marshal");
+        Assertions.assertThat(marshal.get("count")).isEqualTo(1L);
+
+        server.invoke(name, "reset", new Object[0], new String[0]);
+        Assertions.assertThat(this.metrics.getTypes()).isEmpty();
+    }
+
+    @Test
+    public void histogram_boundsPercentiles() {
+        for (long value = 0; value < 100_000; value += 7) {
+            Assertions.assertThat(LatencyHistogram.upperBound(LatencyHistogram.bucket(value)))
+                    .isGreaterThanOrEqualTo(value).isLessThanOrEqualTo(value + value / 4);
+        }
+        Assertions.assertThat(LatencyHistogram.upperBound(LatencyHistogram.bucket(Long.MAX_VALUE)))
+                .isEqualTo(Long.MAX_VALUE);
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+        Assertions.assertThat(histogram.percentileNanos(50)).isBetween(50_000L, 62_500L);
+        Assertions.assertThat(histogram.percentileNanos(99)).isBetween(99_000L, 100_000L);
+    }
+
+    private TypeStatistics statistics(final Class<?> type) {
+        return Objects.requireNonNull(this.metrics.getTypes().get(type.getName()), type.getName());
+    }
+}
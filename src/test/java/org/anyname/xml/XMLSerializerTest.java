@@ -1,17 +1,62 @@
 package org.anyname.xml;
 
+import org.anyname.nullsafety.NullsafetyChecker;
+import org.anyname.nullsafety.NullsafetyValidators;
 import org.assertj.core.api.Assertions;
 import org.assertj.core.api.Fail;
+import org.junit.Assume;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import javax.validation.ConstraintViolationException;
+import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import javax.xml.bind.DataBindingException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.UnmarshalException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlRootElement;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.lang.reflect.Field;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class XMLSerializerTest {
 
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testNotNullValidation() throws Exception {
         final XMLSerializer<NotNullAnnotation> deserializer = new XMLSerializer<>();
@@ -31,6 +76,43 @@ public class XMLSerializerTest {
         deserializer.validate(new NotNullAnnotation(new Object()));
     }
 
+    @Test
+    public void validate_usesGeneratedValidator() throws Exception {
+        final XMLSerializer<Product> deserializer = new XMLSerializer<>();
+        Assertions.assertThat(NullsafetyValidators.find(Product.class)).isNotNull()
+                .isNotInstanceOf(NullsafetyChecker.class);
+        Assertions.assertThat(NullsafetyValidators.find(NotNullAnnotation.class)).isInstanceOf(NullsafetyChecker.class);
+
+        Product product = new Product("KS1024", null, null, BigDecimal.ONE, new User(13L, "Jan", null));
+        final Field price = Product.class.getDeclaredField("price");
+        price.setAccessible(true);
+        price.set(product, null);
+        try {
+            deserializer.validate(product);
+            Fail.fail("NotNull validation of 'null' price should have thrown an ex");
+        } catch (final ConstraintViolationException ex) {
+            Assertions.assertThat(ex.getConstraintViolations()).hasSize(1);
+        }
+    }
+
+    @Test
+    public void validate_allocatesNothingForValidObjects() throws Exception {
+        final XMLSerializer<Product> validator = new XMLSerializer<>();
+        final Product product = new Product("KS1024", "Ravensburger Krypt Silver", null, BigDecimal.ONE,
+                new User(13L, "Jan", "jan@kowalski.com"));
+        validator.validate(product);
+        Assume.assumeTrue("Allocated bytes are not measured by this JVM", Instrumentation.allocatedBytes() >= 0);
+
+        final long start = Instrumentation.allocatedBytes();
+        for (int i = 0; i < 10_000; i++) {
+            validator.validate(product);
+        }
+        final long allocated = Instrumentation.allocatedBytes() - start;
+
+        // less than a byte a validation, which leaves room for the measurement only
+        Assertions.assertThat(allocated).isLessThan(10_000);
+    }
+
     private static class NotNullAnnotation implements XMLObject {
         @NotNull
         Object field;
@@ -40,6 +122,33 @@ public class XMLSerializerTest {
         }
     }
 
+    @Test
+    public void validateProjected_doesNotCascadeIntoCheckedObjects() {
+        final XMLSerializer<XMLObject> validator = new XMLSerializer<>();
+        final User unnamed = new User();
+        // by the generated validator, and by Bean Validation for a constraint it does not support
+        for (Object object : new Object[]{new Product("KS1024", null, null, BigDecimal.ONE, unnamed),
+                new SizedOwner(unnamed)}) {
+            Assertions.assertThatThrownBy(() -> validator.validateObject(object))
+                    .isInstanceOf(ConstraintViolationException.class);
+
+            validator.validateProjected(object, null, value -> value == unnamed);
+        }
+    }
+
+    private static class SizedOwner implements XMLObject {
+        @NotNull
+        @Size(max = 8)
+        String title = "Krypt";
+        @NotNull
+        @Valid
+        User owner;
+
+        private SizedOwner(final User owner) {
+            this.owner = owner;
+        }
+    }
+
     @Test
     public void serializeDeserialize() throws Exception {
         User user = new User(13L, "Jan", "jan@kowalski.com");
@@ -53,4 +162,686 @@ public class XMLSerializerTest {
 
         Assertions.assertThat(readProduct).isEqualToComparingFieldByFieldRecursively(orginalProduct);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void serialize_generatedCodecWritesAsJaxb() throws Exception {
+        Assertions.assertThat(JAXBBinding.of(Product.class).hasCodec()).isTrue();
+        Product product = new Product("K\"<&>'\t\r\n\u00e9", "", "a<&>\"'\r\t\ud83d\ude00]]>",
+                new BigDecimal("-1E+40"), new User(13L, "Jan", null));
+        Product minimal = new Product("KS1024", null, null, BigDecimal.ONE, new User(13L, "Jan", null));
+
+        for (Product original : Arrays.asList(product, minimal)) {
+            for (boolean formatted : new boolean[]{true, false}) {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                XMLSerializer.serialize(original, outputStream,
+                        SerializationOptions.DEFAULT.withFormattedOutput(formatted));
+                ByteArrayOutputStream jaxbOutputStream = new ByteArrayOutputStream();
+                Marshaller marshaller = JAXBBinding.of(Product.class).context().createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+                marshaller.marshal(original, jaxbOutputStream);
+
+                Assertions.assertThat(outputStream.toString("UTF-8")).isEqualTo(jaxbOutputStream.toString("UTF-8"));
+                // decimals are written plain, so compared with what JAXB reads rather than with the original
+                Assertions.assertThat(XMLSerializer.deserialize(Product.class,
+                        new ByteArrayInputStream(outputStream.toByteArray())))
+                        .isEqualToComparingFieldByFieldRecursively(JAXBBinding.of(Product.class).context()
+                                .createUnmarshaller().unmarshal(new ByteArrayInputStream(outputStream.toByteArray())));
+            }
+        }
+    }
+
+    @Test
+    public void deserialize_generatedCodecReadsAsJaxb() throws Exception {
+        List<String> documents = Arrays.asList(
+                "<?xml version='1.0'?><!-- feed --><product id=' KS 1 '><price> 1.5 </price>"
+                        + "<createdBy id=' +7 '><name> Jan </name></createdBy></product>",
+                "<product id='K' price='3' xmlns:q='urn:q' q:id='2'><price>1</price><price>2e3</price>"
+                        + "<unknown><a/>text</unknown><description>a<![CDATA[<b>]]>&amp;c</description>"
+                        + "<imageUrl>skipped<b>child</b>kept</imageUrl><q:description>other</q:description></product>",
+                "<product id='K'><createdBy id='1'><name>A</name></createdBy><price>1<x/>2</price>"
+                        + "<createdBy id='2'><name>B</name><email/></createdBy></product>");
+        Unmarshaller unmarshaller = JAXBBinding.of(Product.class).context().createUnmarshaller();
+
+        for (String document : documents) {
+            byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+            Assertions.assertThat(XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(bytes)))
+                    .as(document).isEqualToComparingFieldByFieldRecursively(
+                            unmarshaller.unmarshal(new ByteArrayInputStream(bytes)));
+        }
+
+        // an attribute which does not parse is thrown, an element is ignored and fails validation
+        Assertions.assertThatThrownBy(() -> XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(
+                "<product id='K'><price>1</price><createdBy id='x'/></product>".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(NumberFormatException.class);
+        Assertions.assertThatThrownBy(() -> XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(
+                "<product id='K'><price>x</price></product>".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(ConstraintViolationException.class);
+        Assertions.assertThatThrownBy(() -> XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(
+                "<user id='1'/>".getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(UnmarshalException.class).hasMessageContaining("local:\"user\"");
+    }
+
+    @Test
+    public void deserialize_projectionReadsOnlyNamedFields() throws Exception {
+        Product product = new Product("KS1024", "Ravensburger Krypt Silver", "https://ravensburger.de/15964_1.jpg",
+                BigDecimal.valueOf(19.99), new User(13L, "Jan", "jan@kowalski.com"));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(product, outputStream);
+        DeserializationOptions options = DeserializationOptions.DEFAULT
+                .withProjection(new HashSet<>(Arrays.asList("productId", "price")));
+
+        Product read = Objects.requireNonNull(XMLSerializer.deserialize(Product.class,
+                new ByteArrayInputStream(outputStream.toByteArray()), options));
+
+        Assertions.assertThat(read.getProductId()).isEqualTo("KS1024");
+        Assertions.assertThat(read.getPrice()).isEqualByComparingTo("19.99");
+        Assertions.assertThat(read.getDescription()).isNull();
+        Assertions.assertThat(read.getImageUrl()).isNull();
+        Assertions.assertThat(read.getCreatedBy()).isNull();
+        Assertions.assertThatThrownBy(() -> XMLSerializer.deserialize(Product.class,
+                new ByteArrayInputStream(outputStream.toByteArray()),
+                DeserializationOptions.DEFAULT.withProjection(Collections.singleton("name"))))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("name");
+    }
+
+    @Test
+    public void deserialize_projectionValidatesOnlyNamedFields() throws Exception {
+        // no price and a user without a name
+        byte[] xml = "<product id='KS1024'><createdBy id='13'/></product>".getBytes(StandardCharsets.UTF_8);
+        for (boolean failFast : new boolean[]{false, true}) {
+            DeserializationOptions options = DeserializationOptions.DEFAULT.withFailFast(failFast);
+
+            Product read = Objects.requireNonNull(XMLSerializer.deserialize(Product.class,
+                    new ByteArrayInputStream(xml), options.withProjection(Collections.singleton("productId"))));
+            Assertions.assertThat(read.getProductId()).isEqualTo("KS1024");
+            try {
+                XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(xml),
+                        options.withProjection(new HashSet<>(Arrays.asList("productId", "createdBy"))));
+                Fail.fail("User without a name should have failed validation");
+            } catch (final ConstraintViolationException ex) {
+                Assertions.assertThat(ex.getConstraintViolations()).extracting(v -> v.getPropertyPath().toString())
+                        .containsExactly(failFast ? "name" : "createdBy.name");
+            }
+        }
+    }
+
+    @Test
+    public void deserialize_projectionOfTypeBoundByJaxbValidatesOnlyNamedFields() throws Exception {
+        Assertions.assertThat(JAXBBinding.of(Listing.class).hasCodec()).isFalse();
+        byte[] xml = "<listing><title>Krypt</title><owner id='13'/></listing>".getBytes(StandardCharsets.UTF_8);
+
+        for (boolean failFast : new boolean[]{false, true}) {
+            DeserializationOptions options = DeserializationOptions.DEFAULT.withFailFast(failFast)
+                    .withProjection(Collections.singleton("title"));
+
+            // read whole, but neither the missing price nor the invalid owner are reported
+            Listing listing = Objects.requireNonNull(XMLSerializer.deserialize(Listing.class,
+                    new ByteArrayInputStream(xml), options));
+            Assertions.assertThat(listing.title).isEqualTo("Krypt");
+            Assertions.assertThat(listing.owner).isNotNull();
+            Assertions.assertThatThrownBy(() -> XMLSerializer.deserialize(Listing.class,
+                    new ByteArrayInputStream(xml), options.withProjection(Collections.singleton("price"))))
+                    .isInstanceOf(ConstraintViolationException.class);
+        }
+    }
+
+    @XmlRootElement
+    public static class Listing implements XMLObject {
+        @NotNull
+        public String title;
+        @NotNull
+        public BigDecimal price;
+        @Valid
+        @org.anyname.nullsafety.Nullable
+        public User owner;
+    }
+
+    @Test
+    public void serializeAll_writesObjectsIntoRootElement() throws Exception {
+        List<Product> products = Arrays.asList(
+                new Product("KS1024", "Ravensburger Krypt Silver", null, BigDecimal.valueOf(19.99),
+                        new User(13L, "Jan", null)),
+                new Product("KS1025", null, null, BigDecimal.TEN, null));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        long written = XMLSerializer.serializeAll(products.stream(), "products", outputStream,
+                SerializationOptions.DEFAULT);
+
+        Assertions.assertThat(written).isEqualTo(2);
+        Assertions.assertThat(new String(outputStream.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<products>\n"
+                        + "    <product id=\"KS1024\">\n"
+                        + "        <description>Ravensburger Krypt Silver</description>\n"
+                        + "        <price>19.99</price>\n"
+                        + "        <createdBy id=\"13\">\n"
+                        + "            <name>Jan</name>\n"
+                        + "        </createdBy>\n"
+                        + "    </product>\n"
+                        + "    <product id=\"KS1025\">\n"
+                        + "        <price>10</price>\n"
+                        + "    </product>\n"
+                        + "</products>\n");
+        try (Stream<Product> read = XMLSerializer.deserializeAll(Product.class,
+                new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Assertions.assertThat(read.collect(Collectors.toList())).hasSize(2)
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyElementsOf(products);
+        }
+    }
+
+    @Test
+    public void serializeAll_flushesAfterEachInterval() throws Exception {
+        final AtomicInteger flushes = new AtomicInteger();
+        final List<Integer> flushesBeforeObjects = new ArrayList<>();
+        final OutputStream outputStream = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        };
+        // generated as they are written, as an export of a large table would be
+        final Iterator<User> users = IntStream.range(0, 7).mapToObj(i -> {
+            flushesBeforeObjects.add(flushes.get());
+            return new User((long) i, "Jan", null);
+        }).iterator();
+
+        XMLSerializer.serializeAll(users, "users", outputStream,
+                SerializationOptions.DEFAULT.withFormattedOutput(false).withFlushInterval(3));
+
+        Assertions.assertThat(flushesBeforeObjects).containsExactly(0, 0, 0, 1, 1, 1, 2);
+        Assertions.assertThat(flushes.get()).isGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    public void serializeDeserialize_sharesBindingAcrossThreads() throws Exception {
+        final int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final long userId = i;
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        User user = new User(userId, "Jan", "jan@kowalski.com");
+                        Product orginalProduct = new Product("KS" + j, null, null, BigDecimal.valueOf(j), user);
+
+                        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                        XMLSerializer.serialize(orginalProduct, outputStream);
+                        Product readProduct = XMLSerializer.deserialize(Product.class,
+                                new ByteArrayInputStream(outputStream.toByteArray()));
+
+                        Assertions.assertThat(readProduct).isEqualToComparingFieldByFieldRecursively(orginalProduct);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertThat(JAXBBinding.of(Product.class).context()).isSameAs(JAXBBinding.of(Product.class).context());
+    }
+
+    @Test
+    public void serialize_bindsToRuntimeClass() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(new User(7L, "Jan", null), outputStream);
+
+        User readUser = XMLSerializer.deserialize(User.class, new ByteArrayInputStream(outputStream.toByteArray()));
+
+        Assertions.assertThat(readUser).isEqualToComparingFieldByFieldRecursively(new User(7L, "Jan", null));
+    }
+
+    @Test
+    public void serialize_compactOutputHasNoIndentation() throws Exception {
+        Product product = new Product("KS1024", "Krypt Silver", null, BigDecimal.ONE, new User(13L, "Jan", null));
+        SerializationOptions compact = SerializationOptions.DEFAULT.withFormattedOutput(false);
+
+        ByteArrayOutputStream formatted = new ByteArrayOutputStream();
+        XMLSerializer.serialize(product, formatted);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(product, outputStream, compact);
+
+        Assertions.assertThat(outputStream.toString("UTF-8")).doesNotContain("\n").doesNotContain("  ");
+        Assertions.assertThat(outputStream.size()).isLessThan(formatted.size());
+        Product readProduct = XMLSerializer.deserialize(Product.class,
+                new ByteArrayInputStream(outputStream.toByteArray()));
+        Assertions.assertThat(readProduct).isEqualToComparingFieldByFieldRecursively(product);
+    }
+
+    @Test
+    public void serialize_writesToChannelInChunks() throws Exception {
+        // several times the buffer, so that it is drained to the channel more than once
+        char[] description = new char[3 * ChannelOutputStream.BUFFER_SIZE];
+        Arrays.fill(description, 'ż');
+        Product product = new Product("KS1024", new String(description), null, BigDecimal.ONE,
+                new User(13L, "Jan", null));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = Channels.newChannel(outputStream)) {
+            XMLSerializer.serialize(product, channel, SerializationOptions.DEFAULT.withFormattedOutput(false));
+            Assertions.assertThat(channel.isOpen()).isTrue();
+        }
+
+        Product readProduct = XMLSerializer.deserialize(Product.class,
+                new ByteArrayInputStream(outputStream.toByteArray()));
+        Assertions.assertThat(readProduct).isEqualToComparingFieldByFieldRecursively(product);
+    }
+
+    @Test
+    public void serialize_writesIntoReusableBuffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (long id = 0; id < 3; id++) {
+            User user = new User(id, "Jan", null);
+            buffer.clear();
+            int written = XMLSerializer.serialize(user, buffer, SerializationOptions.DEFAULT);
+
+            Assertions.assertThat(written).isEqualTo(buffer.position()).isPositive();
+            User readUser = XMLSerializer.deserialize(User.class,
+                    new ByteArrayInputStream(buffer.array(), 0, written));
+            Assertions.assertThat(readUser).isEqualToComparingFieldByFieldRecursively(user);
+        }
+    }
+
+    @Test
+    public void serialize_failsWhenBufferIsTooSmall() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.position(10);
+
+        Assertions.assertThatThrownBy(() -> XMLSerializer.serialize(new User(7L, "Jan", "jan@kowalski.com"), buffer,
+                SerializationOptions.DEFAULT)).isInstanceOf(BufferOverflowException.class);
+        Assertions.assertThat(buffer.position()).isEqualTo(10);
+    }
+
+    @Test
+    public void warmUp_preparesIndexedTypes() throws Exception {
+        Assertions.assertThat(XMLSerializer.warmUp()).contains(Product.class, User.class);
+
+        Assertions.assertThat(XMLSerializer.warmUpAsync(ForkJoinPool.commonPool()).get(10, TimeUnit.SECONDS))
+                .contains(Product.class, User.class);
+    }
+
+    @Test
+    public void serializeDeserializeAsync() throws Exception {
+        Product product = new Product("KS1024", null, null, BigDecimal.ONE, new User(13L, "Jan", null));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serializeAsync(product, outputStream).get(10, TimeUnit.SECONDS);
+
+        Product readProduct = XMLSerializer.deserializeAsync(Product.class,
+                new ByteArrayInputStream(outputStream.toByteArray())).get(10, TimeUnit.SECONDS);
+
+        Assertions.assertThat(readProduct).isEqualToComparingFieldByFieldRecursively(product);
+    }
+
+    @Test
+    public void deserializeAsync_completesWithViolations() {
+        String xml = "<product id=\"KS1024\"></product>";
+        CompletableFuture<Product> future = XMLSerializer.deserializeAsync(Product.class,
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertThatThrownBy(future::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(ConstraintViolationException.class);
+    }
+
+    @Test
+    public void deserializeAsync_completesWithRejection() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = XMLSerializerExecutors.newBoundedExecutor(1, 1);
+        try {
+            // one running and one queued task occupy the whole executor
+            executor.execute(() -> awaitUninterruptibly(release));
+            executor.execute(() -> awaitUninterruptibly(release));
+
+            CompletableFuture<User> future = XMLSerializer.deserializeAsync(User.class,
+                    new ByteArrayInputStream(new byte[0]), DeserializationOptions.DEFAULT, executor);
+
+            Assertions.assertThatThrownBy(future::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void virtualThreadExecutor_requiresJava21() throws Exception {
+        if (!XMLSerializerExecutors.supportsVirtualThreads()) {
+            Assertions.assertThatThrownBy(() -> XMLSerializerExecutors.newVirtualThreadExecutor(8))
+                    .isInstanceOf(UnsupportedOperationException.class);
+            return;
+        }
+        ExecutorService executor = XMLSerializerExecutors.newVirtualThreadExecutor(8);
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            XMLSerializer.serialize(new User(7L, "Jan", null), outputStream);
+            User user = XMLSerializer.deserializeAsync(User.class, new ByteArrayInputStream(outputStream.toByteArray()),
+                    DeserializationOptions.DEFAULT, executor).get(10, TimeUnit.SECONDS);
+            Assertions.assertThat(user).isEqualToComparingFieldByFieldRecursively(new User(7L, "Jan", null));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void publish_requiresJava9() {
+        // the Java 9 publisher is tested by src/test/java21 against the multi-release jar
+        Assume.assumeFalse(FlowPublisher.isSupported());
+
+        Assertions.assertThatThrownBy(() -> XMLSerializer.publish(Product.class, new ByteArrayInputStream(new byte[0])))
+                .isInstanceOf(UnsupportedOperationException.class)
+                .hasMessageContaining(System.getProperty("java.version"));
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void deserializeAll_readsRecordsOneByOne() throws Exception {
+        StringBuilder feed = new StringBuilder("<?xml version=\"1.0\"?><feed><products>");
+        for (int i = 0; i < 1000; i++) {
+            feed.append("<product id=\"KS").append(i).append("\"><price>").append(i).append("</price>")
+                    .append("<createdBy id=\"13\"><name>Jan</name></createdBy></product>");
+        }
+        feed.append("</products></feed>");
+
+        try (Stream<Product> products = XMLSerializer.deserializeAll(Product.class,
+                new ByteArrayInputStream(feed.toString().getBytes(StandardCharsets.UTF_8)))) {
+            Assertions.assertThat(products.map(Product::getProductId).toArray()).hasSize(1000).startsWith("KS0", "KS1");
+        }
+    }
+
+    @Test(expected = ConstraintViolationException.class)
+    public void deserializeAll_validatesEachRecord() throws Exception {
+        String feed = "<products><product id=\"KS0\"><price>1</price></product><product id=\"KS1\"/></products>";
+
+        try (Stream<Product> products = XMLSerializer.deserializeAll(Product.class,
+                new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)))) {
+            products.forEach(product -> Assertions.assertThat(product.getProductId()).isEqualTo("KS0"));
+        }
+    }
+
+    @Test
+    public void deserializeAll_withStringTable_sharesRepeatedValues() throws Exception {
+        StringBuilder feed = new StringBuilder("<products>");
+        for (int i = 0; i < 100; i++) {
+            feed.append("<product id=\"KS").append(i).append("\"><price>1</price>")
+                    .append("<createdBy id=\"13\"><name>Jan</name><email>jan@kowalski.com</email></createdBy></product>");
+        }
+        feed.append("</products>");
+        final StringTable stringTable = new StringTable(256);
+
+        final List<Product> products;
+        try (Stream<Product> stream = XMLSerializer.deserializeAll(Product.class,
+                new ByteArrayInputStream(feed.toString().getBytes(StandardCharsets.UTF_8)),
+                DeserializationOptions.DEFAULT.withStringTable(stringTable).withFailFast(true))) {
+            products = stream.collect(Collectors.toList());
+        }
+
+        final User first = Objects.requireNonNull(products.get(0).getCreatedBy());
+        final User last = Objects.requireNonNull(products.get(99).getCreatedBy());
+        Assertions.assertThat(last.getName()).isSameAs(first.getName());
+        Assertions.assertThat(last.getEmail()).isSameAs(first.getEmail());
+        Assertions.assertThat(products.get(99).getProductId()).isEqualTo("KS99");
+        // names and e-mails of all but the first user, the unique product ids miss
+        Assertions.assertThat(stringTable.getHits()).isEqualTo(198);
+        Assertions.assertThat(stringTable.getLookups()).isEqualTo(300);
+        Assertions.assertThat(stringTable.getSavedChars()).isEqualTo(99 * ("Jan".length() + "jan@kowalski.com".length()));
+    }
+
+    @Test
+    public void deserializeAll_withObjectTable_sharesNestedObjectsOfEqualKeys() throws Exception {
+        StringBuilder feed = new StringBuilder("<products>");
+        for (int i = 0; i < 100; i++) {
+            feed.append("<product id=\"KS").append(i).append("\"><price>1</price><createdBy id=\"").append(i % 10)
+                    .append("\"><name>Jan</name></createdBy></product>");
+        }
+        feed.append("</products>");
+        final ObjectTable objectTable = new ObjectTable(64);
+
+        final List<Product> products;
+        try (Stream<Product> stream = XMLSerializer.deserializeAll(Product.class,
+                new ByteArrayInputStream(feed.toString().getBytes(StandardCharsets.UTF_8)),
+                DeserializationOptions.DEFAULT.withObjectTable(objectTable).withFailFast(true))) {
+            products = stream.collect(Collectors.toList());
+        }
+
+        Assertions.assertThat(products.get(90).getCreatedBy()).isSameAs(products.get(0).getCreatedBy());
+        Assertions.assertThat(products.get(91).getCreatedBy()).isNotSameAs(products.get(0).getCreatedBy())
+                .isSameAs(products.get(1).getCreatedBy());
+        Assertions.assertThat(objectTable.getHits()).isEqualTo(90);
+        Assertions.assertThat(objectTable.getLookups()).isEqualTo(100);
+    }
+
+    @Test
+    public void deserializeAll_withObjectTable_keepsObjectsOfEqualKeysButOtherValues() throws Exception {
+        final String feed = "<products>"
+                + "<product id=\"A\"><price>1</price><createdBy id=\"3\"><name>Jan</name></createdBy></product>"
+                + "<product id=\"B\"><price>1</price><createdBy id=\"3\"><name>Ola</name></createdBy></product>"
+                + "<product id=\"C\"><price>1</price><createdBy id=\"3\"/></product>"
+                + "</products>";
+        final ObjectTable objectTable = new ObjectTable(64);
+        final Iterator<Product> products = XMLSerializer.deserializeAll(Product.class,
+                new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)),
+                DeserializationOptions.DEFAULT.withObjectTable(objectTable)).iterator();
+
+        final User first = Objects.requireNonNull(products.next().getCreatedBy());
+        final User renamed = Objects.requireNonNull(products.next().getCreatedBy());
+        Assertions.assertThat(renamed).isNotSameAs(first);
+        Assertions.assertThat(renamed.getName()).isEqualTo("Ola");
+        // a duplicate key does not stand in for a missing name
+        Assertions.assertThatThrownBy(products::next).isInstanceOf(ConstraintViolationException.class)
+                .hasMessageContaining("createdBy.name");
+        Assertions.assertThat(objectTable.getHits()).isZero();
+        Assertions.assertThat(objectTable.get(new User(3L, "Ola", null))).isSameAs(first);
+    }
+
+    @Test
+    public void deserialize_withObjectTable_sharesValidObjectsOnly() throws Exception {
+        final DeserializationOptions options = DeserializationOptions.DEFAULT.withObjectTable(new ObjectTable(64));
+        final String invalid = "<product id=\"KS0\"><price>1</price><createdBy id=\"13\"/></product>";
+        final String valid = "<product id=\"KS1\"><price>1</price><createdBy id=\"13\"><name>Jan</name></createdBy>"
+                + "</product>";
+
+        Assertions.assertThatThrownBy(() -> XMLSerializer.deserialize(Product.class,
+                new ByteArrayInputStream(invalid.getBytes(StandardCharsets.UTF_8)), options))
+                .isInstanceOf(ConstraintViolationException.class);
+        final Product product = Objects.requireNonNull(XMLSerializer.deserialize(Product.class,
+                new ByteArrayInputStream(valid.getBytes(StandardCharsets.UTF_8)), options));
+
+        Assertions.assertThat(Objects.requireNonNull(product.getCreatedBy()).getName()).isEqualTo("Jan");
+    }
+
+    @Test
+    public void ingest_parsesChunksInParallel() throws Exception {
+        StringBuilder feed = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<feed><products>");
+        for (int i = 0; i < 1000; i++) {
+            feed.append("<product id=\"KS").append(i).append("\" >\n  <description>")
+                    // a record longer than the chunk and its margin, which has to be mapped again
+                    .append(i == 500 ? String.join("", Collections.nCopies(70_000, "x")) : "Zażółć gęślą jaźń")
+                    .append("</description><price>").append(i).append("</price></product >\n");
+        }
+        feed.append("</products></feed>");
+        final Path file = this.temporaryFolder.newFile().toPath();
+        Files.write(file, feed.toString().getBytes(StandardCharsets.UTF_8));
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final IngestOptions smallChunks = IngestOptions.DEFAULT.withChunkSize(1024);
+            try (Stream<Product> products = XMLSerializer.ingest(Product.class, file, DeserializationOptions.DEFAULT,
+                    smallChunks, executor)) {
+                final List<Product> ingested = products.collect(Collectors.toList());
+                Assertions.assertThat(ingested).hasSize(1000).extracting(Product::getProductId)
+                        .startsWith("KS0", "KS1").contains("KS500").endsWith("KS999");
+                Assertions.assertThat(ingested.get(1).getDescription()).isEqualTo("Zażółć gęślą jaźń");
+            }
+            try (Stream<Product> products = XMLSerializer.ingest(Product.class, file, DeserializationOptions.DEFAULT,
+                    smallChunks.withOrdered(false), executor)) {
+                Assertions.assertThat(products.map(Product::getProductId).collect(Collectors.toSet())).hasSize(1000);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = ConstraintViolationException.class)
+    public void ingest_validatesEachRecord() throws Exception {
+        final Path file = this.temporaryFolder.newFile().toPath();
+        Files.write(file, "<products><product id=\"KS0\"><price>1</price></product><product id=\"KS1\"/></products>"
+                .getBytes(StandardCharsets.UTF_8));
+
+        try (Stream<Product> products = XMLSerializer.ingest(Product.class, file)) {
+            products.forEach(product -> Assertions.assertThat(product.getProductId()).isEqualTo("KS0"));
+        }
+    }
+
+    @Test
+    public void ingest_quarantinesInvalidRecords() throws Exception {
+        StringBuilder feed = new StringBuilder("<products>");
+        for (int i = 0; i < 1000; i++) {
+            if (i % 100 == 17) {
+                feed.append("<product id=\"KS").append(i).append("\"/>");
+            } else if (i == 501) {
+                feed.append("<product id=\"KS").append(i).append("\"><price>1</pric></product>");
+            } else if (i == 602) {
+                feed.append("<product id=\"KS").append(i).append("\"><price>1</price>")
+                        .append("<createdBy id=\"x\"><name>Jan</name></createdBy></product>");
+            } else {
+                feed.append("<product id=\"KS").append(i).append("\"><price>").append(i).append("</price></product>");
+            }
+        }
+        final Path file = this.temporaryFolder.newFile().toPath();
+        Files.write(file, feed.append("</products>").toString().getBytes(StandardCharsets.UTF_8));
+        final List<QuarantinedRecord> records = new ArrayList<>();
+        final Quarantine quarantine = new Quarantine(records::add, 12);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            try (Stream<Product> products = XMLSerializer.ingest(Product.class, file, DeserializationOptions.DEFAULT,
+                    IngestOptions.DEFAULT.withChunkSize(1024).withQuarantine(quarantine), executor)) {
+                Assertions.assertThat(products.count()).isEqualTo(988);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertThat(quarantine.getIngestedCount()).isEqualTo(988);
+        Assertions.assertThat(quarantine.getQuarantinedCount()).isEqualTo(12);
+        Assertions.assertThat(records).extracting(QuarantinedRecord::getXmlString)
+                .startsWith("<product id=\"KS17\"/>")
+                .contains("<product id=\"KS501\"><price>1</pric></product>");
+        Assertions.assertThat(records.get(0).getViolations()).extracting(violation -> violation.getPropertyPath()
+                .toString()).containsExactly("price");
+        Assertions.assertThat(records.get(0).getOffset()).isEqualTo(feed.indexOf("<product id=\"KS17\""));
+        Assertions.assertThat(records.get(5).getError()).isInstanceOf(DataBindingException.class);
+        Assertions.assertThat(records.get(5).getViolations()).isEmpty();
+        // an attribute which does not convert, thrown by the binding as NumberFormatException
+        Assertions.assertThat(records.get(7).getXmlString()).contains("<createdBy id=\"x\">");
+        Assertions.assertThat(records.get(7).getError()).isInstanceOf(DataBindingException.class)
+                .hasCauseInstanceOf(NumberFormatException.class).hasMessageContaining("offset");
+    }
+
+    @Test
+    public void ingest_withUnknownProjectedField_failsBeforeReadingRecords() throws Exception {
+        final Path file = this.temporaryFolder.newFile().toPath();
+        Files.write(file, "<products><product id=\"KS1\"><price>1</price></product></products>"
+                .getBytes(StandardCharsets.UTF_8));
+        final Quarantine quarantine = new Quarantine(record -> Fail.fail("Quarantined " + record));
+
+        Assertions.assertThatThrownBy(() -> XMLSerializer.ingest(Product.class, file,
+                DeserializationOptions.DEFAULT.withProjection(Collections.singleton("weight")),
+                IngestOptions.DEFAULT.withQuarantine(quarantine), ForkJoinPool.commonPool()))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("weight");
+        Assertions.assertThat(quarantine.getQuarantinedCount()).isZero();
+    }
+
+    @Test
+    public void ingest_endsOnceErrorBudgetIsExceeded() throws Exception {
+        final Path file = this.temporaryFolder.newFile().toPath();
+        Files.write(file, ("<products><product id=\"KS0\"/><product id=\"KS1\"><price>1</price></product>"
+                + "<product id=\"KS2\"/></products>").getBytes(StandardCharsets.UTF_8));
+        final List<QuarantinedRecord> records = new ArrayList<>();
+        final Quarantine quarantine = new Quarantine(records::add, 1);
+
+        try (Stream<Product> products = XMLSerializer.ingest(Product.class, file, DeserializationOptions.DEFAULT,
+                IngestOptions.DEFAULT.withQuarantine(quarantine), ForkJoinPool.commonPool())) {
+            Assertions.assertThatThrownBy(products::count).isInstanceOf(ConstraintViolationException.class)
+                    .hasMessageContaining("Error budget of 1");
+        }
+        Assertions.assertThat(records).extracting(QuarantinedRecord::getOffset).containsExactly(10L);
+        Assertions.assertThat(quarantine.getQuarantinedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void ingest_rejectsOtherEncodings() throws Exception {
+        final Path file = this.temporaryFolder.newFile().toPath();
+        Files.write(file, "<?xml version='1.0' encoding='ISO-8859-2'?><products/>".getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertThatThrownBy(() -> XMLSerializer.ingest(Product.class, file))
+                .isInstanceOf(IOException.class).hasMessageContaining("ISO-8859-2");
+    }
+
+    @Test
+    public void validateAll_reportsViolationsPerIndex() throws Exception {
+        final Field price = Product.class.getDeclaredField("price");
+        price.setAccessible(true);
+
+        final List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Product product = new Product("KS" + i, null, null, BigDecimal.valueOf(i), new User(13L, "Jan", null));
+            if (i == 17 || i == 5000 || i == 9999) {
+                price.set(product, null);
+            }
+            products.add(product);
+        }
+
+        final ValidationReport<Product> report = XMLSerializer.validateAll(products);
+
+        Assertions.assertThat(report.size()).isEqualTo(10_000);
+        Assertions.assertThat(report.isValid()).isFalse();
+        Assertions.assertThat(report.getViolations().keySet()).containsExactly(17, 5000, 9999);
+        Assertions.assertThat(report.getViolations(5000)).hasSize(1);
+        Assertions.assertThat(report.getViolations(5001)).isEmpty();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Assertions.assertThat(XMLSerializer.validateAll(products.subList(0, 5000), executor).getViolations())
+                    .containsOnlyKeys(17);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void deserialize_failFast_stopsParsingAtFirstViolation() throws Exception {
+        // a user without name, followed by something that would fail parsing if it was ever reached
+        String xml = "<product id=\"KS1024\"><createdBy id=\"13\"></createdBy><price>1</price><broken></product>";
+
+        try {
+            XMLSerializer.deserialize(Product.class, new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+                    DeserializationOptions.DEFAULT.withFailFast(true));
+            Fail.fail("Invalid user should have thrown an ex");
+        } catch (final ConstraintViolationException ex) {
+            Assertions.assertThat(ex.getConstraintViolations()).hasSize(1);
+            Assertions.assertThat(ex.getConstraintViolations().iterator().next().getRootBean()).isInstanceOf(User.class);
+        }
+    }
+
+    @Test
+    public void deserialize_failFast_acceptsValidDocument() throws Exception {
+        User user = new User(13L, "Jan", "jan@kowalski.com");
+        Product orginalProduct = new Product("KS1024", "Ravensburger Krypt Silver", null, BigDecimal.valueOf(19.99), user);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        XMLSerializer.serialize(orginalProduct, outputStream);
+        Product readProduct = XMLSerializer.deserialize(Product.class,
+                new ByteArrayInputStream(outputStream.toByteArray()), DeserializationOptions.DEFAULT.withFailFast(true));
+
+        Assertions.assertThat(readProduct).isEqualToComparingFieldByFieldRecursively(orginalProduct);
+    }
+}
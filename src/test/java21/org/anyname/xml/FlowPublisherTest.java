@@ -0,0 +1,154 @@
+package org.anyname.xml;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs on Java 21 against the multi-release jar, see the multi-release profile.
+ */
+public class FlowPublisherTest {
+
+    @Test
+    public void isSupported_fromVersionedClass() {
+        Assertions.assertThat(FlowPublisher.isSupported()).isTrue();
+    }
+
+    @Test
+    public void subscribe_publishesAsRequested() throws Exception {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        final Flow.Publisher<Product> publisher = XMLSerializer.publish(Product.class, feed(1_000));
+
+        publisher.subscribe(subscriber);
+
+        subscriber.completion.get(10, TimeUnit.SECONDS);
+        Assertions.assertThat(subscriber.objects).hasSize(1_000);
+        Assertions.assertThat(subscriber.objects.get(999).getProductId()).isEqualTo("KS999");
+    }
+
+    @Test
+    public void subscribe_readsNoFurtherThanDemand() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        final XMLPublisher<Product> publisher = XMLSerializer.publish(Product.class, feed(10),
+                DeserializationOptions.DEFAULT, PublishOptions.DEFAULT, Runnable::run);
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(3);
+
+        Assertions.assertThat(subscriber.objects).extracting(Product::getProductId).containsExactly("KS0", "KS1", "KS2");
+        Assertions.assertThat(subscriber.completion).isNotDone();
+
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(3);
+
+        Assertions.assertThat(subscriber.objects).hasSize(3);
+        Assertions.assertThat(subscriber.completion).isNotDone();
+    }
+
+    @Test
+    public void subscribe_again_failsSecondSubscriber() throws Exception {
+        final XMLPublisher<Product> publisher = XMLSerializer.publish(Product.class, feed(10));
+        final RecordingSubscriber first = new RecordingSubscriber(Long.MAX_VALUE);
+        final RecordingSubscriber second = new RecordingSubscriber(Long.MAX_VALUE);
+
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        first.completion.get(10, TimeUnit.SECONDS);
+        Assertions.assertThat(first.objects).hasSize(10);
+        Assertions.assertThatThrownBy(second.completion::join).hasCauseInstanceOf(IllegalStateException.class);
+        Assertions.assertThat(second.objects).isEmpty();
+    }
+
+    @Test
+    public void subscribe_throughProcessor_publishesAll() throws Exception {
+        final RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        try (SubmissionPublisher<Product> processor = new SubmissionPublisher<>()) {
+            processor.subscribe(subscriber);
+            final Flow.Subscriber<Product> forwarder = new RecordingSubscriber(Long.MAX_VALUE) {
+                @Override
+                public void onNext(final Product object) {
+                    processor.submit(object);
+                }
+
+                @Override
+                public void onComplete() {
+                    processor.close();
+                }
+            };
+
+            XMLSerializer.publish(Product.class, feed(100)).subscribe(forwarder);
+
+            subscriber.completion.get(10, TimeUnit.SECONDS);
+        }
+        Assertions.assertThat(subscriber.objects).hasSize(100);
+    }
+
+    @Test
+    public void subscribe_null_isRejected() {
+        final XMLPublisher<Product> publisher = XMLSerializer.publish(Product.class, feed(10));
+
+        Assertions.assertThatThrownBy(() -> publisher.subscribe(null)).isInstanceOf(NullPointerException.class);
+    }
+
+    private static InputStream feed(final int products) {
+        final StringBuilder feed = new StringBuilder("<?xml version=\"1.0\"?><feed><products>");
+        for (int i = 0; i < products; i++) {
+            feed.append("<product id=\"KS").append(i).append("\"><description>Ravensburger Krypt Silver")
+                    .append("</description><price>19.99</price><createdBy id=\"13\"><name>Jan</name></createdBy>")
+                    .append("</product>");
+        }
+        feed.append("</products></feed>");
+        return new ByteArrayInputStream(feed.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Requests {@code batch} objects on subscribing and another one with each, none with a batch of {@code 0}.
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<Product> {
+
+        final List<Product> objects = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private final long batch;
+        volatile Flow.Subscription subscription;
+
+        RecordingSubscriber(final long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (this.batch > 0) {
+                subscription.request(this.batch);
+            }
+        }
+
+        @Override
+        public void onNext(final Product object) {
+            this.objects.add(object);
+            if (this.batch > 0) {
+                this.subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable failure) {
+            this.completion.completeExceptionally(failure);
+        }
+
+        @Override
+        public void onComplete() {
+            this.completion.complete(null);
+        }
+    }
+}